@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class ArrayAssign implements Statement {
+public class ArrayAssign extends Node implements Statement {
 	private Identifier id;
 	private Exp index, value;
 	
@@ -20,11 +21,23 @@ public class ArrayAssign implements Statement {
 		return index;
 	}
 	
+	public void setIndex(Exp index) {
+		this.index = index;
+	}
+	
 	public Exp getValue() {
 		return value;
 	}
 	
+	public void setValue(Exp value) {
+		this.value = value;
+	}
+	
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class ArrayLength implements Exp {
+public class ArrayLength extends Exp {
 	private Exp array;
 	
 	public ArrayLength(Exp array) {
@@ -13,7 +14,15 @@ public class ArrayLength implements Exp {
 		return array;
 	}
 	
+	public void setArray(Exp array) {
+		this.array = array;
+	}
+	
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
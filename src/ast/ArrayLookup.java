@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class ArrayLookup implements Exp {
+public class ArrayLookup extends Exp {
 	private Exp array, index;
 	
 	public ArrayLookup(Exp array, Exp index) {
@@ -14,11 +15,23 @@ public class ArrayLookup implements Exp {
 		return array;
 	}
 	
+	public void setArray(Exp array) {
+		this.array = array;
+	}
+	
 	public Exp getIndex() {
 		return index;
 	}
 	
+	public void setIndex(Exp index) {
+		this.index = index;
+	}
+	
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
@@ -1,25 +1,51 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class Assign implements Statement {
+public class Assign extends Node implements Statement {
 	private Identifier id;
 	private Exp value;
+	private boolean element; //assigns one element of the array id (id[index] = value)
+	private Exp index; //index of the element (null if not an element or missing)
 	
 	public Assign(Identifier id, Exp value) {
 		this.id = id;
 		this.value = value;
 	}
+
+	// assignment checked for an id[index] = value statement, the target is one element of id
+	public Assign(Identifier id, Exp index, Exp value) {
+		this(id, value);
+		this.index = index;
+		this.element = true;
+	}
 	
 	public Identifier getId() {
 		return id;
 	}
+
+	public boolean isElement() {
+		return element;
+	}
+
+	public Exp getIndex() {
+		return index;
+	}
 	
 	public Exp getValue() {
 		return value;
 	}
 	
+	public void setValue(Exp value) {
+		this.value = value;
+	}
+	
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class Block implements Statement {
+public class Block extends Node implements Statement {
 	private StatementList stms;
 	
 	public Block(StatementList stms) {
@@ -16,4 +17,8 @@ public class Block implements Statement {
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
@@ -1,9 +1,24 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class BooleanArrayType implements Type {
+public class BooleanArrayType extends Node implements Type {
+	private int size; //number of elements declared
+
+	public BooleanArrayType(int size) {
+		this.size = size;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class BooleanLiteral implements Exp {
+public class BooleanLiteral extends Exp {
 	private boolean value;
 	
 	public BooleanLiteral(boolean value) {
@@ -16,4 +17,8 @@ public class BooleanLiteral implements Exp {
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
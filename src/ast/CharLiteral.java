@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class CharLiteral implements Exp {
+public class CharLiteral extends Exp {
 	private char value;
 	
 	public CharLiteral(char value) {
@@ -17,4 +18,8 @@ public class CharLiteral implements Exp {
 		v.visit(this);
 	}
 
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
+
 }
@@ -3,9 +3,10 @@ package ast;
 import java.util.ArrayList;
 import java.util.List;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class Declarations {
+public class Declarations extends Node {
 	private List<VarDeclList> list;
 
 	public Declarations() {
@@ -31,4 +32,8 @@ public class Declarations {
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class Equal implements Exp{
+public class Equal extends Exp{
 	private Exp lhs, rhs;
 
 	public Equal(Exp lhs, Exp rhs) {
@@ -14,11 +15,23 @@ public class Equal implements Exp{
 		return lhs;
 	}
 
+	public void setLHS(Exp lhs) {
+		this.lhs = lhs;
+	}
+
 	public Exp getRHS() {
 		return rhs;
 	}
 
+	public void setRHS(Exp rhs) {
+		this.rhs = rhs;
+	}
+
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
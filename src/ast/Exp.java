@@ -1,7 +1,20 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public interface Exp {
-	public void accept(Visitor v);
+public abstract class Exp extends Node {
+	private Type type; //type computed by the type checker (null if unknown or not checked yet)
+
+	public abstract void accept(Visitor v);
+
+	public abstract <R, A> R accept(GenericVisitor<R, A> v, A arg);
+
+	public Type getType() {
+		return type;
+	}
+
+	public void setType(Type type) {
+		this.type = type;
+	}
 }
@@ -3,7 +3,7 @@ package ast;
 import java.util.ArrayList;
 import java.util.List;
 
-public class ExpList {
+public class ExpList extends Node {
 	private List<Exp> list;
 	
 	public ExpList() {
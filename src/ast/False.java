@@ -1,9 +1,14 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class False implements Exp {
+public class False extends Exp {
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
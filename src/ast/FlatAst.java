@@ -0,0 +1,443 @@
+package ast;
+
+import java.util.Arrays;
+
+import lexer.NamePool;
+import visitor.GenericDepthFirstVisitor;
+import visitor.GenericVisitor;
+
+/*
+ *
+ * Compact syntax tree stored as parallel arrays (node kind ordinal, child
+ * range, one value slot and the packed source span) instead of an object
+ * per node. Nodes are
+ * numbered in the order the parser finishes them, so children always come
+ * before their parent and the root is last. A missing child (left behind
+ * by a syntax error) is NONE.
+ *
+ * The parser builds the tree bottom-up on a stack: leaves are pushed, and
+ * node() pops the children of a new node and pushes the node in their
+ * place. toProgram() converts the tree to the ast classes.
+ *
+ */
+
+public class FlatAst {
+	public final static int NONE = -1; //missing node
+
+	private final static NodeKind[] KINDS = NodeKind.values();
+
+	// node kind of each type class
+	private final static GenericVisitor<NodeKind, Void> TYPE_KINDS = new GenericDepthFirstVisitor<NodeKind, Void>() {
+		public NodeKind visit(IntegerType intT, Void arg) {
+			return NodeKind.INT_TYPE;
+		}
+
+		public NodeKind visit(IntegerArrayType intArrayT, Void arg) {
+			return NodeKind.INT_ARRAY_TYPE;
+		}
+
+		public NodeKind visit(FloatType floatT, Void arg) {
+			return NodeKind.FLOAT_TYPE;
+		}
+
+		public NodeKind visit(FloatArrayType floatArrayT, Void arg) {
+			return NodeKind.FLOAT_ARRAY_TYPE;
+		}
+
+		public NodeKind visit(BooleanType boolT, Void arg) {
+			return NodeKind.BOOLEAN_TYPE;
+		}
+
+		public NodeKind visit(BooleanArrayType booleanArrayT, Void arg) {
+			return NodeKind.BOOLEAN_ARRAY_TYPE;
+		}
+
+		public NodeKind visit(CharType charT, Void arg) {
+			return NodeKind.CHAR_TYPE;
+		}
+
+		public NodeKind visit(CharArrayType charArrayT, Void arg) {
+			return NodeKind.CHAR_ARRAY_TYPE;
+		}
+	};
+
+	// number of elements of an array type (0 for single types)
+	private final static GenericVisitor<Integer, Void> ARRAY_SIZES = new GenericDepthFirstVisitor<Integer, Void>() {
+		public Integer visit(IntegerArrayType intArrayT, Void arg) {
+			return intArrayT.getSize();
+		}
+
+		public Integer visit(FloatArrayType floatArrayT, Void arg) {
+			return floatArrayT.getSize();
+		}
+
+		public Integer visit(BooleanArrayType booleanArrayT, Void arg) {
+			return booleanArrayT.getSize();
+		}
+
+		public Integer visit(CharArrayType charArrayT, Void arg) {
+			return charArrayT.getSize();
+		}
+
+		public Integer visit(IntegerType intT, Void arg) {
+			return 0;
+		}
+
+		public Integer visit(FloatType floatT, Void arg) {
+			return 0;
+		}
+
+		public Integer visit(BooleanType boolT, Void arg) {
+			return 0;
+		}
+
+		public Integer visit(CharType charT, Void arg) {
+			return 0;
+		}
+	};
+
+	private byte[] kinds; //node kind ordinals
+	private int[] childStarts; //index of the first child in children
+	private int[] childCounts; //number of children
+	private int[] values; //int, float bits, char, boolean (0/1), array size or symbol id of a leaf
+	private long[] spans; //source spans (see Span)
+	private int size; //number of nodes
+
+	private int[] children; //child node lists of all nodes, each stored contiguously
+	private int childrenSize;
+
+	private int[] stack; //finished nodes not attached to a parent yet
+	private int stackSize;
+
+	private int root = NONE;
+	private NamePool names; //pool resolving the symbol ids of identifiers
+
+	// receives the nodes of a walk, enter() returns false to skip the children of a node
+	public interface Walker {
+		public boolean enter(FlatAst ast, int node);
+		public void exit(FlatAst ast, int node);
+	}
+
+	public FlatAst(NamePool names) {
+		this.kinds = new byte[256];
+		this.childStarts = new int[256];
+		this.childCounts = new int[256];
+		this.values = new int[256];
+		this.spans = new long[256];
+		this.children = new int[256];
+		this.stack = new int[64];
+		this.names = names;
+	}
+
+	// number of nodes, including subtrees dropped by error recovery
+	public int size() {
+		return size;
+	}
+
+	// the program node (NONE until the parse is finished)
+	public int root() {
+		return root;
+	}
+
+	public NamePool getNamePool() {
+		return names;
+	}
+
+	public NodeKind getKind(int node) {
+		return KINDS[kinds[node]];
+	}
+
+	public int getChildCount(int node) {
+		return childCounts[node];
+	}
+
+	// child of a node or NONE if it is missing
+	public int getChild(int node, int index) {
+		return children[childStarts[node] + index];
+	}
+
+	public int getIntVal(int node) {
+		return values[node];
+	}
+
+	public float getFloatVal(int node) {
+		return Float.intBitsToFloat(values[node]);
+	}
+
+	public char getCharVal(int node) {
+		return (char) values[node];
+	}
+
+	public boolean getBooleanVal(int node) {
+		return values[node] != 0;
+	}
+
+	public int getSymbol(int node) {
+		return values[node];
+	}
+
+	public long getSpan(int node) {
+		return spans[node];
+	}
+
+	// name of an IDENTIFIER or IDENTIFIER_EXP node
+	public String getName(int node) {
+		return names.name(values[node]);
+	}
+
+	// visit the tree below a node depth first, using an explicit stack so any depth fits
+	public void walk(int node, Walker walker) {
+		if (node == NONE)
+			return;
+
+		// nodes still to enter, and entered nodes (stored as -2 - node) still to exit
+		int[] pending = new int[64];
+		int count = 0;
+		pending[count++] = node;
+
+		while (count > 0) {
+			int next = pending[--count];
+			if (next < NONE) {
+				walker.exit(this, -2 - next);
+				continue;
+			}
+			if (!walker.enter(this, next)) {
+				walker.exit(this, next);
+				continue;
+			}
+
+			int childCount = childCounts[next];
+			if (count + childCount + 1 > pending.length)
+				pending = Arrays.copyOf(pending, Math.max(pending.length * 2, count + childCount + 1));
+			pending[count++] = -2 - next;
+
+			// push in reverse so the first child is entered first
+			for (int i = childCount - 1; i >= 0; i--) {
+				int child = children[childStarts[next] + i];
+				if (child != NONE)
+					pending[count++] = child;
+			}
+		}
+	}
+
+	/*
+	 * building (used by the parser)
+	 */
+
+	// push a leaf node parsed from a span
+	public void leaf(NodeKind kind, int value, long span) {
+		push(add(kind, 0, value, span));
+	}
+
+	// push a missing node
+	public void none() {
+		push(NONE);
+	}
+
+	// push a node already on the tree again, e.g. a type shared by several declarations
+	public void push(int node) {
+		if (stackSize == stack.length)
+			stack = Arrays.copyOf(stack, stackSize * 2);
+		stack[stackSize++] = node;
+	}
+
+	// replace the top count nodes on the stack by a new node having them as children,
+	// spanning from its first to its last child
+	public void node(NodeKind kind, int count) {
+		long span = Span.NONE;
+		for (int i = stackSize - count; i < stackSize; i++) {
+			if (stack[i] != NONE)
+				span = Span.join(span, spans[stack[i]]);
+		}
+		node(kind, count, span);
+	}
+
+	// replace the top count nodes on the stack by a new node parsed from a span
+	public void node(NodeKind kind, int count, long span) {
+		push(add(kind, count, 0, span));
+	}
+
+	// push the leaf node of a parsed type (a missing node for null)
+	public void type(Type type) {
+		if (type == null)
+			none();
+		else
+			leaf(type.accept(TYPE_KINDS, null), type.accept(ARRAY_SIZES, null), type.getSpan());
+	}
+
+	// remove the top count nodes from the stack, e.g. the parts of a statement dropped by error recovery
+	public void drop(int count) {
+		stackSize -= count;
+	}
+
+	// remove the top node from the stack
+	public int pop() {
+		return stack[--stackSize];
+	}
+
+	// the top node on the stack
+	public int peek() {
+		return stack[stackSize - 1];
+	}
+
+	// number of nodes on the stack, e.g. to count the elements of a list
+	public int mark() {
+		return stackSize;
+	}
+
+	// make the top node the root of the tree
+	public void finish() {
+		root = pop();
+	}
+
+	// append a node whose children are the top count nodes on the stack
+	private int add(NodeKind kind, int count, int value, long span) {
+		if (size == kinds.length) {
+			kinds = Arrays.copyOf(kinds, size * 2);
+			childStarts = Arrays.copyOf(childStarts, size * 2);
+			childCounts = Arrays.copyOf(childCounts, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+			spans = Arrays.copyOf(spans, size * 2);
+		}
+		if (childrenSize + count > children.length)
+			children = Arrays.copyOf(children, Math.max(children.length * 2, childrenSize + count));
+
+		kinds[size] = (byte) kind.ordinal();
+		childStarts[size] = childrenSize;
+		childCounts[size] = count;
+		values[size] = value;
+		spans[size] = span;
+
+		stackSize -= count;
+		System.arraycopy(stack, stackSize, children, childrenSize, count);
+		childrenSize += count;
+		return size++;
+	}
+
+	/*
+	 * conversion to the ast classes
+	 */
+
+	// build the ast objects of the tree, sharing a node's object wherever the node is shared
+	public Program toProgram() {
+		if (root == NONE)
+			return null;
+
+		// children precede their parents, so one pass in node order builds everything bottom-up
+		Object[] objects = new Object[size];
+		for (int node = 0; node < size; node++) {
+			objects[node] = toObject(node, objects);
+			((Node) objects[node]).setSpan(spans[node]);
+		}
+		return (Program) objects[root];
+	}
+
+	private Object toObject(int node, Object[] objects) {
+		switch (getKind(node)) {
+		case PROGRAM:
+			return new Program((StatementList) child(node, 1, objects), (Declarations) child(node, 0, objects));
+		case DECLARATIONS:
+			Declarations declarations = new Declarations();
+			for (int i = 0; i < childCounts[node]; i++)
+				declarations.addElement((VarDeclList) child(node, i, objects));
+			return declarations;
+		case VAR_DECL_LIST:
+			VarDeclList varDeclList = new VarDeclList();
+			for (int i = 0; i < childCounts[node]; i++)
+				varDeclList.addElement((VarDecl) child(node, i, objects));
+			return varDeclList;
+		case VAR_DECL:
+			return new VarDecl((Type) child(node, 0, objects), (Identifier) child(node, 1, objects));
+		case INT_TYPE:
+			return new IntegerType();
+		case INT_ARRAY_TYPE:
+			return new IntegerArrayType(getIntVal(node));
+		case FLOAT_TYPE:
+			return new FloatType();
+		case FLOAT_ARRAY_TYPE:
+			return new FloatArrayType(getIntVal(node));
+		case BOOLEAN_TYPE:
+			return new BooleanType();
+		case BOOLEAN_ARRAY_TYPE:
+			return new BooleanArrayType(getIntVal(node));
+		case CHAR_TYPE:
+			return new CharType();
+		case CHAR_ARRAY_TYPE:
+			return new CharArrayType(getIntVal(node));
+		case IDENTIFIER:
+			return new Identifier(getName(node), getSymbol(node));
+
+		case STATEMENT_LIST:
+			StatementList statementList = new StatementList();
+			for (int i = 0; i < childCounts[node]; i++)
+				statementList.addElement((Statement) child(node, i, objects));
+			return statementList;
+		case BLOCK:
+			return new Block((StatementList) child(node, 0, objects));
+		case IF:
+			return new If(exp(node, 0, objects), (Statement) child(node, 1, objects),
+					(Statement) child(node, 2, objects));
+		case WHILE:
+			return new While(exp(node, 0, objects), (Statement) child(node, 1, objects));
+		case ASSIGN:
+			return new Assign((Identifier) child(node, 0, objects), exp(node, 1, objects));
+		case ARRAY_ASSIGN:
+			return new ArrayAssign((Identifier) child(node, 0, objects), exp(node, 1, objects), exp(node, 2, objects));
+
+		case AND:
+			return new And(exp(node, 0, objects), exp(node, 1, objects));
+		case OR:
+			return new Or(exp(node, 0, objects), exp(node, 1, objects));
+		case EQUAL:
+			return new Equal(exp(node, 0, objects), exp(node, 1, objects));
+		case NOT_EQUAL:
+			return new NotEqual(exp(node, 0, objects), exp(node, 1, objects));
+		case LESS_THAN:
+			return new LessThan(exp(node, 0, objects), exp(node, 1, objects));
+		case MORE_THAN:
+			return new MoreThan(exp(node, 0, objects), exp(node, 1, objects));
+		case LESS_THAN_EQUAL:
+			return new LessThanEqual(exp(node, 0, objects), exp(node, 1, objects));
+		case MORE_THAN_EQUAL:
+			return new MoreThanEqual(exp(node, 0, objects), exp(node, 1, objects));
+		case PLUS:
+			return new Plus(exp(node, 0, objects), exp(node, 1, objects));
+		case MINUS:
+			return new Minus(exp(node, 0, objects), exp(node, 1, objects));
+		case TIMES:
+			return new Times(exp(node, 0, objects), exp(node, 1, objects));
+		case DIVIDE:
+			return new Divide(exp(node, 0, objects), exp(node, 1, objects));
+		case MODULES:
+			return new Modules(exp(node, 0, objects), exp(node, 1, objects));
+		case ARRAY_LOOKUP:
+			return new ArrayLookup(exp(node, 0, objects), exp(node, 1, objects));
+		case NOT:
+			return new Not(exp(node, 0, objects));
+		case NEGATIVE:
+			return new Negative(exp(node, 0, objects));
+		case INT_LITERAL:
+			return new IntegerLiteral(getIntVal(node));
+		case FLOAT_LITERAL:
+			return new FloatLiteral(getFloatVal(node));
+		case CHAR_LITERAL:
+			return new CharLiteral(getCharVal(node));
+		case BOOLEAN_LITERAL:
+			return new BooleanLiteral(getBooleanVal(node));
+		case IDENTIFIER_EXP:
+			return new IdentifierExp(getName(node), getSymbol(node));
+		default:
+			throw new IllegalStateException("Unknown node kind " + getKind(node));
+		}
+	}
+
+	// object of a child (null if it is missing)
+	private Object child(int node, int index, Object[] objects) {
+		int child = getChild(node, index);
+		return (child != NONE) ? objects[child] : null;
+	}
+
+	private Exp exp(int node, int index, Object[] objects) {
+		return (Exp) child(node, index, objects);
+	}
+}
@@ -1,9 +1,24 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class FloatArrayType implements Type{
+public class FloatArrayType extends Node implements Type {
+	private int size; //number of elements declared
+
+	public FloatArrayType(int size) {
+		this.size = size;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
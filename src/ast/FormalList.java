@@ -3,7 +3,7 @@ package ast;
 import java.util.ArrayList;
 import java.util.List;
 
-public class FormalList {
+public class FormalList extends Node {
 	private List<Formal> list;
 	
 	public FormalList() {
@@ -1,19 +1,34 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class Identifier {
+public class Identifier extends Node {
 	private String name;
+	private int symbol; //symbol id in the name pool (-1 if not pooled)
 	
 	public Identifier(String name) {
+		this(name, -1);
+	}
+	
+	public Identifier(String name, int symbol) {
 		this.name = name;
+		this.symbol = symbol;
 	}
 	
 	public String getName() {
 		return name;
 	}
 	
+	public int getSymbol() {
+		return symbol;
+	}
+	
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
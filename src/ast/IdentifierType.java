@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class IdentifierType implements Type {
+public class IdentifierType extends Node implements Type {
 	private String name;
 	
 	public IdentifierType(String name) {
@@ -16,4 +17,8 @@ public class IdentifierType implements Type {
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
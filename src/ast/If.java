@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class If implements Statement {
+public class If extends Node implements Statement {
 	private Exp condExp;
 	private Statement trueStm, falseStm;
 	
@@ -16,6 +17,10 @@ public class If implements Statement {
 		return condExp;
 	}
 	
+	public void setCondExp(Exp condExp) {
+		this.condExp = condExp;
+	}
+	
 	public Statement getTrueStm() {
 		return trueStm;
 	}
@@ -27,4 +32,8 @@ public class If implements Statement {
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class IntegerLiteral implements Exp {
+public class IntegerLiteral extends Exp {
 	private int value;
 	
 	public IntegerLiteral(int value) {
@@ -16,4 +17,8 @@ public class IntegerLiteral implements Exp {
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
@@ -1,9 +1,14 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class IntegerType implements Type {
+public class IntegerType extends Node implements Type {
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class Negative implements Exp{
+public class Negative extends Exp{
 	private Exp exp;
 
 	public Negative(Exp exp) {
@@ -13,7 +14,15 @@ public class Negative implements Exp{
 		return exp;
 	}
 
+	public void setExp(Exp exp) {
+		this.exp = exp;
+	}
+
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
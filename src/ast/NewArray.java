@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class NewArray implements Exp {
+public class NewArray extends Exp {
 	private Exp arraySize;
 	
 	public NewArray(Exp arraySize) {
@@ -13,7 +14,15 @@ public class NewArray implements Exp {
 		return arraySize;
 	}
 	
+	public void setArraySize(Exp arraySize) {
+		this.arraySize = arraySize;
+	}
+	
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
@@ -0,0 +1,14 @@
+package ast;
+
+// base of the syntax tree classes, holding the span of source a node was parsed from
+public abstract class Node {
+	private long span = Span.NONE; //packed offset and length (see Span)
+
+	public long getSpan() {
+		return span;
+	}
+
+	public void setSpan(long span) {
+		this.span = span;
+	}
+}
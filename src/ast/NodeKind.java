@@ -0,0 +1,47 @@
+package ast;
+
+// kinds of FlatAst nodes, one per ast class (children in constructor order)
+public enum NodeKind {
+	PROGRAM, // declarations, statement list
+	DECLARATIONS, // var decl lists
+	VAR_DECL_LIST, // var decls
+	VAR_DECL, // type, identifier
+	INT_TYPE,
+	INT_ARRAY_TYPE, // value: array size (all array types)
+	FLOAT_TYPE,
+	FLOAT_ARRAY_TYPE,
+	BOOLEAN_TYPE,
+	BOOLEAN_ARRAY_TYPE,
+	CHAR_TYPE,
+	CHAR_ARRAY_TYPE,
+	IDENTIFIER, // value: symbol id
+
+	STATEMENT_LIST, // statements
+	BLOCK, // statement list
+	IF, // condition, true statement, false statement
+	WHILE, // condition, statement
+	ASSIGN, // identifier, value
+	ARRAY_ASSIGN, // identifier, index, value
+
+	AND, // lhs, rhs (all binops)
+	OR,
+	EQUAL,
+	NOT_EQUAL,
+	LESS_THAN,
+	MORE_THAN,
+	LESS_THAN_EQUAL,
+	MORE_THAN_EQUAL,
+	PLUS,
+	MINUS,
+	TIMES,
+	DIVIDE,
+	MODULES,
+	ARRAY_LOOKUP, // array, index
+	NOT, // exp
+	NEGATIVE, // exp
+	INT_LITERAL, // value: int
+	FLOAT_LITERAL, // value: float bits
+	CHAR_LITERAL, // value: char
+	BOOLEAN_LITERAL, // value: 0 or 1
+	IDENTIFIER_EXP // value: symbol id
+}
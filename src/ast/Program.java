@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class Program {
+public class Program extends Node {
 	private StatementList stm;
 	private Declarations list;
 	
@@ -19,6 +20,10 @@ public class Program {
 		v.visit(this);
 	}
 
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
+
 	public Declarations getList() {
 		return list;
 	}
@@ -0,0 +1,42 @@
+package ast;
+
+/*
+ *
+ * Source spans packed in a long: the char offset of the first char in the
+ * high half and the number of chars in the low half. Offsets count from
+ * the start of the parsed input; a LineTable converts them to line and
+ * column numbers when a position is reported.
+ *
+ */
+
+public final class Span {
+	public final static long NONE = -1; //unknown span
+
+	private Span() {}
+
+	public static long of(int offset, int length) {
+		return ((long) offset << 32) | (length & 0xffffffffL);
+	}
+
+	public static int offset(long span) {
+		return (int) (span >>> 32);
+	}
+
+	public static int length(long span) {
+		return (int) span;
+	}
+
+	// offset past the last char
+	public static int end(long span) {
+		return offset(span) + length(span);
+	}
+
+	// span from the start of first to the end of last, either may be NONE
+	public static long join(long first, long last) {
+		if (first == NONE)
+			return last;
+		if (last == NONE)
+			return first;
+		return of(offset(first), Math.max(end(last), end(first)) - offset(first));
+	}
+}
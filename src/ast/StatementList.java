@@ -3,7 +3,7 @@ package ast;
 import java.util.ArrayList;
 import java.util.List;
 
-public class StatementList {
+public class StatementList extends Node {
 	private List<Statement> list;
 	
 	public StatementList() {
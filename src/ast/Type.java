@@ -1,7 +1,13 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
 public interface Type {
 	public void accept(Visitor v);
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg);
+
+	// source span of the node (see Span)
+	public long getSpan();
 }
@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class VarDecl {
+public class VarDecl extends Node {
 	private Type type;
 	private Identifier id;
 	
@@ -22,4 +23,8 @@ public class VarDecl {
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
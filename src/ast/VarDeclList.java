@@ -3,9 +3,10 @@ package ast;
 import java.util.ArrayList;
 import java.util.List;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class VarDeclList {
+public class VarDeclList extends Node {
 	private List<VarDecl> list;
 	
 	public VarDeclList() {
@@ -32,5 +33,9 @@ public class VarDeclList {
 		v.visit(this);
 	}
 
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
+
 	
 }
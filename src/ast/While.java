@@ -1,8 +1,9 @@
 package ast;
 
+import visitor.GenericVisitor;
 import visitor.Visitor;
 
-public class While implements Statement {
+public class While extends Node implements Statement {
 	private Exp condExp;
 	private Statement stm;
 	
@@ -15,6 +16,10 @@ public class While implements Statement {
 		return condExp;
 	}
 	
+	public void setCondExp(Exp condExp) {
+		this.condExp = condExp;
+	}
+	
 	public Statement getStm() {
 		return stm;
 	}
@@ -22,4 +27,8 @@ public class While implements Statement {
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
+
+	public <R, A> R accept(GenericVisitor<R, A> v, A arg) {
+		return v.visit(this, arg);
+	}
 }
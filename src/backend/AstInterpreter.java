@@ -0,0 +1,340 @@
+package backend;
+
+import java.util.HashMap;
+
+import ast.*;
+import semantic.SymbolTable;
+import semantic.TypeCheckVisitor;
+import visitor.GenericDepthFirstVisitor;
+
+/*
+ *
+ * Reference interpreter walking the AST directly: every expression is a
+ * recursive visit returning a boxed value (Integer, Float, Character or
+ * Boolean, or the primitive array of an array variable), and variables
+ * are looked up by name in a map. It follows the conversions of
+ * BytecodeCompiler and serves as the baseline the faster engines are
+ * measured and checked against.
+ *
+ */
+
+public class AstInterpreter extends GenericDepthFirstVisitor<Object, Void> implements Executable {
+	private final static Type INT = TypeCheckVisitor.INT;
+	private final static Type FLOAT = TypeCheckVisitor.FLOAT;
+	private final static Type CHAR = TypeCheckVisitor.CHAR;
+	private final static Type BOOLEAN = TypeCheckVisitor.BOOLEAN;
+
+	private Program program;
+	private Variables variables;
+	private HashMap<String, Object> values = new HashMap<String, Object>(); //value of each variable by name
+
+	public AstInterpreter(Program program, SymbolTable symbolTable) {
+		this.program = program;
+		this.variables = new Variables(program.getList());
+
+		// type every expression of the statements once, before running
+		final TypeCheckVisitor typeChecker = new TypeCheckVisitor(symbolTable);
+		program.accept(new GenericDepthFirstVisitor<Void, Void>() {
+			protected void visit(Exp exp, Void arg) {
+				if (exp != null)
+					typeChecker.check(exp);
+			}
+		}, null);
+	}
+
+	public Variables getVariables() {
+		return variables;
+	}
+
+	public void run(Memory memory) {
+		for (int i = 0; i < variables.size(); i++)
+			values.put(variables.getName(i), memory.get(i));
+		visit(program.getStm(), null);
+		for (int i = 0; i < variables.size(); i++)
+			memory.set(i, values.get(variables.getName(i)));
+	}
+
+	// convert a value to a single type
+	private static Object convert(Object value, Type to) {
+		if (to == BOOLEAN)
+			return (value instanceof Boolean) ? value : Boolean.valueOf(number(value) != 0);
+		if (to == FLOAT)
+			return (value instanceof Float) ? value : Float.valueOf(integer(value));
+		int integer = (value instanceof Float) ? (int) ((Float) value).floatValue() : integer(value);
+		return (to == CHAR) ? (Object) Character.valueOf((char) integer) : (Object) Integer.valueOf(integer);
+	}
+
+	// int value of an int, char or boolean
+	private static int integer(Object value) {
+		if (value instanceof Character)
+			return (Character) value;
+		if (value instanceof Boolean)
+			return ((Boolean) value) ? 1 : 0;
+		return (Integer) value;
+	}
+
+	private static float number(Object value) {
+		return (value instanceof Float) ? (Float) value : integer(value);
+	}
+
+	private static boolean isTrue(Object value) {
+		return (Boolean) convert(value, BOOLEAN);
+	}
+
+	private static Type single(Exp exp) {
+		if (exp.getType() == null)
+			throw new IllegalArgumentException("Expression of unknown type");
+		return TypeCheckVisitor.elementType(exp.getType());
+	}
+
+	private Object eval(Exp exp) {
+		if (exp == null)
+			throw new IllegalArgumentException("Missing expression");
+		return exp.accept(this, null);
+	}
+
+	// arithmetic in the type of the node, char results wrap to char
+	private Object arithmetic(Exp node, Exp lhs, Exp rhs, char operator) {
+		Object left = eval(lhs), right = eval(rhs);
+		Type type = single(node);
+		if (type == FLOAT) {
+			float a = (Float) convert(left, FLOAT), b = (Float) convert(right, FLOAT);
+			switch (operator) {
+			case '+':
+				return a + b;
+			case '-':
+				return a - b;
+			case '*':
+				return a * b;
+			case '/':
+				return a / b;
+			default:
+				return a % b;
+			}
+		}
+
+		int a = (Integer) convert(left, INT), b = (Integer) convert(right, INT), value;
+		switch (operator) {
+		case '+':
+			value = a + b;
+			break;
+		case '-':
+			value = a - b;
+			break;
+		case '*':
+			value = a * b;
+			break;
+		case '/':
+			value = a / b;
+			break;
+		default:
+			value = a % b;
+			break;
+		}
+		return convert(value, type);
+	}
+
+	// compare the operands as floats if either is a float, else as ints
+	private Object comparison(Exp lhs, Exp rhs, String operator) {
+		Object left = eval(lhs), right = eval(rhs);
+		boolean result;
+		if (single(lhs) == FLOAT || single(rhs) == FLOAT) {
+			float a = number(left), b = number(right);
+			result = operator.equals("<") ? a < b : operator.equals("<=") ? a <= b : operator.equals(">") ? a > b
+					: operator.equals(">=") ? a >= b : operator.equals("==") ? a == b : a != b;
+		} else {
+			int a = integer(left), b = integer(right);
+			result = operator.equals("<") ? a < b : operator.equals("<=") ? a <= b : operator.equals(">") ? a > b
+					: operator.equals(">=") ? a >= b : operator.equals("==") ? a == b : a != b;
+		}
+		return result;
+	}
+
+	@Override
+	public Object visit(And andExp, Void arg) {
+		return isTrue(eval(andExp.getLHS())) && isTrue(eval(andExp.getRHS()));
+	}
+
+	@Override
+	public Object visit(Or orExp, Void arg) {
+		return isTrue(eval(orExp.getLHS())) || isTrue(eval(orExp.getRHS()));
+	}
+
+	@Override
+	public Object visit(MoreThan moreExp, Void arg) {
+		return comparison(moreExp.getLHS(), moreExp.getRHS(), ">");
+	}
+
+	@Override
+	public Object visit(LessThan lessThanExp, Void arg) {
+		return comparison(lessThanExp.getLHS(), lessThanExp.getRHS(), "<");
+	}
+
+	@Override
+	public Object visit(Equal equalExp, Void arg) {
+		return comparison(equalExp.getLHS(), equalExp.getRHS(), "==");
+	}
+
+	@Override
+	public Object visit(NotEqual notEqualExp, Void arg) {
+		return comparison(notEqualExp.getLHS(), notEqualExp.getRHS(), "!=");
+	}
+
+	@Override
+	public Object visit(MoreThanEqual moreEqualExp, Void arg) {
+		return comparison(moreEqualExp.getLHS(), moreEqualExp.getRHS(), ">=");
+	}
+
+	@Override
+	public Object visit(LessThanEqual lessEqualExp, Void arg) {
+		return comparison(lessEqualExp.getLHS(), lessEqualExp.getRHS(), "<=");
+	}
+
+	@Override
+	public Object visit(Plus plusExp, Void arg) {
+		return arithmetic(plusExp, plusExp.getLHS(), plusExp.getRHS(), '+');
+	}
+
+	@Override
+	public Object visit(Minus minusExp, Void arg) {
+		return arithmetic(minusExp, minusExp.getLHS(), minusExp.getRHS(), '-');
+	}
+
+	@Override
+	public Object visit(Times timesExp, Void arg) {
+		return arithmetic(timesExp, timesExp.getLHS(), timesExp.getRHS(), '*');
+	}
+
+	@Override
+	public Object visit(Divide divExp, Void arg) {
+		return arithmetic(divExp, divExp.getLHS(), divExp.getRHS(), '/');
+	}
+
+	@Override
+	public Object visit(Modules modExp, Void arg) {
+		return arithmetic(modExp, modExp.getLHS(), modExp.getRHS(), '%');
+	}
+
+	@Override
+	public Object visit(ArrayLookup arrayLookup, Void arg) {
+		Object array = eval(arrayLookup.getArray());
+		int index = (Integer) convert(eval(arrayLookup.getIndex()), INT);
+		if (array instanceof float[])
+			return ((float[]) array)[index];
+		if (array instanceof char[])
+			return ((char[]) array)[index];
+		if (array instanceof boolean[])
+			return ((boolean[]) array)[index];
+		return ((int[]) array)[index];
+	}
+
+	@Override
+	public Object visit(ArrayLength length, Void arg) {
+		return java.lang.reflect.Array.getLength(eval(length.getArray()));
+	}
+
+	@Override
+	public Object visit(NewArray array, Void arg) {
+		throw new IllegalArgumentException("Array creation is not supported");
+	}
+
+	@Override
+	public Object visit(Not notExp, Void arg) {
+		return !isTrue(eval(notExp.getExp()));
+	}
+
+	@Override
+	public Object visit(Negative negExp, Void arg) {
+		Object value = eval(negExp.getExp());
+		Type type = single(negExp);
+		if (type == FLOAT)
+			return -(Float) convert(value, FLOAT);
+		return convert(-(Integer) convert(value, INT), type);
+	}
+
+	@Override
+	public Object visit(IntegerLiteral intLiteral, Void arg) {
+		return intLiteral.getValue();
+	}
+
+	@Override
+	public Object visit(FloatLiteral floatLiteral, Void arg) {
+		return floatLiteral.getValue();
+	}
+
+	@Override
+	public Object visit(BooleanLiteral booleanLiteral, Void arg) {
+		return booleanLiteral.getValue();
+	}
+
+	@Override
+	public Object visit(CharLiteral charLiteral, Void arg) {
+		return charLiteral.getValue();
+	}
+
+	@Override
+	public Object visit(True trueLiteral, Void arg) {
+		return Boolean.TRUE;
+	}
+
+	@Override
+	public Object visit(False falseLiteral, Void arg) {
+		return Boolean.FALSE;
+	}
+
+	@Override
+	public Object visit(IdentifierExp identExp, Void arg) {
+		if (!values.containsKey(identExp.getName()))
+			throw new IllegalArgumentException("Undeclared variable " + identExp.getName());
+		return values.get(identExp.getName());
+	}
+
+	// statements
+
+	@Override
+	public Object visit(If ifStm, Void arg) {
+		if (isTrue(eval(ifStm.getCondExp())))
+			visit(ifStm.getTrueStm(), arg);
+		else
+			visit(ifStm.getFalseStm(), arg);
+		return null;
+	}
+
+	@Override
+	public Object visit(While whileStm, Void arg) {
+		while (isTrue(eval(whileStm.getCondExp())))
+			visit(whileStm.getStm(), arg);
+		return null;
+	}
+
+	@Override
+	public Object visit(Assign assignStm, Void arg) {
+		String name = assignStm.getId().getName();
+		int variable = variables.indexOf(name);
+		if (variable < 0)
+			throw new IllegalArgumentException("Undeclared variable " + name);
+
+		Object value = eval(assignStm.getValue());
+		values.put(name, variables.isArray(variable) ? value : convert(value, variables.getElementType(variable)));
+		return null;
+	}
+
+	@Override
+	public Object visit(ArrayAssign arrayAssignStm, Void arg) {
+		String name = arrayAssignStm.getId().getName();
+		Object array = values.get(name);
+		int index = (Integer) convert(eval(arrayAssignStm.getIndex()), INT);
+		Object value = eval(arrayAssignStm.getValue());
+		if (array instanceof float[])
+			((float[]) array)[index] = (Float) convert(value, FLOAT);
+		else if (array instanceof char[])
+			((char[]) array)[index] = (Character) convert(value, CHAR);
+		else if (array instanceof boolean[])
+			((boolean[]) array)[index] = (Boolean) convert(value, BOOLEAN);
+		else if (array instanceof int[])
+			((int[]) array)[index] = (Integer) convert(value, INT);
+		else
+			throw new IllegalArgumentException("Element of " + name + " assigned, not an array");
+		return null;
+	}
+}
@@ -0,0 +1,649 @@
+package backend;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+
+import ast.*;
+import backend.CodeWriter.Label;
+import semantic.SymbolTable;
+import semantic.TypeCheckVisitor;
+import visitor.Visitor;
+
+/*
+ *
+ * Compiles a checked program to a JVM class implementing Executable and
+ * loads it as a hidden class. Every variable lives in a JVM local of its
+ * own type for the whole run: run() copies the variables in from the
+ * Memory files, runs the statements and copies them back, so loops work
+ * on locals and primitive arrays only and the JIT can optimize them like
+ * Java code.
+ *
+ * Expressions are compiled from the types TypeCheckVisitor gives them,
+ * converting operands the way the checks allow (int and char to float,
+ * float to int, int to char, a number to boolean by comparing it with
+ * zero). Booleans are ints on the JVM stack, && and || short-circuit, and
+ * char arithmetic wraps to char. Like the type checker, expressions are
+ * walked with an explicit stack, each node being visited once per phase:
+ * before its operands, between them and after them.
+ *
+ * Programs with an expression of unknown type (undeclared variables,
+ * operands that do not fit the operator, syntax errors) are rejected with
+ * an IllegalArgumentException, and so are programs too large for the
+ * 64 KB of code of one JVM method (an interpreter can still run them).
+ * A program with branches spanning more than 32 KB of code is compiled
+ * again with wide jumps.
+ *
+ */
+
+public class BytecodeCompiler implements Visitor {
+	private final static String CLASS_NAME = "backend/Script"; //hidden classes live in the package of the lookup
+	private final static String MEMORY = "backend/Memory";
+
+	private final static Type INT = TypeCheckVisitor.INT;
+	private final static Type FLOAT = TypeCheckVisitor.FLOAT;
+	private final static Type CHAR = TypeCheckVisitor.CHAR;
+	private final static Type BOOLEAN = TypeCheckVisitor.BOOLEAN;
+
+	private Program program;
+	private Variables variables;
+	private TypeCheckVisitor typeChecker;
+
+	private CodeWriter code;
+	private int[] locals; //JVM local of each variable
+
+	// expression nodes waiting for their next phase, with the label a phase left for a later one
+	private Exp[] stack = new Exp[16];
+	private int[] phases = new int[16];
+	private Label[] labels = new Label[16];
+	private int size;
+	private int phase; //phase of the node being visited
+	private Label label; //label left by its previous phase
+
+	public BytecodeCompiler(Program program, SymbolTable symbolTable) {
+		this.program = program;
+		this.variables = new Variables(program.getList());
+		this.typeChecker = new TypeCheckVisitor(symbolTable);
+	}
+
+	public Variables getVariables() {
+		return variables;
+	}
+
+	// the class file of the program
+	public byte[] compile() {
+		ClassWriter writer = new ClassWriter(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_FINAL | ClassWriter.ACC_SUPER,
+				CLASS_NAME, "java/lang/Object", "backend/Executable");
+
+		CodeWriter init = writer.method(ClassWriter.ACC_PUBLIC, "<init>", "()V");
+		init.local(init.objectType(CLASS_NAME));
+		init.load(0);
+		init.invokeSpecial("java/lang/Object", "<init>");
+		init.returnVoid();
+		init.finish();
+
+		run(writer, false);
+		if (code.getLength() <= CodeWriter.MAX_CODE_LENGTH && !code.branchesFit())
+			run(writer, true); // the first attempt is dropped, its constants are reused
+		if (code.getLength() > CodeWriter.MAX_CODE_LENGTH)
+			throw new IllegalArgumentException("Program too large, " + code.getLength() + " bytes of code in one method");
+		code.finish();
+		return writer.toByteArray();
+	}
+
+	// write the run method: copy the variables into locals, run the statements and copy them back
+	private void run(ClassWriter writer, boolean wideJumps) {
+		code = writer.method(ClassWriter.ACC_PUBLIC, "run", "(L" + MEMORY + ";)V", wideJumps);
+		code.local(code.objectType(CLASS_NAME));
+		code.local(code.objectType(MEMORY));
+
+		// copy the variables into locals
+		locals = new int[variables.size()];
+		for (int i = 0; i < variables.size(); i++) {
+			locals[i] = code.local(verificationType(i));
+			loadFile(i);
+			code.iconst(variables.getSlot(i));
+			if (variables.isArray(i)) {
+				code.arrayLoadObject();
+				code.checkCast(descriptor(i));
+			} else
+				code.arrayLoad(kind(variables.getElementType(i)));
+			code.store(locals[i]);
+		}
+
+		program.accept(this);
+
+		// copy them back
+		for (int i = 0; i < variables.size(); i++) {
+			loadFile(i);
+			code.iconst(variables.getSlot(i));
+			code.load(locals[i]);
+			if (variables.isArray(i))
+				code.arrayStoreObject();
+			else
+				code.arrayStore(kind(variables.getElementType(i)));
+		}
+		code.returnVoid();
+	}
+
+	// compile the program and load it as a hidden class
+	public Executable load() throws ReflectiveOperationException {
+		MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(compile(), true);
+		return (Executable) lookup.lookupClass().getConstructor().newInstance();
+	}
+
+	// push the Memory file holding a variable
+	private void loadFile(int variable) {
+		code.load(1);
+		Type type = variables.getElementType(variable);
+		if (variables.isArray(variable))
+			code.getField(MEMORY, "arrays", "[Ljava/lang/Object;", code.objectType("[Ljava/lang/Object;"));
+		else if (type == FLOAT)
+			code.getField(MEMORY, "floats", "[F", code.objectType("[F"));
+		else if (type == CHAR)
+			code.getField(MEMORY, "chars", "[C", code.objectType("[C"));
+		else if (type == BOOLEAN)
+			code.getField(MEMORY, "booleans", "[Z", code.objectType("[Z"));
+		else
+			code.getField(MEMORY, "ints", "[I", code.objectType("[I"));
+	}
+
+	// verification type of the local of a variable
+	private int verificationType(int variable) {
+		if (variables.isArray(variable))
+			return code.objectType(descriptor(variable));
+		return (variables.getElementType(variable) == FLOAT) ? CodeWriter.FLOAT : CodeWriter.INT;
+	}
+
+	// descriptor of the primitive array of an array variable
+	private String descriptor(int variable) {
+		Type type = variables.getElementType(variable);
+		return (type == FLOAT) ? "[F" : (type == CHAR) ? "[C" : (type == BOOLEAN) ? "[Z" : "[I";
+	}
+
+	// array element kind of a single type
+	private static int kind(Type type) {
+		return (type == FLOAT) ? CodeWriter.T_FLOAT
+				: (type == CHAR) ? CodeWriter.T_CHAR : (type == BOOLEAN) ? CodeWriter.T_BOOLEAN : CodeWriter.T_INT;
+	}
+
+	// variable assigned or read by name
+	private int variable(String name) {
+		int variable = variables.indexOf(name);
+		if (variable < 0)
+			throw new IllegalArgumentException("Undeclared variable " + name);
+		return variable;
+	}
+
+	// single type of a typed expression
+	private static Type single(Exp exp) {
+		Type type = (exp != null) ? exp.getType() : null;
+		if (type == null || TypeCheckVisitor.isArray(type))
+			throw new IllegalArgumentException("Expression of unknown type");
+		return TypeCheckVisitor.elementType(type);
+	}
+
+	/*
+	 * expressions
+	 */
+
+	// compile an expression leaving its value on the stack (typed by the caller)
+	private void expression(Exp exp) {
+		if (exp == null)
+			throw new IllegalArgumentException("Missing expression");
+
+		push(exp, 0, null);
+		while (size > 0) {
+			size--;
+			Exp node = stack[size];
+			phase = phases[size];
+			label = labels[size];
+			stack[size] = null;
+			labels[size] = null;
+			node.accept(this);
+		}
+	}
+
+	private void push(Exp exp, int nextPhase, Label nextLabel) {
+		if (exp == null)
+			throw new IllegalArgumentException("Missing expression");
+		if (size == stack.length) {
+			stack = Arrays.copyOf(stack, size * 2);
+			phases = Arrays.copyOf(phases, size * 2);
+			labels = Arrays.copyOf(labels, size * 2);
+		}
+		stack[size] = exp;
+		phases[size] = nextPhase;
+		labels[size] = nextLabel;
+		size++;
+	}
+
+	// phases of a binary operator: left operand, conversion and right operand, conversion,
+	// returns true in the last phase, when the node itself is compiled
+	private boolean operands(Exp node, Exp lhs, Exp rhs, Type operandType) {
+		if (phase == 0) {
+			push(node, 1, null);
+			push(lhs, 0, null);
+			return false;
+		}
+		if (phase == 1) {
+			convert(single(lhs), operandType);
+			push(node, 2, null);
+			push(rhs, 0, null);
+			return false;
+		}
+		convert(single(rhs), operandType);
+		return true;
+	}
+
+	// phases of a unary operator, returns true once the operand is compiled
+	private boolean operand(Exp node, Exp exp) {
+		if (phase == 0) {
+			push(node, 1, null);
+			push(exp, 0, null);
+			return false;
+		}
+		return true;
+	}
+
+	// type arithmetic is done in: float or int (char arithmetic is int arithmetic wrapped to char)
+	private static Type arithmeticType(Exp node) {
+		return (single(node) == FLOAT) ? FLOAT : INT;
+	}
+
+	// type a comparison is done in
+	private static Type comparisonType(Exp lhs, Exp rhs) {
+		return (single(lhs) == FLOAT || single(rhs) == FLOAT) ? FLOAT : INT;
+	}
+
+	private void arithmetic(Exp node, int intOpcode, int floatOpcode) {
+		Type type = single(node);
+		code.math((type == FLOAT) ? floatOpcode : intOpcode);
+		if (type == CHAR)
+			code.convert(CodeWriter.I2C, CodeWriter.INT);
+	}
+
+	// compare the operands, pushing 1 if the comparison holds and 0 otherwise
+	private void comparison(Exp lhs, Exp rhs, int intJump, int floatCompare, int floatJump) {
+		Label holds = new Label();
+		if (comparisonType(lhs, rhs) == FLOAT) {
+			code.compare(floatCompare);
+			code.jump(floatJump, holds);
+		} else
+			code.jump(intJump, holds);
+		booleanValue(holds);
+	}
+
+	// push 0, or 1 when jumped to the label
+	private void booleanValue(Label isTrue) {
+		Label end = new Label();
+		code.iconst(0);
+		code.jump(CodeWriter.GOTO, end);
+		code.mark(isTrue);
+		code.iconst(1);
+		code.mark(end);
+	}
+
+	// convert the value on the stack from one single type to another
+	private void convert(Type from, Type to) {
+		if (from == to)
+			return;
+		if (to == BOOLEAN) {
+			toBoolean(from);
+			return;
+		}
+
+		if (to == FLOAT)
+			code.convert(CodeWriter.I2F, CodeWriter.FLOAT);
+		else if (from == FLOAT)
+			code.convert(CodeWriter.F2I, CodeWriter.INT);
+		if (to == CHAR)
+			code.convert(CodeWriter.I2C, CodeWriter.INT);
+	}
+
+	// a number is true if it is not zero
+	private void toBoolean(Type from) {
+		if (from == BOOLEAN)
+			return;
+		if (from == FLOAT) {
+			code.fconst(0);
+			code.compare(CodeWriter.FCMPL);
+		}
+		Label isTrue = new Label();
+		code.jump(CodeWriter.IFNE, isTrue);
+		booleanValue(isTrue);
+	}
+
+	@Override
+	public void visit(And andExp) {
+		logic(andExp, andExp.getLHS(), andExp.getRHS(), CodeWriter.IFEQ);
+	}
+
+	@Override
+	public void visit(Or orExp) {
+		logic(orExp, orExp.getLHS(), orExp.getRHS(), CodeWriter.IFNE);
+	}
+
+	// && and ||: the left operand is the value if it jumps past the right one
+	private void logic(Exp node, Exp lhs, Exp rhs, int shortCircuit) {
+		if (phase == 0) {
+			push(node, 1, null);
+			push(lhs, 0, null);
+		} else if (phase == 1) {
+			toBoolean(single(lhs));
+			Label end = new Label();
+			code.dup();
+			code.jump(shortCircuit, end);
+			code.pop();
+			push(node, 2, end);
+			push(rhs, 0, null);
+		} else {
+			toBoolean(single(rhs));
+			code.mark(label);
+		}
+	}
+
+	@Override
+	public void visit(MoreThan moreExp) {
+		Exp lhs = moreExp.getLHS(), rhs = moreExp.getRHS();
+		if (operands(moreExp, lhs, rhs, comparisonType(lhs, rhs)))
+			comparison(lhs, rhs, CodeWriter.IF_ICMPGT, CodeWriter.FCMPL, CodeWriter.IFGT);
+	}
+
+	@Override
+	public void visit(LessThan lessThanExp) {
+		Exp lhs = lessThanExp.getLHS(), rhs = lessThanExp.getRHS();
+		if (operands(lessThanExp, lhs, rhs, comparisonType(lhs, rhs)))
+			comparison(lhs, rhs, CodeWriter.IF_ICMPLT, CodeWriter.FCMPG, CodeWriter.IFLT);
+	}
+
+	@Override
+	public void visit(Equal equalExp) {
+		Exp lhs = equalExp.getLHS(), rhs = equalExp.getRHS();
+		if (operands(equalExp, lhs, rhs, comparisonType(lhs, rhs)))
+			comparison(lhs, rhs, CodeWriter.IF_ICMPEQ, CodeWriter.FCMPL, CodeWriter.IFEQ);
+	}
+
+	@Override
+	public void visit(NotEqual notEqualExp) {
+		Exp lhs = notEqualExp.getLHS(), rhs = notEqualExp.getRHS();
+		if (operands(notEqualExp, lhs, rhs, comparisonType(lhs, rhs)))
+			comparison(lhs, rhs, CodeWriter.IF_ICMPNE, CodeWriter.FCMPL, CodeWriter.IFNE);
+	}
+
+	@Override
+	public void visit(MoreThanEqual moreEqualExp) {
+		Exp lhs = moreEqualExp.getLHS(), rhs = moreEqualExp.getRHS();
+		if (operands(moreEqualExp, lhs, rhs, comparisonType(lhs, rhs)))
+			comparison(lhs, rhs, CodeWriter.IF_ICMPGE, CodeWriter.FCMPL, CodeWriter.IFGE);
+	}
+
+	@Override
+	public void visit(LessThanEqual lessEqualExp) {
+		Exp lhs = lessEqualExp.getLHS(), rhs = lessEqualExp.getRHS();
+		if (operands(lessEqualExp, lhs, rhs, comparisonType(lhs, rhs)))
+			comparison(lhs, rhs, CodeWriter.IF_ICMPLE, CodeWriter.FCMPG, CodeWriter.IFLE);
+	}
+
+	@Override
+	public void visit(Plus plusExp) {
+		if (operands(plusExp, plusExp.getLHS(), plusExp.getRHS(), arithmeticType(plusExp)))
+			arithmetic(plusExp, CodeWriter.IADD, CodeWriter.FADD);
+	}
+
+	@Override
+	public void visit(Minus minusExp) {
+		if (operands(minusExp, minusExp.getLHS(), minusExp.getRHS(), arithmeticType(minusExp)))
+			arithmetic(minusExp, CodeWriter.ISUB, CodeWriter.FSUB);
+	}
+
+	@Override
+	public void visit(Times timesExp) {
+		if (operands(timesExp, timesExp.getLHS(), timesExp.getRHS(), arithmeticType(timesExp)))
+			arithmetic(timesExp, CodeWriter.IMUL, CodeWriter.FMUL);
+	}
+
+	@Override
+	public void visit(Divide divExp) {
+		if (operands(divExp, divExp.getLHS(), divExp.getRHS(), arithmeticType(divExp)))
+			arithmetic(divExp, CodeWriter.IDIV, CodeWriter.FDIV);
+	}
+
+	@Override
+	public void visit(Modules modExp) {
+		if (operands(modExp, modExp.getLHS(), modExp.getRHS(), arithmeticType(modExp)))
+			arithmetic(modExp, CodeWriter.IREM, CodeWriter.FREM);
+	}
+
+	@Override
+	public void visit(ArrayLookup arrayLookup) {
+		if (phase == 0) {
+			Type array = (arrayLookup.getArray() != null) ? arrayLookup.getArray().getType() : null;
+			if (!TypeCheckVisitor.isArray(array))
+				throw new IllegalArgumentException("Lookup in a value that is not an array");
+			push(arrayLookup, 1, null);
+			push(arrayLookup.getArray(), 0, null);
+		} else if (phase == 1) {
+			push(arrayLookup, 2, null);
+			push(arrayLookup.getIndex(), 0, null);
+		} else {
+			convert(single(arrayLookup.getIndex()), INT);
+			code.arrayLoad(kind(single(arrayLookup)));
+		}
+	}
+
+	@Override
+	public void visit(ArrayLength length) {
+		if (phase == 0 && !TypeCheckVisitor.isArray(length.getArray() != null ? length.getArray().getType() : null))
+			throw new IllegalArgumentException("Length of a value that is not an array");
+		if (operand(length, length.getArray()))
+			code.arrayLength();
+	}
+
+	@Override
+	public void visit(NewArray array) {
+		throw new IllegalArgumentException("Array creation is not supported");
+	}
+
+	@Override
+	public void visit(Not notExp) {
+		if (operand(notExp, notExp.getExp())) {
+			toBoolean(single(notExp.getExp()));
+			code.iconst(1);
+			code.math(CodeWriter.IXOR);
+		}
+	}
+
+	@Override
+	public void visit(Negative negExp) {
+		if (operand(negExp, negExp.getExp())) {
+			Type type = single(negExp);
+			convert(single(negExp.getExp()), (type == FLOAT) ? FLOAT : INT);
+			if (type == FLOAT)
+				code.convert(CodeWriter.FNEG, CodeWriter.FLOAT);
+			else
+				code.convert(CodeWriter.INEG, CodeWriter.INT);
+			if (type == CHAR)
+				code.convert(CodeWriter.I2C, CodeWriter.INT);
+		}
+	}
+
+	// leaves
+
+	@Override
+	public void visit(IntegerLiteral intLiteral) {
+		code.iconst(intLiteral.getValue());
+	}
+
+	@Override
+	public void visit(FloatLiteral floatLiteral) {
+		code.fconst(floatLiteral.getValue());
+	}
+
+	@Override
+	public void visit(BooleanLiteral booleanLiteral) {
+		code.iconst(booleanLiteral.getValue() ? 1 : 0);
+	}
+
+	@Override
+	public void visit(CharLiteral charLiteral) {
+		code.iconst(charLiteral.getValue());
+	}
+
+	@Override
+	public void visit(True trueLiteral) {
+		code.iconst(1);
+	}
+
+	@Override
+	public void visit(False falseLiteral) {
+		code.iconst(0);
+	}
+
+	@Override
+	public void visit(IdentifierExp identExp) {
+		code.load(locals[variable(identExp.getName())]);
+	}
+
+	// types are compiled through the variable layout
+
+	@Override
+	public void visit(IntegerArrayType intArrayT) {}
+
+	@Override
+	public void visit(FloatArrayType floatArrayT) {}
+
+	@Override
+	public void visit(BooleanArrayType booleanArrayT) {}
+
+	@Override
+	public void visit(CharArrayType charArrayT) {}
+
+	@Override
+	public void visit(BooleanType boolT) {}
+
+	@Override
+	public void visit(IntegerType intT) {}
+
+	@Override
+	public void visit(FloatType floatT) {}
+
+	@Override
+	public void visit(CharType charT) {}
+
+	@Override
+	public void visit(IdentifierType idT) {}
+
+	/*
+	 * statements
+	 */
+
+	@Override
+	public void visit(Program prog) {
+		statements(prog.getStm());
+	}
+
+	@Override
+	public void visit(Block blockStm) {
+		statements(blockStm.getStms());
+	}
+
+	private void statements(StatementList statements) {
+		if (statements == null)
+			return;
+		for (int i = 0; i < statements.size(); i++)
+			statement(statements.elementAt(i));
+	}
+
+	private void statement(Statement statement) {
+		if (statement == null)
+			throw new IllegalArgumentException("Missing statement");
+		statement.accept(this);
+	}
+
+	// compile a condition, jumping to the label if it is false
+	private void condition(Exp condExp, Label isFalse) {
+		typeChecker.check(condExp);
+		expression(condExp);
+		toBoolean(single(condExp));
+		code.jump(CodeWriter.IFEQ, isFalse);
+	}
+
+	@Override
+	public void visit(If ifStm) {
+		Label isFalse = new Label();
+		condition(ifStm.getCondExp(), isFalse);
+		statement(ifStm.getTrueStm());
+		if (ifStm.getFalseStm() == null) {
+			code.mark(isFalse);
+			return;
+		}
+
+		Label end = new Label();
+		code.jump(CodeWriter.GOTO, end);
+		code.mark(isFalse);
+		statement(ifStm.getFalseStm());
+		code.mark(end);
+	}
+
+	@Override
+	public void visit(While whileStm) {
+		Label head = new Label();
+		Label end = new Label();
+		code.mark(head);
+		condition(whileStm.getCondExp(), end);
+		statement(whileStm.getStm());
+		code.jump(CodeWriter.GOTO, head);
+		code.mark(end);
+	}
+
+	@Override
+	public void visit(Assign assignStm) {
+		int variable = variable(assignStm.getId().getName());
+		Exp value = assignStm.getValue();
+		typeChecker.check(value);
+		expression(value);
+
+		if (variables.isArray(variable)) {
+			// arrays are assigned by reference, between arrays of the same element type
+			Type type = (value != null) ? value.getType() : null;
+			if (!TypeCheckVisitor.isArray(type)
+					|| TypeCheckVisitor.elementType(type) != variables.getElementType(variable))
+				throw new IllegalArgumentException("Array " + assignStm.getId().getName() + " assigned a value");
+		} else
+			convert(single(value), variables.getElementType(variable));
+		code.store(locals[variable]);
+	}
+
+	@Override
+	public void visit(ArrayAssign arrayAssignStm) {
+		int variable = variable(arrayAssignStm.getId().getName());
+		if (!variables.isArray(variable))
+			throw new IllegalArgumentException("Element of " + arrayAssignStm.getId().getName() + " assigned, not an array");
+
+		typeChecker.check(arrayAssignStm.getIndex());
+		typeChecker.check(arrayAssignStm.getValue());
+		code.load(locals[variable]);
+		expression(arrayAssignStm.getIndex());
+		convert(single(arrayAssignStm.getIndex()), INT);
+		expression(arrayAssignStm.getValue());
+		convert(single(arrayAssignStm.getValue()), variables.getElementType(variable));
+		code.arrayStore(kind(variables.getElementType(variable)));
+	}
+
+	// declarations are compiled through the variable layout
+
+	@Override
+	public void visit(VarDecl var) {}
+
+	@Override
+	public void visit(VarDeclList varList) {}
+
+	@Override
+	public void visit(Declarations dec) {}
+
+	@Override
+	public void visit(Formal param) {}
+
+	@Override
+	public void visit(Identifier id) {}
+}
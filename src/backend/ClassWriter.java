@@ -0,0 +1,211 @@
+package backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+ *
+ * Minimal class file writer: a constant pool shared by the methods, and
+ * methods written by CodeWriter. It supports exactly what BytecodeCompiler
+ * emits (no fields, exception tables or debug attributes), and writes
+ * version 52 class files, which carry a StackMapTable in each Code
+ * attribute.
+ *
+ */
+
+public class ClassWriter {
+	public final static int ACC_PUBLIC = 0x0001;
+	public final static int ACC_FINAL = 0x0010;
+	public final static int ACC_SUPER = 0x0020;
+
+	private final static int VERSION = 52;
+
+	// constant pool tags
+	private final static int UTF8 = 1;
+	private final static int INTEGER = 3;
+	private final static int FLOAT = 4;
+	private final static int CLASS = 7;
+	private final static int FIELDREF = 9;
+	private final static int METHODREF = 10;
+	private final static int NAME_AND_TYPE = 12;
+
+	private ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private DataOutputStream pool = new DataOutputStream(poolBytes);
+	private HashMap<String, Integer> constants = new HashMap<String, Integer>(); //entry index by tag and contents
+	private int poolSize = 1; //index 0 is unused
+
+	private int access;
+	private int thisClass;
+	private int superClass;
+	private int[] interfaces;
+	private ArrayList<byte[]> methods = new ArrayList<byte[]>();
+
+	// class with internal names (e.g. backend/Script), implementing the given interfaces
+	public ClassWriter(int access, String name, String superName, String... interfaceNames) {
+		this.access = access;
+		this.thisClass = classRef(name);
+		this.superClass = classRef(superName);
+		this.interfaces = new int[interfaceNames.length];
+		for (int i = 0; i < interfaceNames.length; i++)
+			interfaces[i] = classRef(interfaceNames[i]);
+	}
+
+	// start a method, finished by CodeWriter.finish()
+	public CodeWriter method(int access, String name, String descriptor) {
+		return method(access, name, descriptor, false);
+	}
+
+	// start a method whose branches may span more than 32 KB of code
+	public CodeWriter method(int access, String name, String descriptor, boolean wideJumps) {
+		return new CodeWriter(this, access, utf8(name), utf8(descriptor), wideJumps);
+	}
+
+	// the class file
+	public byte[] toByteArray() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			out.writeShort(poolSize);
+			poolBytes.writeTo(out);
+
+			out.writeShort(access);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(interfaces.length);
+			for (int index : interfaces)
+				out.writeShort(index);
+
+			out.writeShort(0); // fields
+			out.writeShort(methods.size());
+			for (byte[] method : methods)
+				out.write(method);
+			out.writeShort(0); // attributes
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // not thrown by byte array streams
+		}
+		return bytes.toByteArray();
+	}
+
+	void addMethod(byte[] method) {
+		methods.add(method);
+	}
+
+	/*
+	 * constant pool, each entry is added once
+	 */
+
+	public int utf8(String value) {
+		String key = UTF8 + ":" + value;
+		Integer index = constants.get(key);
+		if (index != null)
+			return index;
+
+		try {
+			pool.writeByte(UTF8);
+			pool.writeUTF(value);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return add(key);
+	}
+
+	public int integer(int value) {
+		String key = INTEGER + ":" + value;
+		Integer index = constants.get(key);
+		if (index != null)
+			return index;
+
+		entry(INTEGER, value);
+		return add(key);
+	}
+
+	public int floatConstant(float value) {
+		int bits = Float.floatToRawIntBits(value);
+		String key = FLOAT + ":" + bits;
+		Integer index = constants.get(key);
+		if (index != null)
+			return index;
+
+		entry(FLOAT, bits);
+		return add(key);
+	}
+
+	// class by internal name (e.g. java/lang/Object) or array descriptor (e.g. [I)
+	public int classRef(String name) {
+		String key = CLASS + ":" + name;
+		Integer index = constants.get(key);
+		if (index != null)
+			return index;
+
+		int nameIndex = utf8(name);
+		entry(CLASS, nameIndex, -1);
+		return add(key);
+	}
+
+	public int fieldRef(String owner, String name, String descriptor) {
+		return memberRef(FIELDREF, owner, name, descriptor);
+	}
+
+	public int methodRef(String owner, String name, String descriptor) {
+		return memberRef(METHODREF, owner, name, descriptor);
+	}
+
+	private int memberRef(int tag, String owner, String name, String descriptor) {
+		String key = tag + ":" + owner + "." + name + ":" + descriptor;
+		Integer index = constants.get(key);
+		if (index != null)
+			return index;
+
+		int classIndex = classRef(owner);
+		int nameAndType = nameAndType(name, descriptor);
+		entry(tag, classIndex, nameAndType);
+		return add(key);
+	}
+
+	private int nameAndType(String name, String descriptor) {
+		String key = NAME_AND_TYPE + ":" + name + ":" + descriptor;
+		Integer index = constants.get(key);
+		if (index != null)
+			return index;
+
+		int nameIndex = utf8(name);
+		int descriptorIndex = utf8(descriptor);
+		entry(NAME_AND_TYPE, nameIndex, descriptorIndex);
+		return add(key);
+	}
+
+	// entry with a u4 value
+	private void entry(int tag, int value) {
+		try {
+			pool.writeByte(tag);
+			pool.writeInt(value);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// entry with one or two u2 indexes (second one -1 if missing)
+	private void entry(int tag, int first, int second) {
+		try {
+			pool.writeByte(tag);
+			pool.writeShort(first);
+			if (second >= 0)
+				pool.writeShort(second);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private int add(String key) {
+		if (poolSize == 0xFFFF)
+			throw new IllegalStateException("Constant pool overflow");
+		constants.put(key, poolSize);
+		return poolSize++;
+	}
+}
@@ -0,0 +1,450 @@
+package backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ *
+ * Writes the Code attribute of one method. Every instruction method also
+ * simulates its effect on the operand stack, so the writer knows the
+ * stack depth (max_stack) and the types on the stack at every label. Each
+ * label gets a full frame in the StackMapTable: the locals declared so
+ * far (locals never change type once declared) and the stack it is
+ * reached with.
+ *
+ * Branches use 16 bit offsets, so a branch may span at most 32 KB of code,
+ * unless the method is written with wide jumps: then a goto is a goto_w
+ * and a conditional branch jumps over a goto_w to its label when the
+ * condition does not hold. A method whose branches do not fit
+ * (branchesFit()) is written again with wide jumps. The code of a method
+ * is at most MAX_CODE_LENGTH bytes.
+ *
+ */
+
+public class CodeWriter {
+	// verification types, an object type also holds its class constant (OBJECT | index << 8)
+	public final static int INT = 1;
+	public final static int FLOAT = 2;
+	public final static int OBJECT = 7;
+
+	// opcodes used by the compiler
+	public final static int IADD = 0x60, FADD = 0x62;
+	public final static int ISUB = 0x64, FSUB = 0x66;
+	public final static int IMUL = 0x68, FMUL = 0x6a;
+	public final static int IDIV = 0x6c, FDIV = 0x6e;
+	public final static int IREM = 0x70, FREM = 0x72;
+	public final static int INEG = 0x74, FNEG = 0x76;
+	public final static int IXOR = 0x82;
+	public final static int I2F = 0x86, F2I = 0x8b, I2C = 0x92;
+	public final static int FCMPL = 0x95, FCMPG = 0x96;
+	public final static int IFEQ = 0x99, IFNE = 0x9a, IFLT = 0x9b, IFGE = 0x9c, IFGT = 0x9d, IFLE = 0x9e;
+	public final static int IF_ICMPEQ = 0x9f, IF_ICMPNE = 0xa0, IF_ICMPLT = 0xa1, IF_ICMPGE = 0xa2,
+			IF_ICMPGT = 0xa3, IF_ICMPLE = 0xa4;
+	public final static int GOTO = 0xa7;
+	private final static int GOTO_W = 0xc8;
+
+	public final static int MAX_CODE_LENGTH = 0xFFFF;
+
+	// array element kinds, as used by newarray
+	public final static int T_BOOLEAN = 4, T_CHAR = 5, T_FLOAT = 6, T_INT = 10;
+
+	private ClassWriter owner;
+	private int access;
+	private int name;
+	private int descriptor;
+	private boolean wideJumps; //branches have 32 bit offsets
+
+	private byte[] code = new byte[256];
+	private int length;
+	private boolean reachable = true; //false after goto and return until the next label
+
+	private int[] locals = new int[8]; //verification type of each local
+	private int localCount;
+
+	private int[] stack = new int[16]; //verification types on the operand stack
+	private int stackSize;
+	private int maxStack;
+
+	private ArrayList<Label> labels = new ArrayList<Label>(); //marked labels, in code order
+
+	// a branch target, its position is fixed by mark()
+	public static class Label {
+		private int offset = -1;
+		private int[] stack; //operand stack the label is reached with (null until known)
+		private int localCount; //locals declared at the label
+		private int[] branches = new int[4]; //offsets of the branch instructions jumping here
+		private int branchCount;
+	}
+
+	CodeWriter(ClassWriter owner, int access, int name, int descriptor, boolean wideJumps) {
+		this.owner = owner;
+		this.access = access;
+		this.name = name;
+		this.descriptor = descriptor;
+		this.wideJumps = wideJumps;
+	}
+
+	// bytes of code written so far
+	public int getLength() {
+		return length;
+	}
+
+	// whether every branch offset fits in 16 bits, once the labels are placed
+	public boolean branchesFit() {
+		for (Label label : labels) {
+			for (int i = 0; i < label.branchCount; i++) {
+				int offset = label.offset - label.branches[i];
+				if (code[label.branches[i]] != (byte) GOTO_W && (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	// declare the next local (parameters first, starting with this), returns its index
+	public int local(int type) {
+		if (localCount == locals.length)
+			locals = Arrays.copyOf(locals, localCount * 2);
+		locals[localCount] = type;
+		return localCount++;
+	}
+
+	// verification type of a class, by internal name or array descriptor
+	public int objectType(String className) {
+		return OBJECT | owner.classRef(className) << 8;
+	}
+
+	/*
+	 * instructions
+	 */
+
+	public void iconst(int value) {
+		if (value >= -1 && value <= 5)
+			op(0x03 + value);
+		else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			op(0x10);
+			u1(value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			op(0x11);
+			u2(value);
+		} else
+			ldc(owner.integer(value));
+		push(INT);
+	}
+
+	public void fconst(float value) {
+		int bits = Float.floatToRawIntBits(value);
+		if (bits == Float.floatToRawIntBits(0f) || value == 1f || value == 2f)
+			op(0x0b + (int) value);
+		else
+			ldc(owner.floatConstant(value));
+		push(FLOAT);
+	}
+
+	private void ldc(int index) {
+		if (index < 256) {
+			op(0x12);
+			u1(index);
+		} else {
+			op(0x13);
+			u2(index);
+		}
+	}
+
+	// load a local of any type
+	public void load(int local) {
+		int type = locals[local];
+		localOp((type == INT) ? 0x15 : (type == FLOAT) ? 0x17 : 0x19, local);
+		push(type);
+	}
+
+	// store into a local of any type
+	public void store(int local) {
+		int type = locals[local];
+		localOp((type == INT) ? 0x36 : (type == FLOAT) ? 0x38 : 0x3a, local);
+		pop(1);
+	}
+
+	private void localOp(int opcode, int local) {
+		if (local < 256) {
+			op(opcode);
+			u1(local);
+		} else {
+			op(0xc4); // wide
+			op(opcode);
+			u2(local);
+		}
+	}
+
+	// load an element of an array of the given kind (T_INT, ...)
+	public void arrayLoad(int kind) {
+		op((kind == T_INT) ? 0x2e : (kind == T_FLOAT) ? 0x30 : (kind == T_CHAR) ? 0x34 : 0x33);
+		pop(2);
+		push((kind == T_FLOAT) ? FLOAT : INT);
+	}
+
+	// store an element into an array of the given kind
+	public void arrayStore(int kind) {
+		op((kind == T_INT) ? 0x4f : (kind == T_FLOAT) ? 0x51 : (kind == T_CHAR) ? 0x55 : 0x54);
+		pop(3);
+	}
+
+	// load an element of an Object[]
+	public void arrayLoadObject() {
+		op(0x32);
+		pop(2);
+		push(objectType("java/lang/Object"));
+	}
+
+	// store an element into an Object[]
+	public void arrayStoreObject() {
+		op(0x53);
+		pop(3);
+	}
+
+	public void arrayLength() {
+		op(0xbe);
+		pop(1);
+		push(INT);
+	}
+
+	// binary arithmetic or xor, the result has the type of the operands
+	public void math(int opcode) {
+		op(opcode);
+		pop(1);
+	}
+
+	// unary instruction from one type to another (negation, conversions)
+	public void convert(int opcode, int type) {
+		op(opcode);
+		pop(1);
+		push(type);
+	}
+
+	// float comparison pushing -1, 0 or 1
+	public void compare(int opcode) {
+		op(opcode);
+		pop(2);
+		push(INT);
+	}
+
+	public void dup() {
+		op(0x59);
+		push(stack[stackSize - 1]);
+	}
+
+	public void pop() {
+		op(0x57);
+		pop(1);
+	}
+
+	public void getField(String owner, String name, String descriptor, int type) {
+		op(0xb4);
+		u2(this.owner.fieldRef(owner, name, descriptor));
+		pop(1);
+		push(type);
+	}
+
+	public void checkCast(String className) {
+		op(0xc0);
+		u2(owner.classRef(className));
+		pop(1);
+		push(objectType(className));
+	}
+
+	// invoke a constructor or private method taking no arguments and returning void
+	public void invokeSpecial(String owner, String name) {
+		op(0xb7);
+		u2(this.owner.methodRef(owner, name, "()V"));
+		pop(1);
+	}
+
+	public void returnVoid() {
+		op(0xb1);
+		reachable = false;
+	}
+
+	// conditional branch (popping one or two ints) or goto
+	public void jump(int opcode, Label label) {
+		if (!wideJumps)
+			branch(opcode, label);
+		else if (opcode == GOTO)
+			branch(GOTO_W, label);
+		else {
+			// the inverted condition skips the goto_w (IFEQ and IFNE, IFLT and IFGE, ... differ in the lowest bit)
+			Label skip = new Label();
+			branch(((opcode - IFEQ) ^ 1) + IFEQ, skip);
+			branch(GOTO_W, label);
+			mark(skip);
+		}
+	}
+
+	private void branch(int opcode, Label label) {
+		pop((opcode == GOTO || opcode == GOTO_W) ? 0 : (opcode >= IF_ICMPEQ) ? 2 : 1);
+		reach(label);
+		if (label.branchCount == label.branches.length)
+			label.branches = Arrays.copyOf(label.branches, label.branchCount * 2);
+		label.branches[label.branchCount++] = length;
+		op(opcode);
+		// offsets are patched by finish()
+		if (opcode == GOTO_W)
+			u4(0);
+		else
+			u2(0);
+		if (opcode == GOTO || opcode == GOTO_W)
+			reachable = false;
+	}
+
+	// place a label at the next instruction
+	public void mark(Label label) {
+		if (reachable)
+			reach(label);
+		else if (label.stack != null) {
+			stackSize = label.stack.length;
+			System.arraycopy(label.stack, 0, stack, 0, stackSize);
+		} else
+			throw new IllegalStateException("Label placed in unreachable code");
+
+		label.offset = length;
+		label.localCount = localCount;
+		labels.add(label);
+		reachable = true;
+	}
+
+	// record the operand stack a label is reached with
+	private void reach(Label label) {
+		int[] current = Arrays.copyOf(stack, stackSize);
+		if (label.stack == null)
+			label.stack = current;
+		else if (!Arrays.equals(label.stack, current))
+			throw new IllegalStateException("Label reached with different stacks");
+	}
+
+	private void push(int type) {
+		if (stackSize == stack.length)
+			stack = Arrays.copyOf(stack, stackSize * 2);
+		stack[stackSize++] = type;
+		maxStack = Math.max(maxStack, stackSize);
+	}
+
+	private void pop(int count) {
+		stackSize -= count;
+	}
+
+	private void op(int opcode) {
+		u1(opcode);
+	}
+
+	private void u1(int value) {
+		if (length == code.length)
+			code = Arrays.copyOf(code, length * 2);
+		code[length++] = (byte) value;
+	}
+
+	private void u2(int value) {
+		u1(value >> 8);
+		u1(value);
+	}
+
+	private void u4(int value) {
+		u2(value >> 16);
+		u2(value);
+	}
+
+	/*
+	 * output
+	 */
+
+	// patch the branches and add the method to the class
+	public void finish() {
+		if (length > MAX_CODE_LENGTH)
+			throw new IllegalStateException("Method too large (" + length + " bytes of code)");
+		if (!branchesFit())
+			throw new IllegalStateException("Branch offset out of range, the method needs wide jumps");
+
+		for (Label label : labels) {
+			for (int i = 0; i < label.branchCount; i++) {
+				int branch = label.branches[i];
+				int offset = label.offset - branch;
+				if (code[branch] == (byte) GOTO_W) {
+					code[branch + 1] = (byte) (offset >> 24);
+					code[branch + 2] = (byte) (offset >> 16);
+					code[branch + 3] = (byte) (offset >> 8);
+					code[branch + 4] = (byte) offset;
+				} else {
+					code[branch + 1] = (byte) (offset >> 8);
+					code[branch + 2] = (byte) offset;
+				}
+			}
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			byte[] frames = frames();
+
+			out.writeShort(access);
+			out.writeShort(name);
+			out.writeShort(descriptor);
+			out.writeShort(1); // attributes: Code
+			out.writeShort(owner.utf8("Code"));
+			out.writeInt(12 + length + ((frames != null) ? 6 + frames.length : 0));
+			out.writeShort(maxStack);
+			out.writeShort(localCount);
+			out.writeInt(length);
+			out.write(code, 0, length);
+			out.writeShort(0); // exception table
+			if (frames == null)
+				out.writeShort(0);
+			else {
+				out.writeShort(1);
+				out.writeShort(owner.utf8("StackMapTable"));
+				out.writeInt(frames.length);
+				out.write(frames);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // not thrown by byte array streams
+		}
+		owner.addMethod(bytes.toByteArray());
+	}
+
+	// the StackMapTable entries, a full frame per label offset (null if there are no labels)
+	private byte[] frames() throws IOException {
+		if (labels.isEmpty())
+			return null;
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		int count = 0;
+		int previous = -1;
+		for (Label label : labels) {
+			if (label.offset == previous)
+				continue; // several labels at one instruction share a frame
+			out.writeByte(255); // full_frame
+			out.writeShort(label.offset - previous - 1);
+			out.writeShort(label.localCount);
+			for (int i = 0; i < label.localCount; i++)
+				verificationType(out, locals[i]);
+			out.writeShort(label.stack.length);
+			for (int type : label.stack)
+				verificationType(out, type);
+			previous = label.offset;
+			count++;
+		}
+
+		ByteArrayOutputStream table = new ByteArrayOutputStream();
+		DataOutputStream tableOut = new DataOutputStream(table);
+		tableOut.writeShort(count);
+		bytes.writeTo(tableOut);
+		return table.toByteArray();
+	}
+
+	private static void verificationType(DataOutputStream out, int type) throws IOException {
+		out.writeByte(type & 0xFF);
+		if ((type & 0xFF) == OBJECT)
+			out.writeShort(type >>> 8);
+	}
+}
@@ -0,0 +1,6 @@
+package backend;
+
+// a program ready to run on the variables in a memory
+public interface Executable {
+	public void run(Memory memory);
+}
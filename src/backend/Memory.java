@@ -0,0 +1,118 @@
+package backend;
+
+import java.util.Arrays;
+
+import ast.Type;
+import semantic.TypeCheckVisitor;
+
+/*
+ *
+ * Values of the program variables, in the typed files laid out by
+ * Variables. Single variables start at zero (false) and each array
+ * variable holds a primitive array of its declared size. Executables read
+ * the variables on entry and write them back when the program ends, so
+ * the files are package-private for the generated code.
+ *
+ */
+
+public class Memory {
+	private Variables variables;
+
+	int[] ints;
+	float[] floats;
+	char[] chars;
+	boolean[] booleans;
+	Object[] arrays; //int[], float[], char[] or boolean[]
+
+	public Memory(Variables variables) {
+		this.variables = variables;
+		this.ints = new int[variables.getInts()];
+		this.floats = new float[variables.getFloats()];
+		this.chars = new char[variables.getChars()];
+		this.booleans = new boolean[variables.getBooleans()];
+		this.arrays = new Object[variables.getArrays()];
+
+		for (int i = 0; i < variables.size(); i++) {
+			if (variables.isArray(i))
+				arrays[variables.getSlot(i)] = newArray(variables.getElementType(i), variables.getSize(i));
+		}
+	}
+
+	private static Object newArray(Type elementType, int size) {
+		if (elementType == TypeCheckVisitor.FLOAT)
+			return new float[size];
+		if (elementType == TypeCheckVisitor.CHAR)
+			return new char[size];
+		if (elementType == TypeCheckVisitor.BOOLEAN)
+			return new boolean[size];
+		return new int[size];
+	}
+
+	public Variables getVariables() {
+		return variables;
+	}
+
+	// value of a variable, boxed (the primitive array itself for arrays)
+	public Object get(int variable) {
+		int slot = variables.getSlot(variable);
+		Type type = variables.getElementType(variable);
+		if (variables.isArray(variable))
+			return arrays[slot];
+		if (type == TypeCheckVisitor.FLOAT)
+			return floats[slot];
+		if (type == TypeCheckVisitor.CHAR)
+			return chars[slot];
+		if (type == TypeCheckVisitor.BOOLEAN)
+			return booleans[slot];
+		return ints[slot];
+	}
+
+	// store a boxed value of the variable's own type
+	public void set(int variable, Object value) {
+		int slot = variables.getSlot(variable);
+		Type type = variables.getElementType(variable);
+		if (variables.isArray(variable))
+			arrays[slot] = value;
+		else if (type == TypeCheckVisitor.FLOAT)
+			floats[slot] = (Float) value;
+		else if (type == TypeCheckVisitor.CHAR)
+			chars[slot] = (Character) value;
+		else if (type == TypeCheckVisitor.BOOLEAN)
+			booleans[slot] = (Boolean) value;
+		else
+			ints[slot] = (Integer) value;
+	}
+
+	// value of a variable as source text (arrays as a list of elements)
+	public String format(int variable) {
+		int slot = variables.getSlot(variable);
+		Type type = variables.getElementType(variable);
+		if (variables.isArray(variable)) {
+			Object array = arrays[slot];
+			if (array instanceof float[])
+				return Arrays.toString((float[]) array);
+			if (array instanceof char[])
+				return Arrays.toString((char[]) array);
+			if (array instanceof boolean[])
+				return Arrays.toString((boolean[]) array);
+			return Arrays.toString((int[]) array);
+		}
+
+		if (type == TypeCheckVisitor.FLOAT)
+			return String.valueOf(floats[slot]);
+		if (type == TypeCheckVisitor.CHAR)
+			return "'" + chars[slot] + "'";
+		if (type == TypeCheckVisitor.BOOLEAN)
+			return String.valueOf(booleans[slot]);
+		return String.valueOf(ints[slot]);
+	}
+
+	// all variables, one "name = value" line each
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < variables.size(); i++)
+			text.append(variables.getName(i)).append(" = ").append(format(i)).append('\n');
+		return text.toString();
+	}
+}
@@ -0,0 +1,139 @@
+package backend;
+
+import java.util.Arrays;
+
+/*
+ *
+ * Register code of a program: instructions are an opcode followed by its
+ * operands in one int[] array. Operands are register numbers in the typed
+ * register files (ints, floats, chars, booleans and arrays), constants, or
+ * code offsets for jumps. The registers of the variables come first, at
+ * their slots in the Memory layout of Variables, followed by the
+ * temporaries of expressions. Char values are computed in int registers,
+ * the chars file only holds char variables.
+ *
+ */
+
+public class RegisterCode {
+	// opcodes, with their operands (d: destination register, a b: source registers)
+	public final static int ICONST = 0; //d value
+	public final static int FCONST = 1; //d float bits
+	public final static int BCONST = 2; //d 0 or 1
+	public final static int IMOV = 3, FMOV = 4, BMOV = 5, AMOV = 6; //d a
+	public final static int IADD = 7, ISUB = 8, IMUL = 9, IDIV = 10, IREM = 11; //d a b
+	public final static int FADD = 12, FSUB = 13, FMUL = 14, FDIV = 15, FREM = 16; //d a b
+	public final static int INEG = 17, FNEG = 18, BNOT = 19; //d a
+	public final static int ILT = 20, ILE = 21, IGT = 22, IGE = 23, IEQ = 24, INE = 25; //boolean d, int a b
+	public final static int FLT = 26, FLE = 27, FGT = 28, FGE = 29, FEQ = 30, FNE = 31; //boolean d, float a b
+	public final static int I2F = 32, F2I = 33, I2B = 34, F2B = 35, B2I = 36; //d a
+	public final static int I2C = 37; //char d, int a
+	public final static int C2I = 38; //int d, char a
+	public final static int WRAPC = 39; //int d, int a wrapped to the char range
+	public final static int IALOAD = 40, FALOAD = 41, CALOAD = 42, BALOAD = 43; //d array index (CALOAD into an int)
+	public final static int IASTORE = 44, FASTORE = 45, CASTORE = 46, BASTORE = 47; //array index a (CASTORE from an int)
+	public final static int ALENGTH = 48; //int d, array a
+	public final static int GOTO = 49; //target
+	public final static int IFFALSE = 50; //boolean a, target
+	public final static int RETURN = 51;
+
+	private final static String[] NAMES = { "iconst", "fconst", "bconst", "imov", "fmov", "bmov", "amov", "iadd",
+			"isub", "imul", "idiv", "irem", "fadd", "fsub", "fmul", "fdiv", "frem", "ineg", "fneg", "bnot", "ilt",
+			"ile", "igt", "ige", "ieq", "ine", "flt", "fle", "fgt", "fge", "feq", "fne", "i2f", "f2i", "i2b", "f2b",
+			"b2i", "i2c", "c2i", "wrapc", "iaload", "faload", "caload", "baload", "iastore", "fastore", "castore",
+			"bastore", "alength", "goto", "iffalse", "return" };
+
+	// number of operands of each opcode
+	private final static int[] OPERANDS = { 2, 2, 2, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 2, 2, 2, 3, 3, 3, 3,
+			3, 3, 3, 3, 3, 3, 3, 3, 2, 2, 2, 2, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 3, 3, 2, 1, 2, 0 };
+
+	private Variables variables;
+	int[] code = new int[64];
+	int length;
+
+	// size of each register file, variables and temporaries
+	int ints;
+	int floats;
+	int chars;
+	int booleans;
+	int arrays;
+
+	RegisterCode(Variables variables) {
+		this.variables = variables;
+		this.ints = variables.getInts();
+		this.floats = variables.getFloats();
+		this.chars = variables.getChars();
+		this.booleans = variables.getBooleans();
+		this.arrays = variables.getArrays();
+	}
+
+	public Variables getVariables() {
+		return variables;
+	}
+
+	// number of ints in the code
+	public int length() {
+		return length;
+	}
+
+	private void put(int value) {
+		if (length == code.length)
+			code = Arrays.copyOf(code, length * 2);
+		code[length++] = value;
+	}
+
+	void emit(int opcode) {
+		put(opcode);
+	}
+
+	void emit(int opcode, int a) {
+		put(opcode);
+		put(a);
+	}
+
+	void emit(int opcode, int a, int b) {
+		put(opcode);
+		put(a);
+		put(b);
+	}
+
+	void emit(int opcode, int a, int b, int c) {
+		put(opcode);
+		put(a);
+		put(b);
+		put(c);
+	}
+
+	// forward jumps return the offset of their target, set by patch()
+	int jump() {
+		emit(GOTO, -1);
+		return length - 1;
+	}
+
+	int jumpIfFalse(int condition) {
+		emit(IFFALSE, condition, -1);
+		return length - 1;
+	}
+
+	// backward jump to an earlier offset
+	void jump(int target) {
+		emit(GOTO, target);
+	}
+
+	// make a forward jump target the current end of the code
+	void patch(int target) {
+		code[target] = length;
+	}
+
+	// one instruction per line, with its offset
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		for (int pc = 0; pc < length; pc += OPERANDS[code[pc]] + 1) {
+			text.append(pc).append(": ").append(NAMES[code[pc]]);
+			for (int i = 1; i <= OPERANDS[code[pc]]; i++)
+				text.append(' ').append(code[pc + i]);
+			text.append('\n');
+		}
+		return text.toString();
+	}
+}
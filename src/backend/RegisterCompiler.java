@@ -0,0 +1,468 @@
+package backend;
+
+import ast.*;
+import semantic.SymbolTable;
+import semantic.TypeCheckVisitor;
+import visitor.GenericDepthFirstVisitor;
+
+/*
+ *
+ * Lowers a checked program to register code for RegisterInterpreter.
+ * Visiting an expression emits the instructions computing it and returns
+ * the register holding its value, in the file of its type (chars in the
+ * ints). The argument is the register the value should be written to, or
+ * -1 for any register: variables are then read from their own register
+ * and other values get a temporary. Temporaries are reused by every
+ * statement, so the register files only grow with expression depth.
+ *
+ * The lowering is recursive, so the Java stack bounds the expression
+ * depth, as in GenericDepthFirstVisitor.
+ *
+ */
+
+public class RegisterCompiler extends GenericDepthFirstVisitor<Integer, Integer> {
+	private final static Type INT = TypeCheckVisitor.INT;
+	private final static Type FLOAT = TypeCheckVisitor.FLOAT;
+	private final static Type CHAR = TypeCheckVisitor.CHAR;
+	private final static Type BOOLEAN = TypeCheckVisitor.BOOLEAN;
+
+	private Program program;
+	private Variables variables;
+	private TypeCheckVisitor typeChecker;
+
+	private RegisterCode code;
+
+	// temporaries in use by the current statement, and the most used by any
+	private int intTemps, floatTemps, booleanTemps;
+	private int maxIntTemps, maxFloatTemps, maxBooleanTemps;
+
+	public RegisterCompiler(Program program, SymbolTable symbolTable) {
+		this.program = program;
+		this.variables = new Variables(program.getList());
+		this.typeChecker = new TypeCheckVisitor(symbolTable);
+	}
+
+	public Variables getVariables() {
+		return variables;
+	}
+
+	public RegisterCode compile() {
+		code = new RegisterCode(variables);
+		program.accept(this, -1);
+		code.emit(RegisterCode.RETURN);
+
+		code.ints += maxIntTemps;
+		code.floats += maxFloatTemps;
+		code.booleans += maxBooleanTemps;
+		return code;
+	}
+
+	private int variable(String name) {
+		int variable = variables.indexOf(name);
+		if (variable < 0)
+			throw new IllegalArgumentException("Undeclared variable " + name);
+		return variable;
+	}
+
+	// single type of a typed expression
+	private static Type single(Exp exp) {
+		Type type = (exp != null) ? exp.getType() : null;
+		if (type == null || TypeCheckVisitor.isArray(type))
+			throw new IllegalArgumentException("Expression of unknown type");
+		return TypeCheckVisitor.elementType(type);
+	}
+
+	// register file a single type is computed in
+	private static Type file(Type type) {
+		return (type == CHAR) ? INT : type;
+	}
+
+	// a new temporary in a register file
+	private int temp(Type file) {
+		if (file == FLOAT) {
+			maxFloatTemps = Math.max(maxFloatTemps, floatTemps + 1);
+			return variables.getFloats() + floatTemps++;
+		}
+		if (file == BOOLEAN) {
+			maxBooleanTemps = Math.max(maxBooleanTemps, booleanTemps + 1);
+			return variables.getBooleans() + booleanTemps++;
+		}
+		maxIntTemps = Math.max(maxIntTemps, intTemps + 1);
+		return variables.getInts() + intTemps++;
+	}
+
+	// the destination register if one is given, else a new temporary
+	private int result(Type file, int destination) {
+		return (destination >= 0) ? destination : temp(file);
+	}
+
+	/*
+	 * expressions
+	 */
+
+	// lower an expression converted to a register file
+	private int value(Exp exp, Type file, int destination) {
+		if (exp == null)
+			throw new IllegalArgumentException("Missing expression");
+
+		Type from = file(single(exp));
+		if (from == file)
+			return exp.accept(this, destination);
+
+		int register = exp.accept(this, -1);
+		if (from == BOOLEAN && file == FLOAT) {
+			int integer = temp(INT);
+			code.emit(RegisterCode.B2I, integer, register);
+			register = integer;
+			from = INT;
+		}
+
+		int converted = result(file, destination);
+		if (file == FLOAT)
+			code.emit(RegisterCode.I2F, converted, register);
+		else if (file == BOOLEAN)
+			code.emit((from == FLOAT) ? RegisterCode.F2B : RegisterCode.I2B, converted, register);
+		else
+			code.emit((from == FLOAT) ? RegisterCode.F2I : RegisterCode.B2I, converted, register);
+		return converted;
+	}
+
+	// register of an array valued expression (only array variables are)
+	private int array(Exp exp) {
+		Type type = (exp != null) ? exp.getType() : null;
+		if (!TypeCheckVisitor.isArray(type) || !(exp instanceof IdentifierExp))
+			throw new IllegalArgumentException("Value that is not an array used as an array");
+		return variables.getSlot(variable(((IdentifierExp) exp).getName()));
+	}
+
+	// arithmetic in the type of the node (char arithmetic is int arithmetic wrapped to char)
+	private int arithmetic(Exp node, Exp lhs, Exp rhs, int intOpcode, int floatOpcode, int destination) {
+		Type type = single(node);
+		Type file = (type == FLOAT) ? FLOAT : INT;
+		int a = value(lhs, file, -1);
+		int b = value(rhs, file, -1);
+		int register = result(file, destination);
+		code.emit((file == FLOAT) ? floatOpcode : intOpcode, register, a, b);
+		if (type == CHAR)
+			code.emit(RegisterCode.WRAPC, register, register);
+		return register;
+	}
+
+	// comparison in float if either operand is a float, else in int
+	private int comparison(Exp lhs, Exp rhs, int intOpcode, int floatOpcode, int destination) {
+		Type file = (single(lhs) == FLOAT || single(rhs) == FLOAT) ? FLOAT : INT;
+		int a = value(lhs, file, -1);
+		int b = value(rhs, file, -1);
+		int register = result(BOOLEAN, destination);
+		code.emit((file == FLOAT) ? floatOpcode : intOpcode, register, a, b);
+		return register;
+	}
+
+	// short circuit: the right operand is only computed if the left one does not decide
+	private int logic(Exp lhs, Exp rhs, boolean isAnd, int destination) {
+		// the operands are computed into a temporary, the destination may be one of them
+		int register = temp(BOOLEAN);
+		value(lhs, BOOLEAN, register);
+		int skip;
+		if (isAnd)
+			skip = code.jumpIfFalse(register);
+		else {
+			int isFalse = code.jumpIfFalse(register);
+			skip = code.jump();
+			code.patch(isFalse);
+		}
+		value(rhs, BOOLEAN, register);
+		code.patch(skip);
+
+		if (destination < 0)
+			return register;
+		code.emit(RegisterCode.BMOV, destination, register);
+		return destination;
+	}
+
+	@Override
+	public Integer visit(And andExp, Integer destination) {
+		return logic(andExp.getLHS(), andExp.getRHS(), true, destination);
+	}
+
+	@Override
+	public Integer visit(Or orExp, Integer destination) {
+		return logic(orExp.getLHS(), orExp.getRHS(), false, destination);
+	}
+
+	@Override
+	public Integer visit(MoreThan moreExp, Integer destination) {
+		return comparison(moreExp.getLHS(), moreExp.getRHS(), RegisterCode.IGT, RegisterCode.FGT, destination);
+	}
+
+	@Override
+	public Integer visit(LessThan lessThanExp, Integer destination) {
+		return comparison(lessThanExp.getLHS(), lessThanExp.getRHS(), RegisterCode.ILT, RegisterCode.FLT,
+				destination);
+	}
+
+	@Override
+	public Integer visit(Equal equalExp, Integer destination) {
+		return comparison(equalExp.getLHS(), equalExp.getRHS(), RegisterCode.IEQ, RegisterCode.FEQ, destination);
+	}
+
+	@Override
+	public Integer visit(NotEqual notEqualExp, Integer destination) {
+		return comparison(notEqualExp.getLHS(), notEqualExp.getRHS(), RegisterCode.INE, RegisterCode.FNE,
+				destination);
+	}
+
+	@Override
+	public Integer visit(MoreThanEqual moreEqualExp, Integer destination) {
+		return comparison(moreEqualExp.getLHS(), moreEqualExp.getRHS(), RegisterCode.IGE, RegisterCode.FGE,
+				destination);
+	}
+
+	@Override
+	public Integer visit(LessThanEqual lessEqualExp, Integer destination) {
+		return comparison(lessEqualExp.getLHS(), lessEqualExp.getRHS(), RegisterCode.ILE, RegisterCode.FLE,
+				destination);
+	}
+
+	@Override
+	public Integer visit(Plus plusExp, Integer destination) {
+		return arithmetic(plusExp, plusExp.getLHS(), plusExp.getRHS(), RegisterCode.IADD, RegisterCode.FADD,
+				destination);
+	}
+
+	@Override
+	public Integer visit(Minus minusExp, Integer destination) {
+		return arithmetic(minusExp, minusExp.getLHS(), minusExp.getRHS(), RegisterCode.ISUB, RegisterCode.FSUB,
+				destination);
+	}
+
+	@Override
+	public Integer visit(Times timesExp, Integer destination) {
+		return arithmetic(timesExp, timesExp.getLHS(), timesExp.getRHS(), RegisterCode.IMUL, RegisterCode.FMUL,
+				destination);
+	}
+
+	@Override
+	public Integer visit(Divide divExp, Integer destination) {
+		return arithmetic(divExp, divExp.getLHS(), divExp.getRHS(), RegisterCode.IDIV, RegisterCode.FDIV,
+				destination);
+	}
+
+	@Override
+	public Integer visit(Modules modExp, Integer destination) {
+		return arithmetic(modExp, modExp.getLHS(), modExp.getRHS(), RegisterCode.IREM, RegisterCode.FREM,
+				destination);
+	}
+
+	@Override
+	public Integer visit(ArrayLookup arrayLookup, Integer destination) {
+		int array = array(arrayLookup.getArray());
+		int index = value(arrayLookup.getIndex(), INT, -1);
+		Type type = single(arrayLookup);
+		int register = result(file(type), destination);
+		if (type == FLOAT)
+			code.emit(RegisterCode.FALOAD, register, array, index);
+		else if (type == CHAR)
+			code.emit(RegisterCode.CALOAD, register, array, index);
+		else if (type == BOOLEAN)
+			code.emit(RegisterCode.BALOAD, register, array, index);
+		else
+			code.emit(RegisterCode.IALOAD, register, array, index);
+		return register;
+	}
+
+	@Override
+	public Integer visit(ArrayLength length, Integer destination) {
+		int array = array(length.getArray());
+		int register = result(INT, destination);
+		code.emit(RegisterCode.ALENGTH, register, array);
+		return register;
+	}
+
+	@Override
+	public Integer visit(NewArray array, Integer destination) {
+		throw new IllegalArgumentException("Array creation is not supported");
+	}
+
+	@Override
+	public Integer visit(Not notExp, Integer destination) {
+		int operand = value(notExp.getExp(), BOOLEAN, -1);
+		int register = result(BOOLEAN, destination);
+		code.emit(RegisterCode.BNOT, register, operand);
+		return register;
+	}
+
+	@Override
+	public Integer visit(Negative negExp, Integer destination) {
+		Type type = single(negExp);
+		Type file = (type == FLOAT) ? FLOAT : INT;
+		int operand = value(negExp.getExp(), file, -1);
+		int register = result(file, destination);
+		code.emit((file == FLOAT) ? RegisterCode.FNEG : RegisterCode.INEG, register, operand);
+		if (type == CHAR)
+			code.emit(RegisterCode.WRAPC, register, register);
+		return register;
+	}
+
+	// leaves
+
+	@Override
+	public Integer visit(IntegerLiteral intLiteral, Integer destination) {
+		int register = result(INT, destination);
+		code.emit(RegisterCode.ICONST, register, intLiteral.getValue());
+		return register;
+	}
+
+	@Override
+	public Integer visit(FloatLiteral floatLiteral, Integer destination) {
+		int register = result(FLOAT, destination);
+		code.emit(RegisterCode.FCONST, register, Float.floatToRawIntBits(floatLiteral.getValue()));
+		return register;
+	}
+
+	@Override
+	public Integer visit(BooleanLiteral booleanLiteral, Integer destination) {
+		int register = result(BOOLEAN, destination);
+		code.emit(RegisterCode.BCONST, register, booleanLiteral.getValue() ? 1 : 0);
+		return register;
+	}
+
+	@Override
+	public Integer visit(CharLiteral charLiteral, Integer destination) {
+		int register = result(INT, destination);
+		code.emit(RegisterCode.ICONST, register, charLiteral.getValue());
+		return register;
+	}
+
+	@Override
+	public Integer visit(True trueLiteral, Integer destination) {
+		int register = result(BOOLEAN, destination);
+		code.emit(RegisterCode.BCONST, register, 1);
+		return register;
+	}
+
+	@Override
+	public Integer visit(False falseLiteral, Integer destination) {
+		int register = result(BOOLEAN, destination);
+		code.emit(RegisterCode.BCONST, register, 0);
+		return register;
+	}
+
+	@Override
+	public Integer visit(IdentifierExp identExp, Integer destination) {
+		int variable = variable(identExp.getName());
+		int slot = variables.getSlot(variable);
+		Type type = variables.getElementType(variable);
+		if (variables.isArray(variable))
+			throw new IllegalArgumentException("Array " + identExp.getName() + " used as a value");
+
+		// char variables are read into an int register, others are used in place
+		if (type == CHAR) {
+			int register = result(INT, destination);
+			code.emit(RegisterCode.C2I, register, slot);
+			return register;
+		}
+		if (destination < 0 || destination == slot)
+			return slot;
+		code.emit((type == FLOAT) ? RegisterCode.FMOV : (type == BOOLEAN) ? RegisterCode.BMOV : RegisterCode.IMOV,
+				destination, slot);
+		return destination;
+	}
+
+	/*
+	 * statements
+	 */
+
+	@Override
+	public Integer visit(Program prog, Integer arg) {
+		visit(prog.getStm(), arg);
+		return null;
+	}
+
+	// every statement starts without temporaries
+	@Override
+	protected void visit(Statement stm, Integer arg) {
+		if (stm == null)
+			throw new IllegalArgumentException("Missing statement");
+		intTemps = 0;
+		floatTemps = 0;
+		booleanTemps = 0;
+		stm.accept(this, arg);
+	}
+
+	// register of a condition, type checked and converted to boolean
+	private int condition(Exp condExp) {
+		typeChecker.check(condExp);
+		return value(condExp, BOOLEAN, -1);
+	}
+
+	@Override
+	public Integer visit(If ifStm, Integer arg) {
+		int isFalse = code.jumpIfFalse(condition(ifStm.getCondExp()));
+		visit(ifStm.getTrueStm(), arg);
+		if (ifStm.getFalseStm() == null) {
+			code.patch(isFalse);
+			return null;
+		}
+
+		int end = code.jump();
+		code.patch(isFalse);
+		visit(ifStm.getFalseStm(), arg);
+		code.patch(end);
+		return null;
+	}
+
+	@Override
+	public Integer visit(While whileStm, Integer arg) {
+		int head = code.length();
+		int end = code.jumpIfFalse(condition(whileStm.getCondExp()));
+		visit(whileStm.getStm(), arg);
+		code.jump(head);
+		code.patch(end);
+		return null;
+	}
+
+	@Override
+	public Integer visit(Assign assignStm, Integer arg) {
+		int variable = variable(assignStm.getId().getName());
+		int slot = variables.getSlot(variable);
+		Type type = variables.getElementType(variable);
+		Exp value = assignStm.getValue();
+		typeChecker.check(value);
+
+		if (variables.isArray(variable)) {
+			// arrays are assigned by reference, between arrays of the same element type
+			Type valueType = (value != null) ? value.getType() : null;
+			if (!TypeCheckVisitor.isArray(valueType) || TypeCheckVisitor.elementType(valueType) != type)
+				throw new IllegalArgumentException("Array " + assignStm.getId().getName() + " assigned a value");
+			code.emit(RegisterCode.AMOV, slot, array(value));
+		} else if (type == CHAR)
+			code.emit(RegisterCode.I2C, slot, value(value, INT, -1));
+		else
+			value(value, type, slot);
+		return null;
+	}
+
+	@Override
+	public Integer visit(ArrayAssign arrayAssignStm, Integer arg) {
+		int variable = variable(arrayAssignStm.getId().getName());
+		if (!variables.isArray(variable))
+			throw new IllegalArgumentException("Element of " + arrayAssignStm.getId().getName() + " assigned, not an array");
+
+		typeChecker.check(arrayAssignStm.getIndex());
+		typeChecker.check(arrayAssignStm.getValue());
+		int array = variables.getSlot(variable);
+		Type type = variables.getElementType(variable);
+		int index = value(arrayAssignStm.getIndex(), INT, -1);
+		int value = value(arrayAssignStm.getValue(), file(type), -1);
+		if (type == FLOAT)
+			code.emit(RegisterCode.FASTORE, array, index, value);
+		else if (type == CHAR)
+			code.emit(RegisterCode.CASTORE, array, index, value);
+		else if (type == BOOLEAN)
+			code.emit(RegisterCode.BASTORE, array, index, value);
+		else
+			code.emit(RegisterCode.IASTORE, array, index, value);
+		return null;
+	}
+}
@@ -0,0 +1,261 @@
+package backend;
+
+/*
+ *
+ * Runs register code. The register files are allocated once per run, with
+ * the variables copied in from the Memory files they share the layout of,
+ * and copied back when the code returns. The loop itself dispatches on
+ * the opcode and works on the primitive files only, so no instruction
+ * allocates.
+ *
+ */
+
+public class RegisterInterpreter implements Executable {
+	private RegisterCode code;
+
+	public RegisterInterpreter(RegisterCode code) {
+		this.code = code;
+	}
+
+	public void run(Memory memory) {
+		int[] ints = new int[code.ints];
+		float[] floats = new float[code.floats];
+		char[] chars = new char[code.chars];
+		boolean[] booleans = new boolean[code.booleans];
+		Object[] arrays = new Object[code.arrays];
+
+		System.arraycopy(memory.ints, 0, ints, 0, memory.ints.length);
+		System.arraycopy(memory.floats, 0, floats, 0, memory.floats.length);
+		System.arraycopy(memory.chars, 0, chars, 0, memory.chars.length);
+		System.arraycopy(memory.booleans, 0, booleans, 0, memory.booleans.length);
+		System.arraycopy(memory.arrays, 0, arrays, 0, memory.arrays.length);
+
+		execute(code.code, ints, floats, chars, booleans, arrays);
+
+		System.arraycopy(ints, 0, memory.ints, 0, memory.ints.length);
+		System.arraycopy(floats, 0, memory.floats, 0, memory.floats.length);
+		System.arraycopy(chars, 0, memory.chars, 0, memory.chars.length);
+		System.arraycopy(booleans, 0, memory.booleans, 0, memory.booleans.length);
+		System.arraycopy(arrays, 0, memory.arrays, 0, memory.arrays.length);
+	}
+
+	private static void execute(int[] code, int[] ints, float[] floats, char[] chars, boolean[] booleans,
+			Object[] arrays) {
+		int pc = 0;
+		while (true) {
+			switch (code[pc]) {
+			case RegisterCode.ICONST:
+				ints[code[pc + 1]] = code[pc + 2];
+				pc += 3;
+				break;
+			case RegisterCode.FCONST:
+				floats[code[pc + 1]] = Float.intBitsToFloat(code[pc + 2]);
+				pc += 3;
+				break;
+			case RegisterCode.BCONST:
+				booleans[code[pc + 1]] = code[pc + 2] != 0;
+				pc += 3;
+				break;
+			case RegisterCode.IMOV:
+				ints[code[pc + 1]] = ints[code[pc + 2]];
+				pc += 3;
+				break;
+			case RegisterCode.FMOV:
+				floats[code[pc + 1]] = floats[code[pc + 2]];
+				pc += 3;
+				break;
+			case RegisterCode.BMOV:
+				booleans[code[pc + 1]] = booleans[code[pc + 2]];
+				pc += 3;
+				break;
+			case RegisterCode.AMOV:
+				arrays[code[pc + 1]] = arrays[code[pc + 2]];
+				pc += 3;
+				break;
+
+			case RegisterCode.IADD:
+				ints[code[pc + 1]] = ints[code[pc + 2]] + ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.ISUB:
+				ints[code[pc + 1]] = ints[code[pc + 2]] - ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.IMUL:
+				ints[code[pc + 1]] = ints[code[pc + 2]] * ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.IDIV:
+				ints[code[pc + 1]] = ints[code[pc + 2]] / ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.IREM:
+				ints[code[pc + 1]] = ints[code[pc + 2]] % ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.FADD:
+				floats[code[pc + 1]] = floats[code[pc + 2]] + floats[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.FSUB:
+				floats[code[pc + 1]] = floats[code[pc + 2]] - floats[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.FMUL:
+				floats[code[pc + 1]] = floats[code[pc + 2]] * floats[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.FDIV:
+				floats[code[pc + 1]] = floats[code[pc + 2]] / floats[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.FREM:
+				floats[code[pc + 1]] = floats[code[pc + 2]] % floats[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.INEG:
+				ints[code[pc + 1]] = -ints[code[pc + 2]];
+				pc += 3;
+				break;
+			case RegisterCode.FNEG:
+				floats[code[pc + 1]] = -floats[code[pc + 2]];
+				pc += 3;
+				break;
+			case RegisterCode.BNOT:
+				booleans[code[pc + 1]] = !booleans[code[pc + 2]];
+				pc += 3;
+				break;
+
+			case RegisterCode.ILT:
+				booleans[code[pc + 1]] = ints[code[pc + 2]] < ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.ILE:
+				booleans[code[pc + 1]] = ints[code[pc + 2]] <= ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.IGT:
+				booleans[code[pc + 1]] = ints[code[pc + 2]] > ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.IGE:
+				booleans[code[pc + 1]] = ints[code[pc + 2]] >= ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.IEQ:
+				booleans[code[pc + 1]] = ints[code[pc + 2]] == ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.INE:
+				booleans[code[pc + 1]] = ints[code[pc + 2]] != ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.FLT:
+				booleans[code[pc + 1]] = floats[code[pc + 2]] < floats[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.FLE:
+				booleans[code[pc + 1]] = floats[code[pc + 2]] <= floats[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.FGT:
+				booleans[code[pc + 1]] = floats[code[pc + 2]] > floats[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.FGE:
+				booleans[code[pc + 1]] = floats[code[pc + 2]] >= floats[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.FEQ:
+				booleans[code[pc + 1]] = floats[code[pc + 2]] == floats[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.FNE:
+				booleans[code[pc + 1]] = floats[code[pc + 2]] != floats[code[pc + 3]];
+				pc += 4;
+				break;
+
+			case RegisterCode.I2F:
+				floats[code[pc + 1]] = ints[code[pc + 2]];
+				pc += 3;
+				break;
+			case RegisterCode.F2I:
+				ints[code[pc + 1]] = (int) floats[code[pc + 2]];
+				pc += 3;
+				break;
+			case RegisterCode.I2B:
+				booleans[code[pc + 1]] = ints[code[pc + 2]] != 0;
+				pc += 3;
+				break;
+			case RegisterCode.F2B:
+				booleans[code[pc + 1]] = floats[code[pc + 2]] != 0; //NaN is true
+				pc += 3;
+				break;
+			case RegisterCode.B2I:
+				ints[code[pc + 1]] = booleans[code[pc + 2]] ? 1 : 0;
+				pc += 3;
+				break;
+			case RegisterCode.I2C:
+				chars[code[pc + 1]] = (char) ints[code[pc + 2]];
+				pc += 3;
+				break;
+			case RegisterCode.C2I:
+				ints[code[pc + 1]] = chars[code[pc + 2]];
+				pc += 3;
+				break;
+			case RegisterCode.WRAPC:
+				ints[code[pc + 1]] = (char) ints[code[pc + 2]];
+				pc += 3;
+				break;
+
+			case RegisterCode.IALOAD:
+				ints[code[pc + 1]] = ((int[]) arrays[code[pc + 2]])[ints[code[pc + 3]]];
+				pc += 4;
+				break;
+			case RegisterCode.FALOAD:
+				floats[code[pc + 1]] = ((float[]) arrays[code[pc + 2]])[ints[code[pc + 3]]];
+				pc += 4;
+				break;
+			case RegisterCode.CALOAD:
+				ints[code[pc + 1]] = ((char[]) arrays[code[pc + 2]])[ints[code[pc + 3]]];
+				pc += 4;
+				break;
+			case RegisterCode.BALOAD:
+				booleans[code[pc + 1]] = ((boolean[]) arrays[code[pc + 2]])[ints[code[pc + 3]]];
+				pc += 4;
+				break;
+			case RegisterCode.IASTORE:
+				((int[]) arrays[code[pc + 1]])[ints[code[pc + 2]]] = ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.FASTORE:
+				((float[]) arrays[code[pc + 1]])[ints[code[pc + 2]]] = floats[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.CASTORE:
+				((char[]) arrays[code[pc + 1]])[ints[code[pc + 2]]] = (char) ints[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.BASTORE:
+				((boolean[]) arrays[code[pc + 1]])[ints[code[pc + 2]]] = booleans[code[pc + 3]];
+				pc += 4;
+				break;
+			case RegisterCode.ALENGTH:
+				ints[code[pc + 1]] = java.lang.reflect.Array.getLength(arrays[code[pc + 2]]);
+				pc += 3;
+				break;
+
+			case RegisterCode.GOTO:
+				pc = code[pc + 1];
+				break;
+			case RegisterCode.IFFALSE:
+				pc = booleans[code[pc + 1]] ? pc + 3 : code[pc + 2];
+				break;
+			case RegisterCode.RETURN:
+				return;
+			default:
+				throw new IllegalStateException("Unknown opcode " + code[pc] + " at " + pc);
+			}
+		}
+	}
+}
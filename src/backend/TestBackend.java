@@ -0,0 +1,114 @@
+package backend;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+
+import diagnostic.Diagnostic;
+import diagnostic.DiagnosticList;
+import diagnostic.Severity;
+import semantic.SemanticAnalyzer;
+
+/*
+ *
+ * Usage: java backend.TestBackend [-engine bytecode|register|ast] files...
+ * A program the bytecode engine cannot compile runs on the register engine.
+ *
+ */
+
+public class TestBackend {
+	public static void main(String[] args) throws IOException {
+		String engine = "bytecode";
+		int first = 0;
+		if (args.length >= 2 && args[0].equals("-engine")) {
+			engine = args[1];
+			first = 2;
+		}
+		if (first == args.length) {
+			System.err.println("No file arguments givens");
+			return;
+		}
+
+		// analyze, compile and run each file argument given
+		for (int i = first; i < args.length; i++) {
+			FileReader file;
+
+			// attempt to open file
+			try {
+				file = new FileReader(args[i]);
+			} catch (FileNotFoundException e) {
+				System.err.println(args[i] + " was not found!");
+				continue; // try next file
+			}
+
+			System.out.println("Running " + args[i] + "...");
+			SemanticAnalyzer semantic = new SemanticAnalyzer(file);
+			DiagnosticList diagnostics = new DiagnosticList();
+			semantic.setDiagnosticSink(diagnostics);
+			semantic.analyzeProgram();
+
+			// only programs without errors are run
+			int errors = 0;
+			for (Diagnostic diagnostic : diagnostics.getDiagnostics()) {
+				System.err.println(diagnostic.getMessage());
+				if (diagnostic.getSeverity() == Severity.ERROR)
+					errors++;
+			}
+			if (errors > 0) {
+				System.out.println(errors + " errors reported, not run");
+				System.out.println("---");
+				continue;
+			}
+
+			Executable executable;
+			Variables variables;
+			long startTime = System.currentTimeMillis();
+			try {
+				if (engine.equals("ast")) {
+					AstInterpreter interpreter = new AstInterpreter(semantic.getProgram(), semantic.getSymbolTable());
+					variables = interpreter.getVariables();
+					executable = interpreter;
+				} else if (engine.equals("register")) {
+					RegisterCompiler compiler = new RegisterCompiler(semantic.getProgram(), semantic.getSymbolTable());
+					variables = compiler.getVariables();
+					executable = new RegisterInterpreter(compiler.compile());
+				} else {
+					BytecodeCompiler compiler = new BytecodeCompiler(semantic.getProgram(), semantic.getSymbolTable());
+					variables = compiler.getVariables();
+					try {
+						executable = compiler.load();
+					} catch (IllegalArgumentException e) {
+						// e.g. too large for one JVM method, the register interpreter has no such limit
+						System.out.println("Cannot compile to bytecode: " + e.getMessage() + ", running on registers");
+						RegisterCompiler registers = new RegisterCompiler(semantic.getProgram(), semantic.getSymbolTable());
+						variables = registers.getVariables();
+						executable = new RegisterInterpreter(registers.compile());
+					}
+				}
+			} catch (IllegalArgumentException e) {
+				System.out.println("Cannot compile: " + e.getMessage());
+				System.out.println("---");
+				continue;
+			} catch (ReflectiveOperationException e) {
+				System.out.println("Cannot load: " + e);
+				System.out.println("---");
+				continue;
+			}
+			long compileTime = System.currentTimeMillis() - startTime;
+
+			Memory memory = new Memory(variables);
+			startTime = System.currentTimeMillis();
+			try {
+				executable.run(memory);
+			} catch (RuntimeException e) {
+				System.out.println("Runtime error: " + e);
+			}
+			long runTime = System.currentTimeMillis() - startTime;
+
+			System.out.print(memory);
+			System.out.println("Compile time: " + compileTime + "ms");
+			System.out.println("Execution time: " + runTime + "ms");
+			System.out.println("---");
+		}
+	}
+}
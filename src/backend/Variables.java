@@ -0,0 +1,157 @@
+package backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import ast.BooleanArrayType;
+import ast.CharArrayType;
+import ast.Declarations;
+import ast.FloatArrayType;
+import ast.IntegerArrayType;
+import ast.Type;
+import ast.VarDecl;
+import ast.VarDeclList;
+import semantic.TypeCheckVisitor;
+import visitor.GenericDepthFirstVisitor;
+import visitor.GenericVisitor;
+
+/*
+ *
+ * Storage layout of the program variables. Each declared variable gets a
+ * slot in the file of its type: ints, floats, chars and booleans for
+ * single variables, and arrays for array variables. The first declaration
+ * of a name is used, as in the symbol table.
+ *
+ */
+
+public class Variables {
+	// number of elements of an array type (null for single types)
+	private final static GenericVisitor<Integer, Void> ARRAY_SIZES = new GenericDepthFirstVisitor<Integer, Void>() {
+		public Integer visit(IntegerArrayType intArrayT, Void arg) {
+			return intArrayT.getSize();
+		}
+
+		public Integer visit(FloatArrayType floatArrayT, Void arg) {
+			return floatArrayT.getSize();
+		}
+
+		public Integer visit(BooleanArrayType booleanArrayT, Void arg) {
+			return booleanArrayT.getSize();
+		}
+
+		public Integer visit(CharArrayType charArrayT, Void arg) {
+			return charArrayT.getSize();
+		}
+	};
+
+	private ArrayList<VarDecl> declarations = new ArrayList<VarDecl>();
+	private HashMap<String, Integer> indexes = new HashMap<String, Integer>(); //variable index by name
+	private int[] slots = new int[8]; //slot of each variable in the file of its type
+
+	// number of slots in each file
+	private int ints;
+	private int floats;
+	private int chars;
+	private int booleans;
+	private int arrays;
+
+	public Variables(Declarations declarations) {
+		if (declarations == null)
+			return;
+
+		for (VarDeclList varDeclList : declarations.getList()) {
+			for (VarDecl varDecl : varDeclList.getList())
+				add(varDecl);
+		}
+	}
+
+	private void add(VarDecl varDecl) {
+		if (varDecl == null || varDecl.getId() == null || varDecl.getType() == null)
+			return;
+		if (indexes.containsKey(varDecl.getId().getName()))
+			return;
+
+		int index = declarations.size();
+		if (index == slots.length)
+			slots = Arrays.copyOf(slots, index * 2);
+
+		Type type = varDecl.getType();
+		Type single = TypeCheckVisitor.elementType(type);
+		if (TypeCheckVisitor.isArray(type))
+			slots[index] = arrays++;
+		else if (single == TypeCheckVisitor.INT)
+			slots[index] = ints++;
+		else if (single == TypeCheckVisitor.FLOAT)
+			slots[index] = floats++;
+		else if (single == TypeCheckVisitor.CHAR)
+			slots[index] = chars++;
+		else if (single == TypeCheckVisitor.BOOLEAN)
+			slots[index] = booleans++;
+		else
+			return; // class types hold no values
+
+		declarations.add(varDecl);
+		indexes.put(varDecl.getId().getName(), index);
+	}
+
+	// number of variables
+	public int size() {
+		return declarations.size();
+	}
+
+	// index of a variable (-1 if it is not declared)
+	public int indexOf(String name) {
+		Integer index = indexes.get(name);
+		return (index != null) ? index : -1;
+	}
+
+	public String getName(int variable) {
+		return declarations.get(variable).getId().getName();
+	}
+
+	// declared type of a variable
+	public Type getType(int variable) {
+		return declarations.get(variable).getType();
+	}
+
+	// single type of a variable or of its elements (TypeCheckVisitor.INT, ...)
+	public Type getElementType(int variable) {
+		return TypeCheckVisitor.elementType(getType(variable));
+	}
+
+	public boolean isArray(int variable) {
+		return TypeCheckVisitor.isArray(getType(variable));
+	}
+
+	// number of elements of an array variable (0 for single variables)
+	public int getSize(int variable) {
+		Integer size = getType(variable).accept(ARRAY_SIZES, null);
+		return (size != null) ? size : 0;
+	}
+
+	// slot of a variable in the file of its type
+	public int getSlot(int variable) {
+		return slots[variable];
+	}
+
+	public int getInts() {
+		return ints;
+	}
+
+	public int getFloats() {
+		return floats;
+	}
+
+	public int getChars() {
+		return chars;
+	}
+
+	public int getBooleans() {
+		return booleans;
+	}
+
+	public int getArrays() {
+		return arrays;
+	}
+}
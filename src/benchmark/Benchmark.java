@@ -0,0 +1,224 @@
+package benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import diagnostic.DiagnosticCounter;
+import lexer.Lexer;
+import lexer.TokenPipeline;
+import lexer.TokenType;
+import parser.Parser;
+import semantic.SemanticAnalyzer;
+
+/*
+ * 
+ * Throughput benchmarks for the lexer, parser and semantic phases over
+ * generated sources (see SourceGenerator). Sources are scanned from memory
+ * and diagnostics are only counted, so no file or console I/O is measured.
+ * Each phase runs warm-up iterations before the measured ones, and reports
+ * time per run, throughput and bytes allocated per run (the equivalent of
+ * JMH's -prof gc, read from the JVM's per-thread allocation counter).
+ * 
+ * The pipeline phases scan on a second thread (TokenPipeline), and the
+ * parallel phase checks on the common ForkJoinPool; allocations of those
+ * threads are not included in alloc B/op.
+ *
+ * Usage: java benchmark.Benchmark [-warmup N] [-iterations N]
+ *            [-capacity N] [-batch N] [-wait spin|yield|park] [size...]
+ * Sizes accept k and m suffixes (default: 1k 64k 1m), e.g. 1k 1m 100m
+ * Capacity, batch and wait configure the pipeline's ring buffer.
+ * 
+ */
+
+public class Benchmark {
+	private final static ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	private static long sink; //consumes phase results so they are not optimized away
+
+	// ring buffer of the pipeline phases
+	private static int capacity = TokenPipeline.DEFAULT_CAPACITY;
+	private static int batch = TokenPipeline.DEFAULT_BATCH;
+	private static TokenPipeline.Wait wait = TokenPipeline.Wait.YIELD;
+
+	// one benchmarked phase, returns the number of tokens it read
+	private interface Phase {
+		public long run(char[] source) throws IOException;
+	}
+
+	// Lexer.getToken() until EOF
+	private final static Phase LEXER = new Phase() {
+		public long run(char[] source) throws IOException {
+			Lexer lexer = new Lexer(CharBuffer.wrap(source));
+			long tokens = 0;
+			while (lexer.getToken().getType() != TokenType.EOF)
+				tokens++;
+			return tokens + 1;
+		}
+	};
+
+	// Lexer.getToken() until EOF, tokens positioned by offset only
+	private final static Phase LAZY_LEXER = new Phase() {
+		public long run(char[] source) throws IOException {
+			Lexer lexer = new Lexer(CharBuffer.wrap(source));
+			lexer.setLazyPositions(true);
+			long tokens = 0;
+			while (lexer.getToken().getType() != TokenType.EOF)
+				tokens++;
+			return tokens + 1;
+		}
+	};
+
+	// Parser.parseProgram() including the lexer
+	private final static Phase PARSER = new Phase() {
+		public long run(char[] source) throws IOException {
+			Parser parser = new Parser(new Lexer(CharBuffer.wrap(source)));
+			parser.setDiagnosticSink(new DiagnosticCounter());
+			parser.parseProgram();
+			return parser.getTokenCount();
+		}
+	};
+
+	// Parser.parseProgramFlat() including the lexer, building the array-backed tree
+	private final static Phase FLAT_PARSER = new Phase() {
+		public long run(char[] source) throws IOException {
+			Parser parser = new Parser(new Lexer(CharBuffer.wrap(source)));
+			parser.setDiagnosticSink(new DiagnosticCounter());
+			sink += parser.parseProgramFlat().size();
+			return parser.getTokenCount();
+		}
+	};
+
+	// Parser.parseProgram() reading from a lexer on its own thread
+	private final static Phase PIPELINE = new Phase() {
+		public long run(char[] source) throws IOException {
+			Parser parser = new Parser(new TokenPipeline(new Lexer(CharBuffer.wrap(source)), capacity, batch, wait));
+			parser.setDiagnosticSink(new DiagnosticCounter());
+			parser.parseProgram();
+			return parser.getTokenCount();
+		}
+	};
+
+	// SemanticAnalyzer.analyzeProgram() including the lexer and parser
+	private final static Phase SEMANTIC = new Phase() {
+		public long run(char[] source) throws IOException {
+			SemanticAnalyzer semantic = new SemanticAnalyzer(new Parser(new Lexer(CharBuffer.wrap(source))));
+			semantic.setDiagnosticSink(new DiagnosticCounter());
+			semantic.analyzeProgram();
+			return semantic.getTokenCount();
+		}
+	};
+
+	// SemanticAnalyzer.analyzeProgramParallel(), checking on the common pool after parsing
+	private final static Phase PARALLEL = new Phase() {
+		public long run(char[] source) throws IOException {
+			SemanticAnalyzer semantic = new SemanticAnalyzer(new Parser(new Lexer(CharBuffer.wrap(source))));
+			semantic.setDiagnosticSink(new DiagnosticCounter());
+			semantic.analyzeProgramParallel();
+			return semantic.getTokenCount();
+		}
+	};
+
+	// SemanticAnalyzer.analyzeProgramStreaming(), checking while parsing
+	private final static Phase STREAMING = new Phase() {
+		public long run(char[] source) throws IOException {
+			SemanticAnalyzer semantic = new SemanticAnalyzer(new Parser(new Lexer(CharBuffer.wrap(source))));
+			semantic.setDiagnosticSink(new DiagnosticCounter());
+			semantic.analyzeProgramStreaming();
+			return semantic.getTokenCount();
+		}
+	};
+
+	// SemanticAnalyzer.analyzeProgram() with the parser reading from a lexer on its own thread
+	private final static Phase PIPELINE_SEMANTIC = new Phase() {
+		public long run(char[] source) throws IOException {
+			Parser parser = new Parser(new TokenPipeline(new Lexer(CharBuffer.wrap(source)), capacity, batch, wait));
+			SemanticAnalyzer semantic = new SemanticAnalyzer(parser);
+			semantic.setDiagnosticSink(new DiagnosticCounter());
+			semantic.analyzeProgram();
+			return semantic.getTokenCount();
+		}
+	};
+
+	public static void main(String[] args) throws IOException {
+		int warmup = 5;
+		int iterations = 10;
+		List<String> sizes = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-warmup") && i + 1 < args.length)
+				warmup = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-iterations") && i + 1 < args.length)
+				iterations = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-capacity") && i + 1 < args.length)
+				capacity = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-batch") && i + 1 < args.length)
+				batch = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-wait") && i + 1 < args.length)
+				wait = TokenPipeline.Wait.valueOf(args[++i].toUpperCase());
+			else
+				sizes.add(args[i]);
+		}
+
+		if (sizes.isEmpty()) {
+			sizes.add("1k");
+			sizes.add("64k");
+			sizes.add("1m");
+		}
+
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			((com.sun.management.ThreadMXBean) threads).setThreadAllocatedMemoryEnabled(true);
+
+		System.out.printf("%-10s %10s %10s %12s %12s %14s %14s%n", "phase", "size", "tokens", "ms/op", "MB/s",
+				"tokens/s", "alloc B/op");
+		for (String size : sizes) {
+			char[] source = new SourceGenerator(42).generate(SourceGenerator.parseSize(size));
+			run("lexer", LEXER, size, source, warmup, iterations);
+			run("lazy-lex", LAZY_LEXER, size, source, warmup, iterations);
+			run("parser", PARSER, size, source, warmup, iterations);
+			run("pipeline", PIPELINE, size, source, warmup, iterations);
+			run("flat", FLAT_PARSER, size, source, warmup, iterations);
+			run("semantic", SEMANTIC, size, source, warmup, iterations);
+			run("pipe-sem", PIPELINE_SEMANTIC, size, source, warmup, iterations);
+			run("parallel", PARALLEL, size, source, warmup, iterations);
+			run("streaming", STREAMING, size, source, warmup, iterations);
+		}
+
+		if (sink == 42)
+			System.out.println();
+	}
+
+	// run the warm-up and measured iterations of one phase and print the averages
+	private static void run(String name, Phase phase, String size, char[] source, int warmup, int iterations)
+			throws IOException {
+		for (int i = 0; i < warmup; i++)
+			sink += phase.run(source);
+
+		long tokens = 0;
+		long elapsed = 0;
+		long allocated = 0;
+		for (int i = 0; i < iterations; i++) {
+			long startBytes = allocatedBytes();
+			long startTime = System.nanoTime();
+			tokens = phase.run(source);
+			elapsed += System.nanoTime() - startTime;
+			allocated += allocatedBytes() - startBytes;
+			sink += tokens;
+		}
+
+		double seconds = elapsed / 1e9 / iterations;
+		System.out.printf("%-10s %10s %10d %12.3f %12.1f %14.0f %14s%n", name, size, tokens, seconds * 1000,
+				source.length / seconds / (1024 * 1024), tokens / seconds,
+				allocatedBytes() < 0 ? "n/a" : Long.toString(allocated / iterations));
+	}
+
+	// bytes allocated by the current thread so far (-1 if the JVM does not track it)
+	private static long allocatedBytes() {
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+}
@@ -0,0 +1,170 @@
+package benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import ast.Program;
+import backend.AstInterpreter;
+import backend.BytecodeCompiler;
+import backend.Executable;
+import backend.Memory;
+import backend.RegisterCompiler;
+import backend.RegisterInterpreter;
+import backend.Variables;
+import diagnostic.DiagnosticCounter;
+import diagnostic.Severity;
+import lexer.Lexer;
+import parser.Parser;
+import semantic.SemanticAnalyzer;
+import semantic.SymbolTable;
+
+/*
+ *
+ * Execution benchmarks of the backends on small loop programs: the AST
+ * walking AstInterpreter, the register code RegisterInterpreter and the
+ * BytecodeCompiler's hidden classes. Programs are analyzed and compiled
+ * once per engine, only runs are measured, each on a fresh Memory. As in
+ * Benchmark, runs are preceded by warm-up iterations and report time per
+ * run, loop iterations per second and bytes allocated per run.
+ *
+ * Usage: java benchmark.ExecutionBenchmark [-warmup N] [-iterations N] [loops...]
+ * Loop counts accept k and m suffixes (default: 10k 1m)
+ *
+ */
+
+public class ExecutionBenchmark {
+	private final static ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	private static long sink; //consumes run results so they are not optimized away
+
+	// one benchmarked execution engine
+	private interface Engine {
+		public Executable load(Program program, SymbolTable symbolTable) throws ReflectiveOperationException;
+	}
+
+	private final static Engine AST = new Engine() {
+		public Executable load(Program program, SymbolTable symbolTable) {
+			return new AstInterpreter(program, symbolTable);
+		}
+	};
+
+	private final static Engine REGISTER = new Engine() {
+		public Executable load(Program program, SymbolTable symbolTable) {
+			return new RegisterInterpreter(new RegisterCompiler(program, symbolTable).compile());
+		}
+	};
+
+	private final static Engine BYTECODE = new Engine() {
+		public Executable load(Program program, SymbolTable symbolTable) throws ReflectiveOperationException {
+			return new BytecodeCompiler(program, symbolTable).load();
+		}
+	};
+
+	// integer arithmetic and comparisons
+	private static String integers(int loops) {
+		return "int main() {\n int i; int n; int s; boolean go;\n n = " + loops + ";\n go = i < n;\n"
+				+ " while (go) { s = s + i * i % 7 - i / 3; i = i + 1; go = i < n; }\n}\n";
+	}
+
+	// float arithmetic with int conversions
+	private static String floats(int loops) {
+		return "int main() {\n int i; int n; float x; float y; boolean go;\n n = " + loops + ";\n go = i < n;\n"
+				+ " while (go) { x = x * 0.5 + i; y = y + x / 3.0; i = i + 1; go = i < n; }\n}\n";
+	}
+
+	// array lookups and stores, char arithmetic
+	private static String arrays(int loops) {
+		return "int main() {\n int i; int n; int j; int k; int m; char c; int[8] a; char[4] ca; boolean go;\n n = " + loops
+				+ ";\n a[1] = 3; a[5] = 7; ca[2] = 'x'; go = i < n;\n"
+				+ " while (go) { k = i % 8; m = k / 2; j = a[k] + ca[m]; a[3] = a[3] + j % 5; c = c + 'b'; i = i + 1;"
+				+ " go = i < n && !(j < 0); }\n}\n";
+	}
+
+	public static void main(String[] args) throws IOException, ReflectiveOperationException {
+		int warmup = 5;
+		int iterations = 10;
+		List<String> loops = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-warmup") && i + 1 < args.length)
+				warmup = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-iterations") && i + 1 < args.length)
+				iterations = Integer.parseInt(args[++i]);
+			else
+				loops.add(args[i]);
+		}
+
+		if (loops.isEmpty()) {
+			loops.add("10k");
+			loops.add("1m");
+		}
+
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			((com.sun.management.ThreadMXBean) threads).setThreadAllocatedMemoryEnabled(true);
+
+		System.out.printf("%-10s %-10s %10s %12s %14s %14s%n", "program", "engine", "loops", "ms/op", "loops/s",
+				"alloc B/op");
+		for (String count : loops) {
+			int n = SourceGenerator.parseSize(count);
+			String[] names = { "integers", "floats", "arrays" };
+			String[] sources = { integers(n), floats(n), arrays(n) };
+			for (int p = 0; p < sources.length; p++) {
+				run(names[p], "ast", AST, sources[p], n, warmup, iterations);
+				run(names[p], "register", REGISTER, sources[p], n, warmup, iterations);
+				run(names[p], "bytecode", BYTECODE, sources[p], n, warmup, iterations);
+			}
+		}
+
+		if (sink == 42)
+			System.out.println();
+	}
+
+	// load a program on an engine, then run the warm-up and measured iterations and print the averages
+	private static void run(String name, String engine, Engine loader, String source, int loops, int warmup,
+			int iterations) throws IOException, ReflectiveOperationException {
+		SemanticAnalyzer semantic = new SemanticAnalyzer(new Parser(new Lexer(CharBuffer.wrap(source))));
+		DiagnosticCounter diagnostics = new DiagnosticCounter();
+		semantic.setDiagnosticSink(diagnostics);
+		semantic.analyzeProgram();
+		if (diagnostics.getCount(Severity.ERROR) > 0)
+			throw new IllegalStateException(name + " has " + diagnostics.getCount(Severity.ERROR) + " errors");
+
+		Executable executable = loader.load(semantic.getProgram(), semantic.getSymbolTable());
+		Variables variables = new Variables(semantic.getProgram().getList());
+
+		for (int i = 0; i < warmup; i++)
+			sink += execute(executable, variables);
+
+		long elapsed = 0;
+		long allocated = 0;
+		for (int i = 0; i < iterations; i++) {
+			long startBytes = allocatedBytes();
+			long startTime = System.nanoTime();
+			sink += execute(executable, variables);
+			elapsed += System.nanoTime() - startTime;
+			allocated += allocatedBytes() - startBytes;
+		}
+
+		double seconds = elapsed / 1e9 / iterations;
+		System.out.printf("%-10s %-10s %10d %12.3f %14.0f %14s%n", name, engine, loops, seconds * 1000,
+				loops / seconds, allocatedBytes() < 0 ? "n/a" : Long.toString(allocated / iterations));
+	}
+
+	// one run on a fresh memory
+	private static long execute(Executable executable, Variables variables) {
+		Memory memory = new Memory(variables);
+		executable.run(memory);
+		return memory.get(0).hashCode();
+	}
+
+	// bytes allocated by the current thread so far (-1 if the JVM does not track it)
+	private static long allocatedBytes() {
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+}
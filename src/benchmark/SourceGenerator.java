@@ -0,0 +1,166 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/*
+ * 
+ * Generates syntactically valid programs of a requested size for the
+ * benchmarks. Output is deterministic for a given size and seed; about a
+ * tenth of the source is declarations and the rest is a mix of
+ * assignments, array assignments, and nested if/while blocks.
+ * 
+ */
+
+public class SourceGenerator {
+	private final static String[] TYPES = { "int", "float", "char", "boolean" };
+	private final static String[] BINOPS = { "+", "-", "*", "/", "%", "<", ">", "<=", ">=", "==", "!=", "&&", "||" };
+
+	private Random random;
+	private StringBuilder source;
+	private ArrayList<String> variables; //declared single variables
+	private ArrayList<String> arrays; //declared array variables
+
+	public SourceGenerator(long seed) {
+		this.random = new Random(seed);
+	}
+
+	// generate a program of about size chars
+	public char[] generate(int size) {
+		source = new StringBuilder(size + 256);
+		variables = new ArrayList<String>();
+		arrays = new ArrayList<String>();
+
+		source.append("int main(){\n");
+
+		// declarations
+		int declarationsSize = Math.max(size / 10, 64);
+		while (source.length() < declarationsSize)
+			declaration();
+
+		// statements up to the requested size
+		while (source.length() < size)
+			statement(1);
+
+		source.append("}\n");
+
+		char[] chars = new char[source.length()];
+		source.getChars(0, chars.length, chars, 0);
+		source = null;
+		return chars;
+	}
+
+	// parse sizes like 512, 64k, 1m
+	public static int parseSize(String size) {
+		String lower = size.toLowerCase();
+		if (lower.endsWith("k"))
+			return Integer.parseInt(lower.substring(0, lower.length() - 1)) * 1024;
+		if (lower.endsWith("m"))
+			return Integer.parseInt(lower.substring(0, lower.length() - 1)) * 1024 * 1024;
+		return Integer.parseInt(lower);
+	}
+
+	// Declaration ::= Type Identifier [ [ Integer ] ] ;
+	private void declaration() {
+		String type = TYPES[random.nextInt(TYPES.length)];
+
+		if (random.nextInt(5) == 0) {
+			String name = "a" + arrays.size();
+			arrays.add(name);
+			source.append(type).append('[').append(1 + random.nextInt(100)).append("] ").append(name).append(";\n");
+		} else {
+			String name = "v" + variables.size();
+			variables.add(name);
+			source.append(type).append(' ').append(name).append(";\n");
+		}
+	}
+
+	// Statement ::= Assignment | IfStatement | WhileStatement
+	private void statement(int depth) {
+		indent(depth);
+		int kind = random.nextInt(depth < 3 ? 10 : 8);
+
+		if (kind < 6) {
+			source.append(variable()).append(" = ");
+			expression(3);
+			source.append(";\n");
+		} else if (kind < 8) {
+			source.append(array()).append('[').append(random.nextInt(10)).append("] = ");
+			expression(3);
+			source.append(";\n");
+		} else {
+			source.append(kind == 8 ? "if (" : "while (");
+			expression(2);
+			source.append(") {\n");
+			block(depth + 1);
+			indent(depth);
+			source.append("}\n");
+
+			if (kind == 8 && random.nextBoolean()) {
+				indent(depth);
+				source.append("else {\n");
+				block(depth + 1);
+				indent(depth);
+				source.append("}\n");
+			}
+		}
+	}
+
+	private void block(int depth) {
+		int count = 1 + random.nextInt(4);
+		for (int i = 0; i < count; i++)
+			statement(depth);
+	}
+
+	// Expression ::= Primary { Binop Primary }
+	private void expression(int depth) {
+		primary(depth);
+		int count = random.nextInt(3);
+		for (int i = 0; i < count; i++) {
+			source.append(' ').append(BINOPS[random.nextInt(BINOPS.length)]).append(' ');
+			primary(depth);
+		}
+	}
+
+	// Primary ::= Identifier [ [Integer] ] | Literal | ( Expression )
+	private void primary(int depth) {
+		switch (random.nextInt(depth > 0 ? 8 : 7)) {
+		case 0:
+			source.append(random.nextInt(1000));
+			break;
+		case 1:
+			source.append(random.nextInt(100)).append('.').append(random.nextInt(100));
+			break;
+		case 2:
+			source.append('\'').append((char) ('a' + random.nextInt(26))).append('\'');
+			break;
+		case 3:
+			source.append(random.nextBoolean());
+			break;
+		case 4:
+			source.append(array()).append('[').append(random.nextInt(10)).append(']');
+			break;
+		case 7:
+			source.append('(');
+			expression(depth - 1);
+			source.append(')');
+			break;
+		default:
+			source.append(variable());
+			break;
+		}
+	}
+
+	private String variable() {
+		return variables.isEmpty() ? "v0" : variables.get(random.nextInt(variables.size()));
+	}
+
+	private String array() {
+		return arrays.isEmpty() ? "a0" : arrays.get(random.nextInt(arrays.size()));
+	}
+
+	private void indent(int depth) {
+		for (int i = 0; i < depth; i++)
+			source.append("  ");
+	}
+}
@@ -0,0 +1,157 @@
+package diagnostic;
+
+import ast.Span;
+import lexer.LineTable;
+import lexer.TokenType;
+import semantic.ErrorType;
+
+/*
+ * 
+ * A single syntax, semantic or input error. Diagnostics only hold the raw
+ * fields; the report text is built by getMessage() when a sink actually
+ * needs it. Semantic errors and warnings are located at the span of the
+ * node they are about, converted to a line and column when reported. The
+ * span itself is kept too (syntax errors keep their token's), so an editor
+ * can mark the whole range.
+ * 
+ */
+
+public class Diagnostic {
+	private final Severity severity;
+	private final ErrorType errorType; //semantic or input error (null for syntax errors)
+	private final TokenType found; //token type found at a syntax error
+	private final TokenType expected; //token type expected at a syntax error
+	private final int lineNumber; //0 if unknown
+	private final int columnNumber; //0 if unknown
+	private final String symbol; //variable name or error detail (may be null)
+	private final long span; //source span the position is the start of (Span.NONE if unknown)
+
+	public Diagnostic(Severity severity, ErrorType errorType, TokenType found, TokenType expected, int lineNumber,
+			int columnNumber, String symbol) {
+		this(severity, errorType, found, expected, lineNumber, columnNumber, symbol, Span.NONE);
+	}
+
+	public Diagnostic(Severity severity, ErrorType errorType, TokenType found, TokenType expected, int lineNumber,
+			int columnNumber, String symbol, long span) {
+		this.severity = severity;
+		this.errorType = errorType;
+		this.found = found;
+		this.expected = expected;
+		this.lineNumber = lineNumber;
+		this.columnNumber = columnNumber;
+		this.symbol = symbol;
+		this.span = span;
+	}
+
+	// syntax error: found a token where another one was expected
+	public static Diagnostic syntax(TokenType found, TokenType expected, int lineNumber, int columnNumber) {
+		return new Diagnostic(Severity.ERROR, null, found, expected, lineNumber, columnNumber, null);
+	}
+
+	// syntax error at the span of the token found
+	public static Diagnostic syntax(TokenType found, TokenType expected, int lineNumber, int columnNumber, long span) {
+		return new Diagnostic(Severity.ERROR, null, found, expected, lineNumber, columnNumber, null, span);
+	}
+
+	// semantic error about a variable (symbol may be null)
+	public static Diagnostic semantic(ErrorType errorType, String symbol, int lineNumber, int columnNumber) {
+		return new Diagnostic(Severity.ERROR, errorType, null, null, lineNumber, columnNumber, symbol);
+	}
+
+	// warning about a valid but suspicious construct (symbol may be null)
+	public static Diagnostic warning(ErrorType errorType, String symbol, int lineNumber, int columnNumber) {
+		return new Diagnostic(Severity.WARNING, errorType, null, null, lineNumber, columnNumber, symbol);
+	}
+
+	// semantic error at the start of a node's span (no position if the span or line table is unknown)
+	public static Diagnostic semantic(ErrorType errorType, String symbol, LineTable lines, long span) {
+		if (lines == null || span == Span.NONE)
+			return semantic(errorType, symbol, 0, 0);
+		int offset = Span.offset(span);
+		return new Diagnostic(Severity.ERROR, errorType, null, null, lines.getLineNumber(offset),
+				lines.getColumnNumber(offset), symbol, span);
+	}
+
+	// warning at the start of a node's span (no position if the span or line table is unknown)
+	public static Diagnostic warning(ErrorType errorType, String symbol, LineTable lines, long span) {
+		if (lines == null || span == Span.NONE)
+			return warning(errorType, symbol, 0, 0);
+		int offset = Span.offset(span);
+		return new Diagnostic(Severity.WARNING, errorType, null, null, lines.getLineNumber(offset),
+				lines.getColumnNumber(offset), symbol, span);
+	}
+
+	public Severity getSeverity() {
+		return severity;
+	}
+
+	public ErrorType getErrorType() {
+		return errorType;
+	}
+
+	public TokenType getFound() {
+		return found;
+	}
+
+	public TokenType getExpected() {
+		return expected;
+	}
+
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	public int getColumnNumber() {
+		return columnNumber;
+	}
+
+	public String getSymbol() {
+		return symbol;
+	}
+
+	public long getSpan() {
+		return span;
+	}
+
+	// check if this is a syntax error
+	public boolean isSyntax() {
+		return errorType == null;
+	}
+
+	// format the error report
+	public String getMessage() {
+		if (errorType == null)
+			return "ERROR: " + found + " at line " + lineNumber + ", column " + columnNumber + "; Expected " + expected;
+
+		switch (errorType) {
+		case MULTIPLE_DECLARATION:
+		case NO_DECLARATION:
+			return "Declaration Error: " + errorType + ", variable (" + symbol + ")" + position();
+		case ARRAY_TO_SINGLE:
+		case SINGLE_TO_ARRAY:
+			return "Invalid Assignment: " + errorType + ", variable (" + symbol + ")" + position();
+		case INVALID_CONDITION:
+			return "Invalid Condition: " + errorType + position();
+		case INVALID_OPERAND:
+			return "Invalid Operand: " + errorType + ", operator (" + symbol + ")" + position();
+		case DIVISION_BY_ZERO:
+			return "Warning: " + errorType + position();
+		case CONSTANT_CONDITION:
+			return "Warning: " + errorType + ", always (" + symbol + ")" + position();
+		case IO_ERROR:
+			return symbol + "IOException occured in Lexer::getChar()";
+		default:
+			return "Casting Error: " + errorType + ", variable (" + symbol + ")" + position();
+		}
+	}
+
+	// location suffix of a semantic report (empty if unknown)
+	private String position() {
+		return (lineNumber > 0) ? " at line " + lineNumber + ", column " + columnNumber : "";
+	}
+
+	@Override
+	public String toString() {
+		return getMessage();
+	}
+}
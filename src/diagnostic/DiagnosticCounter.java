@@ -0,0 +1,27 @@
+package diagnostic;
+
+// only counts diagnostics by severity, messages are never formatted
+public class DiagnosticCounter implements DiagnosticSink {
+	private int[] counts;
+
+	public DiagnosticCounter() {
+		this.counts = new int[Severity.values().length];
+	}
+
+	public void report(Diagnostic diagnostic) {
+		counts[diagnostic.getSeverity().ordinal()]++;
+	}
+
+	public void flush() {}
+
+	public int getCount(Severity severity) {
+		return counts[severity.ordinal()];
+	}
+
+	public int getTotal() {
+		int total = 0;
+		for (int count : counts)
+			total += count;
+		return total;
+	}
+}
@@ -0,0 +1,27 @@
+package diagnostic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// keeps all diagnostics in memory for programmatic use
+public class DiagnosticList implements DiagnosticSink {
+	private List<Diagnostic> diagnostics;
+
+	public DiagnosticList() {
+		this.diagnostics = new ArrayList<Diagnostic>();
+	}
+
+	public void report(Diagnostic diagnostic) {
+		diagnostics.add(diagnostic);
+	}
+
+	public void flush() {}
+
+	public List<Diagnostic> getDiagnostics() {
+		return diagnostics;
+	}
+
+	public int size() {
+		return diagnostics.size();
+	}
+}
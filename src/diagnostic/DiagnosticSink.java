@@ -0,0 +1,9 @@
+package diagnostic;
+
+public interface DiagnosticSink {
+	// receive a diagnostic
+	public void report(Diagnostic diagnostic);
+
+	// push out any buffered diagnostics
+	public void flush();
+}
@@ -0,0 +1,38 @@
+package diagnostic;
+
+import java.io.PrintStream;
+
+// formats diagnostics in batches and writes each batch to a stream at once
+public class DiagnosticWriter implements DiagnosticSink {
+	private final static int BATCH_SIZE = 64; //diagnostics held before writing
+
+	private PrintStream out;
+	private Diagnostic[] batch;
+	private int size;
+
+	public DiagnosticWriter(PrintStream out) {
+		this.out = out;
+		this.batch = new Diagnostic[BATCH_SIZE];
+	}
+
+	public void report(Diagnostic diagnostic) {
+		batch[size++] = diagnostic;
+		if (size == batch.length)
+			flush();
+	}
+
+	public void flush() {
+		if (size == 0)
+			return;
+
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			text.append(batch[i].getMessage()).append(System.lineSeparator());
+			batch[i] = null;
+		}
+		size = 0;
+
+		out.print(text);
+		out.flush();
+	}
+}
@@ -0,0 +1,6 @@
+package diagnostic;
+
+public enum Severity {
+	ERROR, // the program is invalid
+	WARNING // the program is valid but likely wrong
+}
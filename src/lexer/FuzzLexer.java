@@ -0,0 +1,339 @@
+package lexer;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import diagnostic.DiagnosticCounter;
+
+/*
+ *
+ * Fuzz driver for the error recovery of Lexer and TableLexer. Random inputs
+ * built from malformed numbers and char literals, stray quotes and
+ * delimiters are scanned by both lexers, each scan bounded by a timeout, and
+ * their token streams must be identical, with lazy positions as well, and
+ * tile the input: every token but EOF spans at least one char, spans are in
+ * order, only whitespace lies between them, and a malformed token (UNKNOWN)
+ * never spans whitespace.
+ * Then adversarial inputs of growing size are timed, and the time per char
+ * must stay flat (linear time): it may grow at most MAX_STEP_GROWTH from a
+ * size to the next (4x) one, and the time fitted to size^k over all sizes
+ * must have k <= MAX_EXPONENT, which an n log n scan already exceeds.
+ * The timed scans count their tokens instead of keeping them, so the
+ * garbage collector does not add its own growth to the lexers', and the
+ * CPU time of the scanning thread is measured, which the JIT compiler,
+ * the garbage collector and other processes on the same core do not add to.
+ *
+ * Usage: java lexer.FuzzLexer [-seed N] [-cases N] [-size N]
+ *
+ */
+
+public class FuzzLexer {
+	// input fragments, weighted to malformed tokens
+	private final static String[] FRAGMENTS = { "1", "42", ".", "1.", "1.x", "3.14", "1.2.3", "'", "''", "'a'",
+			"'a", "'ab'", "'1'", "'\u00e9'", "x", "abc", "\u00e9", "@", "#", "&", "|", "&&", "=", "!=", ";", "(", ")", "[",
+			"]", "{", "}", "+", "-", " ", " ", "\t", "\n", "\r\n", "\r", "99999999999", "1.99999999999" };
+
+	// adversarial inputs for the timing check, built for a size
+	private interface Family {
+		public String build(int size);
+	}
+
+	private final static Family[] FAMILIES = { new Family() {
+		public String build(int size) {
+			return "1." + repeat("x", size - 2); //one malformed number up to the end of input
+		}
+	}, new Family() {
+		public String build(int size) {
+			return "'" + repeat("a", size - 1); //one malformed char literal up to the end of input
+		}
+	}, new Family() {
+		public String build(int size) {
+			return repeat("1.", size / 2); //a malformed number ending at every other char
+		}
+	}, new Family() {
+		public String build(int size) {
+			return repeat("'", size); //empty char literals
+		}
+	}, new Family() {
+		public String build(int size) {
+			return repeat("'1'", size / 3); //malformed char literals
+		}
+	}, new Family() {
+		public String build(int size) {
+			return repeat("1.x;", size / 4); //malformed numbers ended by a delimiter
+		}
+	} };
+	private final static String[] FAMILY_NAMES = { "1.xxx", "'aaa", "1.1.", "'''", "'1''1'", "1.x;" };
+
+	private final static long TIMEOUT = 10; //seconds a scan may take
+	private final static double MAX_STEP_GROWTH = 2; //largest growth of the time per char from a size to the next (quadratic time grows 4x)
+	private final static double MAX_EXPONENT = 1.05; //largest exponent of the time fitted to size^k (n log n fits 1.08 over the sizes)
+	private final static int WARMUP_RUNS = 10; //scans of the smallest size before timing, so the JIT compiled the lexers
+
+	private static ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable task) {
+			// a scan that never ends must not keep the JVM alive
+			Thread thread = new Thread(task, "scanner");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	public static void main(String[] args) throws InterruptedException {
+		long seed = 1;
+		int cases = 2000;
+		int size = 200;
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-seed") && i + 1 < args.length)
+				seed = Long.parseLong(args[++i]);
+			else if (args[i].equals("-cases") && i + 1 < args.length)
+				cases = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-size") && i + 1 < args.length)
+				size = Integer.parseInt(args[++i]);
+		}
+
+		int failures = 0;
+		Random random = new Random(seed);
+		for (int i = 0; i < cases; i++) {
+			String input = randomInput(random, random.nextInt(size + 1));
+			String failure = check(input);
+			if (failure != null) {
+				failures++;
+				if (failures <= 10)
+					System.err.println("case " + i + " " + quote(input) + ": " + failure);
+			}
+		}
+		System.out.println(cases + " random inputs, " + failures + " failed");
+
+		int slow = 0;
+		for (int f = 0; f < FAMILIES.length; f++) {
+			if (!timeFamily(FAMILY_NAMES[f], FAMILIES[f]))
+				slow++;
+		}
+		System.out.println(FAMILIES.length + " adversarial inputs, " + slow + " not linear");
+
+		if (failures > 0 || slow > 0)
+			System.exit(1);
+	}
+
+	private static String randomInput(Random random, int size) {
+		StringBuilder input = new StringBuilder(size + 16);
+		while (input.length() < size)
+			input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+		return input.toString();
+	}
+
+	private static String repeat(String text, int count) {
+		StringBuilder repeated = new StringBuilder(text.length() * Math.max(count, 0));
+		for (int i = 0; i < count; i++)
+			repeated.append(text);
+		return repeated.toString();
+	}
+
+	// input as a Java string literal
+	private static String quote(String input) {
+		return "\"" + input.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "\\r")
+				.replace("\t", "\\t") + "\"";
+	}
+
+	// scan an input with both lexers and check their tokens, returns null if they pass
+	private static String check(String input) throws InterruptedException {
+		List<Token> tokens;
+		List<Token> tableTokens;
+		List<Token> lazyTokens;
+		List<Token> lazyTableTokens;
+		try {
+			tokens = scan(input, false, false);
+			tableTokens = scan(input, true, false);
+			lazyTokens = scan(input, false, true);
+			lazyTableTokens = scan(input, true, true);
+		} catch (TimeoutException e) {
+			return "scan did not end in " + TIMEOUT + "s";
+		} catch (ExecutionException e) {
+			return "scan failed: " + e.getCause();
+		}
+
+		String mismatch = compare(tokens, tableTokens, "TableLexer");
+		if (mismatch == null)
+			mismatch = compare(tokens, lazyTokens, "lazy Lexer");
+		if (mismatch == null)
+			mismatch = compare(tokens, lazyTableTokens, "lazy TableLexer");
+		if (mismatch != null)
+			return mismatch;
+
+		// the tokens tile the input, separated by whitespace only
+		int end = 0;
+		for (int i = 0; i < tokens.size(); i++) {
+			Token token = tokens.get(i);
+			boolean eof = token.getType() == TokenType.EOF;
+			if (eof != (i == tokens.size() - 1))
+				return "EOF is not the last token";
+			if (token.getOffset() < end || token.getOffset() + token.getLength() > input.length())
+				return "token " + (i + 1) + " spans " + token.getOffset() + "+" + token.getLength() + " out of order";
+			if (!eof && token.getLength() == 0)
+				return "token " + (i + 1) + " is empty";
+			for (int c = end; c < token.getOffset(); c++) {
+				if (!Character.isWhitespace(input.charAt(c)))
+					return "char " + c + " is skipped";
+			}
+			if (token.getType() == TokenType.UNKNOWN) {
+				for (int c = token.getOffset(); c < token.getOffset() + token.getLength(); c++) {
+					if (Character.isWhitespace(input.charAt(c)))
+						return "token " + (i + 1) + " spans whitespace";
+				}
+			}
+			end = token.getOffset() + token.getLength();
+		}
+		return null;
+	}
+
+	// the first difference of a token stream from the Lexer's, null if there is none
+	private static String compare(List<Token> tokens, List<Token> others, String other) {
+		for (int i = 0; i < Math.min(tokens.size(), others.size()); i++) {
+			String expected = TestTableLexer.describe(tokens.get(i));
+			String actual = TestTableLexer.describe(others.get(i));
+			if (!expected.equals(actual))
+				return "token " + (i + 1) + ": Lexer " + expected + ", " + other + " " + actual;
+		}
+		if (tokens.size() != others.size())
+			return "Lexer read " + tokens.size() + " tokens, " + other + " " + others.size();
+		return null;
+	}
+
+	// all tokens of an input through EOF, on the scanner thread
+	private static List<Token> scan(final String input, final boolean table, final boolean lazy)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		Future<List<Token>> result = executor.submit(new Callable<List<Token>>() {
+			public List<Token> call() throws IOException {
+				TokenSource lexer;
+				if (table) {
+					TableLexer tableLexer = new TableLexer(CharBuffer.wrap(input));
+					tableLexer.setLazyPositions(lazy);
+					lexer = tableLexer;
+				} else {
+					Lexer handWritten = new Lexer(CharBuffer.wrap(input));
+					handWritten.setDiagnosticSink(new DiagnosticCounter());
+					handWritten.setLazyPositions(lazy);
+					lexer = handWritten;
+				}
+
+				// every token but EOF consumes a char, so more tokens than chars means a loop
+				List<Token> tokens = new ArrayList<Token>();
+				Token token;
+				do {
+					token = lexer.getToken();
+					tokens.add(token);
+					if (tokens.size() > input.length() + 1)
+						throw new IllegalStateException("more tokens than input chars");
+				} while (token.getType() != TokenType.EOF);
+				return tokens;
+			}
+		});
+
+		try {
+			return result.get(TIMEOUT, TimeUnit.SECONDS);
+		} finally {
+			result.cancel(true);
+		}
+	}
+
+	// the CPU nanoseconds both lexers take to scan an input through EOF on the scanner thread, counting the tokens only
+	private static long time(final String input) throws InterruptedException, ExecutionException, TimeoutException {
+		Future<Long> result = executor.submit(new Callable<Long>() {
+			public Long call() throws IOException {
+				ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+				long startTime = threads.getCurrentThreadCpuTime();
+				Lexer lexer = new Lexer(CharBuffer.wrap(input));
+				lexer.setDiagnosticSink(new DiagnosticCounter());
+				TableLexer tableLexer = new TableLexer(CharBuffer.wrap(input));
+				int tokens = 0;
+				while (lexer.getToken().getType() != TokenType.EOF)
+					tokens++;
+				while (tableLexer.getToken().getType() != TokenType.EOF)
+					tokens--;
+				if (tokens != 0)
+					throw new IllegalStateException("the lexers read different numbers of tokens");
+				return threads.getCurrentThreadCpuTime() - startTime;
+			}
+		});
+
+		try {
+			return result.get(TIMEOUT, TimeUnit.SECONDS);
+		} finally {
+			result.cancel(true);
+		}
+	}
+
+	// time both lexers on growing inputs of a family, returns false if the time per char grows
+	private static boolean timeFamily(String name, Family family) throws InterruptedException {
+		int[] sizes = { 1 << 16, 1 << 18, 1 << 20, 1 << 22 };
+		double[] nanosPerChar = new double[sizes.length];
+
+		for (int s = 0; s < sizes.length; s++) {
+			String input = family.build(sizes[s]);
+			String failure = null;
+			long best = Long.MAX_VALUE;
+			try {
+				for (int run = 0; s == 0 && run < WARMUP_RUNS; run++)
+					time(input);
+				// best of a few runs
+				for (int run = 0; run < 5; run++)
+					best = Math.min(best, time(input));
+			} catch (TimeoutException e) {
+				failure = "did not end in " + TIMEOUT + "s";
+			} catch (ExecutionException e) {
+				failure = "failed: " + e.getCause();
+			}
+			if (failure != null) {
+				System.err.println(name + " at " + sizes[s] + " chars " + failure);
+				return false;
+			}
+			nanosPerChar[s] = (double) best / input.length();
+		}
+
+		// least squares slope of log(time) over log(size), 1 for linear time
+		double meanSize = 0, meanTime = 0;
+		for (int s = 0; s < sizes.length; s++) {
+			meanSize += Math.log(sizes[s]) / sizes.length;
+			meanTime += Math.log(nanosPerChar[s] * sizes[s]) / sizes.length;
+		}
+		double covariance = 0, variance = 0;
+		for (int s = 0; s < sizes.length; s++) {
+			double size = Math.log(sizes[s]) - meanSize;
+			covariance += size * (Math.log(nanosPerChar[s] * sizes[s]) - meanTime);
+			variance += size * size;
+		}
+		double exponent = covariance / variance;
+
+		System.out.printf("%-8s %8.1f ns/char at %d chars, %8.1f ns/char at %d chars, time ~ size^%.2f%n", name,
+				nanosPerChar[0], sizes[0], nanosPerChar[sizes.length - 1], sizes[sizes.length - 1], exponent);
+		boolean linear = true;
+		for (int s = 1; s < sizes.length; s++) {
+			double growth = nanosPerChar[s] / nanosPerChar[s - 1];
+			if (growth > MAX_STEP_GROWTH) {
+				System.err.println(name + " time per char grew " + String.format("%.1f", growth) + "x from "
+						+ sizes[s - 1] + " to " + sizes[s] + " chars");
+				linear = false;
+			}
+		}
+		if (exponent > MAX_EXPONENT) {
+			System.err.println(name + " time grows as size^" + String.format("%.2f", exponent));
+			linear = false;
+		}
+		return linear;
+	}
+}
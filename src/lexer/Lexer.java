@@ -4,21 +4,53 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
-public class Lexer {
-	private BufferedReader stream; //input stream reader
+import diagnostic.Diagnostic;
+import diagnostic.DiagnosticSink;
+import diagnostic.DiagnosticWriter;
+import diagnostic.Severity;
+import semantic.ErrorType;
+
+public class Lexer implements TokenSource {
+	private BufferedReader stream; //input stream reader (null in buffer mode)
+	private char[] chars; //input characters in char buffer mode
+	private ByteBuffer bytes; //input bytes in byte buffer mode
+	private int start; //offset of the first input char in the buffer
+	private int position; //offset of the next char to read
+	private int limit; //offset past the last input char in the buffer
 	private Token nextToken;
 	private int nextChar;
+	private char[] lexeme = new char[32]; //reusable buffer for the chars of the current lexeme
+	private int lexemeLength; //number of chars in the lexeme buffer
+	private NamePool names = new NamePool(); //pool of identifier names and symbol ids
 	private int lineNumber = 1; //current line number
-	private int columnNumber = 1; //current column number
+	private int lineStart; //offset of the first char of the current line
+	private int lineColumn = 1; //column number at lineStart
+	private int lineTabs; //widened tabs passed on the current line
+	private int tokenOffset; //offset of the first char of the token being scanned
+	private LineTable lines = new LineTable(); //line starts passed so far
+	private boolean lazyPositions; //tokens look up their line and column only when asked
 
 	private final static Map<String, TokenType> reservedWords; //reserved words dictionary
 	private final static Map<Character, TokenType> punctuation; //punctuation characters dictionary
 	private final static Map<String, TokenType> operators; //operator characters dictionary
+	private final static String DELIMITERS = "()[]{};,=!<>+-*/%&|'"; //chars that end a malformed token
+
+	final static long MAX_EXACT_MANTISSA = 1 << 24; //largest mantissa a float holds exactly
+	final static float[] FLOAT_POWERS_OF_TEN = { //powers of ten a float holds exactly
+		1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
 	
 	private int errors; //number of errors
+	private DiagnosticSink diagnostics = new DiagnosticWriter(System.err); //receives input errors
 
 	static {
 		reservedWords = new HashMap<String, TokenType>();
@@ -64,44 +96,176 @@ public class Lexer {
 		this.stream = new BufferedReader(file);
 		nextChar = getChar();
 	}
+
+	// scan the remaining chars of a char buffer without going through a reader
+	public Lexer(CharBuffer buffer) {
+		if (buffer.hasArray()) {
+			this.chars = buffer.array();
+			this.start = buffer.arrayOffset() + buffer.position();
+			this.limit = buffer.arrayOffset() + buffer.limit();
+		} else {
+			// read-only or direct buffer, copy it once into an array
+			this.chars = new char[buffer.remaining()];
+			buffer.duplicate().get(chars);
+			this.start = 0;
+			this.limit = chars.length;
+		}
+		this.position = start;
+		nextChar = getChar();
+	}
+
+	// scan the remaining bytes of a byte buffer, each byte is one (ASCII) source char
+	public Lexer(ByteBuffer buffer) {
+		this.bytes = buffer;
+		this.start = buffer.position();
+		this.position = start;
+		this.limit = buffer.limit();
+		nextChar = getChar();
+	}
+
+	// create a lexer that scans a memory-mapped source file
+	public static Lexer map(String path) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		try {
+			// the mapping stays valid after the channel is closed
+			return new Lexer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			channel.close();
+		}
+	}
 	
 	public int getErrors() {
 		return errors;
 	}
 
+	// pool used to give identifiers their names and symbol ids
+	public NamePool getNamePool() {
+		return names;
+	}
+
+	// share a name pool (e.g. across several files), set before the first identifier is scanned
+	public void setNamePool(NamePool names) {
+		this.names = names;
+	}
+
+	// redirect input error reports (written to System.err by default)
+	public void setDiagnosticSink(DiagnosticSink diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+
+	// offset of the next unread char from the start of the input
+	public int getOffset() {
+		return position - start;
+	}
+
+	// number lines and columns from a position other than 1:1, for input that is a slice of a larger text
+	public void setStartPosition(int lineNumber, int columnNumber) {
+		this.lineNumber = lineNumber;
+		this.lineColumn = columnNumber;
+		this.lines = new LineTable(lineNumber, columnNumber);
+	}
+
+	// give tokens only their offset and resolve their line and column in the line table when asked,
+	// for a reader that needs few positions (not for one on another thread, see TokenPipeline)
+	public void setLazyPositions(boolean lazyPositions) {
+		this.lazyPositions = lazyPositions;
+	}
+
+	// line starts of the input scanned so far, for converting offsets to positions
+	public LineTable getLineTable() {
+		return lines;
+	}
+
+	// offset of nextChar (the end of input once it is reached)
+	private int nextOffset() {
+		return (nextChar == -1) ? getOffset() : getOffset() - 1;
+	}
+
+	// column of an offset on the current line
+	private int column(int offset) {
+		return lineColumn + offset - lineStart + 3 * lineTabs;
+	}
+
+	// token starting at tokenOffset
+	private Token token(TokenType type, TokenAttribute attribute) {
+		if (lazyPositions)
+			return new Token(type, attribute, lines);
+		return new Token(type, attribute, lineNumber, column(tokenOffset));
+	}
+
 	// handles I/O for char stream
 	private int getChar() {
+		if (chars != null)
+			return (position < limit) ? chars[position++] : -1;
+
+		if (bytes != null)
+			return (position < limit) ? (bytes.get(position++) & 0xff) : -1;
+
 		try {
-			return stream.read();
+			int c = stream.read();
+			if (c != -1)
+				position++;
+			return c;
 		} catch (IOException e) {
-			System.err.print(e.getMessage());
-			System.err.println("IOException occured in Lexer::getChar()");
+			errors++;
+			diagnostics.report(new Diagnostic(Severity.ERROR, ErrorType.IO_ERROR, null, null, lineNumber, column(getOffset()), e.getMessage()));
 			return -1;
 		}
 	}
 
+	// add a char to the lexeme buffer, growing it when full
+	private void appendChar(int c) {
+		if (lexemeLength == lexeme.length)
+			lexeme = Arrays.copyOf(lexeme, lexemeLength * 2);
+		lexeme[lexemeLength++] = (char) c;
+	}
+
+	// value of a float literal from its digits read as one integer mantissa, chars[start..start+length) is the literal
+	static float floatValue(long mantissa, int fractionDigits, boolean overflow, char[] chars, int start, int length) {
+		// both operands are exact floats so the division is correctly rounded
+		if (!overflow && mantissa <= MAX_EXACT_MANTISSA && fractionDigits < FLOAT_POWERS_OF_TEN.length)
+			return mantissa / FLOAT_POWERS_OF_TEN[fractionDigits];
+
+		// too many digits for the fast path
+		return Float.parseFloat(new String(chars, start, length));
+	}
+
+	// skip the rest of a malformed token up to whitespace, a delimiter or the end of input,
+	// each char is read once and nothing is buffered
+	private void skipMalformed() {
+		while (nextChar != -1 && !Character.isWhitespace(nextChar) && DELIMITERS.indexOf(nextChar) < 0)
+			nextChar = getChar();
+	}
+
 	// detect and skip possible '\n', '\r' and '\rn' line breaks
 	private boolean skipNewline() {
 		if (nextChar == '\n') {
-			lineNumber++;
-			columnNumber = 1;
 			nextChar = getChar();
+			startLine();
 			return true;
 		}
 		if (nextChar == '\r') {
-			lineNumber++;
-			columnNumber = 1;
 			nextChar = getChar();
 
 			// skip over next char if '\n'
 			if (nextChar == '\n')
 				nextChar = getChar();
+			startLine();
 			return true;
 		}
 		// newline char not found
 		return false;
 	}
 
+	// a line starts at nextChar
+	private void startLine() {
+		lineNumber++;
+		lineStart = nextOffset();
+		lineColumn = 1;
+		lineTabs = 0;
+		lines.addLine(lineStart);
+	}
+
 	// return the next token without consuming it
 	public Token peek() throws IOException {
 		// advance token only if its been reset by getToken()
@@ -120,223 +284,233 @@ public class Lexer {
 			return token;
 		}
 
+		Token token = scanToken();
+		token.setSpan(tokenOffset, nextOffset() - tokenOffset);
+		return token;
+	}
+
+	// scan the next token from the input
+	private Token scanToken() throws IOException {
 		// skip whitespace character
 		while (Character.isWhitespace(nextChar)) {
 			// check if whitespace char is a newline
-			if (!skipNewline()) {
-				columnNumber++;
+			if (!skipNewline())
 				nextChar = getChar();
-			}
 
 			// offset colNum for tab chars
-			if (nextChar == '\t')
-				columnNumber += 3;
+			if (nextChar == '\t') {
+				lineTabs++;
+				lines.addTab(nextOffset());
+			}
 		}
 
+		// nextChar has already been read from the input unless it is the end
+		tokenOffset = nextOffset();
+
 		// identifier or reserved word ([a-zA-Z][a-zA-Z0-9_]*)
 		if (Character.isLetter(nextChar)) {
-			// create new idVal starting with first char of identifier
-			String current = Character.toString((char) nextChar);
-			columnNumber++;
+			// start lexeme with first char of identifier
+			lexemeLength = 0;
+			appendChar(nextChar);
 			nextChar = getChar();
 
 			// include remaining sequence of chars that are letters, digits, or _
 			while (Character.isLetterOrDigit(nextChar)) {
-				current += (char) nextChar;
-				columnNumber++;
+				appendChar(nextChar);
 				nextChar = getChar();
 			}
 
+			// only the first occurrence of a name allocates a String
+			int symbol = names.intern(lexeme, lexemeLength);
+			String current = names.name(symbol);
+
 			// check if identifier is a reserved word
 			TokenType type = reservedWords.get(current);
 
 			if (type != null)
-				return new Token(type, new TokenAttribute(), lineNumber, columnNumber - current.length());
+				return token(type, TokenAttribute.NONE);
 
 			if(current.equals("true")) 
-				return new Token(TokenType.BOOLEAN_CONST, new TokenAttribute(true), lineNumber, columnNumber - current.length());
+				return token(TokenType.BOOLEAN_CONST, new TokenAttribute(true));
 			else if(current.equals("false"))
-				return new Token(TokenType.BOOLEAN_CONST, new TokenAttribute(false), lineNumber, columnNumber - current.length());
+				return token(TokenType.BOOLEAN_CONST, new TokenAttribute(false));
 
 			// token is an identifier
-			return new Token(TokenType.ID, new TokenAttribute(current), lineNumber, columnNumber - current.length());
+			return token(TokenType.ID, new TokenAttribute(current, symbol));
 		}
 
 		// integer literal ([0-9]+) OR float literal ([0-9]+.[0-9]+)
 		if (Character.isDigit(nextChar)) {
 
-			// create string representation of number
-			String numString = Character.toString((char) nextChar);
-			columnNumber++;
-			nextChar = getChar();
+			// accumulate the value while reading the digits
+			lexemeLength = 0;
+			long intValue = 0;
+			boolean overflow = false;
 
-			// concatenate remaining sequence of digits
 			while (Character.isDigit(nextChar)) {
-				numString += (char) nextChar;
-				columnNumber++;
+				appendChar(nextChar);
+				intValue = intValue * 10 + (nextChar - '0');
+				if (intValue > Integer.MAX_VALUE) {
+					overflow = true;
+					intValue = Integer.MAX_VALUE;
+				}
 				nextChar = getChar();
 			}
 			
 			if(nextChar == '.'){
-				//stream.mark(0);
+				appendChar('.');
 				nextChar = getChar();
-				columnNumber++;
 				
 				if(Character.isDigit(nextChar)){
-					numString += '.';
+					long mantissa = intValue;
+					int fractionDigits = 0;
+
 					// concatenate remaining sequence of digits
 					while (Character.isDigit(nextChar)) {
-						numString += (char) nextChar;
-						columnNumber++;
+						appendChar(nextChar);
+						if (mantissa <= MAX_EXACT_MANTISSA) {
+							mantissa = mantissa * 10 + (nextChar - '0');
+							fractionDigits++;
+						} else
+							overflow = true;
 						nextChar = getChar();
 					}
 					
-					return new Token(TokenType.FLOAT_CONST, new TokenAttribute(Float.parseFloat(numString)), lineNumber, columnNumber - numString.length());
-				}
-				while(!Character.isWhitespace(nextChar)){
-					columnNumber++;
-					numString += nextChar;
-					nextChar = getChar();
+					return token(TokenType.FLOAT_CONST, new TokenAttribute(floatValue(mantissa, fractionDigits, overflow, lexeme, 0, lexemeLength)));
 				}
-				
-				return new Token(TokenType.UNKNOWN, new TokenAttribute(), lineNumber, columnNumber - numString.length() + 1);
+				// malformed float literal, one token up to the next delimiter
+				skipMalformed();
+				return token(TokenType.UNKNOWN, TokenAttribute.NONE);
 			}
 
+			// integer literal too large for an int
+			if (overflow)
+				return token(TokenType.UNKNOWN, TokenAttribute.NONE);
+
 			// return integer literal token
-			return new Token(TokenType.INT_CONST, new TokenAttribute(Integer.parseInt(numString)), lineNumber, columnNumber - numString.length());
+			return token(TokenType.INT_CONST, new TokenAttribute((int) intValue));
 		}
 
 		if(nextChar == '\''){
 			nextChar = getChar();
-			columnNumber++;
 			if(Character.isAlphabetic(nextChar)){
 				char current = (char) nextChar;
-				stream.mark(0);
 				nextChar = getChar();
-				columnNumber++;
 
 				if(nextChar == '\''){
 					nextChar = getChar();
-					columnNumber++;
-					return new Token(TokenType.CHAR_CONST, new TokenAttribute(current), lineNumber, columnNumber - 1);
+					return token(TokenType.CHAR_CONST, new TokenAttribute(current));
 				}
-				stream.reset();
 			}
 
-			return new Token(TokenType.UNKNOWN, new TokenAttribute(), lineNumber, columnNumber - 1);
+			// malformed char literal, one token up to the next delimiter and through a closing quote
+			skipMalformed();
+			if (nextChar == '\'')
+				nextChar = getChar();
+			return token(TokenType.UNKNOWN, TokenAttribute.NONE);
 		}
 
 		// EOF reached
-		if (nextChar == -1)
-			return new Token(TokenType.EOF, new TokenAttribute(), lineNumber, columnNumber);
+		if (nextChar == -1) {
+			diagnostics.flush();
+			return token(TokenType.EOF, TokenAttribute.NONE);
+		}
 
 		// check for binops
 		switch (nextChar) {
 		
 		case '&':
-			columnNumber++;
 			nextChar = getChar();
 
 			// check if next char is '&' to match '&&' binop
 			if (nextChar == '&') {
 				nextChar = getChar();
-				return new Token(TokenType.AND, new TokenAttribute(), lineNumber, columnNumber - 2);
+				return token(TokenType.AND, TokenAttribute.NONE);
 			} else
-				return new Token(TokenType.UNKNOWN, new TokenAttribute(), lineNumber, columnNumber - 1);
+				return token(TokenType.UNKNOWN, TokenAttribute.NONE);
 
 		case '|':
-			columnNumber++;
 			nextChar = getChar();
 
 			// check if next char is '|' to match '||' binop
 			if (nextChar == '|') {
 				nextChar = getChar();
-				return new Token(TokenType.OR, new TokenAttribute(), lineNumber, columnNumber - 2);
+				return token(TokenType.OR, TokenAttribute.NONE);
 			} else
-				return new Token(TokenType.UNKNOWN, new TokenAttribute(), lineNumber, columnNumber - 1);
+				return token(TokenType.UNKNOWN, TokenAttribute.NONE);
 
 		case '=':
-			columnNumber++;
 			nextChar = getChar();
 
 			// check if next char is '=' to match '==' binop
 			if (nextChar == '=') {
 				nextChar = getChar();
-				return new Token(TokenType.EQ, new TokenAttribute(), lineNumber, columnNumber - 2);
+				return token(TokenType.EQ, TokenAttribute.NONE);
 			}
 			else 
-				return new Token(TokenType.ASSIGN, new TokenAttribute(), lineNumber, columnNumber - 1);
+				return token(TokenType.ASSIGN, TokenAttribute.NONE);
 
 		case '!':
-			columnNumber++;
 			nextChar = getChar();
 
 			// check if next char is '!' to match '!=' binop
 			if (nextChar == '=') {
 				nextChar = getChar();
-				return new Token(TokenType.NEQ, new TokenAttribute(), lineNumber, columnNumber - 2);
+				return token(TokenType.NEQ, TokenAttribute.NONE);
 			}
 			else 
-				return new Token(TokenType.NOT, new TokenAttribute(), lineNumber, columnNumber - 1);
+				return token(TokenType.NOT, TokenAttribute.NONE);
 
 		case '<':
-			columnNumber++;
 			nextChar = getChar();
 
 			// check if next char is '<' to match '<=' binop
 			if (nextChar == '=') {
 				nextChar = getChar();
-				return new Token(TokenType.LT_EQ, new TokenAttribute(), lineNumber, columnNumber - 2);
+				return token(TokenType.LT_EQ, TokenAttribute.NONE);
 			} else
-				return new Token(TokenType.LT, new TokenAttribute(), lineNumber, columnNumber - 1);
+				return token(TokenType.LT, TokenAttribute.NONE);
 
 		case '>':
-			columnNumber++;
 			nextChar = getChar();
 
 			// check if next char is '<' to match '<=' binop
 			if (nextChar == '=') {
 				nextChar = getChar();
-				return new Token(TokenType.RT_EQ, new TokenAttribute(), lineNumber, columnNumber - 2);
+				return token(TokenType.RT_EQ, TokenAttribute.NONE);
 			} else
-				return new Token(TokenType.RT, new TokenAttribute(), lineNumber, columnNumber - 1);
+				return token(TokenType.RT, TokenAttribute.NONE);
 
 		case '+':
-			columnNumber++;
 			nextChar = getChar();
-			return new Token(TokenType.PLUS, new TokenAttribute(), lineNumber, columnNumber - 1);
+			return token(TokenType.PLUS, TokenAttribute.NONE);
 
 		case '-':
-			columnNumber++;
 			nextChar = getChar();
-			return new Token(TokenType.MINUS, new TokenAttribute(), lineNumber, columnNumber - 1);
+			return token(TokenType.MINUS, TokenAttribute.NONE);
 
 		case '*':
-			columnNumber++;
 			nextChar = getChar();
-			return new Token(TokenType.TIMES, new TokenAttribute(), lineNumber, columnNumber - 1);
+			return token(TokenType.TIMES, TokenAttribute.NONE);
 
 		case '/':
-			columnNumber++;
 			nextChar = getChar();
-			return new Token(TokenType.DIV, new TokenAttribute(), lineNumber, columnNumber - 1);
+			return token(TokenType.DIV, TokenAttribute.NONE);
 
 		case '%':
-			columnNumber++;
 			nextChar = getChar();
-			return new Token(TokenType.MOD, new TokenAttribute(), lineNumber, columnNumber - 1);
+			return token(TokenType.MOD, TokenAttribute.NONE);
 		}
 
 		// check for punctuation
 		TokenType type = punctuation.get((char) nextChar);
-		columnNumber++;
 		nextChar = getChar();
 
 		// found punctuation token
 		if (type != null)
-			return new Token(type, new TokenAttribute(), lineNumber, columnNumber - 1);
+			return token(type, TokenAttribute.NONE);
 
 		// token type is unknown
-		return new Token(TokenType.UNKNOWN, new TokenAttribute(), lineNumber, columnNumber - 1);
+		return token(TokenType.UNKNOWN, TokenAttribute.NONE);
 	}
 }
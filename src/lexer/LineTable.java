@@ -0,0 +1,90 @@
+package lexer;
+
+import java.util.Arrays;
+
+/*
+ *
+ * Offsets of the line starts of an input, filled in by the lexer as it
+ * passes line breaks, for converting char offsets (e.g. of a Span) to line
+ * and column numbers only when a position is reported. Columns are counted
+ * the way the lexers count them: one per char, plus 3 for each tab the
+ * lexer widened, which it records here as well.
+ *
+ * A table is written by one lexer and may be read by any thread once that
+ * lexer has scanned past the offsets looked up.
+ *
+ */
+
+public class LineTable {
+	private int[] lineStarts = new int[64]; //offset of the first char of each line
+	private int lines = 1; //the first line starts at offset 0
+	private int[] tabs = new int[16]; //offsets of the widened tabs
+	private int tabCount;
+	private int firstLine; //numbers of the first line and of the column at offset 0
+	private int firstColumn;
+
+	public LineTable() {
+		this(1, 1);
+	}
+
+	// numbering from a position other than 1:1, for input that is a slice of a larger text
+	public LineTable(int firstLine, int firstColumn) {
+		this.firstLine = firstLine;
+		this.firstColumn = firstColumn;
+	}
+
+	// a new line starts at an offset (after the previous line starts)
+	public void addLine(int offset) {
+		if (lines == lineStarts.length)
+			lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+		lineStarts[lines++] = offset;
+	}
+
+	// the tab at an offset counts 4 columns
+	public void addTab(int offset) {
+		if (tabCount == tabs.length)
+			tabs = Arrays.copyOf(tabs, tabCount * 2);
+		tabs[tabCount++] = offset;
+	}
+
+	// number of lines started so far
+	public int getLineCount() {
+		return lines;
+	}
+
+	// offset of the first char of a line
+	public int getLineStart(int lineNumber) {
+		return lineStarts[lineNumber - firstLine];
+	}
+
+	public int getLineNumber(int offset) {
+		return firstLine + lineIndex(offset);
+	}
+
+	public int getColumnNumber(int offset) {
+		int line = lineIndex(offset);
+		int start = lineStarts[line];
+		int column = (line == 0) ? firstColumn : 1;
+		return column + offset - start + 3 * (countTabs(offset) - countTabs(start));
+	}
+
+	// index of the last line starting at or before an offset
+	private int lineIndex(int offset) {
+		int low = 0;
+		int high = lines - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (lineStarts[middle] <= offset)
+				low = middle;
+			else
+				high = middle - 1;
+		}
+		return low;
+	}
+
+	// number of widened tabs before an offset
+	private int countTabs(int offset) {
+		int index = Arrays.binarySearch(tabs, 0, tabCount, offset);
+		return (index >= 0) ? index : -index - 1;
+	}
+}
@@ -0,0 +1,120 @@
+package lexer;
+
+import java.util.Arrays;
+
+public class NamePool {
+	private int[] table; //open addressing hash table of symbol ids + 1 (0 marks an empty slot)
+	private String[] names; //pooled names indexed by symbol id
+	private int size; //number of pooled names
+
+	public NamePool() {
+		this.table = new int[64];
+		this.names = new String[32];
+	}
+
+	// number of distinct names in the pool (symbol ids are 0..size-1)
+	public int size() {
+		return size;
+	}
+
+	// canonical name of a symbol id
+	public String name(int symbol) {
+		return names[symbol];
+	}
+
+	// return the symbol id for chars[0..length), creating it only the first time it is seen
+	public int intern(char[] chars, int length) {
+		return intern(chars, 0, length);
+	}
+
+	// return the symbol id for chars[start..start+length), creating it only the first time it is seen
+	public int intern(char[] chars, int start, int length) {
+		int hash = hash(chars, start, length);
+		int mask = table.length - 1;
+		int index = hash & mask;
+
+		// linear probing until the name or an empty slot is found
+		while (table[index] != 0) {
+			int symbol = table[index] - 1;
+			if (matches(names[symbol], chars, start, length))
+				return symbol;
+			index = (index + 1) & mask;
+		}
+
+		return add(index, new String(chars, start, length));
+	}
+
+	// return the symbol id of a name, adding it to the pool if needed
+	public int intern(String name) {
+		int index = slotOf(name);
+		if (table[index] != 0)
+			return table[index] - 1;
+
+		return add(index, name);
+	}
+
+	// return the symbol id of a name or -1 if it was never pooled
+	public int find(String name) {
+		int index = slotOf(name);
+		return table[index] - 1;
+	}
+
+	// slot holding a name, or the empty slot where it would be added
+	private int slotOf(String name) {
+		int mask = table.length - 1;
+		int index = name.hashCode() & mask;
+
+		while (table[index] != 0 && !names[table[index] - 1].equals(name))
+			index = (index + 1) & mask;
+
+		return index;
+	}
+
+	// store a new name at an empty slot and give it the next symbol id
+	private int add(int index, String name) {
+		if (size == names.length)
+			names = Arrays.copyOf(names, size * 2);
+
+		int symbol = size++;
+		names[symbol] = name;
+		table[index] = symbol + 1;
+
+		// keep the load factor under 1/2
+		if (size * 2 > table.length)
+			rehash();
+
+		return symbol;
+	}
+
+	// same function as String.hashCode() so pooled names rehash consistently
+	private static int hash(char[] chars, int start, int length) {
+		int hash = 0;
+		for (int i = 0; i < length; i++)
+			hash = 31 * hash + chars[start + i];
+		return hash;
+	}
+
+	// compare a pooled name against a char range without allocating
+	private static boolean matches(String name, char[] chars, int start, int length) {
+		if (name.length() != length)
+			return false;
+		for (int i = 0; i < length; i++) {
+			if (name.charAt(i) != chars[start + i])
+				return false;
+		}
+		return true;
+	}
+
+	// double the table size and reinsert all symbols
+	private void rehash() {
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+
+		for (int symbol = 0; symbol < size; symbol++) {
+			int index = names[symbol].hashCode() & mask;
+			while (table[index] != 0)
+				index = (index + 1) & mask;
+			table[index] = symbol + 1;
+		}
+	}
+}
@@ -0,0 +1,386 @@
+package lexer;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ *
+ * Table-driven scanner producing the same token stream as Lexer. Every char
+ * is mapped to a char class through a precomputed table and tokens are
+ * recognized by a DFA whose transitions are stored in a state x class
+ * matrix. The longest accepted prefix wins (maximal munch).
+ *
+ */
+
+public class TableLexer implements TokenSource {
+	// char classes
+	private final static int LETTER = 0, DIGIT = 1, DOT = 2, QUOTE = 3, AMP = 4, BAR = 5, EQUALS = 6, BANG = 7,
+			LESS = 8, GREATER = 9, PLUS_SIGN = 10, MINUS_SIGN = 11, STAR = 12, SLASH = 13, PERCENT = 14,
+			OPEN_PAREN = 15, CLOSE_PAREN = 16, OPEN_BRACKET = 17, CLOSE_BRACKET = 18, OPEN_BRACE = 19,
+			CLOSE_BRACE = 20, SEMICOLON = 21, COMMA_SIGN = 22, SPACE = 23, OTHER = 24;
+	private final static int CLASS_COUNT = 25;
+	private final static int[] MALFORMED = { LETTER, DIGIT, DOT, OTHER }; //classes a malformed token continues over
+
+	// DFA states (ERROR stops the scan)
+	private final static int ERROR = 0, START = 1, IDENT = 2, INTEGER = 3, INTEGER_DOT = 4, FRACTION = 5,
+			BAD_NUMBER = 6, QUOTE_OPEN = 7, QUOTE_CHAR = 8, QUOTE_CLOSE = 9, AND_1 = 10, AND_2 = 11, OR_1 = 12,
+			OR_2 = 13, ASSIGN_1 = 14, EQ_2 = 15, NOT_1 = 16, NEQ_2 = 17, LT_1 = 18, LT_EQ_2 = 19, RT_1 = 20,
+			RT_EQ_2 = 21, SINGLE = 22, BAD_CHAR = 23, BAD_CHAR_CLOSE = 24;
+	private final static int STATE_COUNT = 25;
+
+	private final static byte[] charClasses; //char class of every ASCII char
+	private final static int[] transitions; //next state indexed by state * CLASS_COUNT + char class
+	private final static TokenType[] accepting; //token type accepted in each state (null if none)
+	private final static TokenType[] singles; //token type of the single char classes
+	private final static Map<String, TokenType> reservedWords; //reserved words dictionary
+
+	private char[] chars; //input characters
+	private int first; //offset of the first input char
+	private int position; //offset of the next char to scan
+	private int limit; //offset past the last input char
+	private int lineNumber = 1; //current line number
+	private int lineStart; //offset of the first char of the current line
+	private int lineTabs; //widened tabs passed on the current line
+	private int tokenStart; //offset of the first char of the token being scanned
+	private LineTable lines = new LineTable(); //line starts passed so far
+	private boolean lazyPositions; //tokens look up their line and column only when asked
+	private NamePool names = new NamePool(); //pool of identifier names and symbol ids
+
+	static {
+		charClasses = new byte[128];
+		Arrays.fill(charClasses, (byte) OTHER);
+		for (char c = 'a'; c <= 'z'; c++)
+			charClasses[c] = LETTER;
+		for (char c = 'A'; c <= 'Z'; c++)
+			charClasses[c] = LETTER;
+		for (char c = '0'; c <= '9'; c++)
+			charClasses[c] = DIGIT;
+		for (char c = 0; c < 128; c++) {
+			if (Character.isWhitespace(c))
+				charClasses[c] = SPACE;
+		}
+		charClasses['.'] = DOT;
+		charClasses['\''] = QUOTE;
+		charClasses['&'] = AMP;
+		charClasses['|'] = BAR;
+		charClasses['='] = EQUALS;
+		charClasses['!'] = BANG;
+		charClasses['<'] = LESS;
+		charClasses['>'] = GREATER;
+		charClasses['+'] = PLUS_SIGN;
+		charClasses['-'] = MINUS_SIGN;
+		charClasses['*'] = STAR;
+		charClasses['/'] = SLASH;
+		charClasses['%'] = PERCENT;
+		charClasses['('] = OPEN_PAREN;
+		charClasses[')'] = CLOSE_PAREN;
+		charClasses['['] = OPEN_BRACKET;
+		charClasses[']'] = CLOSE_BRACKET;
+		charClasses['{'] = OPEN_BRACE;
+		charClasses['}'] = CLOSE_BRACE;
+		charClasses[';'] = SEMICOLON;
+		charClasses[','] = COMMA_SIGN;
+
+		singles = new TokenType[CLASS_COUNT];
+		singles[PLUS_SIGN] = TokenType.PLUS;
+		singles[MINUS_SIGN] = TokenType.MINUS;
+		singles[STAR] = TokenType.TIMES;
+		singles[SLASH] = TokenType.DIV;
+		singles[PERCENT] = TokenType.MOD;
+		singles[OPEN_PAREN] = TokenType.LPAREN;
+		singles[CLOSE_PAREN] = TokenType.RPAREN;
+		singles[OPEN_BRACKET] = TokenType.LBRACKET;
+		singles[CLOSE_BRACKET] = TokenType.RBRACKET;
+		singles[OPEN_BRACE] = TokenType.LBRACE;
+		singles[CLOSE_BRACE] = TokenType.RBRACE;
+		singles[SEMICOLON] = TokenType.SEMI;
+		singles[COMMA_SIGN] = TokenType.COMMA;
+		singles[DOT] = TokenType.UNKNOWN;
+		singles[OTHER] = TokenType.UNKNOWN;
+
+		transitions = new int[STATE_COUNT * CLASS_COUNT];
+
+		// single char tokens all go through one accepting state
+		for (int c = 0; c < CLASS_COUNT; c++) {
+			if (singles[c] != null)
+				transition(START, c, SINGLE);
+		}
+
+		// identifier or reserved word ([a-zA-Z][a-zA-Z0-9]*)
+		transition(START, LETTER, IDENT);
+		transition(IDENT, LETTER, IDENT);
+		transition(IDENT, DIGIT, IDENT);
+
+		// integer literal ([0-9]+) OR float literal ([0-9]+.[0-9]+)
+		transition(START, DIGIT, INTEGER);
+		transition(INTEGER, DIGIT, INTEGER);
+		transition(INTEGER, DOT, INTEGER_DOT);
+		transition(INTEGER_DOT, DIGIT, FRACTION);
+		transition(FRACTION, DIGIT, FRACTION);
+
+		// malformed number, one token up to the next delimiter
+		for (int c : MALFORMED) {
+			if (c != DIGIT)
+				transition(INTEGER_DOT, c, BAD_NUMBER);
+			transition(BAD_NUMBER, c, BAD_NUMBER);
+		}
+
+		// char literal ('[a-zA-Z]')
+		transition(START, QUOTE, QUOTE_OPEN);
+		transition(QUOTE_OPEN, LETTER, QUOTE_CHAR);
+		transition(QUOTE_CHAR, QUOTE, QUOTE_CLOSE);
+
+		// malformed char literal, one token up to the next delimiter and through a closing quote
+		for (int c : MALFORMED) {
+			if (c != LETTER)
+				transition(QUOTE_OPEN, c, BAD_CHAR);
+			transition(QUOTE_CHAR, c, BAD_CHAR);
+			transition(BAD_CHAR, c, BAD_CHAR);
+		}
+		transition(QUOTE_OPEN, QUOTE, BAD_CHAR_CLOSE);
+		transition(BAD_CHAR, QUOTE, BAD_CHAR_CLOSE);
+
+		// one and two char operators
+		transition(START, AMP, AND_1);
+		transition(AND_1, AMP, AND_2);
+		transition(START, BAR, OR_1);
+		transition(OR_1, BAR, OR_2);
+		transition(START, EQUALS, ASSIGN_1);
+		transition(ASSIGN_1, EQUALS, EQ_2);
+		transition(START, BANG, NOT_1);
+		transition(NOT_1, EQUALS, NEQ_2);
+		transition(START, LESS, LT_1);
+		transition(LT_1, EQUALS, LT_EQ_2);
+		transition(START, GREATER, RT_1);
+		transition(RT_1, EQUALS, RT_EQ_2);
+
+		accepting = new TokenType[STATE_COUNT];
+		accepting[IDENT] = TokenType.ID;
+		accepting[INTEGER] = TokenType.INT_CONST;
+		accepting[INTEGER_DOT] = TokenType.UNKNOWN;
+		accepting[FRACTION] = TokenType.FLOAT_CONST;
+		accepting[BAD_NUMBER] = TokenType.UNKNOWN;
+		accepting[QUOTE_OPEN] = TokenType.UNKNOWN;
+		accepting[QUOTE_CHAR] = TokenType.UNKNOWN;
+		accepting[QUOTE_CLOSE] = TokenType.CHAR_CONST;
+		accepting[BAD_CHAR] = TokenType.UNKNOWN;
+		accepting[BAD_CHAR_CLOSE] = TokenType.UNKNOWN;
+		accepting[AND_1] = TokenType.UNKNOWN;
+		accepting[AND_2] = TokenType.AND;
+		accepting[OR_1] = TokenType.UNKNOWN;
+		accepting[OR_2] = TokenType.OR;
+		accepting[ASSIGN_1] = TokenType.ASSIGN;
+		accepting[EQ_2] = TokenType.EQ;
+		accepting[NOT_1] = TokenType.NOT;
+		accepting[NEQ_2] = TokenType.NEQ;
+		accepting[LT_1] = TokenType.LT;
+		accepting[LT_EQ_2] = TokenType.LT_EQ;
+		accepting[RT_1] = TokenType.RT;
+		accepting[RT_EQ_2] = TokenType.RT_EQ;
+		accepting[SINGLE] = TokenType.UNKNOWN; // refined by singles[]
+
+		reservedWords = new HashMap<String, TokenType>();
+		reservedWords.put("int", TokenType.INT);
+		reservedWords.put("float", TokenType.FLOAT);
+		reservedWords.put("char", TokenType.CHAR);
+		reservedWords.put("boolean", TokenType.BOOLEAN);
+		reservedWords.put("if", TokenType.IF);
+		reservedWords.put("else", TokenType.ELSE);
+		reservedWords.put("while", TokenType.WHILE);
+		reservedWords.put("main", TokenType.MAIN);
+	}
+
+	// read the whole file up front, the DFA scans over an array
+	public TableLexer(FileReader file) throws IOException {
+		char[] buffer = new char[8192];
+		int length = 0;
+		int read;
+		while ((read = file.read(buffer, length, buffer.length - length)) != -1) {
+			length += read;
+			if (length == buffer.length)
+				buffer = Arrays.copyOf(buffer, length * 2);
+		}
+		file.close();
+
+		this.chars = buffer;
+		this.limit = length;
+	}
+
+	// scan the remaining chars of a char buffer
+	public TableLexer(CharBuffer buffer) {
+		if (buffer.hasArray()) {
+			this.chars = buffer.array();
+			this.first = buffer.arrayOffset() + buffer.position();
+			this.position = first;
+			this.limit = buffer.arrayOffset() + buffer.limit();
+		} else {
+			this.chars = new char[buffer.remaining()];
+			buffer.duplicate().get(chars);
+			this.limit = chars.length;
+		}
+	}
+
+	private static void transition(int state, int charClass, int next) {
+		transitions[state * CLASS_COUNT + charClass] = next;
+	}
+
+	// char class of an input char, non-ASCII chars are classified by Character
+	private static int classOf(char c) {
+		if (c < 128)
+			return charClasses[c];
+		if (Character.isWhitespace(c))
+			return SPACE;
+		if (Character.isLetter(c))
+			return LETTER;
+		return OTHER;
+	}
+
+	public NamePool getNamePool() {
+		return names;
+	}
+
+	// line starts of the input scanned so far, for converting offsets to positions
+	public LineTable getLineTable() {
+		return lines;
+	}
+
+	// share a name pool (e.g. across several files), set before the first identifier is scanned
+	public void setNamePool(NamePool names) {
+		this.names = names;
+	}
+
+	// give tokens only their offset and resolve their line and column in the line table when asked (see Lexer)
+	public void setLazyPositions(boolean lazyPositions) {
+		this.lazyPositions = lazyPositions;
+	}
+
+	// return the next token in the input (EOF signals end of input)
+	public Token getToken() {
+		skipWhitespace();
+		tokenStart = position - first;
+		Token token = scanToken();
+		token.setSpan(tokenStart, position - first - tokenStart);
+		return token;
+	}
+
+	// token starting at tokenStart, its column counts the chars and widened tabs since the line start
+	private Token token(TokenType type, TokenAttribute attribute) {
+		if (lazyPositions)
+			return new Token(type, attribute, lines);
+		return new Token(type, attribute, lineNumber, 1 + tokenStart - lineStart + 3 * lineTabs);
+	}
+
+	// scan the token starting after the whitespace
+	private Token scanToken() {
+		// EOF reached
+		if (position >= limit)
+			return token(TokenType.EOF, TokenAttribute.NONE);
+
+		// run the DFA, remembering the last accepting state
+		int start = position;
+		int state = START;
+		int acceptState = ERROR;
+		int acceptEnd = start;
+		int firstClass = classOf(chars[start]);
+
+		for (int i = start; i < limit; i++) {
+			state = transitions[state * CLASS_COUNT + classOf(chars[i])];
+			if (state == ERROR)
+				break;
+			if (accepting[state] != null) {
+				acceptState = state;
+				acceptEnd = i + 1;
+			}
+		}
+
+		// every char class leaves START so at least one char is accepted
+		int length = acceptEnd - start;
+		position = acceptEnd;
+
+		switch (acceptState) {
+		case IDENT:
+			int symbol = names.intern(chars, start, length);
+			String name = names.name(symbol);
+
+			TokenType type = reservedWords.get(name);
+			if (type != null)
+				return token(type, TokenAttribute.NONE);
+			if (name.equals("true"))
+				return token(TokenType.BOOLEAN_CONST, new TokenAttribute(true));
+			if (name.equals("false"))
+				return token(TokenType.BOOLEAN_CONST, new TokenAttribute(false));
+
+			return token(TokenType.ID, new TokenAttribute(name, symbol));
+
+		case INTEGER:
+			long intValue = 0;
+			for (int i = start; i < acceptEnd; i++) {
+				intValue = intValue * 10 + (chars[i] - '0');
+				// integer literal too large for an int
+				if (intValue > Integer.MAX_VALUE)
+					return token(TokenType.UNKNOWN, TokenAttribute.NONE);
+			}
+			return token(TokenType.INT_CONST, new TokenAttribute((int) intValue));
+
+		case FRACTION:
+			return token(TokenType.FLOAT_CONST, new TokenAttribute(floatValue(start, acceptEnd)));
+
+		case QUOTE_CLOSE:
+			return token(TokenType.CHAR_CONST, new TokenAttribute(chars[start + 1]));
+
+		case SINGLE:
+			return token(singles[firstClass], TokenAttribute.NONE);
+
+		default:
+			return token(accepting[acceptState], TokenAttribute.NONE);
+		}
+	}
+
+	// skip whitespace the same way as Lexer, including its tab column offset
+	private void skipWhitespace() {
+		while (position < limit && classOf(chars[position]) == SPACE) {
+			char c = chars[position++];
+
+			if (c == '\r' && position < limit && chars[position] == '\n')
+				position++;
+			if (c == '\n' || c == '\r') {
+				lineNumber++;
+				lineStart = position - first;
+				lineTabs = 0;
+				lines.addLine(lineStart);
+			}
+
+			// offset colNum for tab chars
+			if (position < limit && chars[position] == '\t') {
+				lineTabs++;
+				lines.addTab(position - first);
+			}
+		}
+	}
+
+	// value of the float literal chars[start..end)
+	private float floatValue(int start, int end) {
+		long mantissa = 0;
+		int fractionDigits = 0;
+		boolean fraction = false;
+		boolean overflow = false;
+
+		for (int i = start; i < end; i++) {
+			if (chars[i] == '.') {
+				fraction = true;
+				continue;
+			}
+			if (mantissa <= Lexer.MAX_EXACT_MANTISSA) {
+				mantissa = mantissa * 10 + (chars[i] - '0');
+				if (fraction)
+					fractionDigits++;
+			} else
+				overflow = true;
+		}
+		return Lexer.floatValue(mantissa, fractionDigits, overflow, chars, start, end - start);
+	}
+}
@@ -10,11 +10,15 @@ import lexer.TokenType;
 
 public class TestLexer {
 	public static void main(String[] args) throws IOException {
-		if (args.length == 0)
+		// -table selects the table-driven scanner
+		boolean table = args.length > 0 && args[0].equals("-table");
+		int first = table ? 1 : 0;
+
+		if (args.length == first)
 			System.err.println("No file arguments given");
 		else {
 			// parse each file argument given
-			for (int i = 0; i < args.length; i++) {
+			for (int i = first; i < args.length; i++) {
 				FileReader file;
 				// attempt to open file
 				try {
@@ -25,7 +29,7 @@ public class TestLexer {
 				}
 				
 				// create lexer
-				Lexer lexer = new Lexer(file);
+				TokenSource lexer = table ? new TableLexer(file) : new Lexer(file);
 				
 				// start tokenizing file
 				System.out.println("Tokenizing " + args[i] + "...");
@@ -0,0 +1,82 @@
+package lexer;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+
+/*
+ * 
+ * Differential check of the table-driven scanner against the hand-written
+ * one: both must produce identical token streams (type, position and value)
+ * for every file argument, e.g. java lexer.TestTableLexer tests/*.txt
+ * 
+ */
+
+public class TestTableLexer {
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("No file arguments given");
+			return;
+		}
+
+		int failures = 0;
+		for (int i = 0; i < args.length; i++) {
+			Lexer lexer;
+			TableLexer tableLexer;
+			// attempt to open file twice, one reader per scanner
+			try {
+				lexer = new Lexer(new FileReader(args[i]));
+				tableLexer = new TableLexer(new FileReader(args[i]));
+			} catch (FileNotFoundException e) {
+				System.err.println(args[i] + " was not found!");
+				failures++;
+				continue; // try next file
+			}
+
+			int numTokens = 0;
+			String mismatch = null;
+			Token expected, actual;
+			do {
+				expected = lexer.getToken();
+				actual = tableLexer.getToken();
+				numTokens++;
+
+				if (!describe(expected).equals(describe(actual)))
+					mismatch = "token " + numTokens + ": expected " + describe(expected) + ", got " + describe(actual);
+			} while (mismatch == null && expected.getType() != TokenType.EOF && actual.getType() != TokenType.EOF);
+
+			if (mismatch != null) {
+				System.err.println(args[i] + ": MISMATCH at " + mismatch);
+				failures++;
+			} else
+				System.out.println(args[i] + ": OK (" + numTokens + " tokens)");
+		}
+
+		System.out.println("---");
+		System.out.println(failures + " of " + args.length + " files differ");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	// token type, position, span and semantic value as one comparable string
+	static String describe(Token token) {
+		String text = token.getType() + " (" + token.getLineNumber() + "," + token.getColumnNumber() + ") ["
+				+ token.getOffset() + "+" + token.getLength() + "]";
+		TokenAttribute attribute = token.getAttribute();
+
+		switch (token.getType()) {
+		case ID:
+			return text + ": " + attribute.getIdVal();
+		case INT_CONST:
+			return text + ": " + attribute.getIntVal();
+		case FLOAT_CONST:
+			return text + ": " + attribute.getFloatVal();
+		case CHAR_CONST:
+			return text + ": " + attribute.getCharVal();
+		case BOOLEAN_CONST:
+			return text + ": " + attribute.getBooleanVal();
+		default:
+			return text;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package lexer;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+
+/*
+ *
+ * Round trip check of the compact token buffer: the tokens read back through
+ * TokenStream.reader() must be identical (type, position, span and value) to
+ * the ones the lexer returns for every file argument, e.g.
+ * java lexer.TestTokenStream tests/*.txt
+ *
+ */
+
+public class TestTokenStream {
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("No file arguments given");
+			return;
+		}
+
+		int failures = 0;
+		for (int i = 0; i < args.length; i++) {
+			Lexer lexer;
+			TokenStream stream;
+			// attempt to open file twice, one lexer is read directly and one through the stream
+			try {
+				lexer = new Lexer(new FileReader(args[i]));
+				stream = TokenStream.tokenize(new Lexer(new FileReader(args[i])));
+			} catch (FileNotFoundException e) {
+				System.err.println(args[i] + " was not found!");
+				failures++;
+				continue; // try next file
+			}
+
+			TokenSource reader = stream.reader();
+			int numTokens = 0;
+			String mismatch = null;
+			Token expected, actual;
+			do {
+				expected = lexer.getToken();
+				actual = reader.getToken();
+				numTokens++;
+
+				if (!TestTableLexer.describe(expected).equals(TestTableLexer.describe(actual)))
+					mismatch = "token " + numTokens + ": expected " + TestTableLexer.describe(expected) + ", got "
+							+ TestTableLexer.describe(actual);
+			} while (mismatch == null && expected.getType() != TokenType.EOF && actual.getType() != TokenType.EOF);
+
+			// the stream holds exactly the tokens read, and keeps returning EOF once consumed
+			if (mismatch == null && numTokens != stream.size())
+				mismatch = "stream has " + stream.size() + " tokens, " + numTokens + " were read";
+			else if (mismatch == null) {
+				Token extra = reader.getToken();
+				if (extra.getType() != TokenType.EOF)
+					mismatch = "token after EOF is " + TestTableLexer.describe(extra);
+			}
+
+			if (mismatch != null) {
+				System.err.println(args[i] + ": MISMATCH at " + mismatch);
+				failures++;
+			} else
+				System.out.println(args[i] + ": OK (" + numTokens + " tokens)");
+		}
+
+		System.out.println("---");
+		System.out.println(failures + " of " + args.length + " files differ");
+		if (failures > 0)
+			System.exit(1);
+	}
+}
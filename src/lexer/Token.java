@@ -5,6 +5,12 @@ public class Token {
 	private TokenAttribute attribute; //token attribute 
 	private int lineNumber; //token line number
 	private int columnNumber; //token column number
+	private int offset = -1; //char offset of the token in the input (-1 if unknown)
+	private int length; //number of input chars the token spans
+	private LineTable lines; //resolves the line and column from the offset when asked (null if they are set)
+
+	// for subclasses that provide the token fields through the getters
+	protected Token(){}
 
 	public Token(TokenType type, TokenAttribute attribute, int lineNumber, int columnNumber){
 		this.type = type;
@@ -13,6 +19,13 @@ public class Token {
 		this.columnNumber = columnNumber;
 	}
 
+	// token positioned by its offset alone, the line and column are looked up in the lexer's line table
+	Token(TokenType type, TokenAttribute attribute, LineTable lines){
+		this.type = type;
+		this.attribute = attribute;
+		this.lines = lines;
+	}
+
 	public TokenType getType(){
 		return type;
 	}
@@ -22,10 +35,24 @@ public class Token {
 	}
 
 	public int getLineNumber(){
-		return lineNumber;
+		return (lines != null) ? lines.getLineNumber(offset) : lineNumber;
 	}
 
 	public int getColumnNumber(){
-		return columnNumber;
+		return (lines != null) ? lines.getColumnNumber(offset) : columnNumber;
+	}
+
+	public int getOffset(){
+		return offset;
+	}
+
+	public int getLength(){
+		return length;
+	}
+
+	// set by the lexer once the token is scanned
+	void setSpan(int offset, int length){
+		this.offset = offset;
+		this.length = length;
 	}
 }
\ No newline at end of file
@@ -6,6 +6,10 @@ public class TokenAttribute {
 	private char charVal; // char value of the token
 	private boolean booleanVal; // boolean value of the token
 	private String idVal; // id of the token
+	private int symbol = -1; // symbol id of the token id in the name pool
+
+	// shared attribute of the tokens that carry no value, its setters throw
+	public final static TokenAttribute NONE = new Unmodifiable();
 
 	public TokenAttribute() {}
 
@@ -34,6 +38,12 @@ public class TokenAttribute {
 		this.idVal = idVal;
 	}
 
+	// construct TokenAttribute with a pooled id
+	public TokenAttribute(String idVal, int symbol){
+		this.idVal = idVal;
+		this.symbol = symbol;
+	}
+
 	public int getIntVal() {
 		return intVal;
 	}
@@ -73,4 +83,45 @@ public class TokenAttribute {
 	public void setIdVal(String idVal) {
 		this.idVal = idVal;
 	}
+
+	public int getSymbol() {
+		return symbol;
+	}
+
+	public void setSymbol(int symbol) {
+		this.symbol = symbol;
+	}
+
+	// attribute whose values are fixed at construction
+	private static class Unmodifiable extends TokenAttribute {
+		@Override
+		public void setIntVal(int intVal) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setFloatVal(float floatVal) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setCharVal(char charVal) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setBooleanVal(boolean booleanVal) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setIdVal(String idVal) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setSymbol(int symbol) {
+			throw new UnsupportedOperationException();
+		}
+	}
 }
@@ -0,0 +1,233 @@
+package lexer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+import diagnostic.Diagnostic;
+import diagnostic.DiagnosticList;
+import diagnostic.DiagnosticSink;
+import diagnostic.DiagnosticWriter;
+
+/*
+ *
+ * Runs a Lexer on its own thread ahead of the reader, e.g. a Parser, so
+ * that reading and scanning the input overlap with parsing. Tokens pass
+ * through a bounded single-producer/single-consumer ring buffer. Each side
+ * publishes its position in batches: the lexer makes a batch of tokens
+ * visible at once, and the reader frees a batch of slots at once. When the
+ * ring is full the lexer waits for the reader (backpressure), and when it
+ * is empty the reader waits for the lexer. The ring capacity, batch size
+ * and wait policy are configurable.
+ *
+ * The lexer interns identifiers in its own name pool. The reader maps
+ * their symbol ids into the pool returned by getNamePool(), so that pool
+ * is only used by the reader's thread. Input errors of the lexer reach
+ * the diagnostic sink when the reader gets to EOF, or when it closes the
+ * pipeline before EOF (those of the tokens scanned until the lexer stopped).
+ *
+ */
+
+public class TokenPipeline implements TokenSource {
+	// how a side waits for the other one: busy spin, yield the core, or sleep briefly
+	// (a wait that lasts spins or yields only at first, then sleeps too)
+	public enum Wait {
+		SPIN, YIELD, PARK
+	}
+
+	public final static int DEFAULT_CAPACITY = 4096;
+	public final static int DEFAULT_BATCH = 256;
+	private final static long PARK_NANOS = 10000;
+	private final static int MAX_BUSY_WAITS = 1000; //spins or yields before a wait sleeps
+
+	private final Token[] ring;
+	private final int mask;
+	private final int batch;
+	private final Wait wait;
+
+	// positions are token counts since the start, slots are positions modulo the capacity
+	private volatile long tail; //tokens published by the lexer
+	private volatile long head; //tokens released by the reader
+	private volatile boolean done; //the lexer thread has stopped
+	private volatile boolean closed; //the reader stopped reading
+	private volatile Throwable failure; //why the lexer thread stopped before EOF
+
+	// lexer thread
+	private final Lexer lexer;
+	private final DiagnosticList lexerDiagnostics = new DiagnosticList();
+
+	// reader thread
+	private long next; //position of the next token to read
+	private long available; //tail when last read
+	private long released; //head when last published
+	private Token eof; //returned again once reached
+	private boolean replayed; //the input errors of the lexer were passed to the sink
+	private NamePool names = new NamePool();
+	private int[] symbols = new int[64]; //reader symbol id of each lexer symbol id (-1 if not mapped yet)
+	private DiagnosticSink diagnostics = new DiagnosticWriter(System.err);
+
+	public TokenPipeline(Lexer lexer) {
+		this(lexer, DEFAULT_CAPACITY, DEFAULT_BATCH, Wait.YIELD);
+	}
+
+	// capacity is rounded up to a power of two, batch is at most the capacity
+	public TokenPipeline(Lexer lexer, int capacity, int batch, Wait wait) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		this.ring = new Token[size];
+		this.mask = size - 1;
+		this.batch = Math.max(1, Math.min(batch, size));
+		this.wait = wait;
+		this.lexer = lexer;
+		Arrays.fill(symbols, -1);
+
+		lexer.setDiagnosticSink(lexerDiagnostics);
+		lexer.setLazyPositions(false); // the line table is filled in on the lexer thread, while the reader reads tokens
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				produce();
+			}
+		}, "lexer");
+		thread.setDaemon(true); // an abandoned pipeline must not keep the JVM alive
+		thread.start();
+	}
+
+	public NamePool getNamePool() {
+		return names;
+	}
+
+	// the lexer's line table once the lexer thread stopped (at EOF or on close), null before
+	// (it is filled in on the lexer thread)
+	public LineTable getLineTable() {
+		return done ? lexer.getLineTable() : null;
+	}
+
+	// share a name pool (e.g. across several files), set before the first identifier is read
+	public void setNamePool(NamePool names) {
+		this.names = names;
+	}
+
+	// receives the input errors of the lexer (written to System.err by default)
+	public void setDiagnosticSink(DiagnosticSink diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+
+	// stop the lexer thread when the reader will not read up to EOF (Parser does at the end of a parse),
+	// returns once it stopped, which is at the next token it scans, and reports its input errors
+	public void close() {
+		closed = true;
+		for (int waits = 0; !done; waits++)
+			pause(waits);
+		replay();
+	}
+
+	// pass the input errors of the lexer to the sink once, after the lexer thread stopped or reached EOF
+	private void replay() {
+		if (replayed)
+			return;
+		replayed = true;
+		for (Diagnostic diagnostic : lexerDiagnostics.getDiagnostics())
+			diagnostics.report(diagnostic);
+		diagnostics.flush();
+	}
+
+	// wait once more, waits is the number of times waited already
+	private void pause(int waits) {
+		if (wait == Wait.PARK || waits >= MAX_BUSY_WAITS)
+			LockSupport.parkNanos(PARK_NANOS);
+		else if (wait == Wait.SPIN)
+			Thread.onSpinWait();
+		else
+			Thread.yield();
+	}
+
+	// lexer thread: scan up to EOF into the ring
+	private void produce() {
+		long position = 0; //position of the next token to write
+		long published = 0; //tail when last published
+		long free = ring.length; //position up to which slots are known to be free
+		try {
+			Token token;
+			do {
+				token = lexer.getToken();
+
+				if (position == free) {
+					// publish the pending tokens first, the reader may be waiting for them
+					tail = position;
+					published = position;
+					for (int waits = 0; (free = head + ring.length) == position; waits++) {
+						if (closed)
+							return;
+						pause(waits);
+					}
+				}
+
+				ring[(int) position & mask] = token;
+				position++;
+				if (position - published >= batch) {
+					tail = position;
+					published = position;
+				}
+				if (closed)
+					return;
+			} while (token.getType() != TokenType.EOF);
+			tail = position;
+		} catch (Throwable e) {
+			failure = e;
+		} finally {
+			done = true;
+		}
+	}
+
+	// reader thread: the next token, EOF again once the input is consumed
+	public Token getToken() throws IOException {
+		if (eof != null)
+			return eof;
+
+		for (int waits = 0; next == available; waits++) {
+			// free the slots read so far before waiting, the lexer may be waiting for them
+			release();
+			boolean stopped = done;
+			available = tail;
+			if (next < available)
+				break;
+			if (stopped)
+				throw new IOException("Lexer thread stopped before EOF", failure);
+			pause(waits);
+		}
+
+		int slot = (int) next & mask;
+		Token token = ring[slot];
+		ring[slot] = null;
+		next++;
+		if (next - released >= batch)
+			release();
+
+		if (token.getType() == TokenType.ID)
+			mapSymbol(token.getAttribute());
+		else if (token.getType() == TokenType.EOF) {
+			eof = token;
+			replay();
+		}
+		return token;
+	}
+
+	private void release() {
+		if (released != next) {
+			head = next;
+			released = next;
+		}
+	}
+
+	// give an identifier the symbol id of its name in the reader's pool
+	private void mapSymbol(TokenAttribute attribute) {
+		int symbol = attribute.getSymbol();
+		if (symbol >= symbols.length) {
+			int length = symbols.length;
+			symbols = Arrays.copyOf(symbols, Math.max(length * 2, symbol + 1));
+			Arrays.fill(symbols, length, symbols.length, -1);
+		}
+		if (symbols[symbol] < 0)
+			symbols[symbol] = names.intern(attribute.getIdVal());
+		attribute.setSymbol(symbols[symbol]);
+	}
+}
@@ -0,0 +1,14 @@
+package lexer;
+
+import java.io.IOException;
+
+public interface TokenSource {
+	// return the next token in the input (EOF signals end of input)
+	public Token getToken() throws IOException;
+
+	// pool that gives identifier tokens their names and symbol ids
+	public NamePool getNamePool();
+
+	// line starts of the input, for converting token and node offsets to positions (null if unknown)
+	public LineTable getLineTable();
+}
@@ -0,0 +1,269 @@
+package lexer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * 
+ * Compact token buffer for tokenizing a whole file ahead of parsing. Tokens
+ * are stored as parallel arrays (type ordinal, packed line/column, span and
+ * one value slot) instead of a Token and a TokenAttribute object per token,
+ * and are read back through a single reusable View.
+ * 
+ */
+
+public class TokenStream {
+	private final static TokenType[] TYPES = TokenType.values();
+
+	private byte[] types; //token type ordinals
+	private long[] positions; //line number in the high half, column number in the low half
+	private int[] offsets; //char offset of the token in the input (-1 if unknown)
+	private int[] lengths; //number of input chars the token spans
+	private int[] values; //int, float bits, char, boolean (0/1) or symbol id of the token
+	private int size; //number of tokens
+	private NamePool names; //pool resolving the symbol ids of ID tokens
+	private LineTable lines; //line starts of the tokenized input (null if unknown)
+
+	public TokenStream(NamePool names) {
+		this.types = new byte[256];
+		this.positions = new long[256];
+		this.offsets = new int[256];
+		this.lengths = new int[256];
+		this.values = new int[256];
+		this.names = names;
+	}
+
+	// read all the tokens of a lexer up to and including EOF
+	public static TokenStream tokenize(TokenSource lexer) throws IOException {
+		TokenStream stream = new TokenStream(lexer.getNamePool());
+		Token token;
+		do {
+			token = lexer.getToken();
+			stream.add(token);
+		} while (token.getType() != TokenType.EOF);
+		stream.lines = lexer.getLineTable();
+		return stream;
+	}
+
+	// append a token to the stream
+	public void add(Token token) {
+		if (size == types.length) {
+			types = Arrays.copyOf(types, size * 2);
+			positions = Arrays.copyOf(positions, size * 2);
+			offsets = Arrays.copyOf(offsets, size * 2);
+			lengths = Arrays.copyOf(lengths, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+
+		TokenType type = token.getType();
+		TokenAttribute attribute = token.getAttribute();
+		types[size] = (byte) type.ordinal();
+		positions[size] = ((long) token.getLineNumber() << 32) | (token.getColumnNumber() & 0xffffffffL);
+		offsets[size] = token.getOffset();
+		lengths[size] = token.getLength();
+
+		switch (type) {
+		case ID:
+			values[size] = attribute.getSymbol();
+			break;
+		case INT_CONST:
+			values[size] = attribute.getIntVal();
+			break;
+		case FLOAT_CONST:
+			values[size] = Float.floatToRawIntBits(attribute.getFloatVal());
+			break;
+		case CHAR_CONST:
+			values[size] = attribute.getCharVal();
+			break;
+		case BOOLEAN_CONST:
+			values[size] = attribute.getBooleanVal() ? 1 : 0;
+			break;
+		default:
+			values[size] = 0;
+			break;
+		}
+		size++;
+	}
+
+	// number of tokens in the stream
+	public int size() {
+		return size;
+	}
+
+	public NamePool getNamePool() {
+		return names;
+	}
+
+	// line starts of the tokenized input, null if the tokens were added one by one
+	public LineTable getLineTable() {
+		return lines;
+	}
+
+	public TokenType getType(int index) {
+		return TYPES[types[index]];
+	}
+
+	public int getLineNumber(int index) {
+		return (int) (positions[index] >>> 32);
+	}
+
+	public int getColumnNumber(int index) {
+		return (int) positions[index];
+	}
+
+	public int getOffset(int index) {
+		return offsets[index];
+	}
+
+	public int getLength(int index) {
+		return lengths[index];
+	}
+
+	public int getIntVal(int index) {
+		return values[index];
+	}
+
+	public float getFloatVal(int index) {
+		return Float.intBitsToFloat(values[index]);
+	}
+
+	public char getCharVal(int index) {
+		return (char) values[index];
+	}
+
+	public boolean getBooleanVal(int index) {
+		return values[index] != 0;
+	}
+
+	public int getSymbol(int index) {
+		return values[index];
+	}
+
+	public String getIdVal(int index) {
+		return names.name(values[index]);
+	}
+
+	// build a standalone Token for the token at index
+	public Token get(int index) {
+		TokenType type = getType(index);
+		TokenAttribute attribute;
+
+		switch (type) {
+		case ID:
+			attribute = new TokenAttribute(getIdVal(index), getSymbol(index));
+			break;
+		case INT_CONST:
+			attribute = new TokenAttribute(getIntVal(index));
+			break;
+		case FLOAT_CONST:
+			attribute = new TokenAttribute(getFloatVal(index));
+			break;
+		case CHAR_CONST:
+			attribute = new TokenAttribute(getCharVal(index));
+			break;
+		case BOOLEAN_CONST:
+			attribute = new TokenAttribute(getBooleanVal(index));
+			break;
+		default:
+			attribute = TokenAttribute.NONE;
+			break;
+		}
+		Token token = new Token(type, attribute, getLineNumber(index), getColumnNumber(index));
+		token.setSpan(getOffset(index), getLength(index));
+		return token;
+	}
+
+	// sequential source over the stream, e.g. to feed a Parser. Every token it returns is the
+	// same View, moved to the next token by the following getToken() call
+	public TokenSource reader() {
+		return new TokenSource() {
+			private View view = new View();
+			private int index;
+
+			public Token getToken() {
+				// keep returning the last (EOF) token once the stream is consumed
+				view.moveTo(index);
+				if (index < size - 1)
+					index++;
+				return view;
+			}
+
+			public NamePool getNamePool() {
+				return names;
+			}
+
+			public LineTable getLineTable() {
+				return lines;
+			}
+		};
+	}
+
+	// flyweight Token positioned over the stream
+	public View view() {
+		return new View();
+	}
+
+	/*
+	 * 
+	 * A single reusable Token whose getters read the token at the current
+	 * index. The attribute returned by getAttribute() is also reused, so
+	 * neither must be kept after the view is moved.
+	 * 
+	 */
+	public class View extends Token {
+		private int index;
+		private TokenAttribute attribute = new TokenAttribute();
+
+		public int getIndex() {
+			return index;
+		}
+
+		// position the view on a token
+		public View moveTo(int index) {
+			this.index = index;
+			return this;
+		}
+
+		// move to the next token, returns false once past the last token
+		public boolean next() {
+			return ++index < size;
+		}
+
+		@Override
+		public TokenType getType() {
+			return TokenStream.this.getType(index);
+		}
+
+		@Override
+		public TokenAttribute getAttribute() {
+			TokenType type = getType();
+			attribute.setIntVal(type == TokenType.INT_CONST ? getIntVal(index) : 0);
+			attribute.setFloatVal(type == TokenType.FLOAT_CONST ? getFloatVal(index) : 0);
+			attribute.setCharVal(type == TokenType.CHAR_CONST ? getCharVal(index) : 0);
+			attribute.setBooleanVal(type == TokenType.BOOLEAN_CONST && getBooleanVal(index));
+			attribute.setIdVal(type == TokenType.ID ? getIdVal(index) : null);
+			attribute.setSymbol(type == TokenType.ID ? getSymbol(index) : -1);
+			return attribute;
+		}
+
+		@Override
+		public int getLineNumber() {
+			return TokenStream.this.getLineNumber(index);
+		}
+
+		@Override
+		public int getColumnNumber() {
+			return TokenStream.this.getColumnNumber(index);
+		}
+
+		@Override
+		public int getOffset() {
+			return TokenStream.this.getOffset(index);
+		}
+
+		@Override
+		public int getLength() {
+			return TokenStream.this.getLength(index);
+		}
+	}
+}
@@ -0,0 +1,283 @@
+package lsp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ *
+ * Minimal JSON reader and writer for the messages of the language server.
+ * Objects are read into LinkedHashMaps, arrays into ArrayLists, numbers
+ * into Longs (Doubles if they have a fraction or an exponent), and the
+ * writer takes the same types back, so messages are plain maps and lists.
+ *
+ */
+
+public class Json {
+	private String text;
+	private int position; //index of the next char to read
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	// the value of a JSON text, IllegalArgumentException if it is malformed
+	public static Object parse(String text) {
+		Json json = new Json(text);
+		Object value = json.value();
+		json.skipWhitespace();
+		if (json.position < text.length())
+			throw json.error("Unexpected text after the value");
+		return value;
+	}
+
+	// JSON text of a value built from maps, lists, strings, numbers, booleans and nulls
+	public static String write(Object value) {
+		StringBuilder json = new StringBuilder();
+		write(value, json);
+		return json.toString();
+	}
+
+	// object with the given keys and values, e.g. object("line", 1, "character", 0)
+	public static Map<String, Object> object(Object... entries) {
+		Map<String, Object> object = new LinkedHashMap<String, Object>();
+		for (int i = 0; i + 1 < entries.length; i += 2)
+			object.put((String) entries[i], entries[i + 1]);
+		return object;
+	}
+
+	private Object value() {
+		skipWhitespace();
+		if (position == text.length())
+			throw error("Unexpected end of input");
+
+		char c = text.charAt(position);
+		switch (c) {
+		case '{':
+			return object();
+		case '[':
+			return array();
+		case '"':
+			return string();
+		case 't':
+			return literal("true", Boolean.TRUE);
+		case 'f':
+			return literal("false", Boolean.FALSE);
+		case 'n':
+			return literal("null", null);
+		default:
+			if (c == '-' || (c >= '0' && c <= '9'))
+				return number();
+			throw error("Unexpected char '" + c + "'");
+		}
+	}
+
+	private Map<String, Object> object() {
+		Map<String, Object> object = new LinkedHashMap<String, Object>();
+		position++;
+		skipWhitespace();
+		if (next('}'))
+			return object;
+
+		do {
+			skipWhitespace();
+			if (position == text.length() || text.charAt(position) != '"')
+				throw error("Expected a member name");
+			String name = string();
+			skipWhitespace();
+			if (!next(':'))
+				throw error("Expected ':'");
+			object.put(name, value());
+			skipWhitespace();
+		} while (next(','));
+
+		if (!next('}'))
+			throw error("Expected ',' or '}'");
+		return object;
+	}
+
+	private List<Object> array() {
+		List<Object> array = new ArrayList<Object>();
+		position++;
+		skipWhitespace();
+		if (next(']'))
+			return array;
+
+		do {
+			array.add(value());
+			skipWhitespace();
+		} while (next(','));
+
+		if (!next(']'))
+			throw error("Expected ',' or ']'");
+		return array;
+	}
+
+	private String string() {
+		StringBuilder string = new StringBuilder();
+		position++;
+		while (position < text.length()) {
+			char c = text.charAt(position++);
+			if (c == '"')
+				return string.toString();
+			if (c != '\\') {
+				string.append(c);
+				continue;
+			}
+
+			if (position == text.length())
+				break;
+			char escape = text.charAt(position++);
+			switch (escape) {
+			case 'b':
+				string.append('\b');
+				break;
+			case 'f':
+				string.append('\f');
+				break;
+			case 'n':
+				string.append('\n');
+				break;
+			case 'r':
+				string.append('\r');
+				break;
+			case 't':
+				string.append('\t');
+				break;
+			case 'u':
+				if (position + 4 > text.length())
+					throw error("Incomplete \\u escape");
+				try {
+					string.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+				} catch (NumberFormatException e) {
+					throw error("Malformed \\u escape");
+				}
+				position += 4;
+				break;
+			default:
+				string.append(escape); // \" \\ and \/
+				break;
+			}
+		}
+		throw error("Unterminated string");
+	}
+
+	private Number number() {
+		int start = position;
+		boolean integral = true;
+		if (text.charAt(position) == '-')
+			position++;
+		while (position < text.length()) {
+			char c = text.charAt(position);
+			if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-')
+				integral = false;
+			else if (c < '0' || c > '9')
+				break;
+			position++;
+		}
+
+		String number = text.substring(start, position);
+		try {
+			if (integral)
+				return Long.valueOf(number);
+			return Double.valueOf(number);
+		} catch (NumberFormatException e) {
+			throw error("Malformed number " + number);
+		}
+	}
+
+	private Object literal(String word, Object value) {
+		if (!text.startsWith(word, position))
+			throw error("Unexpected char '" + text.charAt(position) + "'");
+		position += word.length();
+		return value;
+	}
+
+	// skip a char if it is the next one
+	private boolean next(char c) {
+		if (position < text.length() && text.charAt(position) == c) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipWhitespace() {
+		while (position < text.length()) {
+			char c = text.charAt(position);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r')
+				break;
+			position++;
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at offset " + position);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void write(Object value, StringBuilder json) {
+		if (value == null)
+			json.append("null");
+		else if (value instanceof String)
+			writeString((String) value, json);
+		else if (value instanceof Map) {
+			json.append('{');
+			boolean first = true;
+			for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+				if (!first)
+					json.append(',');
+				first = false;
+				writeString(entry.getKey(), json);
+				json.append(':');
+				write(entry.getValue(), json);
+			}
+			json.append('}');
+		} else if (value instanceof List) {
+			json.append('[');
+			boolean first = true;
+			for (Object element : (List<Object>) value) {
+				if (!first)
+					json.append(',');
+				first = false;
+				write(element, json);
+			}
+			json.append(']');
+		} else if (value instanceof Number || value instanceof Boolean)
+			json.append(value);
+		else
+			throw new IllegalArgumentException("Not a JSON value: " + value.getClass().getName());
+	}
+
+	private static void writeString(String string, StringBuilder json) {
+		json.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			switch (c) {
+			case '"':
+				json.append("\\\"");
+				break;
+			case '\\':
+				json.append("\\\\");
+				break;
+			case '\n':
+				json.append("\\n");
+				break;
+			case '\r':
+				json.append("\\r");
+				break;
+			case '\t':
+				json.append("\\t");
+				break;
+			default:
+				if (c < 0x20)
+					json.append(String.format("\\u%04x", (int) c));
+				else
+					json.append(c);
+				break;
+			}
+		}
+		json.append('"');
+	}
+}
@@ -0,0 +1,562 @@
+package lsp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import ast.BooleanArrayType;
+import ast.BooleanType;
+import ast.CharArrayType;
+import ast.CharType;
+import ast.FloatArrayType;
+import ast.FloatType;
+import ast.Identifier;
+import ast.IntegerArrayType;
+import ast.IntegerType;
+import ast.Span;
+import ast.Type;
+import ast.VarDecl;
+import diagnostic.Diagnostic;
+import diagnostic.DiagnosticList;
+import diagnostic.Severity;
+import lexer.Lexer;
+import lexer.LineTable;
+import lexer.NamePool;
+import lexer.Token;
+import lexer.TokenSource;
+import parser.Parser;
+import semantic.SemanticAnalyzer;
+import semantic.SymbolTable;
+
+/*
+ *
+ * Language server speaking JSON-RPC over stdin and stdout (the Language
+ * Server Protocol). Open documents are analyzed with Lexer, Parser and
+ * SemanticAnalyzer on a background thread, and their syntax and semantic
+ * errors are published to the editor as diagnostics. A change only
+ * updates the text and restarts the document's debounce delay, so a burst
+ * of keystrokes is analyzed once, after the last one, and the message
+ * loop never waits for an analysis. An analysis overtaken by a newer
+ * change stops at its next token and its results are dropped.
+ *
+ * Hover shows the declared type of a variable and go to definition jumps
+ * to its declaration, both answered from the last analysis of the
+ * document.
+ *
+ * Usage: java lsp.LanguageServer [-debounce MILLIS]
+ *
+ */
+
+public class LanguageServer {
+	public final static int DEFAULT_DEBOUNCE = 200; //milliseconds an analysis waits for further changes
+	private final static String SOURCE = "semantic"; //names the diagnostics' origin in the editor
+
+	// JSON-RPC and LSP error codes
+	private final static int PARSE_ERROR = -32700;
+	private final static int INVALID_REQUEST = -32600;
+	private final static int METHOD_NOT_FOUND = -32601;
+	private final static int INTERNAL_ERROR = -32603;
+	private final static int SERVER_NOT_INITIALIZED = -32002;
+
+	// an open document as the editor has it, with its last analysis
+	private static class Document {
+		private String uri;
+		private String text; //current text (message thread)
+		private Object version; //editor's version of the text (message thread)
+		private volatile int revision; //bumped by every change on the message thread, older analyses are stale
+		private ScheduledFuture<?> pending; //analysis scheduled after the last change (message thread)
+		private volatile Analysis analysis; //last completed analysis (null before the first one)
+	}
+
+	// what an analysis found, read-only once published to the message thread
+	private static class Analysis {
+		private String text; //text analyzed
+		private LineTable lines; //line starts of the text
+		private List<Identifier> identifiers; //variables referenced and declared, with their spans
+		private SymbolTable symbolTable; //declaration of each name
+	}
+
+	// error response to a request
+	private static class ResponseError extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private int code;
+
+		public ResponseError(int code, String message) {
+			super(message);
+			this.code = code;
+		}
+	}
+
+	private InputStream in;
+	private OutputStream out; //written by the message thread and the analysis thread
+	private int debounce;
+	private ScheduledExecutorService executor; //runs the analyses one at a time
+	private Map<String, Document> documents = new HashMap<String, Document>(); //open documents by URI (message thread)
+	private boolean initialized;
+	private boolean shutdown; //shutdown was requested, so exit ends the server normally
+
+	public LanguageServer(InputStream in, OutputStream out, int debounce) {
+		this.in = in;
+		this.out = out;
+		this.debounce = debounce;
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				// a running analysis must not keep the JVM alive after exit
+				Thread thread = new Thread(task, "analysis");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public static void main(String[] args) throws IOException {
+		int debounce = DEFAULT_DEBOUNCE;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-debounce") && i + 1 < args.length)
+				debounce = Integer.parseInt(args[++i]);
+		}
+
+		LanguageServer server = new LanguageServer(System.in, System.out, debounce);
+		System.exit(server.run() ? 0 : 1);
+	}
+
+	// serve messages until exit or the end of input, returns true if exit followed a shutdown request
+	public boolean run() throws IOException {
+		try {
+			String message;
+			while ((message = read()) != null) {
+				if (!dispatch(message))
+					return shutdown;
+			}
+			return false;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	// handle one message, returns false on the exit notification
+	private boolean dispatch(String message) throws IOException {
+		Map<String, Object> request;
+		try {
+			request = object(Json.parse(message));
+		} catch (IllegalArgumentException e) {
+			sendError(null, PARSE_ERROR, e.getMessage());
+			return true;
+		}
+
+		Object id = request.get("id"); //null for notifications, which get no response
+		Object method = request.get("method");
+		if (!(method instanceof String)) {
+			// responses to server requests are ignored (the server sends none)
+			if (id != null && !request.containsKey("result") && !request.containsKey("error"))
+				sendError(id, INVALID_REQUEST, "Missing method");
+			return true;
+		}
+		if (method.equals("exit"))
+			return false;
+
+		try {
+			Map<String, Object> params = (request.get("params") != null) ? object(request.get("params"))
+					: Collections.<String, Object>emptyMap();
+			Object result = handle((String) method, params);
+			if (id != null)
+				sendResult(id, result);
+		} catch (ResponseError e) {
+			if (id != null)
+				sendError(id, e.code, e.getMessage());
+		} catch (RuntimeException e) {
+			// malformed parameters
+			if (id != null)
+				sendError(id, INTERNAL_ERROR, e.toString());
+		}
+		return true;
+	}
+
+	// result of a request or notification (null if none)
+	private Object handle(String method, Map<String, Object> params) {
+		if (method.equals("initialize")) {
+			initialized = true;
+			return capabilities();
+		}
+		if (!initialized)
+			throw new ResponseError(SERVER_NOT_INITIALIZED, "Server not initialized");
+		if (shutdown)
+			throw new ResponseError(INVALID_REQUEST, "Server is shutting down");
+
+		if (method.equals("shutdown"))
+			shutdown = true;
+		else if (method.equals("textDocument/didOpen"))
+			open(params);
+		else if (method.equals("textDocument/didChange"))
+			change(params);
+		else if (method.equals("textDocument/didClose"))
+			close(params);
+		else if (method.equals("textDocument/hover"))
+			return hover(params);
+		else if (method.equals("textDocument/definition"))
+			return definition(params);
+		else if (!method.startsWith("$/") && !method.equals("initialized"))
+			throw new ResponseError(METHOD_NOT_FOUND, "Unknown method " + method);
+		return null;
+	}
+
+	private static Map<String, Object> capabilities() {
+		// incremental text changes (2), the whole text only on open
+		Map<String, Object> sync = Json.object("openClose", Boolean.TRUE, "change", 2);
+		Map<String, Object> capabilities = Json.object("textDocumentSync", sync, "hoverProvider", Boolean.TRUE,
+				"definitionProvider", Boolean.TRUE);
+		return Json.object("capabilities", capabilities, "serverInfo", Json.object("name", "semantic-analyzer"));
+	}
+
+	private void open(Map<String, Object> params) {
+		Map<String, Object> item = object(params.get("textDocument"));
+		Document document = new Document();
+		document.uri = (String) item.get("uri");
+		document.text = (String) item.get("text");
+		document.version = item.get("version");
+
+		Document previous = documents.put(document.uri, document);
+		if (previous != null)
+			stop(previous);
+		schedule(document);
+	}
+
+	// apply the changes in order, each one to the text left by the previous one
+	private void change(Map<String, Object> params) {
+		Map<String, Object> item = object(params.get("textDocument"));
+		Document document = documents.get(item.get("uri"));
+		if (document == null)
+			return;
+
+		String text = document.text;
+		for (Object element : list(params.get("contentChanges"))) {
+			Map<String, Object> change = object(element);
+			if (change.get("range") == null)
+				text = (String) change.get("text");
+			else {
+				Map<String, Object> range = object(change.get("range"));
+				LineTable lines = lines(text);
+				int start = offset(text, lines, object(range.get("start")));
+				int end = Math.max(start, offset(text, lines, object(range.get("end"))));
+				text = text.substring(0, start) + change.get("text") + text.substring(end);
+			}
+		}
+		document.text = text;
+		document.version = item.get("version");
+		schedule(document);
+	}
+
+	private void close(Map<String, Object> params) {
+		final Document document = documents.remove(object(params.get("textDocument")).get("uri"));
+		if (document == null)
+			return;
+		stop(document);
+
+		// clear the editor's diagnostics after any analysis still running for the document
+		executor.execute(new Runnable() {
+			public void run() {
+				publish(document.uri, null, new ArrayList<Object>());
+			}
+		});
+	}
+
+	// (re)start the debounce delay of a document's analysis, stopping the analysis of an older text
+	private void schedule(final Document document) {
+		stop(document);
+		final int revision = document.revision;
+		final String text = document.text;
+		final Object version = document.version;
+		document.pending = executor.schedule(new Runnable() {
+			public void run() {
+				analyze(document, text, revision, version);
+			}
+		}, debounce, TimeUnit.MILLISECONDS);
+	}
+
+	// make the scheduled or running analysis of a document stale
+	private void stop(Document document) {
+		document.revision++;
+		if (document.pending != null)
+			document.pending.cancel(false);
+	}
+
+	// analysis thread: analyze a text of a document and publish its diagnostics, unless a change overtook it
+	private void analyze(final Document document, String text, final int revision, Object version) {
+		final Lexer lexer = new Lexer(CharBuffer.wrap(text));
+		lexer.setLazyPositions(true); // the parser only asks for the positions of its errors
+		DiagnosticList diagnostics = new DiagnosticList();
+		lexer.setDiagnosticSink(diagnostics);
+
+		Analysis analysis = new Analysis();
+		try {
+			// stop at the next token once the document is changed again
+			Parser parser = new Parser(new TokenSource() {
+				public Token getToken() throws IOException {
+					if (document.revision != revision)
+						throw new CancellationException();
+					return lexer.getToken();
+				}
+
+				public NamePool getNamePool() {
+					return lexer.getNamePool();
+				}
+
+				public LineTable getLineTable() {
+					return lexer.getLineTable();
+				}
+			});
+			SemanticAnalyzer semantic = new SemanticAnalyzer(parser);
+			semantic.setDiagnosticSink(diagnostics);
+			semantic.analyzeProgram();
+
+			analysis.identifiers = new ArrayList<Identifier>(parser.getIdentifiers());
+			for (VarDecl varDecl : parser.getDecelarations())
+				analysis.identifiers.add(varDecl.getId());
+			analysis.symbolTable = semantic.getSymbolTable();
+		} catch (CancellationException e) {
+			return;
+		} catch (IOException e) {
+			return; // not thrown when reading a string
+		}
+		analysis.text = text;
+		analysis.lines = lines(text);
+
+		if (document.revision != revision)
+			return;
+		document.analysis = analysis;
+
+		List<Object> found = new ArrayList<Object>();
+		for (Diagnostic diagnostic : diagnostics.getDiagnostics())
+			found.add(diagnostic(analysis.lines, diagnostic));
+		publish(document.uri, version, found);
+	}
+
+	private void publish(String uri, Object version, List<Object> diagnostics) {
+		Map<String, Object> params = Json.object("uri", uri);
+		if (version != null)
+			params.put("version", version);
+		params.put("diagnostics", diagnostics);
+		send(Json.object("jsonrpc", "2.0", "method", "textDocument/publishDiagnostics", "params", params));
+	}
+
+	// LSP diagnostic over the span of a diagnostic, or at its line and column if it has none
+	private static Map<String, Object> diagnostic(LineTable lines, Diagnostic diagnostic) {
+		Map<String, Object> range;
+		if (diagnostic.getSpan() != Span.NONE)
+			range = range(lines, diagnostic.getSpan());
+		else {
+			Map<String, Object> position = Json.object("line", Math.max(diagnostic.getLineNumber() - 1, 0),
+					"character", Math.max(diagnostic.getColumnNumber() - 1, 0));
+			range = Json.object("start", position, "end", position);
+		}
+
+		int severity = (diagnostic.getSeverity() == Severity.ERROR) ? 1 : 2;
+		return Json.object("range", range, "severity", severity, "source", SOURCE, "message",
+				diagnostic.getMessage());
+	}
+
+	private Object hover(Map<String, Object> params) {
+		Analysis analysis = analysis(params);
+		Identifier identifier = identifierAt(analysis, params);
+		if (identifier == null)
+			return null;
+		VarDecl varDecl = analysis.symbolTable.lookup(identifier.getName());
+		if (varDecl == null)
+			return null;
+
+		String value = typeName(varDecl.getType()) + " " + identifier.getName();
+		return Json.object("contents", Json.object("kind", "plaintext", "value", value), "range",
+				range(analysis.lines, identifier.getSpan()));
+	}
+
+	private Object definition(Map<String, Object> params) {
+		Analysis analysis = analysis(params);
+		Identifier identifier = identifierAt(analysis, params);
+		if (identifier == null)
+			return null;
+		VarDecl varDecl = analysis.symbolTable.lookup(identifier.getName());
+		if (varDecl == null || varDecl.getId().getSpan() == Span.NONE)
+			return null;
+
+		String uri = (String) object(params.get("textDocument")).get("uri");
+		return Json.object("uri", uri, "range", range(analysis.lines, varDecl.getId().getSpan()));
+	}
+
+	// last analysis of the document of a request (null if it is not open or not analyzed yet)
+	private Analysis analysis(Map<String, Object> params) {
+		Document document = documents.get(object(params.get("textDocument")).get("uri"));
+		return (document != null) ? document.analysis : null;
+	}
+
+	// variable at the position of a request, the cursor may also be right after its name
+	private static Identifier identifierAt(Analysis analysis, Map<String, Object> params) {
+		if (analysis == null)
+			return null;
+		int offset = offset(analysis.text, analysis.lines, object(params.get("position")));
+		for (Identifier identifier : analysis.identifiers) {
+			long span = (identifier != null) ? identifier.getSpan() : Span.NONE;
+			if (span != Span.NONE && Span.offset(span) <= offset && offset <= Span.end(span))
+				return identifier;
+		}
+		return null;
+	}
+
+	// declared type as written in the source, e.g. int or float[4]
+	private static String typeName(Type type) {
+		if (type instanceof IntegerType)
+			return "int";
+		if (type instanceof FloatType)
+			return "float";
+		if (type instanceof CharType)
+			return "char";
+		if (type instanceof BooleanType)
+			return "boolean";
+		if (type instanceof IntegerArrayType)
+			return "int[" + ((IntegerArrayType) type).getSize() + "]";
+		if (type instanceof FloatArrayType)
+			return "float[" + ((FloatArrayType) type).getSize() + "]";
+		if (type instanceof CharArrayType)
+			return "char[" + ((CharArrayType) type).getSize() + "]";
+		if (type instanceof BooleanArrayType)
+			return "boolean[" + ((BooleanArrayType) type).getSize() + "]";
+		return "?";
+	}
+
+	// line starts of a text, lines end at \n, \r\n or \r as for the lexer and the editor
+	private static LineTable lines(String text) {
+		LineTable lines = new LineTable();
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n')
+				i++;
+			if (c == '\n' || c == '\r')
+				lines.addLine(i + 1);
+		}
+		return lines;
+	}
+
+	// offset of an LSP position (0-based line and UTF-16 char) in a text, at most the end of its line
+	private static int offset(String text, LineTable lines, Map<String, Object> position) {
+		int line = Math.max((int) number(position.get("line")), 0);
+		if (line >= lines.getLineCount())
+			return text.length();
+
+		int start = lines.getLineStart(line + 1);
+		int end = start;
+		while (end < text.length() && text.charAt(end) != '\n' && text.charAt(end) != '\r')
+			end++;
+		return start + Math.min(Math.max((int) number(position.get("character")), 0), end - start);
+	}
+
+	// LSP range of a span
+	private static Map<String, Object> range(LineTable lines, long span) {
+		return Json.object("start", position(lines, Span.offset(span)), "end", position(lines, Span.end(span)));
+	}
+
+	// LSP position of an offset
+	private static Map<String, Object> position(LineTable lines, int offset) {
+		int line = lines.getLineNumber(offset);
+		return Json.object("line", line - 1, "character", offset - lines.getLineStart(line));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> object(Object value) {
+		if (!(value instanceof Map))
+			throw new IllegalArgumentException("Expected an object");
+		return (Map<String, Object>) value;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Object> list(Object value) {
+		if (!(value instanceof List))
+			throw new IllegalArgumentException("Expected an array");
+		return (List<Object>) value;
+	}
+
+	private static long number(Object value) {
+		if (!(value instanceof Number))
+			throw new IllegalArgumentException("Expected a number");
+		return ((Number) value).longValue();
+	}
+
+	private void sendResult(Object id, Object result) {
+		Map<String, Object> response = Json.object("jsonrpc", "2.0", "id", id);
+		response.put("result", result);
+		send(response);
+	}
+
+	private void sendError(Object id, int code, String message) {
+		Map<String, Object> response = Json.object("jsonrpc", "2.0", "id", id);
+		response.put("error", Json.object("code", code, "message", message));
+		send(response);
+	}
+
+	// write a message with its Content-Length header, from either thread
+	private void send(Map<String, Object> message) {
+		byte[] content = Json.write(message).getBytes(StandardCharsets.UTF_8);
+		byte[] header = ("Content-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+		synchronized (out) {
+			try {
+				out.write(header);
+				out.write(content);
+				out.flush();
+			} catch (IOException e) {
+				// the editor went away, the message loop ends at the end of its input
+			}
+		}
+	}
+
+	// content of the next message, null at the end of input
+	private String read() throws IOException {
+		int length = -1;
+		String line;
+		while ((line = readHeaderLine()) != null) {
+			if (line.isEmpty()) {
+				if (length >= 0)
+					break;
+				continue; // no header yet
+			}
+			int colon = line.indexOf(':');
+			if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Content-Length"))
+				length = Integer.parseInt(line.substring(colon + 1).trim());
+		}
+		if (line == null)
+			return null;
+
+		byte[] content = new byte[length];
+		int read = 0;
+		while (read < length) {
+			int count = in.read(content, read, length - read);
+			if (count < 0)
+				return null;
+			read += count;
+		}
+		return new String(content, StandardCharsets.UTF_8);
+	}
+
+	// header line without its line break, null at the end of input
+	private String readHeaderLine() throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int c;
+		while ((c = in.read()) != -1) {
+			if (c == '\n')
+				return line.toString("US-ASCII").trim();
+			line.write(c);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,326 @@
+package lsp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import ast.Identifier;
+import ast.Span;
+import ast.VarDecl;
+import diagnostic.Diagnostic;
+import diagnostic.DiagnosticList;
+import lexer.Lexer;
+import parser.Parser;
+import semantic.SemanticAnalyzer;
+
+/*
+ *
+ * End to end client of the language server: starts java lsp.LanguageServer
+ * as a child process and drives it over its stdin and stdout. For each file
+ * argument it opens the file and checks the published diagnostics against a
+ * SemanticAnalyzer run, hovers over and jumps from a use of the first
+ * declared variable, then types a statement one char per change and checks
+ * that the burst is analyzed once, with the diagnostics of the final text.
+ * Last the server is shut down and must exit normally, e.g.
+ * java lsp.TestLanguageServer tests/*.txt
+ *
+ */
+
+public class TestLanguageServer {
+	private final static long TIMEOUT = 10; //seconds to wait for a message
+	private final static long QUIET = 1000; //milliseconds without a message after which a burst is over
+	private final static String TYPED = "zz = 1;"; //statement typed into each file, zz is never declared
+
+	private OutputStream server; //server's stdin
+	private BlockingQueue<Map<String, Object>> messages = new LinkedBlockingQueue<Map<String, Object>>();
+	private List<Map<String, Object>> notifications = new ArrayList<Map<String, Object>>(); //set aside by request()
+	private int nextId = 1;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length == 0) {
+			System.err.println("No file arguments given");
+			return;
+		}
+
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "lsp.LanguageServer")
+				.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		TestLanguageServer client = new TestLanguageServer(process);
+
+		int failures = 0;
+		String failure = client.initialize();
+		if (failure != null) {
+			System.err.println("initialize: " + failure);
+			failures++;
+		} else {
+			for (int i = 0; i < args.length; i++) {
+				failure = client.check(args[i]);
+				if (failure != null) {
+					System.err.println(args[i] + ": " + failure);
+					failures++;
+				} else
+					System.out.println(args[i] + ": OK");
+			}
+		}
+
+		failure = client.shutdown(process);
+		if (failure != null) {
+			System.err.println("shutdown: " + failure);
+			failures++;
+		}
+		System.out.println("---");
+		System.out.println(failures + " of " + (args.length + 2) + " checks failed");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	public TestLanguageServer(Process process) {
+		this.server = process.getOutputStream();
+		final InputStream in = process.getInputStream();
+
+		// read the server's messages on a thread of their own, so waits can time out
+		Thread reader = new Thread(new Runnable() {
+			public void run() {
+				try {
+					String message;
+					while ((message = read(in)) != null)
+						messages.add(object(Json.parse(message)));
+				} catch (IOException e) {
+					// the server exited
+				}
+			}
+		}, "reader");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	// initialize the server, returns null if it answers with the expected capabilities
+	private String initialize() throws IOException, InterruptedException {
+		Map<String, Object> result = object(request("initialize", Json.object("processId", null, "capabilities",
+				Json.object())));
+		Map<String, Object> capabilities = object(result.get("capabilities"));
+		if (!Boolean.TRUE.equals(capabilities.get("hoverProvider"))
+				|| !Boolean.TRUE.equals(capabilities.get("definitionProvider")))
+			return "missing capabilities " + Json.write(capabilities);
+		notify("initialized", Json.object());
+		return null;
+	}
+
+	// shut the server down, returns null if it exits normally
+	private String shutdown(Process process) throws IOException, InterruptedException {
+		request("shutdown", null);
+		notify("exit", null);
+		if (!process.waitFor(TIMEOUT, TimeUnit.SECONDS)) {
+			process.destroy();
+			return "server did not exit";
+		}
+		return (process.exitValue() == 0) ? null : "server exited with " + process.exitValue();
+	}
+
+	// open a file, check the server's answers and close it, returns null if they are all as expected
+	private String check(String file) throws IOException, InterruptedException {
+		String text = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.ISO_8859_1);
+		String uri = new File(file).getAbsoluteFile().toURI().toString();
+		Map<String, Object> document = Json.object("uri", uri);
+
+		notify("textDocument/didOpen", Json.object("textDocument", Json.object("uri", uri, "languageId", "minijava",
+				"version", 1, "text", text)));
+		List<Map<String, Object>> published = awaitDiagnostics(uri);
+		String mismatch = compare(published, 1, text);
+		if (mismatch != null)
+			return "after open, " + mismatch;
+
+		// hover over and jump from the first use of a declared variable
+		Parser parser = new Parser(new Lexer(CharBuffer.wrap(text)));
+		parser.setDiagnosticSink(new DiagnosticList());
+		parser.parseProgram();
+		for (Identifier use : parser.getIdentifiers()) {
+			VarDecl varDecl = declaration(parser, use.getName());
+			if (varDecl == null || use.getSpan() == Span.NONE)
+				continue;
+
+			Map<String, Object> position = position(text, Span.offset(use.getSpan()) + 1);
+			Map<String, Object> params = Json.object("textDocument", document, "position", position);
+			Object hover = request("textDocument/hover", params);
+			String value = (hover != null) ? (String) object(object(hover).get("contents")).get("value") : null;
+			if (value == null || !value.endsWith(" " + use.getName()))
+				return "hover over " + use.getName() + " shows " + value;
+
+			Object definition = request("textDocument/definition", params);
+			Map<String, Object> start = position(text, Span.offset(varDecl.getId().getSpan()));
+			if (definition == null || !object(object(object(definition).get("range")).get("start")).equals(start))
+				return "definition of " + use.getName() + " at " + Json.write(definition) + ", expected " + Json.write(start);
+			break;
+		}
+
+		// type a statement before the last brace, one char per change
+		int offset = Math.max(text.lastIndexOf('}'), 0);
+		for (int i = 0; i < TYPED.length(); i++) {
+			Map<String, Object> at = position(text, offset);
+			Map<String, Object> change = Json.object("range", Json.object("start", at, "end", at), "text",
+					TYPED.substring(i, i + 1));
+			text = text.substring(0, offset) + TYPED.charAt(i) + text.substring(offset);
+			offset++;
+			notify("textDocument/didChange", Json.object("textDocument", Json.object("uri", uri, "version", i + 2),
+					"contentChanges", Collections.singletonList(change)));
+		}
+		published = awaitDiagnostics(uri);
+		mismatch = compare(published, TYPED.length() + 1, text);
+		if (mismatch != null)
+			return "after typing, " + mismatch;
+
+		notify("textDocument/didClose", Json.object("textDocument", document));
+		published = awaitDiagnostics(uri);
+		if (published.size() != 1 || !list(object(published.get(0).get("params")).get("diagnostics")).isEmpty())
+			return "diagnostics not cleared on close";
+		return null;
+	}
+
+	// check that a burst of changes published once, the diagnostics of a version of a text
+	private static String compare(List<Map<String, Object>> published, int version, String text) throws IOException {
+		if (published.size() != 1)
+			return published.size() + " publishes instead of 1";
+		Map<String, Object> params = object(published.get(0).get("params"));
+		if (!Long.valueOf(version).equals(params.get("version")))
+			return "published version " + params.get("version") + " instead of " + version;
+
+		List<String> expected = new ArrayList<String>();
+		SemanticAnalyzer semantic = new SemanticAnalyzer(new Parser(new Lexer(CharBuffer.wrap(text))));
+		DiagnosticList diagnostics = new DiagnosticList();
+		semantic.setDiagnosticSink(diagnostics);
+		semantic.analyzeProgram();
+		for (Diagnostic diagnostic : diagnostics.getDiagnostics()) {
+			Map<String, Object> start = (diagnostic.getSpan() != Span.NONE)
+					? position(text, Span.offset(diagnostic.getSpan()))
+					: Json.object("line", 0L, "character", 0L);
+			expected.add(Json.write(start) + " " + diagnostic.getMessage());
+		}
+
+		List<String> actual = new ArrayList<String>();
+		for (Object element : list(params.get("diagnostics"))) {
+			Map<String, Object> diagnostic = object(element);
+			actual.add(Json.write(object(diagnostic.get("range")).get("start")) + " " + diagnostic.get("message"));
+		}
+		return actual.equals(expected) ? null : "diagnostics " + actual + ", expected " + expected;
+	}
+
+	// first declaration of a name
+	private static VarDecl declaration(Parser parser, String name) {
+		for (VarDecl varDecl : parser.getDecelarations()) {
+			if (varDecl.getId() != null && varDecl.getId().getName().equals(name))
+				return varDecl;
+		}
+		return null;
+	}
+
+	// LSP position of an offset, counted here independently of the server
+	private static Map<String, Object> position(String text, int offset) {
+		long line = 0;
+		int lineStart = 0;
+		for (int i = 0; i < offset; i++) {
+			char c = text.charAt(i);
+			if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+				line++;
+				lineStart = i + 1;
+			}
+		}
+		return Json.object("line", line, "character", (long) (offset - lineStart));
+	}
+
+	// publishDiagnostics notifications for a document until the server is quiet
+	private List<Map<String, Object>> awaitDiagnostics(String uri) throws InterruptedException {
+		List<Map<String, Object>> published = new ArrayList<Map<String, Object>>();
+		long wait = TimeUnit.SECONDS.toMillis(TIMEOUT);
+		Map<String, Object> message;
+		while ((message = !notifications.isEmpty() ? notifications.remove(0)
+				: messages.poll(wait, TimeUnit.MILLISECONDS)) != null) {
+			if ("textDocument/publishDiagnostics".equals(message.get("method"))
+					&& uri.equals(object(message.get("params")).get("uri")))
+				published.add(message);
+			wait = QUIET;
+		}
+		return published;
+	}
+
+	// send a request and wait for its result (null on an error response)
+	private Object request(String method, Object params) throws IOException, InterruptedException {
+		long id = nextId++;
+		send(Json.object("jsonrpc", "2.0", "id", id, "method", method, "params", params));
+
+		Map<String, Object> message;
+		while ((message = messages.poll(TIMEOUT, TimeUnit.SECONDS)) != null) {
+			if (Long.valueOf(id).equals(message.get("id"))) {
+				if (message.containsKey("error"))
+					System.err.println(method + " failed: " + Json.write(message.get("error")));
+				return message.get("result");
+			}
+			notifications.add(message); // keep it for awaitDiagnostics
+		}
+		throw new IOException("No response to " + method);
+	}
+
+	private void notify(String method, Object params) throws IOException {
+		send(Json.object("jsonrpc", "2.0", "method", method, "params", params));
+	}
+
+	private void send(Map<String, Object> message) throws IOException {
+		byte[] content = Json.write(message).getBytes(StandardCharsets.UTF_8);
+		server.write(("Content-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+		server.write(content);
+		server.flush();
+	}
+
+	// content of the next message, null at the end of input
+	private static String read(InputStream in) throws IOException {
+		int length = -1;
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int c;
+		while ((c = in.read()) != -1) {
+			if (c != '\n') {
+				line.write(c);
+				continue;
+			}
+			String header = line.toString("US-ASCII").trim();
+			line.reset();
+			if (header.isEmpty() && length >= 0)
+				break;
+			if (header.toLowerCase().startsWith("content-length:"))
+				length = Integer.parseInt(header.substring(header.indexOf(':') + 1).trim());
+		}
+		if (c == -1)
+			return null;
+
+		byte[] content = new byte[length];
+		int read = 0;
+		while (read < length) {
+			int count = in.read(content, read, length - read);
+			if (count < 0)
+				return null;
+			read += count;
+		}
+		return new String(content, StandardCharsets.UTF_8);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> object(Object value) {
+		return (Map<String, Object>) value;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Object> list(Object value) {
+		return (List<Object>) value;
+	}
+}
@@ -0,0 +1,213 @@
+package parser;
+
+import ast.Assign;
+import ast.Block;
+import ast.Declarations;
+import ast.Exp;
+import ast.FlatAst;
+import ast.Identifier;
+import ast.NodeKind;
+import ast.Program;
+import ast.Span;
+import ast.Statement;
+import ast.StatementList;
+import ast.Type;
+import ast.VarDecl;
+import ast.VarDeclList;
+import lexer.TokenAttribute;
+import lexer.TokenType;
+
+/*
+ *
+ * Builds a FlatAst instead of ast objects: every production pushes its
+ * node on the flat tree's stack, replacing its children, and returns null.
+ * Nothing is reported to semantic analysis.
+ *
+ */
+
+class FlatTreeBuilder implements TreeBuilder {
+	// flat node kind of each binop indexed by TokenType ordinal
+	private final static NodeKind[] binopKinds;
+
+	private FlatAst flat;
+	private int declaredType = FlatAst.NONE; //type node of the first declaration of the var decl list being parsed
+
+	static {
+		binopKinds = new NodeKind[TokenType.values().length];
+		binopKinds[TokenType.AND.ordinal()] = NodeKind.AND;
+		binopKinds[TokenType.OR.ordinal()] = NodeKind.OR;
+		binopKinds[TokenType.LT.ordinal()] = NodeKind.LESS_THAN;
+		binopKinds[TokenType.RT.ordinal()] = NodeKind.MORE_THAN;
+		binopKinds[TokenType.LT_EQ.ordinal()] = NodeKind.LESS_THAN_EQUAL;
+		binopKinds[TokenType.RT_EQ.ordinal()] = NodeKind.MORE_THAN_EQUAL;
+		binopKinds[TokenType.EQ.ordinal()] = NodeKind.EQUAL;
+		binopKinds[TokenType.NEQ.ordinal()] = NodeKind.NOT_EQUAL;
+		binopKinds[TokenType.PLUS.ordinal()] = NodeKind.PLUS;
+		binopKinds[TokenType.MINUS.ordinal()] = NodeKind.MINUS;
+		binopKinds[TokenType.TIMES.ordinal()] = NodeKind.TIMES;
+		binopKinds[TokenType.DIV.ordinal()] = NodeKind.DIVIDE;
+		binopKinds[TokenType.MOD.ordinal()] = NodeKind.MODULES;
+		binopKinds[TokenType.LBRACKET.ordinal()] = NodeKind.ARRAY_LOOKUP;
+	}
+
+	FlatTreeBuilder(FlatAst flat) {
+		this.flat = flat;
+	}
+
+	// symbol id of an ID token, pooling its name if the token source did not
+	private int symbol(TokenAttribute attribute) {
+		int symbol = attribute.getSymbol();
+		return (symbol >= 0) ? symbol : flat.getNamePool().intern(attribute.getIdVal());
+	}
+
+	public Program program(Declarations declarations, StatementList statementList, long span) {
+		flat.node(NodeKind.PROGRAM, 2, span);
+		return null;
+	}
+
+	public Declarations declarations() {
+		return null;
+	}
+
+	public void addVarDeclList(Declarations declarations, VarDeclList varDeclList) {}
+
+	public Declarations endDeclarations(Declarations declarations, int count, long span) {
+		flat.node(NodeKind.DECLARATIONS, count, span);
+		return null;
+	}
+
+	public VarDeclList varDeclList() {
+		return null;
+	}
+
+	public void addVarDecl(VarDeclList varDeclList, VarDecl varDecl) {}
+
+	public VarDeclList endVarDeclList(VarDeclList varDeclList, int count, long span) {
+		flat.node(NodeKind.VAR_DECL_LIST, count, span);
+		return null;
+	}
+
+	public Type type(Type type) {
+		flat.type(type);
+		return type;
+	}
+
+	public VarDecl varDecl(Type type, Identifier id, long span) {
+		flat.node(NodeKind.VAR_DECL, 2, span);
+		declaredType = flat.getChild(flat.peek(), 0);
+		return null;
+	}
+
+	// the declarations of a list share the type node like the objects do
+	public VarDecl nextVarDecl(VarDecl first, Identifier id, long span) {
+		int identifier = flat.pop();
+		flat.push(declaredType);
+		flat.push(identifier);
+		flat.node(NodeKind.VAR_DECL, 2, (identifier != FlatAst.NONE) ? span : Span.NONE);
+		return null;
+	}
+
+	public Identifier identifier(TokenAttribute attribute, long span) {
+		flat.leaf(NodeKind.IDENTIFIER, symbol(attribute), span);
+		return null;
+	}
+
+	public StatementList statementList() {
+		return null;
+	}
+
+	public void addStatement(StatementList statementList, Statement statement) {}
+
+	public StatementList endStatementList(StatementList statementList, int count) {
+		flat.node(NodeKind.STATEMENT_LIST, count);
+		return null;
+	}
+
+	public Block block(StatementList statementList, long span) {
+		flat.node(NodeKind.BLOCK, 1, span);
+		return null;
+	}
+
+	public Statement ifStatement(Exp condition, Statement thenStatement, long span) {
+		flat.none();
+		flat.node(NodeKind.IF, 3, span);
+		return null;
+	}
+
+	public Statement ifElseStatement(Exp condition, Statement thenStatement, Statement elseStatement, long span) {
+		flat.node(NodeKind.IF, 3, span);
+		return null;
+	}
+
+	public Statement whileStatement(Exp condition, Statement body, long span) {
+		flat.node(NodeKind.WHILE, 2, span);
+		return null;
+	}
+
+	public Assign assign(Identifier id, Exp value, long span) {
+		flat.node(NodeKind.ASSIGN, 2, span);
+		return null;
+	}
+
+	public Statement arrayAssign(Identifier id, Exp index, Exp value, long span) {
+		flat.node(NodeKind.ARRAY_ASSIGN, 3, span);
+		return null;
+	}
+
+	public boolean isIntegerLiteral(Exp exp) {
+		return flat.peek() != FlatAst.NONE && flat.getKind(flat.peek()) == NodeKind.INT_LITERAL;
+	}
+
+	public Exp binop(TokenType binop, Exp lhs, Exp rhs, long span) {
+		flat.node(binopKinds[binop.ordinal()], 2, span);
+		return null;
+	}
+
+	public Exp unary(TokenType operator, Exp operand, long span) {
+		flat.node((operator == TokenType.NOT) ? NodeKind.NOT : NodeKind.NEGATIVE, 1, span);
+		return null;
+	}
+
+	public Exp intLiteral(int value, long span) {
+		flat.leaf(NodeKind.INT_LITERAL, value, span);
+		return null;
+	}
+
+	public Exp floatLiteral(float value, long span) {
+		flat.leaf(NodeKind.FLOAT_LITERAL, Float.floatToRawIntBits(value), span);
+		return null;
+	}
+
+	public Exp booleanLiteral(boolean value, long span) {
+		flat.leaf(NodeKind.BOOLEAN_LITERAL, value ? 1 : 0, span);
+		return null;
+	}
+
+	public Exp charLiteral(char value, long span) {
+		flat.leaf(NodeKind.CHAR_LITERAL, value, span);
+		return null;
+	}
+
+	public Exp identifierExp(TokenAttribute attribute, long span) {
+		flat.leaf(NodeKind.IDENTIFIER_EXP, symbol(attribute), span);
+		return null;
+	}
+
+	public void missing() {
+		flat.none();
+	}
+
+	public void drop(int count) {
+		flat.drop(count);
+	}
+
+	public void declared(VarDecl varDecl) {}
+
+	public void used(Identifier identifier) {}
+
+	public void assigned(Assign assign) {}
+
+	public void condition(Exp condition) {}
+
+	public void statement(Statement statement) {}
+}
@@ -0,0 +1,259 @@
+package parser;
+
+import java.util.ArrayList;
+
+import ast.*;
+import lexer.TokenAttribute;
+import lexer.TokenType;
+
+/*
+ *
+ * Builds the ast objects of a parse, and collects the declarations,
+ * identifiers, assigns and conditions semantic analysis checks, or streams
+ * them to a ParseListener as soon as they are parsed.
+ *
+ */
+
+class ObjectTreeBuilder implements TreeBuilder {
+	private ArrayList <VarDecl> decelarations = new ArrayList<VarDecl>(); //declarations symbol table
+	private ArrayList <Identifier> identifiers = new ArrayList<Identifier>(); //identifiers symbol table
+	private ArrayList <Assign> assigns = new ArrayList<Assign>(); //assigns symbol table
+	private ArrayList <Exp> conditions = new ArrayList<Exp>(); //conditions symbol table
+	private ParseListener listener; //receives productions instead of the lists in streaming mode
+
+	public void setParseListener(ParseListener listener) {
+		this.listener = listener;
+	}
+
+	public ArrayList <VarDecl> getDecelarations() {
+		return decelarations;
+	}
+
+	public ArrayList <Identifier> getIdentifiers() {
+		return identifiers;
+	}
+
+	public ArrayList <Assign> getAssigns() {
+		return assigns;
+	}
+
+	public ArrayList <Exp> getConditions() {
+		return conditions;
+	}
+
+	// give a node a span, returns the node
+	private static <T extends Node> T spanned(T node, long span) {
+		node.setSpan(span);
+		return node;
+	}
+
+	public Program program(Declarations declarations, StatementList statementList, long span) {
+		return spanned(new Program(statementList, declarations), span);
+	}
+
+	public Declarations declarations() {
+		return new Declarations();
+	}
+
+	public void addVarDeclList(Declarations declarations, VarDeclList varDeclList) {
+		declarations.addElement(varDeclList);
+	}
+
+	public Declarations endDeclarations(Declarations declarations, int count, long span) {
+		declarations.setSpan(span);
+		if (listener != null)
+			listener.declarations(declarations);
+		return declarations;
+	}
+
+	public VarDeclList varDeclList() {
+		return new VarDeclList();
+	}
+
+	public void addVarDecl(VarDeclList varDeclList, VarDecl varDecl) {
+		varDeclList.addElement(varDecl);
+	}
+
+	public VarDeclList endVarDeclList(VarDeclList varDeclList, int count, long span) {
+		return spanned(varDeclList, span);
+	}
+
+	public Type type(Type type) {
+		return type;
+	}
+
+	public VarDecl varDecl(Type type, Identifier id, long span) {
+		return spanned(new VarDecl(type, id), span);
+	}
+
+	public VarDecl nextVarDecl(VarDecl first, Identifier id, long span) {
+		VarDecl varDecl = new VarDecl(first.getType(), id);
+		if (id != null)
+			varDecl.setSpan(span); // the type is shared with the first declaration
+		return varDecl;
+	}
+
+	public Identifier identifier(TokenAttribute attribute, long span) {
+		return spanned(new Identifier(attribute.getIdVal(), attribute.getSymbol()), span);
+	}
+
+	public StatementList statementList() {
+		return new StatementList();
+	}
+
+	// the list spans its statements
+	public void addStatement(StatementList statementList, Statement statement) {
+		statementList.addElement(statement);
+		if (statement != null)
+			statementList.setSpan(Span.join(statementList.getSpan(), statement.getSpan()));
+	}
+
+	public StatementList endStatementList(StatementList statementList, int count) {
+		return statementList;
+	}
+
+	public Block block(StatementList statementList, long span) {
+		return spanned(new Block(statementList), span);
+	}
+
+	public Statement ifStatement(Exp condition, Statement thenStatement, long span) {
+		return spanned(new If(condition, thenStatement, null), span);
+	}
+
+	public Statement ifElseStatement(Exp condition, Statement thenStatement, Statement elseStatement, long span) {
+		return spanned(new If(condition, thenStatement, elseStatement), span);
+	}
+
+	public Statement whileStatement(Exp condition, Statement body, long span) {
+		return spanned(new While(condition, body), span);
+	}
+
+	public Assign assign(Identifier id, Exp value, long span) {
+		return spanned(new Assign(id, value), span);
+	}
+
+	public Statement arrayAssign(Identifier id, Exp index, Exp value, long span) {
+		assigned(spanned(new Assign(id, index, value), span));
+		return spanned(new ArrayAssign(id, index, value), span);
+	}
+
+	public boolean isIntegerLiteral(Exp exp) {
+		return exp instanceof IntegerLiteral;
+	}
+
+	public Exp binop(TokenType binop, Exp lhs, Exp rhs, long span) {
+		Exp exp;
+		switch (binop) {
+		case AND:
+			exp = new And(lhs, rhs);
+			break;
+		case OR:
+			exp = new Or(lhs, rhs);
+			break;
+		case EQ:
+			exp = new Equal(lhs, rhs);
+			break;
+		case NEQ:
+			exp = new NotEqual(lhs, rhs);
+			break;
+		case LT:
+			exp = new LessThan(lhs, rhs);
+			break;
+		case RT:
+			exp = new MoreThan(lhs, rhs);
+			break;
+		case LT_EQ:
+			exp = new LessThanEqual(lhs, rhs);
+			break;
+		case RT_EQ:
+			exp = new MoreThanEqual(lhs, rhs);
+			break;
+		case PLUS:
+			exp = new Plus(lhs, rhs);
+			break;
+		case MINUS:
+			exp = new Minus(lhs, rhs);
+			break;
+		case TIMES:
+			exp = new Times(lhs, rhs);
+			break;
+		case DIV:
+			exp = new Divide(lhs, rhs);
+			break;
+		case MOD:
+			exp = new Modules(lhs, rhs);
+			break;
+		case LBRACKET:
+			exp = new ArrayLookup(lhs, rhs);
+			break;
+		default:
+			throw new IllegalStateException("Not a binop: " + binop);
+		}
+		exp.setSpan(span);
+		return exp;
+	}
+
+	public Exp unary(TokenType operator, Exp operand, long span) {
+		if (operator == TokenType.NOT)
+			return spanned(new Not(operand), span);
+		return spanned(new Negative(operand), span);
+	}
+
+	public Exp intLiteral(int value, long span) {
+		return spanned(new IntegerLiteral(value), span);
+	}
+
+	public Exp floatLiteral(float value, long span) {
+		return spanned(new FloatLiteral(value), span);
+	}
+
+	public Exp booleanLiteral(boolean value, long span) {
+		return spanned(new BooleanLiteral(value), span);
+	}
+
+	public Exp charLiteral(char value, long span) {
+		return spanned(new CharLiteral(value), span);
+	}
+
+	public Exp identifierExp(TokenAttribute attribute, long span) {
+		used(identifier(attribute, span));
+		return spanned(new IdentifierExp(attribute.getIdVal(), attribute.getSymbol()), span);
+	}
+
+	public void missing() {}
+
+	public void drop(int count) {}
+
+	public void declared(VarDecl varDecl) {
+		if (listener != null)
+			listener.declaration(varDecl);
+		else
+			decelarations.add(varDecl);
+	}
+
+	public void used(Identifier identifier) {
+		if (listener != null)
+			listener.identifier(identifier);
+		else
+			identifiers.add(identifier);
+	}
+
+	public void assigned(Assign assign) {
+		if (listener != null)
+			listener.assign(assign);
+		else
+			assigns.add(assign);
+	}
+
+	public void condition(Exp condition) {
+		if (listener != null)
+			listener.condition(condition);
+		else
+			conditions.add(condition);
+	}
+
+	public void statement(Statement statement) {
+		if (listener != null)
+			listener.statement(statement);
+	}
+}
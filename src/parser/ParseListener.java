@@ -0,0 +1,29 @@
+package parser;
+
+import ast.Assign;
+import ast.Declarations;
+import ast.Exp;
+import ast.Identifier;
+import ast.Statement;
+import ast.VarDecl;
+
+// receives the productions semantic analysis needs as soon as the parser reduces them
+public interface ParseListener {
+	// a variable declaration (VarDecl ::= Type Identifier)
+	public void declaration(VarDecl varDecl);
+
+	// a referenced identifier (assignment target or expression operand)
+	public void identifier(Identifier identifier);
+
+	// a complete assignment, for array assignments the target array and value
+	public void assign(Assign assign);
+
+	// the condition of an if or while statement
+	public void condition(Exp condition);
+
+	// the complete declaration section, the parser's lookahead is the first token after it
+	public void declarations(Declarations declarations);
+
+	// a complete top-level statement (null if it could not be parsed), the lookahead is the first token after it
+	public void statement(Statement statement);
+}
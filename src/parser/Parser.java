@@ -2,61 +2,106 @@ package parser;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import ast.*;
+import diagnostic.Diagnostic;
+import diagnostic.DiagnosticSink;
+import diagnostic.DiagnosticWriter;
 import lexer.Lexer;
+import lexer.LineTable;
+import lexer.NamePool;
 import lexer.Token;
+import lexer.TokenPipeline;
+import lexer.TokenSource;
 import lexer.TokenType;
 
 public class Parser {
-	private Lexer lexer;
+	private TokenSource lexer;
 	private Token token;
-	private Token errorToken;
-
-	// hash table for operator precedence levels
-	private final static Map<TokenType, Integer> binopLevels;
+	private int errorToken = -1; //number of the token an error was reported at (a source may reuse one Token object)
+
+	// operator precedence levels indexed by TokenType ordinal (-1 for non-operator tokens)
+	private final static int[] binopLevels;
+
+	// pending operators (binops and subexpression markers) and operands of the expression being parsed
+	private TokenType[] operators = new TokenType[16];
+	private int[] operatorStarts = new int[16]; //offset of each operator token
+	private int operatorCount;
+	private Exp[] operands = new Exp[16]; //null for a flat tree, whose operands are on its own stack
+	private int[] operandStarts = new int[16]; //offset of the first token of each operand
+	private int operandCount;
 	
-	private ArrayList <VarDecl> decelarations; //declarations symbol table
-	private ArrayList <Identifier> identifiers; //identifiers symbol table
-	private ArrayList <Assign> assigns; //assigns symbol table
-	private ArrayList <Exp> conditions; //conditions symbol table
+	private ObjectTreeBuilder objects = new ObjectTreeBuilder(); //builds the ast objects and the declaration, identifier, assign and condition lists
+	private TreeBuilder builder = objects; //receives the productions, a FlatTreeBuilder in parseProgramFlat()
+	private boolean stopped; //stop() was called
 	
 	private int errors;
+	private int tokens; //number of tokens read from the lexer
+	private int end; //offset past the last token consumed (the end of the node being finished)
+	private DiagnosticSink diagnostics = new DiagnosticWriter(System.err); //receives syntax errors
 
 	static {
-		binopLevels = new HashMap<TokenType, Integer>();
-		binopLevels.put(TokenType.AND, 10);
-		binopLevels.put(TokenType.OR, 10);
-		binopLevels.put(TokenType.LT, 20);
-		binopLevels.put(TokenType.RT, 20);
-		binopLevels.put(TokenType.LT_EQ, 20);
-		binopLevels.put(TokenType.RT_EQ, 20);
-		binopLevels.put(TokenType.EQ, 20);
-		binopLevels.put(TokenType.NEQ, 20);
-		binopLevels.put(TokenType.PLUS, 30);
-		binopLevels.put(TokenType.MINUS, 30);
-		binopLevels.put(TokenType.TIMES, 40);
-		binopLevels.put(TokenType.DIV, 40);
-		binopLevels.put(TokenType.MOD, 40);
-		binopLevels.put(TokenType.LBRACKET, 50);
+		binopLevels = new int[TokenType.values().length];
+		Arrays.fill(binopLevels, -1);
+		binopLevels[TokenType.AND.ordinal()] = 10;
+		binopLevels[TokenType.OR.ordinal()] = 10;
+		binopLevels[TokenType.LT.ordinal()] = 20;
+		binopLevels[TokenType.RT.ordinal()] = 20;
+		binopLevels[TokenType.LT_EQ.ordinal()] = 20;
+		binopLevels[TokenType.RT_EQ.ordinal()] = 20;
+		binopLevels[TokenType.EQ.ordinal()] = 20;
+		binopLevels[TokenType.NEQ.ordinal()] = 20;
+		binopLevels[TokenType.PLUS.ordinal()] = 30;
+		binopLevels[TokenType.MINUS.ordinal()] = 30;
+		binopLevels[TokenType.TIMES.ordinal()] = 40;
+		binopLevels[TokenType.DIV.ordinal()] = 40;
+		binopLevels[TokenType.MOD.ordinal()] = 40;
+		binopLevels[TokenType.LBRACKET.ordinal()] = 50;
 	}
 
 	public Parser(FileReader file) throws IOException {
-		this.lexer = new Lexer(file);
-		this.token = lexer.getToken();
-		this.decelarations = new ArrayList<VarDecl>();
-		this.identifiers = new ArrayList<Identifier>();
-		this.assigns = new ArrayList<Assign>();
-		this.conditions = new ArrayList<Exp>();
+		this(new Lexer(file));
+	}
+
+	// parse from an already constructed lexer (e.g. a buffer or memory-mapped one), a token stream reader
+	// or a TokenPipeline scanning on its own thread
+	public Parser(TokenSource lexer) throws IOException {
+		this.lexer = lexer;
+		if (lexer instanceof Lexer)
+			((Lexer) lexer).setDiagnosticSink(diagnostics);
+		else if (lexer instanceof TokenPipeline)
+			((TokenPipeline) lexer).setDiagnosticSink(diagnostics);
+		nextToken();
+	}
+
+	// read the next token from the lexer
+	private void nextToken() throws IOException {
+		if (token != null && token.getOffset() >= 0)
+			end = token.getOffset() + token.getLength();
+		token = lexer.getToken();
+		tokens++;
+	}
+
+	// span of a node from its first token's offset up to the last token consumed
+	// (NONE if the token source does not give offsets)
+	private long span(int start) {
+		return (start >= 0) ? Span.of(start, Math.max(end - start, 0)) : Span.NONE;
+	}
+
+	// give a node the span from its first token's offset, returns the node
+	private <T extends Node> T spanned(T node, int start) {
+		if (node != null)
+			node.setSpan(span(start));
+		return node;
 	}
 
 	// verifies current token type and grabs next token or reports error
 	private boolean eat(TokenType type) throws IOException {
 		if (token.getType() == type) {
-			token = lexer.getToken();
+			nextToken();
 			return true;
 		} else {
 			error(type);
@@ -67,15 +112,13 @@ public class Parser {
 	// reports an error to the console
 	private void error(TokenType type) {
 		// only report error once per erroneous token
-		if (token == errorToken)
+		if (tokens == errorToken)
 			return;
 
-		// print error report
-		System.err.print("ERROR: " + token.getType());
-		System.err.print(" at line " + token.getLineNumber() + ", column " + token.getColumnNumber());
-		System.err.println("; Expected " + type);
+		// report error
+		diagnostics.report(Diagnostic.syntax(token.getType(), type, token.getLineNumber(), token.getColumnNumber(), tokenSpan()));
 				
-		errorToken = token; // set error token to prevent cascading
+		errorToken = tokens; // set error token to prevent cascading
 		errors++; // increment error counter
 	}
 
@@ -86,33 +129,76 @@ public class Parser {
 				if (token.getType() == skip)
 					return;
 			}
-			token = lexer.getToken();
+			nextToken();
 		}
 	}
 
+	// pool of identifier names and symbol ids shared with the lexer
+	public NamePool getNamePool() {
+		return lexer.getNamePool();
+	}
+
+	// line starts of the input, converting node spans to positions (null if unknown)
+	public LineTable getLineTable() {
+		return lexer.getLineTable();
+	}
+
+	// stream declarations, identifiers, assigns and conditions to a listener as they are parsed
+	// instead of collecting them in the lists (which then stay empty)
+	public void setParseListener(ParseListener listener) {
+		objects.setParseListener(listener);
+	}
+
+	// number of tokens read so far
+	public int getTokenCount() {
+		return tokens;
+	}
+
+	// redirect error reports (written to System.err by default)
+	public void setDiagnosticSink(DiagnosticSink diagnostics) {
+		this.diagnostics = diagnostics;
+		if (lexer instanceof Lexer)
+			((Lexer) lexer).setDiagnosticSink(diagnostics);
+		else if (lexer instanceof TokenPipeline)
+			((TokenPipeline) lexer).setDiagnosticSink(diagnostics);
+	}
+
+	// write error reports to a stream
+	public void setErrorStream(PrintStream err) {
+		setDiagnosticSink(new DiagnosticWriter(err));
+	}
+
 	// number of reported syntax errors
 	public int getErrors() {
 		return errors;
 	}
 
 	public ArrayList <VarDecl> getDecelarations() {
-		return decelarations;
+		return objects.getDecelarations();
 	}
 
 	public ArrayList <Identifier> getIdentifiers() {
-		return identifiers;
+		return objects.getIdentifiers();
 	}
 
 	public ArrayList <Assign> getAssigns() {
-		return assigns;
+		return objects.getAssigns();
 	}
 
 	public ArrayList <Exp> getConditions() {
-		return conditions;
+		return objects.getConditions();
+	}
+
+	// end of a parse: an error may have stopped it before EOF, so a lexer thread is stopped
+	private void finish() {
+		diagnostics.flush();
+		if (lexer instanceof TokenPipeline)
+			((TokenPipeline) lexer).close();
 	}
 
 	// Program ::= int main '('')' { Declarations StatementList }
 	public Program parseProgram() throws IOException {		
+		int start = token.getOffset();
 		eat(TokenType.INT);
 		eat(TokenType.MAIN);
 		eat(TokenType.LPAREN);
@@ -124,44 +210,98 @@ public class Parser {
 
 		eat(TokenType.RBRACE);
 		eat(TokenType.EOF);
-		return new Program(statementList, declarations);
+		finish();
+		return builder.program(declarations, statementList, span(start));
+	}
+
+	// Program parsed into a flat tree instead of ast objects, reporting the same syntax errors.
+	// The declaration, identifier, assign and condition lists and the parse listener are not fed.
+	public FlatAst parseProgramFlat() throws IOException {
+		FlatAst flat = new FlatAst(getNamePool());
+		builder = new FlatTreeBuilder(flat);
+		try {
+			parseProgram();
+			flat.finish();
+			return flat;
+		} finally {
+			builder = objects;
+		}
+	}
+
+	// Declarations of a program fragment (re-parsing an edited part of a program), statements may follow
+	public Declarations parseDeclarationFragment() throws IOException {
+		return parseDeclarations();
+	}
+
+	// StatementList EOF of a program fragment (re-parsing an edited part of a program)
+	public StatementList parseStatementFragment() throws IOException {
+		StatementList statementList = parseStatementList();
+		if (!stopped)
+			eat(TokenType.EOF);
+		finish();
+		return statementList;
+	}
+
+	// StatementList } EOF, the end of a program from a top-level statement on (re-parsing an edited end of a program)
+	public StatementList parseProgramEnd() throws IOException {
+		StatementList statementList = parseStatementList();
+		eat(TokenType.RBRACE);
+		eat(TokenType.EOF);
+		finish();
+		return statementList;
+	}
+
+	// end a fragment parse once the current declaration section or top-level statement is complete,
+	// called by a listener that has seen the rest of the fragment
+	public void stop() {
+		stopped = true;
 	}
 
 	// Declarations ::= { VarDeclList }
 	private Declarations parseDeclarations() throws IOException{
-		Declarations declarations = new Declarations();
+		Declarations declarations = builder.declarations();
+		int start = token.getOffset();
+		int count = 0;
 
 		while(token.getType() == TokenType.INT || token.getType() == TokenType.FLOAT
-				|| token.getType() == TokenType.BOOLEAN || token.getType() == TokenType.CHAR)
-			declarations.addElement(parseVarDecList());
+				|| token.getType() == TokenType.BOOLEAN || token.getType() == TokenType.CHAR) {
+			builder.addVarDeclList(declarations, parseVarDecList());
+			count++;
+		}
 
-		return declarations;
+		return builder.endDeclarations(declarations, count, (count > 0) ? span(start) : Span.NONE);
 	}
 
 	// VarDeclList ::= VarDecl { , Identifier };
 	private VarDeclList parseVarDecList() throws IOException{
-		VarDeclList varDeclList = new VarDeclList();
+		VarDeclList varDeclList = builder.varDeclList();
+		int start = token.getOffset();
 		VarDecl varDecl = parseVarDecl();
-		varDeclList.addElement(varDecl);
-		getDecelarations().add(varDecl);
+		builder.addVarDecl(varDeclList, varDecl);
+		builder.declared(varDecl);
+		int count = 1;
 
-		// check for additional varDecl
+		// check for additional varDecl, spanning just its identifier
 		while (token.getType() == TokenType.COMMA) {
 			eat(TokenType.COMMA);
-			VarDecl newVarDecl = new VarDecl(varDecl.getType(), parseIdentifier());
-			varDeclList.addElement(newVarDecl);
-			getDecelarations().add(newVarDecl);
+			int idStart = token.getOffset();
+			Identifier id = parseIdentifier();
+			VarDecl newVarDecl = builder.nextVarDecl(varDecl, id, span(idStart));
+			builder.addVarDecl(varDeclList, newVarDecl);
+			builder.declared(newVarDecl);
+			count++;
 		}
 		eat(TokenType.SEMI);
 
-		return varDeclList;
+		return builder.endVarDeclList(varDeclList, count, span(start));
 	}
 
 	// VarDecl ::= Type Identifier
 	private VarDecl parseVarDecl() throws IOException {
-		Type type = parseType();
+		int start = token.getOffset();
+		Type type = builder.type(parseType());
 		Identifier id = parseIdentifier();
-		return new VarDecl(type, id);
+		return builder.varDecl(type, id, span(start));
 	}
 
 	/*
@@ -174,6 +314,7 @@ public class Parser {
 	 * boolean[integer] (BooleanArrayType)
 	 */
 	private Type parseType() throws IOException {
+		int start = token.getOffset();
 		switch (token.getType()) {
 
 		case INT:
@@ -184,10 +325,11 @@ public class Parser {
 				eat(TokenType.LBRACKET);
 
 				// check array size integer
+				int size = arraySize();
 				if(eat(TokenType.INT_CONST)){
 					if (token.getType() == TokenType.RBRACKET) {
 						eat(TokenType.RBRACKET);
-						return new IntegerArrayType();
+						return spanned(new IntegerArrayType(size), start);
 					}
 				}
 
@@ -195,7 +337,7 @@ public class Parser {
 				eat(TokenType.TYPE);
 				return null;
 			}
-			return new IntegerType();
+			return spanned(new IntegerType(), start);
 
 		case FLOAT:
 			eat(TokenType.FLOAT);
@@ -205,10 +347,11 @@ public class Parser {
 				eat(TokenType.LBRACKET);
 
 				// check array size integer
+				int size = arraySize();
 				if(eat(TokenType.INT_CONST)){
 					if (token.getType() == TokenType.RBRACKET) {
 						eat(TokenType.RBRACKET);
-						return new FloatArrayType();
+						return spanned(new FloatArrayType(size), start);
 					}
 				}
 
@@ -216,7 +359,7 @@ public class Parser {
 				eat(TokenType.TYPE);
 				return null;
 			}
-			return new FloatType();
+			return spanned(new FloatType(), start);
 
 		case BOOLEAN:
 			eat(TokenType.BOOLEAN);
@@ -226,10 +369,11 @@ public class Parser {
 				eat(TokenType.LBRACKET);
 
 				// check array size integer
+				int size = arraySize();
 				if(eat(TokenType.INT_CONST)){
 					if (token.getType() == TokenType.RBRACKET) {
 						eat(TokenType.RBRACKET);
-						return new BooleanArrayType();
+						return spanned(new BooleanArrayType(size), start);
 					}
 				}
 
@@ -237,7 +381,7 @@ public class Parser {
 				eat(TokenType.TYPE);
 				return null;
 			}
-			return new BooleanType();
+			return spanned(new BooleanType(), start);
 
 		case CHAR:
 			eat(TokenType.CHAR);
@@ -247,10 +391,11 @@ public class Parser {
 				eat(TokenType.LBRACKET);
 
 				// check array size integer
+				int size = arraySize();
 				if(eat(TokenType.INT_CONST)){
 					if (token.getType() == TokenType.RBRACKET) {
 						eat(TokenType.RBRACKET);
-						return new CharArrayType();
+						return spanned(new CharArrayType(size), start);
 					}
 				}
 
@@ -258,7 +403,7 @@ public class Parser {
 				eat(TokenType.TYPE);
 				return null;
 			}
-			return new CharType();
+			return spanned(new CharType(), start);
 
 		default:
 			// unknown type
@@ -268,13 +413,25 @@ public class Parser {
 		}
 	}
 
+	// value of the array size token (0 if it is not an integer)
+	private int arraySize() {
+		return (token.getType() == TokenType.INT_CONST) ? token.getAttribute().getIntVal() : 0;
+	}
+
+	// span of the current token
+	private long tokenSpan() {
+		return (token.getOffset() >= 0) ? Span.of(token.getOffset(), token.getLength()) : Span.NONE;
+	}
+
 	// Identifier ::= Letter { Letter | Digit }
 	private Identifier parseIdentifier() throws IOException {
 		Identifier identifier = null;
 
 		// grab ID value if token type is ID
 		if (token.getType() == TokenType.ID)
-			identifier = new Identifier(token.getAttribute().getIdVal());
+			identifier = builder.identifier(token.getAttribute(), tokenSpan());
+		else
+			builder.missing();
 		
 		eat(TokenType.ID);
 
@@ -283,10 +440,15 @@ public class Parser {
 
 	// StatementList ::= { Statement }
 	private StatementList parseStatementList() throws IOException{
-		StatementList statementList = new StatementList();
-		while (isStatement())
-			statementList.addElement(parseStatement());
-		return statementList;
+		StatementList statementList = builder.statementList();
+		int count = 0;
+		while (!stopped && isStatement()) {
+			Statement statement = parseStatement();
+			builder.addStatement(statementList, statement);
+			builder.statement(statement);
+			count++;
+		}
+		return builder.endStatementList(statementList, count);
 	}
 
 	// checks the beginning of a new statement 
@@ -306,6 +468,7 @@ public class Parser {
 
 	// Statement ::= Block | IfStatement | WhileStatement | identifier = Exp | identifier '['Exp']' = Exp
 	private Statement parseStatement() throws IOException {
+		int start = token.getOffset();
 
 		// IfStatement ::=  if '('Exp')' Statement [else Statement]
 		if (token.getType() == TokenType.IF) {
@@ -316,7 +479,7 @@ public class Parser {
 				skipTo(TokenType.RPAREN, TokenType.LBRACE, TokenType.RBRACE);
 
 			Exp condExp = parseExp();
-			conditions.add(condExp);
+			builder.condition(condExp);
 			
 			/*if(condExp instanceof IdentifierExp){
 				IdentifierExp idExp = (IdentifierExp) condExp;
@@ -352,9 +515,9 @@ public class Parser {
 					// parse false statement
 					falseStm = parseStatement();
 
-				return new If(condExp, trueStm, falseStm);
+				return builder.ifElseStatement(condExp, trueStm, falseStm, span(start));
 			}
-			return new If(condExp, trueStm, null);
+			return builder.ifStatement(condExp, trueStm, span(start));
 		}
 
 		// WhileStatement ::= while '('Exp')' Statement
@@ -366,7 +529,7 @@ public class Parser {
 				skipTo(TokenType.RPAREN, TokenType.LBRACE, TokenType.RBRACE);
 
 			Exp condExp = parseExp();
-			conditions.add(condExp);
+			builder.condition(condExp);
 			
 			/*if(condExp instanceof IdentifierExp){
 				IdentifierExp idExp = (IdentifierExp) condExp;
@@ -387,14 +550,14 @@ public class Parser {
 				// parse looping statement
 				loopStm = parseStatement();
 
-			return new While(condExp, loopStm);
+			return builder.whileStatement(condExp, loopStm, span(start));
 		}
 
 		// Identifier statement
 		if (token.getType() == TokenType.ID) {
 
-			Identifier id = new Identifier(token.getAttribute().getIdVal());
-			identifiers.add(id);
+			Identifier id = builder.identifier(token.getAttribute(), tokenSpan());
+			builder.used(id);
 			eat(TokenType.ID);
 
 
@@ -411,8 +574,8 @@ public class Parser {
 				
 				eat(TokenType.SEMI);
 
-				Assign assign = new Assign(id, value);
-				assigns.add(assign);
+				Assign assign = builder.assign(id, value, span(start));
+				builder.assigned(assign);
 				return assign;
 			}
 
@@ -421,10 +584,12 @@ public class Parser {
 				eat(TokenType.LBRACKET);
 				Exp index = parseExp();
 				
-				if(!(index instanceof IntegerLiteral)){
+				if(!builder.isIntegerLiteral(index)){
 					// statement type unknown
 					eat(TokenType.TYPE);
-					token = lexer.getToken();
+					nextToken();
+					builder.drop(2); // identifier and index
+					builder.missing();
 					return null;
 				}
 
@@ -444,169 +609,175 @@ public class Parser {
 				
 				eat(TokenType.SEMI);
 				
-				Assign assign = new Assign(id, value);
-				assigns.add(assign);
-				return new ArrayAssign(id, index, value);
+				return builder.arrayAssign(id, index, value, span(start));
 			}
+
+			builder.drop(1); // identifier
 		}
 
 		// statement type unknown
 		eat(TokenType.STATEMENT);
-		token = lexer.getToken();
+		nextToken();
+		builder.missing();
 		return null;
 	}
 
 	// BLock ::= '{' StatementList '}'
 	// Block ::= '{' StatementList '}'
 	private Block parseBlock() throws IOException{
+		int start = token.getOffset();
 		eat(TokenType.LBRACE);
 
 		// recursively call parseStatement() until closing brace
-		StatementList stms = new StatementList();
-		while (token.getType() != TokenType.RBRACE && token.getType() != TokenType.EOF)
-			stms.addElement(parseStatement());
+		StatementList stms = builder.statementList();
+		int count = 0;
+		while (token.getType() != TokenType.RBRACE && token.getType() != TokenType.EOF) {
+			builder.addStatement(stms, parseStatement());
+			count++;
+		}
 
 		if (!eat(TokenType.RBRACE)) 
 			skipTo(TokenType.RBRACE, TokenType.SEMI);
 
-		return new Block(stms);
+		return builder.block(builder.endStatementList(stms, count), span(start));
 	}
 
 	// Exp ::= PrimaryExp | BinopRHS
-	// top-level parsing function for an expression
+	// top-level parsing function for an expression. Operators wait on an explicit stack until an operator
+	// of lower or equal precedence (or the end of the expression) reduces them, so nesting depth costs heap
+	// instead of Java stack. '(', '!' and unary '-' push a marker that delimits their subexpression.
 	private Exp parseExp() throws IOException {
-		Exp lhs = parsePrimaryExp();
-		return parseBinopRHS(0, lhs); // check for binops following exp
+		int operatorBase = operatorCount;
+		int operandBase = operandCount;
+
+		while (true) {
+			// prefix operators and parentheses open a subexpression
+			TokenType type = token.getType();
+			while (type == TokenType.NOT || type == TokenType.NEGATIVE || type == TokenType.LPAREN) {
+				int start = token.getOffset();
+				eat(type);
+				pushOperator(type, start);
+				type = token.getType();
+			}
+			int start = token.getOffset();
+			pushOperand(parsePrimaryExp(), start);
+
+			// a completed operand closes array lookups and subexpressions until a binop follows
+			while (true) {
+				if (operatorCount > operatorBase && operators[operatorCount - 1] == TokenType.LBRACKET) {
+					// an array index is a single primary expression, the lookup spans through ']'
+					eat(TokenType.RBRACKET);
+					reduce();
+					continue;
+				}
+
+				int level = binopLevels[token.getType().ordinal()];
+				if (level >= 0) {
+					// binop: reduce the waiting operators that bind at least as tightly
+					reduceTo(operatorBase, level);
+					TokenType binop = token.getType();
+					int binopStart = token.getOffset();
+					eat(binop);
+					pushOperator(binop, binopStart);
+					break;
+				}
+
+				// end of a subexpression: reduce everything above its marker
+				reduceTo(operatorBase, 0);
+				if (operatorCount == operatorBase) {
+					// for a flat tree the expression is the top node on its stack and exp is null
+					Exp exp = operands[--operandCount];
+					operands[operandCount] = null;
+					if (operandCount != operandBase)
+						throw new IllegalStateException("Unbalanced expression stack");
+					return exp;
+				}
+
+				TokenType marker = operators[--operatorCount];
+				int markerStart = operatorStarts[operatorCount];
+				if (marker == TokenType.LPAREN)
+					eat(TokenType.RPAREN);
+				else
+					operands[operandCount - 1] = builder.unary(marker, operands[operandCount - 1], span(markerStart));
+				operandStarts[operandCount - 1] = markerStart; // an operand of a parent starts at the '(' or prefix operator
+			}
+		}
 	}
 
-	// parsePrimaryExp ::= INT_CONST | FLOAT_CONST | CHAR_CONST | BOOLEAN_CONST | NEGATIVE | NOT | Identifier
-	// parse exp before any binop
+	// parsePrimaryExp ::= INT_CONST | FLOAT_CONST | CHAR_CONST | BOOLEAN_CONST | Identifier
+	// parse a single operand, prefix operators and parentheses are handled by parseExp()
 	private Exp parsePrimaryExp() throws IOException {
+		int start = token.getOffset();
 		switch (token.getType()) {
 
 		case INT_CONST:
 			int intValue = token.getAttribute().getIntVal();
 			eat(TokenType.INT_CONST);
-			return new IntegerLiteral(intValue);
+			return builder.intLiteral(intValue, span(start));
 
 		case FLOAT_CONST:
 			float floatValue = token.getAttribute().getFloatVal();
 			eat(TokenType.FLOAT_CONST);
-			return new FloatLiteral(floatValue);
+			return builder.floatLiteral(floatValue, span(start));
 
 		case BOOLEAN_CONST:
 			boolean booleanVal = token.getAttribute().getBooleanVal();
 			eat(TokenType.BOOLEAN_CONST);
-			return new BooleanLiteral(booleanVal);
+			return builder.booleanLiteral(booleanVal, span(start));
 
 		case CHAR_CONST:
 			char charVal = token.getAttribute().getCharVal();
 			eat(TokenType.CHAR_CONST);
-			return new CharLiteral(charVal);
+			return builder.charLiteral(charVal, span(start));
 
 		case ID:
-			Identifier id = parseIdentifier();
-			identifiers.add(id);
-			return new IdentifierExp(id.getName());
-
-		case NOT:
-			eat(TokenType.NOT);
-			return new Not(parseExp());
-
-		case NEGATIVE:
-			eat(TokenType.NEGATIVE);
-			return new Negative(parseExp());
-
-		case LPAREN:
-			eat(TokenType.LPAREN);
-			Exp exp = parseExp();
-			eat(TokenType.RPAREN);
+			// the used identifier and the expression span the same token
+			Exp exp = builder.identifierExp(token.getAttribute(), tokenSpan());
+			eat(TokenType.ID);
 			return exp;
 
 		default:
 			// unrecognizable expression
 			eat(TokenType.EXPRESSION);
-			token = lexer.getToken();
+			nextToken();
+			builder.missing();
 			return null;
 		}
 	}
 
-	// parse expressions according to operator precedence levels
-	private Exp parseBinopRHS(int level, Exp lhs) throws IOException {
-		// continuously parse exp until a lower order operator comes up
-		while (true) {
-			// grab operator precedence (-1 for non-operator token)
-			Integer val = binopLevels.get(token.getType());
-			int tokenLevel = (val != null) ? val.intValue() : -1;
-
-			// either op precedence is lower than prev op or token is not an op
-			if (tokenLevel < level)
-				return lhs;
-
-			// save binop before parsing rhs of exp
-			TokenType binop = token.getType();
-			eat(binop);
-
-			Exp rhs = parsePrimaryExp(); // parse rhs of exp
-
-			// grab operator precedence (-1 for non-operator token)
-			val = binopLevels.get(token.getType());
-			int nextLevel = (val != null) ? val.intValue() : -1;
-
-			// if next op has higher precedence than prev op, make recursive call
-			if (tokenLevel < nextLevel)
-				rhs = parseBinopRHS(tokenLevel + 1, rhs);
-
-			// build AST for exp
-			switch (binop) {
-			case AND:
-				lhs = new And(lhs, rhs);
-				break;
-			case OR:
-				lhs = new Or(lhs, rhs);
-				break;
-			case EQ:
-				lhs = new Equal(lhs, rhs);
-				break;
-			case NEQ:
-				lhs = new NotEqual(lhs, rhs);
-				break;
-			case LT:
-				lhs = new LessThan(lhs, rhs);
-				break;
-			case RT:
-				lhs = new MoreThan(lhs, rhs);
-				break;
-			case LT_EQ:
-				lhs = new LessThanEqual(lhs, rhs);
-				break;
-			case RT_EQ:
-				lhs = new MoreThanEqual(lhs, rhs);
-				break;
-			case PLUS:
-				lhs = new Plus(lhs, rhs);
-				break;
-			case MINUS:
-				lhs = new Minus(lhs, rhs);
-				break;
-			case TIMES:
-				lhs = new Times(lhs, rhs);
-				break;
-			case DIV:
-				lhs = new Divide(lhs, rhs);
-				break;
-			case MOD:
-				lhs = new Modules(lhs, rhs);
-				break;
-			case LBRACKET:
-				lhs = new ArrayLookup(lhs, rhs);
-				eat(TokenType.RBRACKET);
-				break;
-			default:
-				eat(TokenType.OPERATOR);
-				break;
-			}
+	// reduce waiting binops down to a marker or the expression base while they bind at least as tightly as level
+	private void reduceTo(int operatorBase, int level) {
+		while (operatorCount > operatorBase && binopLevels[operators[operatorCount - 1].ordinal()] >= level)
+			reduce();
+	}
+
+	// combine the top two operands with the top operator, the result spans from the left operand
+	// to the last token consumed
+	private void reduce() {
+		TokenType binop = operators[--operatorCount];
+		Exp rhs = operands[--operandCount];
+		Exp lhs = operands[operandCount - 1];
+		operands[operandCount] = null;
+		int start = operandStarts[operandCount - 1];
+		operands[operandCount - 1] = builder.binop(binop, lhs, rhs, span(start));
+	}
+
+	private void pushOperator(TokenType type, int start) {
+		if (operatorCount == operators.length) {
+			operators = Arrays.copyOf(operators, operatorCount * 2);
+			operatorStarts = Arrays.copyOf(operatorStarts, operatorCount * 2);
+		}
+		operators[operatorCount] = type;
+		operatorStarts[operatorCount++] = start;
+	}
+
+	private void pushOperand(Exp exp, int start) {
+		if (operandCount == operands.length) {
+			operands = Arrays.copyOf(operands, operandCount * 2);
+			operandStarts = Arrays.copyOf(operandStarts, operandCount * 2);
 		}
+		operands[operandCount] = exp;
+		operandStarts[operandCount++] = start;
 	}
 
 }
\ No newline at end of file
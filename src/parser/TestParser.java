@@ -3,17 +3,22 @@ package parser;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import ast.FlatAst;
 import ast.Program;
 import parser.Parser;
 import visitor.PrintVisitor;
 
 public class TestParser {
 	public static void main(String[] args) throws IOException {
-		if (args.length == 0)
+		// -flat builds the array-backed tree and converts it for printing
+		boolean flat = args.length > 0 && args[0].equals("-flat");
+		int first = flat ? 1 : 0;
+
+		if (args.length == first)
 			System.err.println("No file arguments givens");
 		else {
 			// parse each file argument given
-			for (int i = 0; i < args.length; i++) {
+			for (int i = first; i < args.length; i++) {
 				FileReader file;
 				
 				// attempt to open file
@@ -30,7 +35,12 @@ public class TestParser {
 				
 				// initiate parse and clock time
 				long startTime = System.currentTimeMillis();
-				Program program = parser.parseProgram();
+				Program program;
+				if (flat) {
+					FlatAst flatAst = parser.parseProgramFlat();
+					program = flatAst.toProgram();
+				} else
+					program = parser.parseProgram();
 				long endTime = System.currentTimeMillis();
 				
 				// print out statistics
@@ -0,0 +1,123 @@
+package parser;
+
+import ast.Assign;
+import ast.Block;
+import ast.Declarations;
+import ast.Exp;
+import ast.Identifier;
+import ast.Program;
+import ast.Statement;
+import ast.StatementList;
+import ast.Type;
+import ast.VarDecl;
+import ast.VarDeclList;
+import lexer.TokenAttribute;
+import lexer.TokenType;
+
+/*
+ *
+ * Receives the productions of the parser and builds its syntax tree. The
+ * grammar code calls the same methods whichever tree is built:
+ * ObjectTreeBuilder creates the ast objects and reports the declarations,
+ * identifiers, assigns and conditions to the parser's lists or listener,
+ * FlatTreeBuilder pushes the nodes on a FlatAst and returns null for them.
+ *
+ * Children are always built before their parent, in source order, and a
+ * list is ended with the number of elements added to it. A span is the
+ * span of the node's source (see ast.Span).
+ *
+ */
+
+interface TreeBuilder {
+	// Program ::= int main '('')' { Declarations StatementList }
+	public Program program(Declarations declarations, StatementList statementList, long span);
+
+	// an empty declaration section, followed by its var decl lists
+	public Declarations declarations();
+
+	public void addVarDeclList(Declarations declarations, VarDeclList varDeclList);
+
+	// the complete declaration section (span NONE if it has no declarations)
+	public Declarations endDeclarations(Declarations declarations, int count, long span);
+
+	// an empty var decl list, followed by its declarations
+	public VarDeclList varDeclList();
+
+	public void addVarDecl(VarDeclList varDeclList, VarDecl varDecl);
+
+	public VarDeclList endVarDeclList(VarDeclList varDeclList, int count, long span);
+
+	// the type of a declaration, parsed into an object for either tree
+	public Type type(Type type);
+
+	// VarDecl ::= Type Identifier
+	public VarDecl varDecl(Type type, Identifier id, long span);
+
+	// a declaration following the first one of a list (VarDecl { , Identifier }), sharing its type
+	public VarDecl nextVarDecl(VarDecl first, Identifier id, long span);
+
+	// an identifier token, naming a declared variable or an assignment target
+	public Identifier identifier(TokenAttribute attribute, long span);
+
+	// an empty statement list, followed by its statements
+	public StatementList statementList();
+
+	public void addStatement(StatementList statementList, Statement statement);
+
+	public StatementList endStatementList(StatementList statementList, int count);
+
+	public Block block(StatementList statementList, long span);
+
+	public Statement ifStatement(Exp condition, Statement thenStatement, long span);
+
+	public Statement ifElseStatement(Exp condition, Statement thenStatement, Statement elseStatement, long span);
+
+	public Statement whileStatement(Exp condition, Statement body, long span);
+
+	public Assign assign(Identifier id, Exp value, long span);
+
+	// id [ Exp ] = Exp, reported as an assign to an element of the array
+	public Statement arrayAssign(Identifier id, Exp index, Exp value, long span);
+
+	// whether the expression built last is an integer literal
+	public boolean isIntegerLiteral(Exp exp);
+
+	// binop of two operands, including the array lookup '['
+	public Exp binop(TokenType binop, Exp lhs, Exp rhs, long span);
+
+	// the prefix operator NOT or NEGATIVE applied to an operand
+	public Exp unary(TokenType operator, Exp operand, long span);
+
+	public Exp intLiteral(int value, long span);
+
+	public Exp floatLiteral(float value, long span);
+
+	public Exp booleanLiteral(boolean value, long span);
+
+	public Exp charLiteral(char value, long span);
+
+	// an identifier token used as an expression, reported as a used identifier
+	public Exp identifierExp(TokenAttribute attribute, long span);
+
+	// a node left out by a syntax error (null)
+	public void missing();
+
+	// discard the last count nodes built, the parts of a statement dropped by error recovery
+	public void drop(int count);
+
+	/*
+	 * productions reported to semantic analysis (ignored for a flat tree)
+	 */
+
+	public void declared(VarDecl varDecl);
+
+	public void used(Identifier identifier);
+
+	public void assigned(Assign assign);
+
+	// the condition of an if or while statement, reported before its body is parsed
+	public void condition(Exp condition);
+
+	// a complete top-level statement
+	public void statement(Statement statement);
+}
@@ -0,0 +1,325 @@
+package semantic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.Type;
+import diagnostic.Diagnostic;
+import diagnostic.DiagnosticList;
+import diagnostic.Severity;
+import lexer.Lexer;
+import lexer.NamePool;
+import lexer.TokenType;
+import parser.Parser;
+
+/*
+ *
+ * Persistent cache of analysis results in front of analyzeProgram(). Each
+ * file is keyed by the SHA-256 of its bytes, so an unchanged file is never
+ * lexed or parsed again: its diagnostics, error count and symbol summary
+ * (global names and their declared types) are read back from a small
+ * binary entry in the cache directory.
+ *
+ * Every entry starts with the format magic and a fingerprint of the rule
+ * set, built from RULES_VERSION and the error, token and severity names.
+ * Entries written by another rule set are treated as misses and replaced.
+ * Bump RULES_VERSION whenever a check changes what it reports.
+ *
+ * The directory is kept under a byte budget by deleting the least recently
+ * used entries; a hit touches the entry's modification time so the order
+ * survives between runs.
+ *
+ */
+
+public class AnalysisCache {
+	private final static int MAGIC = 0x53414331; // "SAC1"
+	private final static int RULES_VERSION = 8;
+	private final static int FINGERPRINT = fingerprint();
+	private final static String SUFFIX = ".bin";
+
+	private File directory;
+	private long maxBytes; //size budget of all entries
+	private LinkedHashMap<String, Long> entries; //entry sizes by key, least recently used first
+	private long size; //total size of all entries
+	private int hits;
+	private int misses;
+
+	// analysis outcome of a single file, either fresh or read from the cache
+	public static class Analysis {
+		private List<Diagnostic> diagnostics; //syntax and semantic errors
+		private int errors; //number of semantic errors
+		private Map<String, String> symbols; //declared type of each global name, in order of first use
+		private boolean cached; //read from the cache instead of analyzed
+
+		public Analysis(List<Diagnostic> diagnostics, int errors, Map<String, String> symbols, boolean cached) {
+			this.diagnostics = diagnostics;
+			this.errors = errors;
+			this.symbols = symbols;
+			this.cached = cached;
+		}
+
+		public List<Diagnostic> getDiagnostics() {
+			return diagnostics;
+		}
+
+		public int getErrors() {
+			return errors;
+		}
+
+		public Map<String, String> getSymbols() {
+			return symbols;
+		}
+
+		public boolean isCached() {
+			return cached;
+		}
+	}
+
+	public AnalysisCache(File directory, long maxBytes) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create cache directory " + directory);
+
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+		// rebuild the recency order from the entries left by earlier runs
+		File[] files = directory.listFiles();
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File a, File b) {
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+		for (File file : files) {
+			String name = file.getName();
+			if (name.endsWith(SUFFIX)) {
+				entries.put(name.substring(0, name.length() - SUFFIX.length()), file.length());
+				size += file.length();
+			}
+		}
+	}
+
+	public int getHits() {
+		return hits;
+	}
+
+	public int getMisses() {
+		return misses;
+	}
+
+	// total size of the cached entries in bytes
+	public long getSize() {
+		return size;
+	}
+
+	// analyze a file, reusing the stored result if its bytes were analyzed before
+	public Analysis analyze(File file) throws IOException {
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		String key = key(bytes);
+
+		Analysis analysis = load(key);
+		if (analysis != null) {
+			hits++;
+			return analysis;
+		}
+
+		misses++;
+		analysis = analyze(bytes);
+		store(key, analysis);
+		return analysis;
+	}
+
+	// run the analyzer over the file bytes, collecting its reports in memory;
+	// the bytes are decoded as UTF-8 like TestSemantic reads a file, so columns match an uncached run
+	private static Analysis analyze(byte[] bytes) throws IOException {
+		DiagnosticList diagnostics = new DiagnosticList();
+		Parser parser = new Parser(new Lexer(StandardCharsets.UTF_8.decode(ByteBuffer.wrap(bytes))));
+		SemanticAnalyzer semantic = new SemanticAnalyzer(parser);
+		semantic.setDiagnosticSink(diagnostics);
+		semantic.analyzeProgram();
+
+		// the global names, in symbol id order
+		Map<String, String> symbols = new LinkedHashMap<String, String>();
+		NamePool names = parser.getNamePool();
+		SymbolTable symbolTable = semantic.getSymbolTable();
+		for (int symbol = 0; symbol < names.size(); symbol++) {
+			if (symbolTable.contains(symbol)) {
+				Type type = symbolTable.getType(symbol);
+				symbols.put(names.name(symbol), (type != null) ? type.getClass().getSimpleName() : null);
+			}
+		}
+
+		return new Analysis(diagnostics.getDiagnostics(), semantic.getErrors(), symbols, false);
+	}
+
+	// read a stored analysis, or null if there is no usable entry
+	private Analysis load(String key) {
+		File file = entryFile(key);
+		if (!file.isFile())
+			return null;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FINGERPRINT)
+				throw new IOException("Stale cache entry");
+
+			int errors = in.readInt();
+			int count = in.readInt();
+			List<Diagnostic> diagnostics = new ArrayList<Diagnostic>(count);
+			for (int i = 0; i < count; i++) {
+				Severity severity = Severity.values()[in.readByte()];
+				int errorType = in.readByte();
+				int found = in.readByte();
+				int expected = in.readByte();
+				diagnostics.add(new Diagnostic(severity, (errorType >= 0) ? ErrorType.values()[errorType] : null,
+						(found >= 0) ? TokenType.values()[found] : null,
+						(expected >= 0) ? TokenType.values()[expected] : null, in.readInt(), in.readInt(),
+						readString(in), in.readLong()));
+			}
+
+			count = in.readInt();
+			Map<String, String> symbols = new LinkedHashMap<String, String>();
+			for (int i = 0; i < count; i++)
+				symbols.put(in.readUTF(), readString(in));
+
+			// touch the entry so it is evicted last, here and in later runs
+			file.setLastModified(System.currentTimeMillis());
+			if (entries.get(key) == null) {
+				entries.put(key, file.length());
+				size += file.length();
+			}
+			return new Analysis(Collections.unmodifiableList(diagnostics), errors, symbols, true);
+		} catch (IOException | RuntimeException e) {
+			// written by another rule set or damaged, analyze the file again
+			remove(key);
+			return null;
+		}
+	}
+
+	// write an analysis under its key and evict old entries beyond the size budget
+	private void store(String key, Analysis analysis) throws IOException {
+		File file = entryFile(key);
+		File temp = File.createTempFile(key, ".tmp", directory);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FINGERPRINT);
+			out.writeInt(analysis.getErrors());
+
+			out.writeInt(analysis.getDiagnostics().size());
+			for (Diagnostic diagnostic : analysis.getDiagnostics()) {
+				out.writeByte(diagnostic.getSeverity().ordinal());
+				out.writeByte(ordinal(diagnostic.getErrorType()));
+				out.writeByte(ordinal(diagnostic.getFound()));
+				out.writeByte(ordinal(diagnostic.getExpected()));
+				out.writeInt(diagnostic.getLineNumber());
+				out.writeInt(diagnostic.getColumnNumber());
+				writeString(out, diagnostic.getSymbol());
+				out.writeLong(diagnostic.getSpan());
+			}
+
+			out.writeInt(analysis.getSymbols().size());
+			for (Map.Entry<String, String> symbol : analysis.getSymbols().entrySet()) {
+				out.writeUTF(symbol.getKey());
+				writeString(out, symbol.getValue());
+			}
+		} catch (IOException e) {
+			temp.delete();
+			throw e;
+		}
+
+		// readers in other processes never see a partially written entry
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		Long old = entries.put(key, file.length());
+		size += file.length() - ((old != null) ? old : 0);
+		evict(key);
+	}
+
+	// delete least recently used entries until the cache fits its budget, keeping the newest one
+	private void evict(String newest) {
+		Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+		while (size > maxBytes && iterator.hasNext()) {
+			Map.Entry<String, Long> entry = iterator.next();
+			if (entry.getKey().equals(newest))
+				continue;
+			entryFile(entry.getKey()).delete();
+			size -= entry.getValue();
+			iterator.remove();
+		}
+	}
+
+	// drop an entry from the directory and the index
+	private void remove(String key) {
+		entryFile(key).delete();
+		Long old = entries.remove(key);
+		if (old != null)
+			size -= old;
+	}
+
+	private File entryFile(String key) {
+		return new File(directory, key + SUFFIX);
+	}
+
+	// hex SHA-256 of the file bytes
+	private static String key(byte[] bytes) {
+		byte[] digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+
+		StringBuilder key = new StringBuilder(digest.length * 2);
+		for (byte b : digest)
+			key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		return key.toString();
+	}
+
+	// rule set version mixed with the enum names whose ordinals are stored in the entries
+	private static int fingerprint() {
+		int hash = RULES_VERSION;
+		for (ErrorType errorType : ErrorType.values())
+			hash = 31 * hash + errorType.name().hashCode();
+		for (TokenType tokenType : TokenType.values())
+			hash = 31 * hash + tokenType.name().hashCode();
+		for (Severity severity : Severity.values())
+			hash = 31 * hash + severity.name().hashCode();
+		return hash;
+	}
+
+	// ordinal of an optional enum constant (-1 for null)
+	private static int ordinal(Enum<?> value) {
+		return (value != null) ? value.ordinal() : -1;
+	}
+
+	// strings that may be null are prefixed with a presence flag
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null)
+			out.writeUTF(value);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
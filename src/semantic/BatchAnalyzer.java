@@ -0,0 +1,179 @@
+package semantic;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import diagnostic.Diagnostic;
+import diagnostic.DiagnosticList;
+
+/*
+ *
+ * Analyzes many files concurrently on a work-stealing ForkJoinPool. Each
+ * file gets its own SemanticAnalyzer and diagnostic list so reports never
+ * interleave; they are printed in argument order once all files are done,
+ * followed by the aggregate throughput.
+ *
+ * Usage: java semantic.BatchAnalyzer [-threads N] file...
+ *
+ */
+
+public class BatchAnalyzer {
+	private ForkJoinPool pool;
+
+	// analysis outcome of a single file
+	public static class Result {
+		private String file;
+		private List<Diagnostic> diagnostics; //syntax and semantic errors
+		private String failure; //why the file could not be analyzed (null on success)
+		private int errors; //number of semantic errors
+		private int tokens; //number of tokens read
+
+		public Result(String file, List<Diagnostic> diagnostics, int errors, int tokens) {
+			this.file = file;
+			this.diagnostics = diagnostics;
+			this.errors = errors;
+			this.tokens = tokens;
+		}
+
+		public String getFile() {
+			return file;
+		}
+
+		// result of a file that could not be analyzed
+		public static Result failed(String file, String failure) {
+			Result result = new Result(file, new ArrayList<Diagnostic>(), 0, 0);
+			result.failure = failure;
+			return result;
+		}
+
+		public List<Diagnostic> getDiagnostics() {
+			return diagnostics;
+		}
+
+		public String getFailure() {
+			return failure;
+		}
+
+		public int getErrors() {
+			return errors;
+		}
+
+		public int getTokens() {
+			return tokens;
+		}
+	}
+
+	public BatchAnalyzer(int threads) {
+		this.pool = new ForkJoinPool(threads);
+	}
+
+	// analyze all files in parallel, results are in the same order as the files
+	public List<Result> analyze(List<String> files) throws InterruptedException {
+		List<Future<Result>> futures = new ArrayList<Future<Result>>();
+		for (final String file : files) {
+			futures.add(pool.submit(new Callable<Result>() {
+				public Result call() {
+					return analyze(file);
+				}
+			}));
+		}
+
+		List<Result> results = new ArrayList<Result>();
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				results.add(futures.get(i).get());
+			} catch (ExecutionException e) {
+				results.add(Result.failed(files.get(i), "Analysis failed: " + e.getCause()));
+			}
+		}
+		return results;
+	}
+
+	// release the pool threads
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	// analyze one file, collecting its diagnostics in memory
+	private static Result analyze(String file) {
+		FileReader reader;
+		try {
+			reader = new FileReader(file);
+		} catch (FileNotFoundException e) {
+			return Result.failed(file, file + " was not found!");
+		}
+
+		try {
+			DiagnosticList diagnostics = new DiagnosticList();
+			SemanticAnalyzer semantic = new SemanticAnalyzer(reader);
+			semantic.setDiagnosticSink(diagnostics);
+			semantic.analyzeProgram();
+			return new Result(file, diagnostics.getDiagnostics(), semantic.getErrors(), semantic.getTokenCount());
+		} catch (IOException e) {
+			return Result.failed(file, "IOException: " + e.getMessage());
+		} finally {
+			// many files are open at once, don't wait for the GC to close them
+			try {
+				reader.close();
+			} catch (IOException e) {
+				// nothing left to read
+			}
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<String> files = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-threads") && i + 1 < args.length)
+				threads = Integer.parseInt(args[++i]);
+			else
+				files.add(args[i]);
+		}
+
+		if (files.isEmpty()) {
+			System.err.println("No file arguments given");
+			return;
+		}
+
+		BatchAnalyzer batch = new BatchAnalyzer(threads);
+		long startTime = System.currentTimeMillis();
+		List<Result> results = batch.analyze(files);
+		long endTime = System.currentTimeMillis();
+		batch.shutdown();
+
+		// print each file's report in argument order
+		long totalTokens = 0;
+		int totalErrors = 0;
+		for (Result result : results) {
+			System.out.println("Analyzing " + result.getFile() + "...");
+			for (Diagnostic diagnostic : result.getDiagnostics())
+				System.out.println(diagnostic.getMessage());
+			if (result.getFailure() != null)
+				System.out.println(result.getFailure());
+			else {
+				System.out.println(result.getErrors() + " errors reported");
+				totalErrors += result.getErrors();
+			}
+			System.out.println("---");
+			totalTokens += result.getTokens();
+		}
+
+		// print out statistics
+		double seconds = Math.max(endTime - startTime, 1) / 1000.0;
+		System.out.println("Files: " + results.size() + " (" + threads + " threads)");
+		System.out.println("Tokens: " + totalTokens);
+		System.out.println("Errors: " + totalErrors);
+		System.out.println("Execution time: " + (endTime - startTime) + "ms");
+		System.out.println("Throughput: " + Math.round(results.size() / seconds) + " files/s, "
+				+ Math.round(totalTokens / seconds) + " tokens/s");
+	}
+}
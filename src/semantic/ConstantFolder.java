@@ -0,0 +1,659 @@
+package semantic;
+
+import java.util.Arrays;
+
+import ast.*;
+import diagnostic.Diagnostic;
+import diagnostic.DiagnosticSink;
+import lexer.LineTable;
+import visitor.Visitor;
+
+/*
+ *
+ * Rewrites expressions in place, replacing every operator whose operands
+ * are literals by the literal it evaluates to: arithmetic on int, float
+ * and char, comparisons, &&, || and ! on booleans, and negation. Every
+ * literal stays a node of its own source site, even when another one has
+ * the same value, so its span and the type the checker gives it are its own.
+ *
+ * A folded value always has the type TypeCheckVisitor gives the operator
+ * (arithmetic follows the same float, int, char order), so the checks
+ * report the same errors on the folded tree. Like the type checker, the
+ * pass uses an explicit stack: each node is visited once to push its
+ * operands and once, after their folded values are on the result stack,
+ * to fold itself.
+ *
+ * A constant division by zero is left unfolded and a condition folding to
+ * a literal makes the If or While always or never run; both are reported
+ * as warnings at the span of the division or condition. A literal created
+ * by folding takes the span of the expression it replaces.
+ *
+ */
+
+public class ConstantFolder implements Visitor {
+	private DiagnosticSink diagnostics;
+	private LineTable lines; //locates the warnings (null if unknown)
+	private int warnings;
+	private int foldedNodes; //operator nodes replaced by literals
+
+	// nodes waiting to be visited, with a flag telling if their operands were already pushed
+	private Exp[] stack = new Exp[16];
+	private boolean[] expanded = new boolean[16];
+	private int size;
+	private boolean expanding; //the visit pushes the operands instead of folding the node
+
+	// folded operands, in the order their nodes were finished
+	private Exp[] results = new Exp[16];
+	private int resultCount;
+
+	public ConstantFolder(DiagnosticSink diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+
+	// redirect the warnings
+	public void setDiagnosticSink(DiagnosticSink diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+
+	// line table of the folded program's input
+	public void setLineTable(LineTable lines) {
+		this.lines = lines;
+	}
+
+	// number of warnings reported
+	public int getWarnings() {
+		return warnings;
+	}
+
+	// number of operator nodes replaced by literals
+	public int getFoldedNodes() {
+		return foldedNodes;
+	}
+
+	// fold the expressions of a program
+	public void fold(Program program) {
+		if (program != null)
+			program.accept(this);
+	}
+
+	// fold the expressions of a statement
+	public void fold(Statement statement) {
+		if (statement != null)
+			statement.accept(this);
+	}
+
+	// fold an expression, returns the expression taking its place (null if missing)
+	public Exp fold(Exp exp) {
+		if (exp == null)
+			return null;
+
+		push(exp, false);
+		while (size > 0) {
+			Exp node = stack[--size];
+			stack[size] = null;
+			expanding = !expanded[size];
+			if (expanding)
+				push(node, true); // revisit once the operands pushed above it are folded
+			node.accept(this);
+		}
+		return popResult();
+	}
+
+	private void push(Exp exp, boolean operandsPushed) {
+		if (size == stack.length) {
+			stack = Arrays.copyOf(stack, size * 2);
+			expanded = Arrays.copyOf(expanded, size * 2);
+		}
+		stack[size] = exp;
+		expanded[size] = operandsPushed;
+		size++;
+	}
+
+	// push the operands of a node, last one first so they are folded in source order
+	private void operands(Exp... exps) {
+		for (int i = exps.length - 1; i >= 0; i--) {
+			if (exps[i] != null)
+				push(exps[i], false);
+		}
+	}
+
+	private void pushResult(Exp exp) {
+		if (resultCount == results.length)
+			results = Arrays.copyOf(results, resultCount * 2);
+		results[resultCount++] = exp;
+	}
+
+	private Exp popResult() {
+		Exp exp = results[--resultCount];
+		results[resultCount] = null;
+		return exp;
+	}
+
+	// folded value of an operand, operands are taken back last one first (null stays null)
+	private Exp result(Exp operand) {
+		return (operand != null) ? popResult() : null;
+	}
+
+	// report a warning about a node
+	private void warning(ErrorType errorType, String symbol, Exp node) {
+		warnings++;
+		diagnostics.report(Diagnostic.warning(errorType, symbol, lines, node.getSpan()));
+	}
+
+	/*
+	 * constants
+	 */
+
+	private static boolean isNumber(Exp exp) {
+		return exp instanceof IntegerLiteral || exp instanceof FloatLiteral || exp instanceof CharLiteral;
+	}
+
+	// int value of an int or char literal
+	private static int intValue(Exp exp) {
+		return (exp instanceof IntegerLiteral) ? ((IntegerLiteral) exp).getValue() : ((CharLiteral) exp).getValue();
+	}
+
+	// float value of a number literal
+	private static float floatValue(Exp exp) {
+		return (exp instanceof FloatLiteral) ? ((FloatLiteral) exp).getValue() : intValue(exp);
+	}
+
+	// a literal folded from a node, at the node's source site
+	private static <T extends Exp> T folded(T literal, Exp node) {
+		literal.setSpan(node.getSpan());
+		return literal;
+	}
+
+	// value of an arithmetic operator on two numbers, or the operator itself if it does not fold
+	private Exp arithmetic(NodeKind operator, Exp node, Exp lhs, Exp rhs) {
+		if (!isNumber(lhs) || !isNumber(rhs))
+			return node;
+
+		if ((operator == NodeKind.DIVIDE || operator == NodeKind.MODULES) && floatValue(rhs) == 0) {
+			warning(ErrorType.DIVISION_BY_ZERO, null, node);
+			return node;
+		}
+
+		foldedNodes++;
+		if (lhs instanceof FloatLiteral || rhs instanceof FloatLiteral) {
+			float left = floatValue(lhs), right = floatValue(rhs), value;
+			switch (operator) {
+			case PLUS:
+				value = left + right;
+				break;
+			case MINUS:
+				value = left - right;
+				break;
+			case TIMES:
+				value = left * right;
+				break;
+			case DIVIDE:
+				value = left / right;
+				break;
+			default:
+				value = left % right;
+				break;
+			}
+			return folded(new FloatLiteral(value), node);
+		}
+
+		int left = intValue(lhs), right = intValue(rhs), value;
+		switch (operator) {
+		case PLUS:
+			value = left + right;
+			break;
+		case MINUS:
+			value = left - right;
+			break;
+		case TIMES:
+			value = left * right;
+			break;
+		case DIVIDE:
+			value = left / right;
+			break;
+		default:
+			value = left % right;
+			break;
+		}
+		if (lhs instanceof CharLiteral && rhs instanceof CharLiteral)
+			return folded(new CharLiteral((char) value), node);
+		return folded(new IntegerLiteral(value), node);
+	}
+
+	// value of a comparison of two numbers (or two booleans for == and !=), or the comparison itself
+	private Exp comparison(NodeKind operator, Exp node, Exp lhs, Exp rhs) {
+		if (lhs instanceof BooleanLiteral && rhs instanceof BooleanLiteral
+				&& (operator == NodeKind.EQUAL || operator == NodeKind.NOT_EQUAL)) {
+			foldedNodes++;
+			boolean equal = ((BooleanLiteral) lhs).getValue() == ((BooleanLiteral) rhs).getValue();
+			return folded(new BooleanLiteral((operator == NodeKind.EQUAL) == equal), node);
+		}
+		if (!isNumber(lhs) || !isNumber(rhs))
+			return node;
+
+		boolean value;
+		if (lhs instanceof FloatLiteral || rhs instanceof FloatLiteral) {
+			float left = floatValue(lhs), right = floatValue(rhs);
+			switch (operator) {
+			case EQUAL:
+				value = left == right;
+				break;
+			case NOT_EQUAL:
+				value = left != right;
+				break;
+			case LESS_THAN:
+				value = left < right;
+				break;
+			case MORE_THAN:
+				value = left > right;
+				break;
+			case LESS_THAN_EQUAL:
+				value = left <= right;
+				break;
+			default:
+				value = left >= right;
+				break;
+			}
+		} else {
+			int left = intValue(lhs), right = intValue(rhs);
+			switch (operator) {
+			case EQUAL:
+				value = left == right;
+				break;
+			case NOT_EQUAL:
+				value = left != right;
+				break;
+			case LESS_THAN:
+				value = left < right;
+				break;
+			case MORE_THAN:
+				value = left > right;
+				break;
+			case LESS_THAN_EQUAL:
+				value = left <= right;
+				break;
+			default:
+				value = left >= right;
+				break;
+			}
+		}
+		foldedNodes++;
+		return folded(new BooleanLiteral(value), node);
+	}
+
+	// value of && or ||: a constant left operand decides it alone if it short-circuits
+	private Exp logic(boolean and, Exp node, Exp lhs, Exp rhs) {
+		if (!(lhs instanceof BooleanLiteral))
+			return node;
+
+		boolean left = ((BooleanLiteral) lhs).getValue();
+		if (left != and) {
+			foldedNodes++;
+			return lhs;
+		}
+		if (rhs instanceof BooleanLiteral) {
+			foldedNodes++;
+			return rhs;
+		}
+		return node;
+	}
+
+	// fold a condition, warning if the If or While is decided by it
+	private Exp condition(Exp condExp) {
+		Exp folded = fold(condExp);
+		if (folded instanceof BooleanLiteral && !(condExp instanceof BooleanLiteral))
+			warning(ErrorType.CONSTANT_CONDITION, String.valueOf(((BooleanLiteral) folded).getValue()), condExp);
+		return folded;
+	}
+
+	// binary operators: push the operands, then fold them into the node
+
+	@Override
+	public void visit(And andExp) {
+		if (expanding) {
+			operands(andExp.getLHS(), andExp.getRHS());
+			return;
+		}
+		andExp.setRHS(result(andExp.getRHS()));
+		andExp.setLHS(result(andExp.getLHS()));
+		pushResult(logic(true, andExp, andExp.getLHS(), andExp.getRHS()));
+	}
+
+	@Override
+	public void visit(Or orExp) {
+		if (expanding) {
+			operands(orExp.getLHS(), orExp.getRHS());
+			return;
+		}
+		orExp.setRHS(result(orExp.getRHS()));
+		orExp.setLHS(result(orExp.getLHS()));
+		pushResult(logic(false, orExp, orExp.getLHS(), orExp.getRHS()));
+	}
+
+	@Override
+	public void visit(MoreThan moreExp) {
+		if (expanding) {
+			operands(moreExp.getLHS(), moreExp.getRHS());
+			return;
+		}
+		moreExp.setRHS(result(moreExp.getRHS()));
+		moreExp.setLHS(result(moreExp.getLHS()));
+		pushResult(comparison(NodeKind.MORE_THAN, moreExp, moreExp.getLHS(), moreExp.getRHS()));
+	}
+
+	@Override
+	public void visit(LessThan lessThanExp) {
+		if (expanding) {
+			operands(lessThanExp.getLHS(), lessThanExp.getRHS());
+			return;
+		}
+		lessThanExp.setRHS(result(lessThanExp.getRHS()));
+		lessThanExp.setLHS(result(lessThanExp.getLHS()));
+		pushResult(comparison(NodeKind.LESS_THAN, lessThanExp, lessThanExp.getLHS(), lessThanExp.getRHS()));
+	}
+
+	@Override
+	public void visit(Equal equalExp) {
+		if (expanding) {
+			operands(equalExp.getLHS(), equalExp.getRHS());
+			return;
+		}
+		equalExp.setRHS(result(equalExp.getRHS()));
+		equalExp.setLHS(result(equalExp.getLHS()));
+		pushResult(comparison(NodeKind.EQUAL, equalExp, equalExp.getLHS(), equalExp.getRHS()));
+	}
+
+	@Override
+	public void visit(NotEqual notEqualExp) {
+		if (expanding) {
+			operands(notEqualExp.getLHS(), notEqualExp.getRHS());
+			return;
+		}
+		notEqualExp.setRHS(result(notEqualExp.getRHS()));
+		notEqualExp.setLHS(result(notEqualExp.getLHS()));
+		pushResult(comparison(NodeKind.NOT_EQUAL, notEqualExp, notEqualExp.getLHS(), notEqualExp.getRHS()));
+	}
+
+	@Override
+	public void visit(MoreThanEqual moreEqualExp) {
+		if (expanding) {
+			operands(moreEqualExp.getLHS(), moreEqualExp.getRHS());
+			return;
+		}
+		moreEqualExp.setRHS(result(moreEqualExp.getRHS()));
+		moreEqualExp.setLHS(result(moreEqualExp.getLHS()));
+		pushResult(comparison(NodeKind.MORE_THAN_EQUAL, moreEqualExp, moreEqualExp.getLHS(), moreEqualExp.getRHS()));
+	}
+
+	@Override
+	public void visit(LessThanEqual lessEqualExp) {
+		if (expanding) {
+			operands(lessEqualExp.getLHS(), lessEqualExp.getRHS());
+			return;
+		}
+		lessEqualExp.setRHS(result(lessEqualExp.getRHS()));
+		lessEqualExp.setLHS(result(lessEqualExp.getLHS()));
+		pushResult(comparison(NodeKind.LESS_THAN_EQUAL, lessEqualExp, lessEqualExp.getLHS(), lessEqualExp.getRHS()));
+	}
+
+	@Override
+	public void visit(Plus plusExp) {
+		if (expanding) {
+			operands(plusExp.getLHS(), plusExp.getRHS());
+			return;
+		}
+		plusExp.setRHS(result(plusExp.getRHS()));
+		plusExp.setLHS(result(plusExp.getLHS()));
+		pushResult(arithmetic(NodeKind.PLUS, plusExp, plusExp.getLHS(), plusExp.getRHS()));
+	}
+
+	@Override
+	public void visit(Minus minusExp) {
+		if (expanding) {
+			operands(minusExp.getLHS(), minusExp.getRHS());
+			return;
+		}
+		minusExp.setRHS(result(minusExp.getRHS()));
+		minusExp.setLHS(result(minusExp.getLHS()));
+		pushResult(arithmetic(NodeKind.MINUS, minusExp, minusExp.getLHS(), minusExp.getRHS()));
+	}
+
+	@Override
+	public void visit(Times timesExp) {
+		if (expanding) {
+			operands(timesExp.getLHS(), timesExp.getRHS());
+			return;
+		}
+		timesExp.setRHS(result(timesExp.getRHS()));
+		timesExp.setLHS(result(timesExp.getLHS()));
+		pushResult(arithmetic(NodeKind.TIMES, timesExp, timesExp.getLHS(), timesExp.getRHS()));
+	}
+
+	@Override
+	public void visit(Divide divExp) {
+		if (expanding) {
+			operands(divExp.getLHS(), divExp.getRHS());
+			return;
+		}
+		divExp.setRHS(result(divExp.getRHS()));
+		divExp.setLHS(result(divExp.getLHS()));
+		pushResult(arithmetic(NodeKind.DIVIDE, divExp, divExp.getLHS(), divExp.getRHS()));
+	}
+
+	@Override
+	public void visit(Modules modExp) {
+		if (expanding) {
+			operands(modExp.getLHS(), modExp.getRHS());
+			return;
+		}
+		modExp.setRHS(result(modExp.getRHS()));
+		modExp.setLHS(result(modExp.getLHS()));
+		pushResult(arithmetic(NodeKind.MODULES, modExp, modExp.getLHS(), modExp.getRHS()));
+	}
+
+	@Override
+	public void visit(ArrayLookup arrayLookup) {
+		if (expanding) {
+			operands(arrayLookup.getArray(), arrayLookup.getIndex());
+			return;
+		}
+		arrayLookup.setIndex(result(arrayLookup.getIndex()));
+		arrayLookup.setArray(result(arrayLookup.getArray()));
+		pushResult(arrayLookup);
+	}
+
+	// unary operators
+
+	@Override
+	public void visit(ArrayLength length) {
+		if (expanding) {
+			operands(length.getArray());
+			return;
+		}
+		length.setArray(result(length.getArray()));
+		pushResult(length);
+	}
+
+	@Override
+	public void visit(NewArray array) {
+		if (expanding) {
+			operands(array.getArraySize());
+			return;
+		}
+		array.setArraySize(result(array.getArraySize()));
+		pushResult(array);
+	}
+
+	@Override
+	public void visit(Not notExp) {
+		if (expanding) {
+			operands(notExp.getExp());
+			return;
+		}
+		notExp.setExp(result(notExp.getExp()));
+		if (notExp.getExp() instanceof BooleanLiteral) {
+			foldedNodes++;
+			pushResult(folded(new BooleanLiteral(!((BooleanLiteral) notExp.getExp()).getValue()), notExp));
+		} else
+			pushResult(notExp);
+	}
+
+	@Override
+	public void visit(Negative negExp) {
+		if (expanding) {
+			operands(negExp.getExp());
+			return;
+		}
+		negExp.setExp(result(negExp.getExp()));
+		Exp exp = negExp.getExp();
+		if (exp instanceof IntegerLiteral)
+			pushResult(folded(new IntegerLiteral(-((IntegerLiteral) exp).getValue()), negExp));
+		else if (exp instanceof FloatLiteral)
+			pushResult(folded(new FloatLiteral(-((FloatLiteral) exp).getValue()), negExp));
+		else if (exp instanceof CharLiteral)
+			pushResult(folded(new CharLiteral((char) -((CharLiteral) exp).getValue()), negExp));
+		else {
+			pushResult(negExp);
+			return;
+		}
+		foldedNodes++;
+	}
+
+	// leaves are their own folded value
+
+	@Override
+	public void visit(IntegerLiteral intLiteral) {
+		if (!expanding)
+			pushResult(intLiteral);
+	}
+
+	@Override
+	public void visit(FloatLiteral floatLiteral) {
+		if (!expanding)
+			pushResult(floatLiteral);
+	}
+
+	@Override
+	public void visit(BooleanLiteral booleanLiteral) {
+		if (!expanding)
+			pushResult(booleanLiteral);
+	}
+
+	@Override
+	public void visit(CharLiteral charLiteral) {
+		if (!expanding)
+			pushResult(charLiteral);
+	}
+
+	@Override
+	public void visit(True trueLiteral) {
+		if (!expanding)
+			pushResult(trueLiteral);
+	}
+
+	@Override
+	public void visit(False falseLiteral) {
+		if (!expanding)
+			pushResult(falseLiteral);
+	}
+
+	@Override
+	public void visit(IdentifierExp identExp) {
+		if (!expanding)
+			pushResult(identExp);
+	}
+
+	// types hold no expressions
+
+	@Override
+	public void visit(IntegerArrayType intArrayT) {}
+
+	@Override
+	public void visit(FloatArrayType floatArrayT) {}
+
+	@Override
+	public void visit(BooleanArrayType booleanArrayT) {}
+
+	@Override
+	public void visit(CharArrayType charArrayT) {}
+
+	@Override
+	public void visit(BooleanType boolT) {}
+
+	@Override
+	public void visit(IntegerType intT) {}
+
+	@Override
+	public void visit(FloatType floatT) {}
+
+	@Override
+	public void visit(CharType charT) {}
+
+	@Override
+	public void visit(IdentifierType idT) {}
+
+	// statements take the folded expressions in place of their own
+
+	@Override
+	public void visit(Program prog) {
+		if (prog.getStm() != null)
+			visitStatements(prog.getStm());
+	}
+
+	@Override
+	public void visit(Block blockStm) {
+		if (blockStm.getStms() != null)
+			visitStatements(blockStm.getStms());
+	}
+
+	@Override
+	public void visit(If ifStm) {
+		ifStm.setCondExp(condition(ifStm.getCondExp()));
+		if (ifStm.getTrueStm() != null)
+			ifStm.getTrueStm().accept(this);
+		if (ifStm.getFalseStm() != null)
+			ifStm.getFalseStm().accept(this);
+	}
+
+	@Override
+	public void visit(While whileStm) {
+		whileStm.setCondExp(condition(whileStm.getCondExp()));
+		if (whileStm.getStm() != null)
+			whileStm.getStm().accept(this);
+	}
+
+	@Override
+	public void visit(Assign assignStm) {
+		assignStm.setValue(fold(assignStm.getValue()));
+	}
+
+	@Override
+	public void visit(ArrayAssign arrayAssignStm) {
+		arrayAssignStm.setIndex(fold(arrayAssignStm.getIndex()));
+		arrayAssignStm.setValue(fold(arrayAssignStm.getValue()));
+	}
+
+	private void visitStatements(StatementList statements) {
+		for (int i = 0; i < statements.size(); i++) {
+			if (statements.elementAt(i) != null)
+				statements.elementAt(i).accept(this);
+		}
+	}
+
+	// declarations hold no expressions
+
+	@Override
+	public void visit(VarDecl var) {}
+
+	@Override
+	public void visit(VarDeclList varList) {}
+
+	@Override
+	public void visit(Declarations dec) {}
+
+	@Override
+	public void visit(Formal param) {}
+
+	@Override
+	public void visit(Identifier id) {}
+}
@@ -0,0 +1,530 @@
+package semantic;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import ast.Assign;
+import ast.Declarations;
+import ast.Exp;
+import ast.Identifier;
+import ast.Program;
+import ast.Statement;
+import ast.StatementList;
+import ast.Type;
+import ast.VarDecl;
+import diagnostic.Diagnostic;
+import diagnostic.DiagnosticList;
+import diagnostic.DiagnosticSink;
+import lexer.Lexer;
+import lexer.LineTable;
+import lexer.NamePool;
+import lexer.Token;
+import lexer.TokenSource;
+import lexer.TokenType;
+import parser.ParseListener;
+import parser.Parser;
+
+/*
+ *
+ * Keeps a program analyzed while it is being edited. The program is split
+ * into units: the declaration section and each top-level statement. An edit
+ * re-lexes and re-parses only the window of units around it, re-checks the
+ * statements in the window and, when the declarations were re-parsed, the
+ * statements using a symbol whose declaration changed. Every other unit
+ * keeps its AST nodes and diagnostics and is only moved by the edit.
+ *
+ * A window is re-parsed with the token after it in view, exactly as the
+ * whole text would be, and is widened until the parse ends a unit at that
+ * token. Windows reaching the closing brace of main are re-parsed to the
+ * end of the text, and edits touching the program header re-analyze the
+ * whole text, so the diagnostics are always the ones SemanticAnalyzer
+ * reports.
+ *
+ */
+
+public class IncrementalAnalyzer {
+	private final static TokenType[] HEADER = { TokenType.INT, TokenType.MAIN, TokenType.LPAREN, TokenType.RPAREN,
+			TokenType.LBRACE };
+
+	private StringBuilder text;
+	private NamePool names;
+	private SymbolTable symbolTable;
+	private ArrayList<Unit> units; //declaration section followed by the top-level statements
+	private Unit trailer; //closing brace of main up to the end of the text (or whatever ended the statements)
+	private boolean incremental; //false while the program header is malformed
+
+	private int fullAnalyses; //number of times the whole text was analyzed
+	private int reparsedUnits; //units re-parsed by the last edit
+	private int recheckedUnits; //units re-checked by the last edit
+
+	// a declaration section or top-level statement with everything found in it
+	private static class Unit {
+		private int start = -1; //offset of the first token
+		private int lineNumber; //position of the first token
+		private int columnNumber;
+		private boolean errorAtEnd; //a syntax error was reported at the first token after the unit
+		private LineTable lines; //line table of the parse that built the unit, locating all its diagnostics
+		private int lineShift; //lines moved since the unit was parsed
+		private Declarations declarations; //declaration section only
+		private Statement statement; //top-level statement only (null if it did not parse)
+
+		private ArrayList<VarDecl> varDecls = new ArrayList<VarDecl>();
+		private ArrayList<Identifier> identifiers = new ArrayList<Identifier>();
+		private ArrayList<Assign> assigns = new ArrayList<Assign>();
+		private ArrayList<Exp> conditions = new ArrayList<Exp>();
+		private BitSet symbols = new BitSet(); //symbol ids of the referenced identifiers
+
+		private List<Diagnostic> syntaxErrors = new ArrayList<Diagnostic>();
+		private List<Diagnostic> warnings = new ArrayList<Diagnostic>(); //found folding the statement's constants
+		private List<Diagnostic> declarationErrors;
+		private List<Diagnostic> identifierErrors;
+		private List<Diagnostic> assignErrors;
+		private List<Diagnostic> conditionErrors;
+
+		// the unit starts at a token
+		private void begin(int offset, Token token, LineTable lines) {
+			this.lines = lines;
+			start = offset + token.getOffset();
+			lineNumber = token.getLineNumber();
+			columnNumber = token.getColumnNumber();
+		}
+
+		// the text before the unit changed length by delta chars and lines
+		private void move(int delta, int lines) {
+			start += delta;
+			lineNumber += lines;
+			lineShift += lines;
+		}
+	}
+
+	// splits one parse into units: sits between the lexer and the parser to see the lookahead token,
+	// and receives the parser's productions and syntax errors. A window parse is given the offset of
+	// the first token after the window (the stop token), lexed so the parser sees exactly what it
+	// would see in the whole text, and ends once a unit is complete at the stop token.
+	private static class UnitParser implements TokenSource, ParseListener, DiagnosticSink {
+		private Lexer lexer;
+		private Parser parser;
+		private int offset; //offset of the lexer input in the text
+		private int header; //tokens before the first unit
+		private int stopOffset; //offset of the stop token in the lexer input (-1 to parse everything)
+		private int tokens; //tokens handed to the parser
+		private boolean malformed; //header tokens did not match
+		private Token lookahead; //last token handed to the parser
+		private Token errorToken; //last token a syntax error was reported at
+		private Token stopToken; //first token after the window once it is read
+		private boolean stopped; //a unit ended at the stop token
+		private boolean overrun; //the parser consumed the stop token inside a unit
+		private ArrayList<Unit> units = new ArrayList<Unit>(); //completed units
+		private Unit unit = new Unit(); //unit being parsed
+		private ConstantFolder folder = new ConstantFolder(null);
+
+		private UnitParser(Lexer lexer, int offset, int header, int stopOffset) throws IOException {
+			this.lexer = lexer;
+			this.offset = offset;
+			this.header = header;
+			this.stopOffset = stopOffset;
+			lexer.setDiagnosticSink(this);
+			unit.lines = lexer.getLineTable();
+			folder.setLineTable(lexer.getLineTable());
+
+			this.parser = new Parser(this);
+			parser.setDiagnosticSink(this);
+			parser.setParseListener(this);
+		}
+
+		public Token getToken() throws IOException {
+			if (lookahead != null && lookahead == stopToken)
+				overrun = true;
+
+			lookahead = lexer.getToken();
+			if (tokens < header && lookahead.getType() != HEADER[tokens])
+				malformed = true;
+			if (tokens == header)
+				unit.begin(offset, lookahead, lexer.getLineTable());
+			if (stopOffset >= 0 && stopToken == null && lookahead.getOffset() >= stopOffset)
+				stopToken = lookahead;
+			tokens++;
+			return lookahead;
+		}
+
+		public NamePool getNamePool() {
+			return lexer.getNamePool();
+		}
+
+		public LineTable getLineTable() {
+			return lexer.getLineTable();
+		}
+
+		// the current unit is complete, the next one starts at the lookahead token
+		private void next() {
+			unit.errorAtEnd = (errorToken == lookahead);
+			units.add(unit);
+			unit = new Unit();
+			unit.begin(offset, lookahead, lexer.getLineTable());
+
+			if (lookahead == stopToken && !overrun) {
+				stopped = true;
+				parser.stop();
+			}
+		}
+
+		public void declarations(Declarations declarations) {
+			unit.declarations = declarations;
+			next();
+		}
+
+		public void statement(Statement statement) {
+			DiagnosticList warnings = new DiagnosticList();
+			folder.setDiagnosticSink(warnings);
+			folder.fold(statement);
+
+			unit.statement = statement;
+			unit.warnings = warnings.getDiagnostics();
+			next();
+		}
+
+		public void declaration(VarDecl varDecl) {
+			unit.varDecls.add(varDecl);
+		}
+
+		public void identifier(Identifier identifier) {
+			unit.identifiers.add(identifier);
+			if (identifier.getSymbol() >= 0)
+				unit.symbols.set(identifier.getSymbol());
+		}
+
+		public void assign(Assign assign) {
+			unit.assigns.add(assign);
+		}
+
+		public void condition(Exp condition) {
+			unit.conditions.add(condition);
+		}
+
+		public void report(Diagnostic diagnostic) {
+			unit.syntaxErrors.add(diagnostic);
+			if (diagnostic.isSyntax())
+				errorToken = lookahead;
+		}
+
+		public void flush() {}
+	}
+
+	public IncrementalAnalyzer(String text) throws IOException {
+		this.text = new StringBuilder(text);
+		analyzeAll();
+	}
+
+	public String getText() {
+		return text.toString();
+	}
+
+	// replace length chars at offset and bring the analysis up to date
+	public void edit(int offset, int length, String replacement) throws IOException {
+		if (offset < 0 || length < 0 || offset + length > text.length())
+			throw new IndexOutOfBoundsException("Edit " + offset + "+" + length + " outside text of length " + text.length());
+
+		// units holding the char before the edit and the first char after it
+		int first = incremental ? indexOf(offset - 1) : -1;
+		int last = incremental ? indexOf(offset + length) : -1;
+
+		text.replace(offset, offset + length, replacement);
+		if (first < 0 || last < 0 || !reanalyze(first, last, replacement.length() - length))
+			analyzeAll();
+	}
+
+	// syntax errors, warnings and semantic errors in the order SemanticAnalyzer reports them
+	public List<Diagnostic> getDiagnostics() {
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+		for (Unit unit : units)
+			addShifted(diagnostics, unit.syntaxErrors, unit);
+		addShifted(diagnostics, trailer.syntaxErrors, trailer);
+		for (int i = 1; i < units.size(); i++)
+			addShifted(diagnostics, units.get(i).warnings, units.get(i));
+
+		addShifted(diagnostics, units.get(0).declarationErrors, units.get(0));
+		for (int i = 1; i < units.size(); i++)
+			addShifted(diagnostics, units.get(i).identifierErrors, units.get(i));
+		for (int i = 1; i < units.size(); i++)
+			addShifted(diagnostics, units.get(i).assignErrors, units.get(i));
+		for (int i = 1; i < units.size(); i++)
+			addShifted(diagnostics, units.get(i).conditionErrors, units.get(i));
+		return diagnostics;
+	}
+
+	// number of semantic errors
+	public int getErrors() {
+		int errors = units.get(0).declarationErrors.size();
+		for (int i = 1; i < units.size(); i++) {
+			Unit unit = units.get(i);
+			errors += unit.identifierErrors.size() + unit.assignErrors.size() + unit.conditionErrors.size();
+		}
+		return errors;
+	}
+
+	// number of constant folding warnings
+	public int getWarnings() {
+		int warnings = 0;
+		for (int i = 1; i < units.size(); i++)
+			warnings += units.get(i).warnings.size();
+		return warnings;
+	}
+
+	// the current AST, statements outside the edited windows are the nodes built before the edits
+	public Program getProgram() {
+		StatementList statements = new StatementList();
+		for (int i = 1; i < units.size(); i++)
+			statements.addElement(units.get(i).statement);
+		return new Program(statements, units.get(0).declarations);
+	}
+
+	public SymbolTable getSymbolTable() {
+		return symbolTable;
+	}
+
+	// number of times the whole text was analyzed (including the initial analysis)
+	public int getFullAnalyses() {
+		return fullAnalyses;
+	}
+
+	// declaration sections and statements re-parsed by the last edit
+	public int getReparsedUnits() {
+		return reparsedUnits;
+	}
+
+	// declaration sections and statements re-checked by the last edit
+	public int getRecheckedUnits() {
+		return recheckedUnits;
+	}
+
+	// lex, parse and check the whole text
+	private void analyzeAll() throws IOException {
+		names = new NamePool();
+		Lexer lexer = new Lexer(CharBuffer.wrap(text));
+		lexer.setNamePool(names);
+
+		UnitParser unitParser = new UnitParser(lexer, 0, HEADER.length, -1);
+		unitParser.parser.parseProgram();
+
+		units = unitParser.units;
+		trailer = unitParser.unit;
+		incremental = !unitParser.malformed && units.get(0).start >= 0;
+
+		symbolTable = new SymbolTable(names);
+		checkDeclarations(units.get(0));
+		for (int i = 1; i < units.size(); i++)
+			check(units.get(i));
+
+		fullAnalyses++;
+		reparsedUnits = units.size();
+		recheckedUnits = units.size();
+	}
+
+	// re-parse units first..last (the trailer is unit units.size()) of the text before an edit of delta chars,
+	// false if the whole text must be analyzed
+	private boolean reanalyze(int first, int last, int delta) throws IOException {
+		// the unit before decides where it ends (e.g. whether an else follows an if) by the type of the
+		// window's first token, which the edit may have changed
+		first = Math.max(first - 1, 0);
+
+		// the window starts at a token that was not edited, after a char that ends any token before it,
+		// with no syntax error reported at its first token (the parser reports one error per token), and
+		// not right after the declarations (the token there decides if the declarations go on)
+		while (first > 0 && (first == 1 || !isTokenEnd(unitAt(first).start - 1) || units.get(first - 1).errorAtEnd))
+			first--;
+		if (!isTokenEnd(unitAt(first).start - 1))
+			return false;
+
+		while (true) {
+			boolean tail = (last == units.size());
+			int end = tail ? text.length() : unitAt(last + 1).start + delta;
+
+			// the window ends after whitespace so no token before its end is scanned differently
+			if (!tail && !Character.isWhitespace(text.charAt(end - 1))) {
+				last++;
+				continue;
+			}
+
+			// scan the window and the token after it (where the parse must stop), or the rest of the text
+			Unit begin = unitAt(first);
+			Lexer lexer = new Lexer(CharBuffer.wrap(text, begin.start, tail ? text.length() : tokenEnd(end)));
+			lexer.setNamePool(names);
+			lexer.setStartPosition(begin.lineNumber, begin.columnNumber);
+
+			UnitParser unitParser = new UnitParser(lexer, begin.start, 0, tail ? -1 : end - begin.start);
+			if (first == 0)
+				unitParser.parser.parseDeclarationFragment();
+			if (tail) {
+				unitParser.parser.parseProgramEnd();
+				replace(first, last, unitParser.units, unitParser.unit, delta, 0);
+				return true;
+			}
+			unitParser.parser.parseStatementFragment();
+
+			// the parse ran past the window (e.g. into an unclosed block), double the window so a long run
+			// is re-parsed a logarithmic number of times
+			if (!unitParser.stopped || unitParser.overrun) {
+				last = Math.min(last + (last - first + 1), units.size());
+				continue;
+			}
+
+			// the next unit must start in the same error state and at the same column (it may share the
+			// edited line), otherwise re-parse it as well
+			Unit following = unitAt(last + 1);
+			Unit moved = unitParser.unit;
+			if (units.get(last).errorAtEnd != lastOf(unitParser.units).errorAtEnd
+					|| moved.columnNumber != following.columnNumber) {
+				last++;
+				continue;
+			}
+
+			replace(first, last, unitParser.units, null, delta, moved.lineNumber - following.lineNumber);
+			return true;
+		}
+	}
+
+	// swap units first..last for the re-parsed ones (and the trailer for a new one, if given)
+	// and bring every affected unit's checks up to date
+	private void replace(int first, int last, List<Unit> parsed, Unit newTrailer, int delta, int lines) {
+		units.subList(first, Math.min(last + 1, units.size())).clear();
+		units.addAll(first, parsed);
+		int after = first + parsed.size();
+		for (int i = after; i < units.size(); i++)
+			units.get(i).move(delta, lines);
+		if (newTrailer != null)
+			trailer = newTrailer;
+		else
+			trailer.move(delta, lines);
+
+		reparsedUnits = parsed.size();
+		recheckedUnits = 0;
+
+		// new declarations: re-check only the statements outside the window using a changed symbol
+		if (first == 0) {
+			SymbolTable previous = symbolTable;
+			symbolTable = new SymbolTable(names);
+			checkDeclarations(units.get(0));
+
+			BitSet changed = changedSymbols(previous, symbolTable);
+			for (int i = after; i < units.size(); i++) {
+				if (units.get(i).symbols.intersects(changed))
+					check(units.get(i));
+			}
+		}
+
+		for (int i = Math.max(first, 1); i < after; i++)
+			check(units.get(i));
+	}
+
+	// symbols declared in only one of the tables or with a different type
+	private BitSet changedSymbols(SymbolTable previous, SymbolTable current) {
+		BitSet changed = new BitSet();
+		for (int symbol = 0; symbol < names.size(); symbol++) {
+			VarDecl before = previous.lookup(symbol);
+			VarDecl after = current.lookup(symbol);
+			if ((before == null || after == null) ? before != after : typeOf(before) != typeOf(after))
+				changed.set(symbol);
+		}
+		return changed;
+	}
+
+	// class of a declared type (null for a malformed type)
+	private static Class<? extends Type> typeOf(VarDecl varDecl) {
+		return (varDecl.getType() != null) ? varDecl.getType().getClass() : null;
+	}
+
+	// build the symbol table from the declaration section
+	private void checkDeclarations(Unit unit) {
+		DiagnosticList declarationErrors = new DiagnosticList();
+		SemanticAnalyzer checker = new SemanticAnalyzer(symbolTable, unit.lines, declarationErrors);
+		for (VarDecl varDecl : unit.varDecls)
+			checker.checkDeclaration(varDecl);
+
+		unit.declarationErrors = declarationErrors.getDiagnostics();
+		recheckedUnits++;
+	}
+
+	// check the identifiers, assigns and conditions of a statement
+	private void check(Unit unit) {
+		DiagnosticList identifierErrors = new DiagnosticList();
+		SemanticAnalyzer checker = new SemanticAnalyzer(symbolTable, unit.lines, identifierErrors);
+		for (Identifier identifier : unit.identifiers)
+			checker.checkIdentifier(identifier);
+
+		DiagnosticList assignErrors = new DiagnosticList();
+		checker = new SemanticAnalyzer(symbolTable, unit.lines, assignErrors);
+		for (Assign assign : unit.assigns)
+			checker.checkAssign(assign);
+
+		DiagnosticList conditionErrors = new DiagnosticList();
+		checker = new SemanticAnalyzer(symbolTable, unit.lines, conditionErrors);
+		for (Exp condition : unit.conditions)
+			checker.checkCondition(condition);
+
+		unit.identifierErrors = identifierErrors.getDiagnostics();
+		unit.assignErrors = assignErrors.getDiagnostics();
+		unit.conditionErrors = conditionErrors.getDiagnostics();
+		recheckedUnits++;
+	}
+
+	// unit at an index, the trailer follows the last unit
+	private Unit unitAt(int index) {
+		return (index < units.size()) ? units.get(index) : trailer;
+	}
+
+	// index of the unit holding the char at an offset (units.size() for the trailer), -1 if it is in the header
+	private int indexOf(int offset) {
+		if (offset < units.get(0).start)
+			return -1;
+		if (offset >= trailer.start)
+			return units.size();
+
+		// last unit starting at or before the offset
+		int low = 0;
+		int high = units.size() - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (units.get(middle).start <= offset)
+				low = middle;
+			else
+				high = middle - 1;
+		}
+		return low;
+	}
+
+	// last unit of a list
+	private static Unit lastOf(List<Unit> list) {
+		return list.get(list.size() - 1);
+	}
+
+	// offset past the token starting at an offset and the whitespace char ending it, so it is scanned as in the
+	// whole text (no token spans whitespace)
+	private int tokenEnd(int offset) {
+		int end = offset;
+		while (end < text.length() && !Character.isWhitespace(text.charAt(end)))
+			end++;
+		return Math.min(end + 1, text.length());
+	}
+
+
+	// check if no token can continue past the char at an offset
+	private boolean isTokenEnd(int offset) {
+		char c = text.charAt(offset);
+		return Character.isWhitespace(c) || c == ';' || c == '{' || c == '}';
+	}
+
+	// diagnostics of a unit, located when it was parsed, moved to the lines the unit is on now
+	private static void addShifted(List<Diagnostic> diagnostics, List<Diagnostic> found, Unit unit) {
+		for (Diagnostic diagnostic : found) {
+			if (unit.lineShift == 0 || diagnostic.getLineNumber() == 0)
+				diagnostics.add(diagnostic);
+			else
+				diagnostics.add(new Diagnostic(diagnostic.getSeverity(), diagnostic.getErrorType(), diagnostic.getFound(),
+						diagnostic.getExpected(), diagnostic.getLineNumber() + unit.lineShift,
+						diagnostic.getColumnNumber(), diagnostic.getSymbol()));
+		}
+	}
+}
@@ -2,57 +2,190 @@ package semantic;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import ast.Assign;
-import ast.BooleanArrayType;
-import ast.BooleanLiteral;
-import ast.BooleanType;
-import ast.CharArrayType;
-import ast.CharLiteral;
-import ast.CharType;
+import ast.Declarations;
 import ast.Equal;
 import ast.Exp;
-import ast.FloatArrayType;
-import ast.FloatLiteral;
-import ast.FloatType;
 import ast.Identifier;
-import ast.IdentifierExp;
-import ast.IntegerArrayType;
-import ast.IntegerLiteral;
-import ast.IntegerType;
+import ast.Node;
 import ast.LessThan;
 import ast.LessThanEqual;
 import ast.MoreThan;
 import ast.MoreThanEqual;
 import ast.NotEqual;
+import ast.Program;
+import ast.Statement;
 import ast.Type;
 import ast.VarDecl;
+import diagnostic.Diagnostic;
+import diagnostic.DiagnosticList;
+import diagnostic.DiagnosticSink;
+import diagnostic.DiagnosticWriter;
+import lexer.LineTable;
 import lexer.TokenType;
+import parser.ParseListener;
 import parser.Parser;
 
 public class SemanticAnalyzer {
+	private final static int CHUNK_SIZE = 1024; //list elements checked by one parallel task
+
+	// diagnostics in source order, those at the same position (or without one) keep their order
+	private final static Comparator<Diagnostic> BY_POSITION = new Comparator<Diagnostic>() {
+		public int compare(Diagnostic a, Diagnostic b) {
+			if (a.getLineNumber() != b.getLineNumber())
+				return Integer.compare(a.getLineNumber(), b.getLineNumber());
+			return Integer.compare(a.getColumnNumber(), b.getColumnNumber());
+		}
+	};
+
+	// which list a parallel task checks
+	private enum Pass {
+		IDENTIFIERS, ASSIGNS, CONDITIONS
+	}
+
+	// checks a range of one list on its own checker and diagnostic list, splitting large ranges in halves
+	private static class CheckTask extends RecursiveTask<List<Diagnostic>> {
+		private static final long serialVersionUID = 1L;
+
+		private final SymbolTable symbolTable; //frozen
+		private final LineTable lines;
+		private final Pass pass;
+		private final List<?> list;
+		private final int from;
+		private final int to;
+
+		CheckTask(SymbolTable symbolTable, LineTable lines, Pass pass, List<?> list, int from, int to) {
+			this.symbolTable = symbolTable;
+			this.lines = lines;
+			this.pass = pass;
+			this.list = list;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected List<Diagnostic> compute() {
+			if (to - from > CHUNK_SIZE) {
+				int middle = (from + to) >>> 1;
+				CheckTask left = new CheckTask(symbolTable, lines, pass, list, from, middle);
+				left.fork();
+				List<Diagnostic> right = new CheckTask(symbolTable, lines, pass, list, middle, to).compute();
+				List<Diagnostic> diagnostics = left.join();
+				if (diagnostics.isEmpty())
+					return right;
+				diagnostics.addAll(right);
+				return diagnostics;
+			}
+
+			DiagnosticList diagnostics = new DiagnosticList();
+			SemanticAnalyzer checker = new SemanticAnalyzer(symbolTable, lines, diagnostics);
+			for (int i = from; i < to; i++) {
+				if (pass == Pass.IDENTIFIERS)
+					checker.checkIdentifier((Identifier) list.get(i));
+				else if (pass == Pass.ASSIGNS)
+					checker.checkAssign((Assign) list.get(i));
+				else
+					checker.checkCondition((Exp) list.get(i));
+			}
+			return diagnostics.getDiagnostics();
+		}
+	}
 
 	private Parser parser;
+	private Program program; //parsed by the last analysis
 	private ArrayList<VarDecl> declerations;
 	private ArrayList<Identifier> identifiers;
 	private ArrayList<Assign> assigns;
 	private ArrayList<Exp> conditions;
+	private SymbolTable symbolTable;
+	private TypeCheckVisitor typeChecker; //types the assigned expressions
+	private LineTable lines; //locates the errors at the spans of the nodes (null if unknown)
 
 	private int errors;
+	private int warnings; //reported by the constant folding
+	private DiagnosticSink diagnostics = new DiagnosticWriter(System.err); //receives semantic errors
 
 	public SemanticAnalyzer(FileReader file) throws IOException{
-		this.parser = new Parser(file);
+		this(new Parser(file));
+	}
+
+	// analyze the program of an already constructed parser
+	public SemanticAnalyzer(Parser parser){
+		this.parser = parser;
+		this.symbolTable = new SymbolTable(parser.getNamePool());
+		this.typeChecker = typeChecker(symbolTable);
+	}
+
+	// checker without a parser, for analyzers that parse the program themselves and check it piecewise
+	SemanticAnalyzer(SymbolTable symbolTable, LineTable lines, DiagnosticSink diagnostics){
+		this.symbolTable = symbolTable;
+		this.lines = lines;
+		this.typeChecker = typeChecker(symbolTable);
+		this.diagnostics = diagnostics;
+	}
+
+	// a type checker reporting the operands that do not fit their operator as errors (README rule three)
+	private TypeCheckVisitor typeChecker(SymbolTable symbolTable){
+		TypeCheckVisitor typeChecker = new TypeCheckVisitor(symbolTable);
+		typeChecker.setOperandListener(new TypeCheckVisitor.OperandListener() {
+			public void invalidOperand(Exp operand, String operator) {
+				error(ErrorType.INVALID_OPERAND, operator, operand);
+			}
+		});
+		return typeChecker;
 	}
 
 	// get number of errors
 	public int getErrors() {
 		return errors;
 	}
+
+	// get number of warnings
+	public int getWarnings() {
+		return warnings;
+	}
+
+	// number of tokens read by the parser
+	public int getTokenCount() {
+		return parser.getTokenCount();
+	}
+
+	// redirect syntax and semantic error reports (written to System.err by default)
+	public void setDiagnosticSink(DiagnosticSink diagnostics) {
+		this.diagnostics = diagnostics;
+		this.parser.setDiagnosticSink(diagnostics);
+	}
+
+	// write syntax and semantic error reports to a stream
+	public void setErrorStream(PrintStream err) {
+		setDiagnosticSink(new DiagnosticWriter(err));
+	}
+
+	// get the program parsed by the last analysis (null before)
+	public Program getProgram() {
+		return program;
+	}
+
+	// get the symbol table built from the program declarations
+	public SymbolTable getSymbolTable() {
+		return symbolTable;
+	}
 	
-	//start semantic analyzer
+	//start semantic analyzer, constants are folded before the checks so they walk the smaller trees
 	public void analyzeProgram() throws IOException{
-		this.parser.parseProgram();
+		this.program = this.parser.parseProgram();
+		this.lines = this.parser.getLineTable();
+		ConstantFolder folder = new ConstantFolder(diagnostics);
+		folder.setLineTable(lines);
+		folder.fold(program);
+		warnings = folder.getWarnings();
 		this.declerations = this.parser.getDecelarations();
 		checkDeclerations();
 		this.identifiers = this.parser.getIdentifiers();
@@ -60,307 +193,219 @@ public class SemanticAnalyzer {
 		this.assigns = this.parser.getAssigns();
 		checkAssigns();
 		this.conditions = this.parser.getConditions();
-		checkConditions();	
+		checkConditions();
+		diagnostics.flush();
 	}
 
-	// check program declarations
-	private void checkDeclerations(){
-		for(int i = 0; i < declerations.size(); i++){
-			VarDecl varDecl = declerations.get(i);
-			String idName = varDecl.getId().getName();
-
-			for(int j = i + 1; j < declerations.size(); j ++){
-				VarDecl _varDecl = declerations.get(j);
-				String _idName = _varDecl.getId().getName();
-
-				if(idName.equals(_idName))
-					error(ErrorType.MULTIPLE_DECLARATION, _idName);
-			}
-		}
+	// analyze on the common ForkJoinPool, see analyzeProgramParallel(ForkJoinPool)
+	public void analyzeProgramParallel() throws IOException{
+		analyzeProgramParallel(ForkJoinPool.commonPool());
 	}
 
-	// check program identifiers
-	private void checkIdenifiers(){
-		for (Identifier identifier : identifiers) {
-			if(!isIdentifierExists(identifier.getName()))
-				error(ErrorType.NO_DECLARATION, identifier.getName());
-		}
-	}
-	
-	// check program conditions
-	private void checkConditions(){
-		for (Exp exp : conditions) {
-			if((exp instanceof MoreThan || exp instanceof MoreThanEqual ||exp instanceof LessThan ||
-					exp instanceof LessThanEqual || exp instanceof NotEqual || exp instanceof Equal))
-				error(ErrorType.INVALID_CONDITION, null);
-		}
-		
-	}
-	
-	// check if a specific identifier name is exists
-	private boolean isIdentifierExists(String name){
-		for (VarDecl varDecl : declerations) {
-			String idName = varDecl.getId().getName();
+	// analyze like analyzeProgram(), but once the declarations are in the symbol table it is frozen
+	// and the identifiers, assigns and conditions are checked by tasks on a pool, each on a range
+	// of its list. The folding warnings, declaration errors and check errors are merged and reported
+	// sorted by source position, so the report does not depend on the scheduling. Syntax errors are
+	// still reported by the parser as it finds them, before all of these.
+	public void analyzeProgramParallel(ForkJoinPool pool) throws IOException{
+		this.program = this.parser.parseProgram();
+		this.lines = this.parser.getLineTable();
+
+		// the sequential phases report into a list, merged with the checks below
+		DiagnosticSink sink = diagnostics;
+		DiagnosticList sequential = new DiagnosticList();
+		this.diagnostics = sequential;
+		ConstantFolder folder = new ConstantFolder(sequential);
+		folder.setLineTable(lines);
+		folder.fold(program);
+		warnings = folder.getWarnings();
+		this.declerations = this.parser.getDecelarations();
+		checkDeclerations();
+		this.diagnostics = sink;
+		symbolTable.freeze();
 
-			if(idName.equals(name))
-				return true;
+		this.identifiers = this.parser.getIdentifiers();
+		this.assigns = this.parser.getAssigns();
+		this.conditions = this.parser.getConditions();
+		CheckTask[] tasks = {
+				new CheckTask(symbolTable, lines, Pass.IDENTIFIERS, identifiers, 0, identifiers.size()),
+				new CheckTask(symbolTable, lines, Pass.ASSIGNS, assigns, 0, assigns.size()),
+				new CheckTask(symbolTable, lines, Pass.CONDITIONS, conditions, 0, conditions.size()) };
+		for (CheckTask task : tasks)
+			pool.execute(task);
+
+		List<Diagnostic> merged = new ArrayList<Diagnostic>(sequential.getDiagnostics());
+		for (CheckTask task : tasks) {
+			List<Diagnostic> checked = task.join();
+			errors += checked.size();
+			merged.addAll(checked);
 		}
-		return false;
+		Collections.sort(merged, BY_POSITION);
+		for (Diagnostic diagnostic : merged)
+			diagnostics.report(diagnostic);
+		diagnostics.flush();
 	}
 
-	// type checking of all the assign expressions
-	private void checkAssigns(){
-		for (Assign assign : assigns) {
-			Exp type = assign.getValue();
-			String idName = assign.getId().getName();
-			Type idType = getIdentifierType(idName);
-
-			// assign to int
-			if(idType != null && (idType instanceof IntegerType || idType instanceof IntegerArrayType)){
-
-				// float to int
-				if(type instanceof FloatLiteral)
-					error(ErrorType.FLOAT_INT_CASTING, idName);
-
-				// boolean to int
-				if(type instanceof BooleanLiteral)
-					error(ErrorType.BOOLEAN_INT_CASTING, idName);
-
-				// type(id) to int
-				if(type instanceof IdentifierExp){
-					String _idName = ((IdentifierExp) type).getName();
-					Type _idType = getIdentifierType(_idName);
-
-					if(_idType != null){
-						// float to int
-						if (_idType instanceof FloatType)
-							error(ErrorType.FLOAT_INT_CASTING, idName);
-
-						// boolean to int
-						else if( _idType instanceof BooleanType)
-							error(ErrorType.BOOLEAN_INT_CASTING, idName);
-
-						if(idType instanceof IntegerType)
-							// identifier with array type
-							if (_idType instanceof FloatArrayType || _idType instanceof BooleanArrayType
-									|| _idType instanceof IntegerArrayType || _idType instanceof CharArrayType)
-								error(ErrorType.ARRAY_TO_SINGLE, idName);
-
-						if(idType instanceof IntegerArrayType)
-							// identifier with single type
-							if (_idType instanceof FloatType || _idType instanceof BooleanType
-									|| _idType instanceof IntegerType || _idType instanceof CharType)
-								error(ErrorType.SINGLE_TO_ARRAY, idName);
-
-					}
-
-				}
+	// analyze while parsing: each declaration, identifier, assign and condition is checked as soon
+	// as the parser reduces it, so the parser's lists are never built. Declarations always precede
+	// the statements, so the same errors are found as by analyzeProgram(), in source order. The errors
+	// are located while the lexer is still scanning, so over a TokenPipeline they have no position.
+	public void analyzeProgramStreaming() throws IOException{
+		this.lines = this.parser.getLineTable();
+		final ConstantFolder folder = new ConstantFolder(diagnostics);
+		folder.setLineTable(lines);
+		this.parser.setParseListener(new ParseListener() {
+			public void declaration(VarDecl varDecl) {
+				checkDeclaration(varDecl);
 			}
 
-			// assign to float
-			if(idType != null && (idType instanceof FloatType || idType instanceof FloatArrayType)){
-
-				// boolean to float
-				if(type instanceof BooleanLiteral)
-					error(ErrorType.BOOLEAN_FLOAT_CASTING, idName);
-
-				// char to float
-				if(type instanceof CharLiteral)
-					error(ErrorType.CHAR_FLOAT_CASTING, idName);
-
-				if(type instanceof IdentifierExp){
-
-					String _idName = ((IdentifierExp) type).getName();
-					Type _idType = getIdentifierType(_idName);
-
-					if(_idType != null){
-						// boolean to float
-						if (_idType instanceof BooleanType)
-							error(ErrorType.BOOLEAN_FLOAT_CASTING, idName);
-
-						// char to float
-						else if( _idType instanceof CharType)
-							error(ErrorType.CHAR_FLOAT_CASTING, idName);
-
-						if(idType instanceof FloatType)
-							// identifier with array type
-							if (_idType instanceof FloatArrayType || _idType instanceof BooleanArrayType
-									|| _idType instanceof IntegerArrayType || _idType instanceof CharArrayType)
-								error(ErrorType.ARRAY_TO_SINGLE, idName);
-
-						if(idType instanceof FloatArrayType)
-							// identifier with single type
-							if (_idType instanceof FloatType || _idType instanceof BooleanType
-									|| _idType instanceof IntegerType || _idType instanceof CharType)
-								error(ErrorType.SINGLE_TO_ARRAY, idName);
-					}
-				}
+			public void identifier(Identifier identifier) {
+				checkIdentifier(identifier);
 			}
 
-			// assign to char
-			if(idType != null && (idType instanceof CharType || idType instanceof CharArrayType)){
-
-				//int to char
-				if(type instanceof IntegerLiteral)
-					error(ErrorType.INT_CHAR_CASTING, idName);
-
-				// float to char
-				if(type instanceof FloatLiteral)
-					error(ErrorType.FLOAT_CHAR_CASTING, idName);
+			public void assign(Assign assign) {
+				checkAssign(assign);
+			}
 
-				// boolean to char
-				if(type instanceof BooleanLiteral)
-					error(ErrorType.BOOLEAN_CHAR_CASTING, idName);
+			public void condition(Exp condition) {
+				checkCondition(condition);
+			}
 
-				// type(id) to int
-				if(type instanceof IdentifierExp){
-					String _idName = ((IdentifierExp) type).getName();
-					Type _idType = getIdentifierType(_idName);
+			public void declarations(Declarations declarations) {}
 
-					if(_idType != null){
+			public void statement(Statement statement) {
+				folder.fold(statement);
+			}
+		});
+		this.program = this.parser.parseProgram();
+		warnings = folder.getWarnings();
+		diagnostics.flush();
+	}
 
-						// float to char
-						if (_idType instanceof FloatType)
-							error(ErrorType.FLOAT_CHAR_CASTING, idName);
+	// check program declarations while building the symbol table
+	private void checkDeclerations(){
+		for (VarDecl varDecl : declerations)
+			checkDeclaration(varDecl);
+	}
 
-						// int to char
-						else if (_idType instanceof IntegerType)
-							error(ErrorType.INT_CHAR_CASTING, idName);
+	// add a declaration to the symbol table
+	void checkDeclaration(VarDecl varDecl){
+		if(varDecl.getId() == null)
+			return;
 
-						// boolean to char
-						else if( _idType instanceof BooleanType)
-							error(ErrorType.BOOLEAN_CHAR_CASTING, idName);
+		if(!symbolTable.declare(varDecl))
+			error(ErrorType.MULTIPLE_DECLARATION, varDecl.getId().getName(), varDecl.getId());
+	}
 
-						if(idType instanceof CharType)
-							// identifier with array type
-							if (_idType instanceof FloatArrayType || _idType instanceof BooleanArrayType
-									|| _idType instanceof IntegerArrayType || _idType instanceof CharArrayType)
-								error(ErrorType.ARRAY_TO_SINGLE, idName);
+	// check program identifiers
+	private void checkIdenifiers(){
+		for (Identifier identifier : identifiers)
+			checkIdentifier(identifier);
+	}
 
-						if(idType instanceof CharArrayType)
-							// identifier with single type
-							if (_idType instanceof FloatType || _idType instanceof BooleanType
-									|| _idType instanceof IntegerType || _idType instanceof CharType)
-								error(ErrorType.SINGLE_TO_ARRAY, idName);
-					}
+	// check that a referenced identifier is declared
+	void checkIdentifier(Identifier identifier){
+		if(!isIdentifierExists(identifier))
+			error(ErrorType.NO_DECLARATION, identifier.getName(), identifier);
+	}
+	
+	// check program conditions
+	private void checkConditions(){
+		for (Exp exp : conditions)
+			checkCondition(exp);
+	}
 
-				}
-			}
+	// check a single if/while condition, and the operands in it
+	void checkCondition(Exp exp){
+		typeChecker.check(exp);
+		if((exp instanceof MoreThan || exp instanceof MoreThanEqual ||exp instanceof LessThan ||
+				exp instanceof LessThanEqual || exp instanceof NotEqual || exp instanceof Equal))
+			error(ErrorType.INVALID_CONDITION, null, exp);
+	}
+	
+	// check if a specific identifier is declared
+	private boolean isIdentifierExists(Identifier identifier){
+		int symbol = identifier.getSymbol();
+		return (symbol >= 0) ? symbolTable.contains(symbol) : symbolTable.contains(identifier.getName());
+	}
 
-			// assign to boolean
-			if(idType != null && (idType instanceof BooleanType || idType instanceof BooleanArrayType)){
-				//int to boolean
-				if(type instanceof IntegerLiteral)
-					error(ErrorType.INT_BOOLEAN_CASTING, idName);
-
-				// float to boolean
-				if(type instanceof FloatLiteral)
-					error(ErrorType.FLOAT_BOOLEAN_CASTING, idName);
-
-				// char to boolean
-				if(type instanceof CharLiteral)
-					error(ErrorType.CHAR_BOOLEAN_CASTING, idName);
-
-				// type(id) to int
-				if(type instanceof IdentifierExp){
-					String _idName = ((IdentifierExp) type).getName();
-					Type _idType = getIdentifierType(_idName);
-
-					if(_idType != null){
-
-						// float to boolean
-						if (_idType instanceof FloatType)
-							error(ErrorType.FLOAT_CHAR_CASTING, idName);
-
-						// int to boolean
-						else if (_idType instanceof IntegerType)
-							error(ErrorType.INT_CHAR_CASTING, idName);
-
-						// char to boolean
-						else if( _idType instanceof CharType)
-							error(ErrorType.CHAR_BOOLEAN_CASTING, idName);
-
-						if(idType instanceof BooleanType)
-							// identifier with array type
-							if (_idType instanceof FloatArrayType || _idType instanceof BooleanArrayType
-									|| _idType instanceof IntegerArrayType || _idType instanceof CharArrayType)
-								error(ErrorType.ARRAY_TO_SINGLE, idName);
-
-						if(_idType instanceof BooleanArrayType)
-							// identifier with single type
-							if (_idType instanceof FloatType || _idType instanceof BooleanType
-									|| _idType instanceof IntegerType || _idType instanceof CharType)
-								error(ErrorType.SINGLE_TO_ARRAY, idName);
-					}
-
-				}
-			}
+	// type checking of all the assign expressions
+	private void checkAssigns(){
+		for (Assign assign : assigns)
+			checkAssign(assign);
+	}
 
+	// type checking of a single assign expression: the type of the whole value expression must fit
+	// the target variable, or its element type for an element assignment (README rule two). Operands
+	// that do not fit are reported while typing, and leave the value or index of unknown type
+	void checkAssign(Assign assign){
+		String idName = assign.getId().getName();
+		Type idType = getIdentifierType(assign.getId().getSymbol(), idName);
+		if(assign.getIndex() != null)
+			typeChecker.checkIndex(assign.getIndex());
+		Type valueType = typeChecker.check(assign.getValue());
+		if(idType == null || valueType == null)
+			return;
+
+		Type target = TypeCheckVisitor.elementType(idType);
+		boolean targetArray = TypeCheckVisitor.isArray(idType) && !assign.isElement();
+		Type source = TypeCheckVisitor.elementType(valueType);
+		boolean sourceArray = TypeCheckVisitor.isArray(valueType);
+
+		// arrays are only checked for their shape
+		if(!sourceArray){
+			ErrorType casting = castingError(target, source);
+			if(casting != null)
+				error(casting, idName, assign);
 		}
+
+		if(!targetArray && sourceArray)
+			error(ErrorType.ARRAY_TO_SINGLE, idName, assign);
+		else if(targetArray && !sourceArray)
+			error(ErrorType.SINGLE_TO_ARRAY, idName, assign);
 	}
 
-	// get identifier type (IntegerType | IntegerArrayType | FloatType | FloatArrayType | CharType | CharArrayType)
-	private Type getIdentifierType(String name){
-		for (VarDecl dec : declerations) {
-			Identifier id = dec.getId();
-			if(id.getName().equals(name))
-				return dec.getType();
+	// error for assigning a single value of one type to a variable of another (null if allowed)
+	private static ErrorType castingError(Type target, Type source){
+		if(target == TypeCheckVisitor.INT){
+			if(source == TypeCheckVisitor.FLOAT)
+				return ErrorType.FLOAT_INT_CASTING;
+			if(source == TypeCheckVisitor.BOOLEAN)
+				return ErrorType.BOOLEAN_INT_CASTING;
+		}
+		else if(target == TypeCheckVisitor.FLOAT){
+			if(source == TypeCheckVisitor.BOOLEAN)
+				return ErrorType.BOOLEAN_FLOAT_CASTING;
+			if(source == TypeCheckVisitor.CHAR)
+				return ErrorType.CHAR_FLOAT_CASTING;
+		}
+		else if(target == TypeCheckVisitor.CHAR){
+			if(source == TypeCheckVisitor.INT)
+				return ErrorType.INT_CHAR_CASTING;
+			if(source == TypeCheckVisitor.FLOAT)
+				return ErrorType.FLOAT_CHAR_CASTING;
+			if(source == TypeCheckVisitor.BOOLEAN)
+				return ErrorType.BOOLEAN_CHAR_CASTING;
+		}
+		else if(target == TypeCheckVisitor.BOOLEAN){
+			if(source == TypeCheckVisitor.INT)
+				return ErrorType.INT_BOOLEAN_CASTING;
+			if(source == TypeCheckVisitor.FLOAT)
+				return ErrorType.FLOAT_BOOLEAN_CASTING;
+			if(source == TypeCheckVisitor.CHAR)
+				return ErrorType.CHAR_BOOLEAN_CASTING;
 		}
-
 		return null;
 	}
 
-	// print errors report
-	private void error(ErrorType errorType, Object parm){
+	// look up by symbol id, falling back to the name for identifiers built outside the parser
+	private Type getIdentifierType(int symbol, String name){
+		return (symbol >= 0) ? symbolTable.getType(symbol) : symbolTable.getType(name);
+	}
+
+	// report an error located at the node it is about
+	private void error(ErrorType errorType, String symbol, Node node){
 		errors++;
-		switch (errorType) {
-		case MULTIPLE_DECLARATION:
-			System.err.println("Declaration Error: MULTIPLE_DECLARATION, variable (" + (String) parm + ")");
-			break;
-		case NO_DECLARATION:
-			System.err.println("Declaration Error: NO_DECLARATION, variable (" + (String) parm + ")");
-			break;
-		case FLOAT_INT_CASTING:
-			System.err.println("Casting Error: FLOAT_INT_CASTING, variable (" + parm + ")");
-			break;
-		case BOOLEAN_INT_CASTING:
-			System.err.println("Casting Error: BOOLEAN_INT_CASTING, variable (" + parm + ")");
-			break;
-		case INT_BOOLEAN_CASTING:
-			System.err.println("Casting Error: INT_BOOLEAN_CASTING, variable (" + parm + ")");
-			break;
-		case BOOLEAN_FLOAT_CASTING:
-			System.err.println("Casting Error: BOOLEAN_FLOAT_CASTING, variable (" + parm + ")");
-			break;
-		case FLOAT_BOOLEAN_CASTING:
-			System.err.println("Casting Error: FLOAT_BOOLEAN_CASTING, variable (" + parm + ")");
-			break;
-		case CHAR_FLOAT_CASTING:
-			System.err.println("Casting Error: CHAR_FLOAT_CASTING, variable (" + parm + ")");
-			break;
-		case CHAR_BOOLEAN_CASTING:
-			System.err.println("Casting Error: CHAR_BOOLEAN_CASTING, variable (" + parm + ")");
-			break;
-		case FLOAT_CHAR_CASTING:
-			System.err.println("Casting Error: FLOAT_CHAR_CASTING, variable (" + parm + ")");
-			break;
-		case BOOLEAN_CHAR_CASTING:
-			System.err.println("Casting Error: BOOLEAN_CHAR_CASTING, variable (" + parm + ")");
-			break;
-		case INT_CHAR_CASTING:
-			System.err.println("Casting Error: INT_CHAR_CASTING, variable (" + parm + ")");
-			break;
-		case ARRAY_TO_SINGLE:
-			System.err.println("Invalid Assignment: ARRAY_TO_SINGLE, variable (" + parm + ")");
-			break;
-		case SINGLE_TO_ARRAY:
-			System.err.println("Invalid Assignment: SINGLE_TO_ARRAY, variable (" + parm + ")");
-			break;
-		case INVALID_CONDITION:
-			System.err.println("Invalid Condition: INVALID_CONDITION");
-			break;
-		default:
-			break;
-		}
+		diagnostics.report(Diagnostic.semantic(errorType, symbol, lines, node.getSpan()));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package semantic;
+
+import java.util.Arrays;
+
+import ast.Identifier;
+import ast.Type;
+import ast.VarDecl;
+import lexer.NamePool;
+
+public class SymbolTable {
+	private NamePool names; //pool mapping identifier names to symbol ids
+	private VarDecl[] bindings; //innermost visible declaration indexed by symbol id
+	private int[] bindingDepths; //scope depth of each visible declaration
+	private int depth; //current nesting depth (1 for the global scope)
+
+	// declarations shadowed by inner scopes, restored when the scope is closed
+	private int[] undoSymbols;
+	private VarDecl[] undoBindings;
+	private int[] undoDepths;
+	private int undoSize;
+	private int[] scopeMarks; //undo log size when each scope was entered
+	private boolean frozen; //no more declarations or scope changes, lookups may run on several threads
+
+	public SymbolTable(NamePool names) {
+		this.names = names;
+		this.bindings = new VarDecl[Math.max(16, names.size())];
+		this.bindingDepths = new int[bindings.length];
+		this.undoSymbols = new int[16];
+		this.undoBindings = new VarDecl[16];
+		this.undoDepths = new int[16];
+		this.scopeMarks = new int[8];
+		this.depth = 1; // global scope
+	}
+
+	// make the table read-only, e.g. before it is shared by several checking threads
+	public void freeze() {
+		frozen = true;
+	}
+
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	// open a new nested scope
+	public void enterScope() {
+		checkNotFrozen();
+		if (depth == scopeMarks.length)
+			scopeMarks = Arrays.copyOf(scopeMarks, depth * 2);
+		scopeMarks[depth++] = undoSize;
+	}
+
+	// close the innermost scope (the global scope is never closed)
+	public void exitScope() {
+		checkNotFrozen();
+		if (depth == 1)
+			return;
+
+		int mark = scopeMarks[--depth];
+		while (undoSize > mark) {
+			undoSize--;
+			int symbol = undoSymbols[undoSize];
+			bindings[symbol] = undoBindings[undoSize];
+			bindingDepths[symbol] = undoDepths[undoSize];
+			undoBindings[undoSize] = null;
+		}
+	}
+
+	// current nesting depth (1 for the global scope)
+	public int depth() {
+		return depth;
+	}
+
+	// add a declaration to the innermost scope, returns false if the name is already declared in it
+	public boolean declare(VarDecl varDecl) {
+		checkNotFrozen();
+		int symbol = symbolOf(varDecl.getId());
+		ensureCapacity(symbol);
+
+		// keep the first declaration so later lookups resolve to it
+		if (bindings[symbol] != null && bindingDepths[symbol] == depth)
+			return false;
+
+		// global declarations are never undone so they need no undo entry
+		if (depth > 1)
+			pushUndo(symbol);
+
+		bindings[symbol] = varDecl;
+		bindingDepths[symbol] = depth;
+		return true;
+	}
+
+	// find the visible declaration of a symbol id
+	public VarDecl lookup(int symbol) {
+		return (symbol >= 0 && symbol < bindings.length) ? bindings[symbol] : null;
+	}
+
+	// find the visible declaration of a name
+	public VarDecl lookup(String name) {
+		return lookup(names.find(name));
+	}
+
+	// check if a symbol id is declared in any visible scope
+	public boolean contains(int symbol) {
+		return lookup(symbol) != null;
+	}
+
+	// check if a name is declared in any visible scope
+	public boolean contains(String name) {
+		return lookup(name) != null;
+	}
+
+	// get the declared type of a symbol id or null if undeclared
+	public Type getType(int symbol) {
+		VarDecl varDecl = lookup(symbol);
+		return (varDecl != null) ? varDecl.getType() : null;
+	}
+
+	// get the declared type of a name or null if undeclared
+	public Type getType(String name) {
+		return getType(names.find(name));
+	}
+
+	// symbol id of an identifier, pooling its name if the parser did not
+	private int symbolOf(Identifier id) {
+		return (id.getSymbol() >= 0) ? id.getSymbol() : names.intern(id.getName());
+	}
+
+	private void checkNotFrozen() {
+		if (frozen)
+			throw new IllegalStateException("Symbol table is frozen");
+	}
+
+	// grow the binding arrays to hold a symbol id
+	private void ensureCapacity(int symbol) {
+		if (symbol < bindings.length)
+			return;
+
+		int capacity = Math.max(bindings.length * 2, symbol + 1);
+		bindings = Arrays.copyOf(bindings, capacity);
+		bindingDepths = Arrays.copyOf(bindingDepths, capacity);
+	}
+
+	// save the current binding of a symbol before an inner scope replaces it
+	private void pushUndo(int symbol) {
+		if (undoSize == undoSymbols.length) {
+			undoSymbols = Arrays.copyOf(undoSymbols, undoSize * 2);
+			undoBindings = Arrays.copyOf(undoBindings, undoSize * 2);
+			undoDepths = Arrays.copyOf(undoDepths, undoSize * 2);
+		}
+		undoSymbols[undoSize] = symbol;
+		undoBindings[undoSize] = bindings[symbol];
+		undoDepths[undoSize] = bindingDepths[symbol];
+		undoSize++;
+	}
+}
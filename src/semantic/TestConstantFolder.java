@@ -0,0 +1,122 @@
+package semantic;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import ast.*;
+import diagnostic.DiagnosticCounter;
+import lexer.Lexer;
+import parser.Parser;
+import visitor.GenericDepthFirstVisitor;
+
+/*
+ *
+ * Checks that constant folding keeps one literal node per source site: in
+ * the folded tree of each file argument no literal is reached twice, every
+ * literal has a span within its statement, and no two literals have the
+ * same span, even when their values are equal, e.g.
+ * java semantic.TestConstantFolder tests/*.txt
+ *
+ */
+
+public class TestConstantFolder {
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("No file arguments given");
+			return;
+		}
+
+		int failures = 0;
+		for (int i = 0; i < args.length; i++) {
+			String text = new String(Files.readAllBytes(Paths.get(args[i])), StandardCharsets.UTF_8);
+			Parser parser = new Parser(new Lexer(CharBuffer.wrap(text)));
+			parser.setDiagnosticSink(new DiagnosticCounter());
+			Program program = parser.parseProgram();
+			new ConstantFolder(new DiagnosticCounter()).fold(program);
+
+			LiteralSites sites = new LiteralSites();
+			program.accept(sites, Span.NONE);
+			if (sites.mismatch != null) {
+				System.err.println(args[i] + ": MISMATCH at " + sites.mismatch);
+				failures++;
+			} else
+				System.out.println(args[i] + ": OK (" + sites.literals.size() + " literals)");
+		}
+
+		System.out.println("---");
+		System.out.println(failures + " of " + args.length + " files differ");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	// collects the literals of a tree by identity and by span, the argument is the span of the enclosing statement
+	private static class LiteralSites extends GenericDepthFirstVisitor<Void, Long> {
+		private IdentityHashMap<Exp, Exp> literals = new IdentityHashMap<Exp, Exp>();
+		private HashMap<Long, Exp> sites = new HashMap<Long, Exp>();
+		private String mismatch; //first literal that is not at a site of its own
+
+		private void literal(Exp literal, String value, long statement) {
+			if (mismatch != null)
+				return;
+			long span = literal.getSpan();
+			if (literals.put(literal, literal) != null)
+				mismatch = "literal " + value + " is shared by several expressions";
+			else if (span == Span.NONE)
+				mismatch = "literal " + value + " has no span";
+			else if (statement != Span.NONE
+					&& (Span.offset(span) < Span.offset(statement) || Span.end(span) > Span.end(statement)))
+				mismatch = "literal " + value + " at " + Span.offset(span) + " is outside its statement";
+			else if (sites.put(span, literal) != null)
+				mismatch = "two literals at " + Span.offset(span) + "+" + Span.length(span);
+		}
+
+		@Override
+		public Void visit(Assign assignStm, Long statement) {
+			return super.visit(assignStm, assignStm.getSpan());
+		}
+
+		@Override
+		public Void visit(ArrayAssign arrayAssignStm, Long statement) {
+			return super.visit(arrayAssignStm, arrayAssignStm.getSpan());
+		}
+
+		@Override
+		public Void visit(If ifStm, Long statement) {
+			return super.visit(ifStm, ifStm.getSpan());
+		}
+
+		@Override
+		public Void visit(While whileStm, Long statement) {
+			return super.visit(whileStm, whileStm.getSpan());
+		}
+
+		@Override
+		public Void visit(IntegerLiteral intLiteral, Long statement) {
+			literal(intLiteral, String.valueOf(intLiteral.getValue()), statement);
+			return null;
+		}
+
+		@Override
+		public Void visit(FloatLiteral floatLiteral, Long statement) {
+			literal(floatLiteral, String.valueOf(floatLiteral.getValue()), statement);
+			return null;
+		}
+
+		@Override
+		public Void visit(CharLiteral charLiteral, Long statement) {
+			literal(charLiteral, "'" + charLiteral.getValue() + "'", statement);
+			return null;
+		}
+
+		@Override
+		public Void visit(BooleanLiteral booleanLiteral, Long statement) {
+			literal(booleanLiteral, String.valueOf(booleanLiteral.getValue()), statement);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package semantic;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import diagnostic.Diagnostic;
+import diagnostic.DiagnosticList;
+import lexer.Lexer;
+import parser.Parser;
+
+/*
+ *
+ * Differential check of the incremental analyzer: applies a sequence of
+ * random edits to each file argument and compares the diagnostics after
+ * every edit with a fresh SemanticAnalyzer run over the edited text. Most
+ * edits are undone by the next one and the original text is reloaded
+ * every RELOAD edits, so the program stays close to the original instead
+ * of decaying into noise, e.g.
+ * java semantic.TestIncremental [-edits N] tests/*.txt
+ *
+ */
+
+public class TestIncremental {
+	private final static int RELOAD = 50;
+
+	// text typed by the random edits
+	private final static String[] SNIPPETS = { "", " ", "\n", "\t", "x", "a1", "5", ";", "=", "+", "(", ")", "{", "}",
+			"y = 2;", "x = a;", "int z;", "float x;", "char c;", "if (x) ", "while (a < b) ", "\n\t{ x = 1; }\n" };
+
+	public static void main(String[] args) throws IOException {
+		int edits = 1000;
+		int first = 0;
+		if (args.length > 1 && args[0].equals("-edits")) {
+			edits = Integer.parseInt(args[1]);
+			first = 2;
+		}
+
+		if (args.length == first) {
+			System.err.println("No file arguments given");
+			return;
+		}
+
+		int failures = 0;
+		for (int i = first; i < args.length; i++) {
+			String text = new String(Files.readAllBytes(Paths.get(args[i])), StandardCharsets.ISO_8859_1);
+			// keep whitespace at the end so every malformed number the edits create is terminated
+			if (!text.endsWith("\n"))
+				text += "\n";
+
+			IncrementalAnalyzer incremental = new IncrementalAnalyzer(text);
+			Random random = new Random(i);
+			String mismatch = null;
+			long incrementalTime = 0;
+			long fullTime = 0;
+			long reparsed = 0;
+
+			int undoOffset = -1; //edit restoring the text before the previous edit
+			int undoLength = 0;
+			String undoText = null;
+
+			for (int edit = 1; edit <= edits && mismatch == null; edit++) {
+				String current = incremental.getText();
+				int offset, removed;
+				String replacement;
+				if (edit % RELOAD == 0) {
+					offset = 0;
+					removed = current.length();
+					replacement = text;
+					undoOffset = -1;
+				} else if (undoOffset >= 0 && random.nextInt(4) != 0) {
+					offset = undoOffset;
+					removed = undoLength;
+					replacement = undoText;
+					undoOffset = -1;
+				} else {
+					offset = random.nextInt(current.length());
+					removed = Math.min(random.nextInt(4), current.length() - 1 - offset);
+					replacement = SNIPPETS[random.nextInt(SNIPPETS.length)];
+					undoOffset = offset;
+					undoLength = replacement.length();
+					undoText = current.substring(offset, offset + removed);
+				}
+
+				long startTime = System.nanoTime();
+				incremental.edit(offset, removed, replacement);
+				incrementalTime += System.nanoTime() - startTime;
+				reparsed += incremental.getReparsedUnits();
+
+				startTime = System.nanoTime();
+				DiagnosticList expected = analyze(incremental.getText());
+				fullTime += System.nanoTime() - startTime;
+
+				if (!describe(expected.getDiagnostics()).equals(describe(incremental.getDiagnostics())))
+					mismatch = "edit " + edit + " (" + offset + "+" + removed + " \"" + replacement + "\") of\n" + current
+							+ "\nexpected\n"
+							+ describe(expected.getDiagnostics()) + "got\n" + describe(incremental.getDiagnostics());
+			}
+
+			if (mismatch != null) {
+				System.err.println(args[i] + ": MISMATCH at " + mismatch);
+				failures++;
+			} else
+				System.out.println(args[i] + ": OK (" + edits + " edits, " + incremental.getFullAnalyses()
+						+ " full analyses, " + reparsed + " units re-parsed, " + incrementalTime / 1000000 + "ms vs "
+						+ fullTime / 1000000 + "ms from scratch)");
+		}
+
+		System.out.println("---");
+		System.out.println(failures + " of " + (args.length - first) + " files differ");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	// diagnostics of a from-scratch analysis
+	private static DiagnosticList analyze(String text) throws IOException {
+		DiagnosticList diagnostics = new DiagnosticList();
+		SemanticAnalyzer semantic = new SemanticAnalyzer(new Parser(new Lexer(CharBuffer.wrap(text))));
+		semantic.setDiagnosticSink(diagnostics);
+		semantic.analyzeProgram();
+		return diagnostics;
+	}
+
+	// one report per line
+	private static String describe(List<Diagnostic> diagnostics) {
+		StringBuilder text = new StringBuilder();
+		for (Diagnostic diagnostic : diagnostics)
+			text.append(diagnostic.getMessage()).append('\n');
+		return text.toString();
+	}
+}
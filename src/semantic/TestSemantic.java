@@ -1,22 +1,54 @@
 package semantic;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import diagnostic.Diagnostic;
 import semantic.SemanticAnalyzer;
 
 public class TestSemantic {
+	private final static long CACHE_SIZE = 64L << 20; //default cache budget in bytes
+
 	public static void main(String[] args) throws IOException {
-		if (args.length == 0)
+		// -stream checks while parsing instead of after, -parallel checks on several threads after parsing,
+		// -cache DIR [-cache-size MB] reuses the stored results of unchanged files
+		boolean stream = false;
+		boolean parallel = false;
+		String cacheDirectory = null;
+		long cacheSize = CACHE_SIZE;
+		int first = 0;
+		for (; first < args.length; first++) {
+			if (args[first].equals("-stream"))
+				stream = true;
+			else if (args[first].equals("-parallel"))
+				parallel = true;
+			else if (args[first].equals("-cache") && first + 1 < args.length)
+				cacheDirectory = args[++first];
+			else if (args[first].equals("-cache-size") && first + 1 < args.length)
+				cacheSize = Long.parseLong(args[++first]) << 20;
+			else
+				break;
+		}
+		AnalysisCache cache = (cacheDirectory != null) ? new AnalysisCache(new File(cacheDirectory), cacheSize) : null;
+
+		if (args.length == first)
 			System.err.println("No file arguments givens");
 		else {
 			// parse each file argument given
-			for (int i = 0; i < args.length; i++) {
+			for (int i = first; i < args.length; i++) {
+				if (cache != null) {
+					analyzeCached(cache, args[i]);
+					continue;
+				}
+
 				FileReader file;
 				
 				// attempt to open file
 				try {
-					file = new FileReader(args[i]);
+					file = new FileReader(args[i], StandardCharsets.UTF_8); // decoded like a cached analysis
 				} catch (FileNotFoundException e) {
 					System.err.println(args[i] + " was not found!");
 					continue; // try next file
@@ -28,7 +60,12 @@ public class TestSemantic {
 				
 				// initiate parse and clock time
 				long startTime = System.currentTimeMillis();
-				semantic.analyzeProgram();
+				if (stream)
+					semantic.analyzeProgramStreaming();
+				else if (parallel)
+					semantic.analyzeProgramParallel();
+				else
+					semantic.analyzeProgram();
 				long endTime = System.currentTimeMillis();
 				
 				// print out statistics
@@ -37,6 +74,34 @@ public class TestSemantic {
 				System.out.println(semantic.getErrors() + " errors reported");
 				System.out.println("---");
 			}
+
+			if (cache != null)
+				System.out.println("Cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses, "
+						+ cache.getSize() + " bytes");
 		}
 	}
+
+	// analyze a file through the cache, printing the same report as an uncached run
+	private static void analyzeCached(AnalysisCache cache, String path) throws IOException {
+		File file = new File(path);
+		if (!file.isFile()) {
+			System.err.println(path + " was not found!");
+			return;
+		}
+
+		System.out.println("Analyzing " + path + "...");
+
+		long startTime = System.currentTimeMillis();
+		AnalysisCache.Analysis analysis = cache.analyze(file);
+		long endTime = System.currentTimeMillis();
+
+		for (Diagnostic diagnostic : analysis.getDiagnostics())
+			System.err.println(diagnostic.getMessage());
+		System.err.flush();
+
+		System.out.println("File has finished analyzing!" + (analysis.isCached() ? " (cached)" : ""));
+		System.out.println("Execution time: " + (endTime - startTime) + "ms");
+		System.out.println(analysis.getErrors() + " errors reported");
+		System.out.println("---");
+	}
 }
\ No newline at end of file
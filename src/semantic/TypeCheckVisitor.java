@@ -0,0 +1,537 @@
+package semantic;
+
+import java.util.Arrays;
+
+import ast.*;
+import visitor.GenericDepthFirstVisitor;
+import visitor.GenericVisitor;
+import visitor.Visitor;
+
+/*
+ *
+ * Computes the type of every expression node and caches it on the node
+ * (Exp.getType()). Each node is visited twice in a single post-order pass
+ * driven by an explicit stack: once to push its operands and once, after
+ * all operands are typed, to compute its own type from theirs. Deeply
+ * nested expressions therefore cost heap instead of Java stack.
+ *
+ * Single types are shared instances (INT, FLOAT, CHAR, BOOLEAN); a variable
+ * has its declared type. Unknown types (undeclared variables, syntax errors
+ * or operands that do not fit the operator) are null, so one bad operand
+ * does not cascade into further errors.
+ *
+ * Arithmetic, negation and <, >, <=, >= take single numbers, && || and !
+ * take booleans, == and != take two numbers or two booleans, and an array
+ * lookup takes an array and an int or char index. An operand of a known
+ * type that does not fit is passed to the OperandListener, if one is set.
+ *
+ * Arithmetic yields float if any operand is float, else int if any operand
+ * is int, else char. Logic operators and comparisons yield boolean, and an
+ * array lookup yields the element type.
+ *
+ */
+
+public class TypeCheckVisitor implements Visitor {
+	public final static Type INT = new IntegerType();
+	public final static Type FLOAT = new FloatType();
+	public final static Type CHAR = new CharType();
+	public final static Type BOOLEAN = new BooleanType();
+
+	// receives the operands whose type does not fit their operator
+	public interface OperandListener {
+		public void invalidOperand(Exp operand, String operator);
+	}
+
+	private SymbolTable symbolTable;
+	private OperandListener listener; //null if invalid operands are not reported
+
+	// nodes waiting to be visited, with a flag telling if their operands were already pushed
+	private Exp[] stack = new Exp[16];
+	private boolean[] expanded = new boolean[16];
+	private int size;
+	private boolean expanding; //the visit pushes the operands instead of computing the type
+
+	// single type of a type or of its elements (null for class types), shared since it keeps no state
+	private final static GenericVisitor<Type, Void> ELEMENT_TYPE = new GenericDepthFirstVisitor<Type, Void>() {
+		public Type visit(IntegerArrayType intArrayT, Void arg) {
+			return INT;
+		}
+
+		public Type visit(FloatArrayType floatArrayT, Void arg) {
+			return FLOAT;
+		}
+
+		public Type visit(BooleanArrayType booleanArrayT, Void arg) {
+			return BOOLEAN;
+		}
+
+		public Type visit(CharArrayType charArrayT, Void arg) {
+			return CHAR;
+		}
+
+		public Type visit(IntegerType intT, Void arg) {
+			return INT;
+		}
+
+		public Type visit(FloatType floatT, Void arg) {
+			return FLOAT;
+		}
+
+		public Type visit(BooleanType boolT, Void arg) {
+			return BOOLEAN;
+		}
+
+		public Type visit(CharType charT, Void arg) {
+			return CHAR;
+		}
+	};
+
+	// check if a type is an array type (null for single and class types)
+	private final static GenericVisitor<Boolean, Void> IS_ARRAY = new GenericDepthFirstVisitor<Boolean, Void>() {
+		public Boolean visit(IntegerArrayType intArrayT, Void arg) {
+			return Boolean.TRUE;
+		}
+
+		public Boolean visit(FloatArrayType floatArrayT, Void arg) {
+			return Boolean.TRUE;
+		}
+
+		public Boolean visit(BooleanArrayType booleanArrayT, Void arg) {
+			return Boolean.TRUE;
+		}
+
+		public Boolean visit(CharArrayType charArrayT, Void arg) {
+			return Boolean.TRUE;
+		}
+	};
+
+	public TypeCheckVisitor(SymbolTable symbolTable) {
+		this.symbolTable = symbolTable;
+	}
+
+	// report the operands that do not fit their operator
+	public void setOperandListener(OperandListener listener) {
+		this.listener = listener;
+	}
+
+	// type an expression and all its subexpressions, returns the type of the expression (null if unknown)
+	public Type check(Exp exp) {
+		if (exp == null)
+			return null;
+
+		push(exp, false);
+		while (size > 0) {
+			Exp node = stack[--size];
+			stack[size] = null;
+			expanding = !expanded[size];
+			if (expanding)
+				push(node, true); // revisit once the operands pushed above it are typed
+			node.accept(this);
+		}
+		return exp.getType();
+	}
+
+	// type the index of an element assignment (id[index] = value), reporting it if it is not an int or char
+	public Type checkIndex(Exp index) {
+		Type type = check(index);
+		expectIndex(index);
+		return type;
+	}
+
+	// the single type of a type or of its elements (null if unknown)
+	public static Type elementType(Type type) {
+		return (type != null) ? type.accept(ELEMENT_TYPE, null) : null;
+	}
+
+	// check if a type is an array type
+	public static boolean isArray(Type type) {
+		return type != null && type.accept(IS_ARRAY, null) != null;
+	}
+
+	private void push(Exp exp, boolean operandsPushed) {
+		if (size == stack.length) {
+			stack = Arrays.copyOf(stack, size * 2);
+			expanded = Arrays.copyOf(expanded, size * 2);
+		}
+		stack[size] = exp;
+		expanded[size] = operandsPushed;
+		size++;
+	}
+
+	// push the operands of a node so they are typed before it
+	private void operands(Exp... exps) {
+		for (Exp exp : exps) {
+			if (exp != null)
+				push(exp, false);
+		}
+	}
+
+	// type of an operand (null if missing or unknown)
+	private static Type typeOf(Exp exp) {
+		return (exp != null) ? exp.getType() : null;
+	}
+
+	// report an operand that does not fit its operator, returns false
+	private boolean invalid(Exp operand, String operator) {
+		if (listener != null)
+			listener.invalidOperand(operand, operator);
+		return false;
+	}
+
+	// check that an operand is a single number, returns false if it is reported (true for an unknown type)
+	private boolean expectNumber(Exp operand, String operator) {
+		Type type = typeOf(operand);
+		return (type == null || number(type) != null) || invalid(operand, operator);
+	}
+
+	// check that an operand is a single boolean, like expectNumber()
+	private boolean expectBoolean(Exp operand, String operator) {
+		Type type = typeOf(operand);
+		return (type == null || isBoolean(type)) || invalid(operand, operator);
+	}
+
+	// check that an array index is a single int or char, like expectNumber()
+	private boolean expectIndex(Exp index) {
+		Type type = typeOf(index);
+		Type number = number(type);
+		return (type == null || number == INT || number == CHAR) || invalid(index, "[]");
+	}
+
+	private static boolean isBoolean(Type type) {
+		return !isArray(type) && elementType(type) == BOOLEAN;
+	}
+
+	// result of an arithmetic operator, null unless both operands are single numbers
+	private Type arithmetic(Exp lhs, Exp rhs, String operator) {
+		boolean fits = expectNumber(lhs, operator);
+		fits = expectNumber(rhs, operator) && fits;
+		Type left = number(typeOf(lhs));
+		Type right = number(typeOf(rhs));
+		if (!fits || left == null || right == null)
+			return null;
+
+		if (left == FLOAT || right == FLOAT)
+			return FLOAT;
+		if (left == INT || right == INT)
+			return INT;
+		return CHAR;
+	}
+
+	// the single number type of a type (null for booleans, arrays and unknown types)
+	private static Type number(Type type) {
+		Type number = elementType(type);
+		return (isArray(type) || number == BOOLEAN) ? null : number;
+	}
+
+	// result of && or ||, boolean unless an operand is reported
+	private Type logic(Exp lhs, Exp rhs, String operator) {
+		boolean fits = expectBoolean(lhs, operator);
+		fits = expectBoolean(rhs, operator) && fits;
+		return fits ? BOOLEAN : null;
+	}
+
+	// result of <, >, <= or >=, boolean unless an operand is reported
+	private Type relation(Exp lhs, Exp rhs, String operator) {
+		boolean fits = expectNumber(lhs, operator);
+		fits = expectNumber(rhs, operator) && fits;
+		return fits ? BOOLEAN : null;
+	}
+
+	// result of == or !=, boolean unless an operand is reported: arrays do not fit,
+	// and a right operand that is a number against a boolean or a boolean against a number
+	private Type equality(Exp lhs, Exp rhs, String operator) {
+		Type left = typeOf(lhs);
+		Type right = typeOf(rhs);
+		boolean fits = true;
+		if (isArray(left))
+			fits = invalid(lhs, operator);
+		if (isArray(right))
+			fits = invalid(rhs, operator);
+		else if (fits && left != null && right != null && isBoolean(left) != isBoolean(right))
+			fits = invalid(rhs, operator);
+		return fits ? BOOLEAN : null;
+	}
+
+	// binary operators: push the operands, then compute the type from theirs
+
+	@Override
+	public void visit(And andExp) {
+		if (expanding)
+			operands(andExp.getLHS(), andExp.getRHS());
+		else
+			andExp.setType(logic(andExp.getLHS(), andExp.getRHS(), "&&"));
+	}
+
+	@Override
+	public void visit(Or orExp) {
+		if (expanding)
+			operands(orExp.getLHS(), orExp.getRHS());
+		else
+			orExp.setType(logic(orExp.getLHS(), orExp.getRHS(), "||"));
+	}
+
+	@Override
+	public void visit(MoreThan moreExp) {
+		if (expanding)
+			operands(moreExp.getLHS(), moreExp.getRHS());
+		else
+			moreExp.setType(relation(moreExp.getLHS(), moreExp.getRHS(), ">"));
+	}
+
+	@Override
+	public void visit(LessThan lessThanExp) {
+		if (expanding)
+			operands(lessThanExp.getLHS(), lessThanExp.getRHS());
+		else
+			lessThanExp.setType(relation(lessThanExp.getLHS(), lessThanExp.getRHS(), "<"));
+	}
+
+	@Override
+	public void visit(Equal equalExp) {
+		if (expanding)
+			operands(equalExp.getLHS(), equalExp.getRHS());
+		else
+			equalExp.setType(equality(equalExp.getLHS(), equalExp.getRHS(), "=="));
+	}
+
+	@Override
+	public void visit(NotEqual notEqualExp) {
+		if (expanding)
+			operands(notEqualExp.getLHS(), notEqualExp.getRHS());
+		else
+			notEqualExp.setType(equality(notEqualExp.getLHS(), notEqualExp.getRHS(), "!="));
+	}
+
+	@Override
+	public void visit(MoreThanEqual moreEqualExp) {
+		if (expanding)
+			operands(moreEqualExp.getLHS(), moreEqualExp.getRHS());
+		else
+			moreEqualExp.setType(relation(moreEqualExp.getLHS(), moreEqualExp.getRHS(), ">="));
+	}
+
+	@Override
+	public void visit(LessThanEqual lessEqualExp) {
+		if (expanding)
+			operands(lessEqualExp.getLHS(), lessEqualExp.getRHS());
+		else
+			lessEqualExp.setType(relation(lessEqualExp.getLHS(), lessEqualExp.getRHS(), "<="));
+	}
+
+	@Override
+	public void visit(Plus plusExp) {
+		if (expanding)
+			operands(plusExp.getLHS(), plusExp.getRHS());
+		else
+			plusExp.setType(arithmetic(plusExp.getLHS(), plusExp.getRHS(), "+"));
+	}
+
+	@Override
+	public void visit(Minus minusExp) {
+		if (expanding)
+			operands(minusExp.getLHS(), minusExp.getRHS());
+		else
+			minusExp.setType(arithmetic(minusExp.getLHS(), minusExp.getRHS(), "-"));
+	}
+
+	@Override
+	public void visit(Times timesExp) {
+		if (expanding)
+			operands(timesExp.getLHS(), timesExp.getRHS());
+		else
+			timesExp.setType(arithmetic(timesExp.getLHS(), timesExp.getRHS(), "*"));
+	}
+
+	@Override
+	public void visit(Divide divExp) {
+		if (expanding)
+			operands(divExp.getLHS(), divExp.getRHS());
+		else
+			divExp.setType(arithmetic(divExp.getLHS(), divExp.getRHS(), "/"));
+	}
+
+	@Override
+	public void visit(Modules modExp) {
+		if (expanding)
+			operands(modExp.getLHS(), modExp.getRHS());
+		else
+			modExp.setType(arithmetic(modExp.getLHS(), modExp.getRHS(), "%"));
+	}
+
+	@Override
+	public void visit(ArrayLookup arrayLookup) {
+		if (expanding)
+			operands(arrayLookup.getArray(), arrayLookup.getIndex());
+		else {
+			Type array = typeOf(arrayLookup.getArray());
+			boolean fits = array == null || isArray(array) || invalid(arrayLookup.getArray(), "[]");
+			fits = expectIndex(arrayLookup.getIndex()) && fits;
+			arrayLookup.setType((fits && isArray(array)) ? elementType(array) : null);
+		}
+	}
+
+	// unary operators
+
+	@Override
+	public void visit(ArrayLength length) {
+		if (expanding)
+			operands(length.getArray());
+		else
+			length.setType(INT);
+	}
+
+	@Override
+	public void visit(NewArray array) {
+		// the element type of a new array is not part of the expression
+		if (expanding)
+			operands(array.getArraySize());
+	}
+
+	@Override
+	public void visit(Not notExp) {
+		if (expanding)
+			operands(notExp.getExp());
+		else
+			notExp.setType(expectBoolean(notExp.getExp(), "!") ? BOOLEAN : null);
+	}
+
+	@Override
+	public void visit(Negative negExp) {
+		if (expanding)
+			operands(negExp.getExp());
+		else
+			negExp.setType(expectNumber(negExp.getExp(), "-") ? number(typeOf(negExp.getExp())) : null);
+	}
+
+	// leaves are typed when first visited
+
+	@Override
+	public void visit(IntegerLiteral intLiteral) {
+		intLiteral.setType(INT);
+	}
+
+	@Override
+	public void visit(FloatLiteral floatLiteral) {
+		floatLiteral.setType(FLOAT);
+	}
+
+	@Override
+	public void visit(BooleanLiteral booleanLiteral) {
+		booleanLiteral.setType(BOOLEAN);
+	}
+
+	@Override
+	public void visit(CharLiteral charLiteral) {
+		charLiteral.setType(CHAR);
+	}
+
+	@Override
+	public void visit(True trueLiteral) {
+		trueLiteral.setType(BOOLEAN);
+	}
+
+	@Override
+	public void visit(False falseLiteral) {
+		falseLiteral.setType(BOOLEAN);
+	}
+
+	@Override
+	public void visit(IdentifierExp identExp) {
+		int symbol = identExp.getSymbol();
+		identExp.setType((symbol >= 0) ? symbolTable.getType(symbol) : symbolTable.getType(identExp.getName()));
+	}
+
+	// types are classified by the stateless ELEMENT_TYPE and IS_ARRAY visitors
+
+	@Override
+	public void visit(IntegerArrayType intArrayT) {}
+
+	@Override
+	public void visit(FloatArrayType floatArrayT) {}
+
+	@Override
+	public void visit(BooleanArrayType booleanArrayT) {}
+
+	@Override
+	public void visit(CharArrayType charArrayT) {}
+
+	@Override
+	public void visit(BooleanType boolT) {}
+
+	@Override
+	public void visit(IntegerType intT) {}
+
+	@Override
+	public void visit(FloatType floatT) {}
+
+	@Override
+	public void visit(CharType charT) {}
+
+	@Override
+	public void visit(IdentifierType idT) {}
+
+	// statements type the expressions they contain
+
+	@Override
+	public void visit(Program prog) {
+		if (prog.getStm() != null)
+			visitStatements(prog.getStm());
+	}
+
+	@Override
+	public void visit(Block blockStm) {
+		if (blockStm.getStms() != null)
+			visitStatements(blockStm.getStms());
+	}
+
+	@Override
+	public void visit(If ifStm) {
+		check(ifStm.getCondExp());
+		if (ifStm.getTrueStm() != null)
+			ifStm.getTrueStm().accept(this);
+		if (ifStm.getFalseStm() != null)
+			ifStm.getFalseStm().accept(this);
+	}
+
+	@Override
+	public void visit(While whileStm) {
+		check(whileStm.getCondExp());
+		if (whileStm.getStm() != null)
+			whileStm.getStm().accept(this);
+	}
+
+	@Override
+	public void visit(Assign assignStm) {
+		check(assignStm.getValue());
+	}
+
+	@Override
+	public void visit(ArrayAssign arrayAssignStm) {
+		check(arrayAssignStm.getIndex());
+		check(arrayAssignStm.getValue());
+	}
+
+	private void visitStatements(StatementList statements) {
+		for (int i = 0; i < statements.size(); i++) {
+			if (statements.elementAt(i) != null)
+				statements.elementAt(i).accept(this);
+		}
+	}
+
+	// declarations hold no expressions
+
+	@Override
+	public void visit(VarDecl var) {}
+
+	@Override
+	public void visit(VarDeclList varList) {}
+
+	@Override
+	public void visit(Declarations dec) {}
+
+	@Override
+	public void visit(Formal param) {}
+
+	@Override
+	public void visit(Identifier id) {}
+}
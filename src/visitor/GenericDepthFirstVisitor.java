@@ -0,0 +1,322 @@
+package visitor;
+
+import ast.*;
+
+/*
+ *
+ * Default traversal for generic visitors: every visit passes the argument
+ * on to the children of the node, in source order, and returns null.
+ * Subclasses override only the nodes they compute something for, calling
+ * super.visit() where the children should still be traversed. The
+ * traversal is recursive, so the Java stack bounds the expression depth.
+ *
+ */
+
+public class GenericDepthFirstVisitor<R, A> implements GenericVisitor<R, A> {
+	// visit a child that may be missing after a syntax error
+	protected void visit(Exp exp, A arg) {
+		if (exp != null)
+			exp.accept(this, arg);
+	}
+
+	protected void visit(Statement stm, A arg) {
+		if (stm != null)
+			stm.accept(this, arg);
+	}
+
+	protected void visit(StatementList stms, A arg) {
+		if (stms == null)
+			return;
+		for (int i = 0; i < stms.size(); i++)
+			visit(stms.elementAt(i), arg);
+	}
+
+	protected void visit(Type type, A arg) {
+		if (type != null)
+			type.accept(this, arg);
+	}
+
+	protected void visitId(Identifier id, A arg) {
+		if (id != null)
+			id.accept(this, arg);
+	}
+
+	@Override
+	public R visit(Program prog, A arg) {
+		if (prog.getList() != null)
+			prog.getList().accept(this, arg);
+		visit(prog.getStm(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(VarDecl var, A arg) {
+		visit(var.getType(), arg);
+		visitId(var.getId(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(VarDeclList varList, A arg) {
+		for (VarDecl varDecl : varList.getList())
+			varDecl.accept(this, arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Declarations dec, A arg) {
+		for (VarDeclList varDeclList : dec.getList())
+			varDeclList.accept(this, arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Formal param, A arg) {
+		visit(param.getType(), arg);
+		visitId(param.getId(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(IntegerArrayType intArrayT, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(FloatArrayType floatArrayT, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(BooleanArrayType booleanArrayT, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(CharArrayType charArrayT, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(BooleanType boolT, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(IntegerType intT, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(FloatType floatT, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(CharType charT, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(IdentifierType idT, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(Block blockStm, A arg) {
+		visit(blockStm.getStms(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(If ifStm, A arg) {
+		visit(ifStm.getCondExp(), arg);
+		visit(ifStm.getTrueStm(), arg);
+		visit(ifStm.getFalseStm(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(While whileStm, A arg) {
+		visit(whileStm.getCondExp(), arg);
+		visit(whileStm.getStm(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Assign assignStm, A arg) {
+		visitId(assignStm.getId(), arg);
+		visit(assignStm.getValue(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(ArrayAssign arrayAssignStm, A arg) {
+		visitId(arrayAssignStm.getId(), arg);
+		visit(arrayAssignStm.getIndex(), arg);
+		visit(arrayAssignStm.getValue(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(And andExp, A arg) {
+		visit(andExp.getLHS(), arg);
+		visit(andExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Or orExp, A arg) {
+		visit(orExp.getLHS(), arg);
+		visit(orExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(MoreThan moreExp, A arg) {
+		visit(moreExp.getLHS(), arg);
+		visit(moreExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(LessThan lessThanExp, A arg) {
+		visit(lessThanExp.getLHS(), arg);
+		visit(lessThanExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Equal equalExp, A arg) {
+		visit(equalExp.getLHS(), arg);
+		visit(equalExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(NotEqual notEqualExp, A arg) {
+		visit(notEqualExp.getLHS(), arg);
+		visit(notEqualExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(MoreThanEqual moreEqualExp, A arg) {
+		visit(moreEqualExp.getLHS(), arg);
+		visit(moreEqualExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(LessThanEqual lessEqualExp, A arg) {
+		visit(lessEqualExp.getLHS(), arg);
+		visit(lessEqualExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Plus plusExp, A arg) {
+		visit(plusExp.getLHS(), arg);
+		visit(plusExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Minus minusExp, A arg) {
+		visit(minusExp.getLHS(), arg);
+		visit(minusExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Times timesExp, A arg) {
+		visit(timesExp.getLHS(), arg);
+		visit(timesExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Divide divExp, A arg) {
+		visit(divExp.getLHS(), arg);
+		visit(divExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Modules modExp, A arg) {
+		visit(modExp.getLHS(), arg);
+		visit(modExp.getRHS(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(ArrayLookup arrayLookup, A arg) {
+		visit(arrayLookup.getArray(), arg);
+		visit(arrayLookup.getIndex(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(ArrayLength length, A arg) {
+		visit(length.getArray(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(IntegerLiteral intLiteral, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(FloatLiteral floatLiteral, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(BooleanLiteral booleanLiteral, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(CharLiteral charLiteral, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(True trueLiteral, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(False falseLiteral, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(IdentifierExp identExp, A arg) {
+		return null;
+	}
+
+	@Override
+	public R visit(NewArray array, A arg) {
+		visit(array.getArraySize(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Not notExp, A arg) {
+		visit(notExp.getExp(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Negative negExp, A arg) {
+		visit(negExp.getExp(), arg);
+		return null;
+	}
+
+	@Override
+	public R visit(Identifier id, A arg) {
+		return null;
+	}
+}
@@ -0,0 +1,60 @@
+package visitor;
+
+import ast.*;
+
+/*
+ * 
+ * Visitor returning a value of type R from each visit and passing an
+ * argument of type A down the tree, so analyses can compute results
+ * without keeping them in fields and one instance can be shared between
+ * threads. Nodes dispatch to it with accept(visitor, arg).
+ * 
+ */
+
+public interface GenericVisitor<R, A> {
+	public R visit(Program prog, A arg);
+	public R visit(VarDecl var, A arg);
+	public R visit(VarDeclList varList, A arg);
+	public R visit(Declarations dec, A arg);
+	public R visit(Formal param, A arg);
+	public R visit(IntegerArrayType intArrayT, A arg);
+	public R visit(FloatArrayType floatArrayT, A arg);
+	public R visit(BooleanArrayType booleanArrayT, A arg);
+	public R visit(CharArrayType charArrayT, A arg);
+	public R visit(BooleanType boolT, A arg);
+	public R visit(IntegerType intT, A arg);
+	public R visit(FloatType floatT, A arg);
+	public R visit(CharType charT, A arg);
+	public R visit(IdentifierType idT, A arg);
+	public R visit(Block blockStm, A arg);
+	public R visit(If ifStm, A arg);
+	public R visit(While whileStm, A arg);
+	public R visit(Assign assignStm, A arg);
+	public R visit(ArrayAssign arrayAssignStm, A arg);
+	public R visit(And andExp, A arg);
+	public R visit(Or orExp, A arg);
+	public R visit(MoreThan moreExp, A arg);
+	public R visit(LessThan lessThanExp, A arg);
+	public R visit(Equal equalExp, A arg);
+	public R visit(NotEqual notEqualExp, A arg);
+	public R visit(MoreThanEqual moreEqualExp, A arg);
+	public R visit(LessThanEqual lessEqualExp, A arg);
+	public R visit(Plus plusExp, A arg);
+	public R visit(Minus minusExp, A arg);
+	public R visit(Times timesExp, A arg);
+	public R visit(Divide divExp, A arg);
+	public R visit(Modules modExp, A arg);
+	public R visit(ArrayLookup arrayLookup, A arg);
+	public R visit(ArrayLength length, A arg);
+	public R visit(IntegerLiteral intLiteral, A arg);
+	public R visit(FloatLiteral floatLiteral, A arg);
+	public R visit(BooleanLiteral booleanLiteral, A arg);
+	public R visit(CharLiteral charLiteral, A arg);
+	public R visit(True trueLiteral, A arg);
+	public R visit(False falseLiteral, A arg);
+	public R visit(IdentifierExp identExp, A arg);
+	public R visit(NewArray array, A arg);
+	public R visit(Not notExp, A arg);
+	public R visit(Negative negExp, A arg);
+	public R visit(Identifier id, A arg);
+}
\ No newline at end of file